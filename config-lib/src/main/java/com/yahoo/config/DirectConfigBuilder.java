@@ -0,0 +1,51 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.config;
+
+/**
+ * A config builder which lets its fields be set by name, without reflection. This is implemented by generated
+ * config builders, and used to apply config payloads to them. Methods have the prefix of internal members of
+ * generated code, which is not allowed in config definitions, so they cannot clash with the setters of config fields.
+ *
+ * For internal use only.
+ */
+public interface DirectConfigBuilder extends ConfigBuilder {
+
+    /** The types of values given for a field, to {@link #__set} and {@link #__put} */
+    enum ValueType {
+
+        /** A string, which is parsed to the type of the field */
+        STRING,
+
+        /** A {@link FileReference} */
+        PATH,
+
+        /** An optional {@link FileReference} */
+        OPTIONAL_PATH,
+
+        /** A {@link UrlReference} */
+        URL,
+
+        /** A {@link ModelReference} */
+        MODEL,
+
+        /** A builder returned from {@link #__newBuilder} for the same field */
+        STRUCT
+
+    }
+
+    /** Returns the type of values of the field with the given name, or null if this has no such field */
+    ValueType __valueType(String field);
+
+    /** Returns whether the field with the given name is a map */
+    boolean __isMap(String field);
+
+    /** Returns a new builder for the struct, struct array or struct map field with the given name */
+    DirectConfigBuilder __newBuilder(String field);
+
+    /** Sets the given value of the field with the given name, or adds it if the field is an array */
+    void __set(String field, Object value);
+
+    /** Puts the given value for the given key in the map field with the given name */
+    void __put(String field, String key, Object value);
+
+}
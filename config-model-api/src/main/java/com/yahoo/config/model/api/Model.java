@@ -8,6 +8,7 @@ import com.yahoo.config.provision.AllocatedHosts;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Set;
@@ -84,4 +85,8 @@ public interface Model {
 
     /** Returns the set of container clusters */
     default Set<ApplicationClusterInfo> applicationClusterInfo() { return Set.of(); }
+
+    /** Returns the time spent in each phase of building this model, by phase name, in the order they completed. */
+    default Map<String, Duration> buildTimes() { return Map.of(); }
+
 }
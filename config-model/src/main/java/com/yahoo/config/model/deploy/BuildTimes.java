@@ -0,0 +1,38 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.config.model.deploy;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The time spent in each phase of building a model. Phases which run several times, possibly concurrently,
+ * e.g. once per schema, are recorded as the sum of their durations, and phases may be part of others,
+ * e.g. rank profiles are derived while config models are built. This is thread safe.
+ */
+public class BuildTimes {
+
+    public static final String schemas = "schemas";
+    public static final String rankProfiles = "rankProfiles";
+    public static final String configModels = "configModels";
+    public static final String prepare = "prepare";
+    public static final String validation = "validation";
+
+    private final Map<String, Duration> times = new LinkedHashMap<>();
+
+    /** Adds the time since the given start, as returned by {@link System#nanoTime()}, to the given phase */
+    public void addSince(String phase, long startNanos) {
+        add(phase, Duration.ofNanos(System.nanoTime() - startNanos));
+    }
+
+    public synchronized void add(String phase, Duration duration) {
+        times.merge(phase, duration, Duration::plus);
+    }
+
+    /** Returns an immutable snapshot of the time spent in each phase so far, in the order they were first recorded */
+    public synchronized Map<String, Duration> asMap() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(times));
+    }
+
+}
@@ -34,11 +34,13 @@ import com.yahoo.schema.Application;
 import com.yahoo.schema.ApplicationBuilder;
 import com.yahoo.schema.RankProfileRegistry;
 import com.yahoo.schema.Schema;
+import com.yahoo.schema.derived.DerivedRankProfiles;
 import com.yahoo.search.query.profile.QueryProfileRegistry;
 import com.yahoo.vespa.config.ConfigDefinition;
 import com.yahoo.vespa.config.ConfigDefinitionBuilder;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.documentmodel.DocumentModel;
+import com.yahoo.vespa.model.VespaModel;
 import com.yahoo.vespa.model.container.search.QueryProfiles;
 import com.yahoo.vespa.model.container.search.QueryProfilesBuilder;
 import com.yahoo.vespa.model.container.search.SemanticRules;
@@ -92,6 +94,8 @@ public class DeployState implements ConfigDefinitionStore {
     private final Reindexing reindexing;
     private final ExecutorService executor;
     private final OnnxModelCost onnxModelCost;
+    private final BuildTimes buildTimes;
+    private final DerivedRankProfiles derivedRankProfiles;
 
     public static DeployState createTestState() {
         return new Builder().build();
@@ -127,7 +131,8 @@ public class DeployState implements ConfigDefinitionStore {
                         Optional<DockerImage> wantedDockerImageRepo,
                         Reindexing reindexing,
                         Optional<ValidationOverrides> validationOverrides,
-                        OnnxModelCost onnxModelCost) {
+                        OnnxModelCost onnxModelCost,
+                        BuildTimes buildTimes) {
         this.logger = deployLogger;
         this.fileRegistry = fileRegistry;
         this.executor = executor;
@@ -156,6 +161,10 @@ public class DeployState implements ConfigDefinitionStore {
         this.wantedDockerImageRepo = wantedDockerImageRepo;
         this.reindexing = reindexing;
         this.onnxModelCost = onnxModelCost;
+        this.buildTimes = buildTimes;
+        this.derivedRankProfiles = new DerivedRankProfiles(previousModel.filter(VespaModel.class::isInstance)
+                                                                        .map(model -> ((VespaModel) model).derivedRankProfiles()),
+                                                           properties.featureFlags().reuseDerivedRankProfiles());
     }
 
     public static HostProvisioner getDefaultModelHostProvisioner(ApplicationPackage applicationPackage) {
@@ -311,6 +320,12 @@ public class DeployState implements ConfigDefinitionStore {
 
     public OnnxModelCost onnxModelCost() { return onnxModelCost; }
 
+    /** Returns the time spent in each phase of building the model of this so far */
+    public BuildTimes buildTimes() { return buildTimes; }
+
+    /** Returns the rank profiles derived for the model of this, which may be reused from the previous model */
+    public DerivedRankProfiles derivedRankProfiles() { return derivedRankProfiles; }
+
     public boolean isHostedTenantApplication(ApplicationType type) {
         boolean isTesterApplication = getProperties().applicationId().instance().isTester();
         return isHosted() && type == ApplicationType.DEFAULT && !isTesterApplication;
@@ -464,12 +479,15 @@ public class DeployState implements ConfigDefinitionStore {
         }
 
         public DeployState build(ValidationParameters validationParameters) {
+            BuildTimes buildTimes = new BuildTimes();
+            long start = System.nanoTime();
             if (queryProfiles == null)
                 queryProfiles = new QueryProfilesBuilder().build(applicationPackage, logger);
             SemanticRules semanticRules = new SemanticRuleBuilder().build(applicationPackage);
             Application application = new ApplicationBuilder(applicationPackage, fileRegistry, logger, properties,
                                                              rankProfileRegistry, queryProfiles.getRegistry())
                     .build(! validationParameters.ignoreValidationErrors());
+            buildTimes.addSince(BuildTimes.schemas, start);
             return new DeployState(application,
                                    rankProfileRegistry,
                                    fileRegistry,
@@ -492,7 +510,8 @@ public class DeployState implements ConfigDefinitionStore {
                                    wantedDockerImageRepo,
                                    reindexing,
                                    validationOverrides,
-                                   onnxModelCost);
+                                   onnxModelCost,
+                                   buildTimes);
         }
 
     }
@@ -87,6 +87,7 @@ public class TestProperties implements ModelContext.Properties, ModelContext.Fea
     private long mergingMaxMemoryUsagePerNode = -1;
     private boolean usePerDocumentThrottledDeleteBucket = false;
     private boolean restartOnDeployWhenOnnxModelChanges = false;
+    private boolean reuseDerivedRankProfiles = false;
 
     @Override public ModelContext.FeatureFlags featureFlags() { return this; }
     @Override public boolean multitenant() { return multitenant; }
@@ -148,6 +149,7 @@ public class TestProperties implements ModelContext.Properties, ModelContext.Fea
     @Override public long mergingMaxMemoryUsagePerNode() { return mergingMaxMemoryUsagePerNode; }
     @Override public boolean usePerDocumentThrottledDeleteBucket() { return usePerDocumentThrottledDeleteBucket; }
     @Override public boolean restartOnDeployWhenOnnxModelChanges() { return restartOnDeployWhenOnnxModelChanges; }
+    @Override public boolean reuseDerivedRankProfiles() { return reuseDerivedRankProfiles; }
 
     public TestProperties sharedStringRepoNoReclaim(boolean sharedStringRepoNoReclaim) {
         this.sharedStringRepoNoReclaim = sharedStringRepoNoReclaim;
@@ -395,6 +397,11 @@ public class TestProperties implements ModelContext.Properties, ModelContext.Fea
         return this;
     }
 
+    public TestProperties setReuseDerivedRankProfiles(boolean reuse) {
+        this.reuseDerivedRankProfiles = reuse;
+        return this;
+    }
+
     public static class Spec implements ConfigServerSpec {
 
         private final String hostName;
@@ -184,8 +184,8 @@ public class RankProfile implements Cloneable {
 
     private Stream<ImmutableSDField> allFields() {
         if (schema == null) return Stream.empty();
-        if (allFieldsList == null) {
-            allFieldsList = schema.allFieldsList();
+        if (allFieldsList == null) { // an immutable copy, as this may be read by multiple threads compiling rank profiles
+            allFieldsList = List.copyOf(schema.allFieldsList());
         }
         return allFieldsList.stream();
     }
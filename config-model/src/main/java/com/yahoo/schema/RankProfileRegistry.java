@@ -19,6 +19,8 @@ import java.util.Set;
  *
  * Global rank profiles are represented by the Search key null.
  *
+ * This is thread safe, as rank profiles of different schemas are derived concurrently.
+ *
  * @author Ulf Lilleengen
  */
 public class RankProfileRegistry {
@@ -41,7 +43,7 @@ public class RankProfileRegistry {
     }
 
     /** Adds a rank profile to this registry */
-    public void add(RankProfile rankProfile) {
+    public synchronized void add(RankProfile rankProfile) {
         String schemaName = extractName(rankProfile.schema());
         if ( ! rankProfiles.containsKey(schemaName)) {
             rankProfiles.put(schemaName, new LinkedHashMap<>());
@@ -68,26 +70,26 @@ public class RankProfileRegistry {
      * @param name the name of the rank profile
      * @return the RankProfile to return.
      */
-    public RankProfile get(String schema, String name) {
+    public synchronized RankProfile get(String schema, String name) {
         Map<String, RankProfile> profiles = rankProfiles.get(schema);
         if (profiles == null) return null;
         return profiles.get(name);
     }
 
-    public RankProfile get(ImmutableSchema schema, String name) {
+    public synchronized RankProfile get(ImmutableSchema schema, String name) {
         var profile = get(schema.getName(), name);
         if (profile != null) return profile;
         if (schema.inherited().isPresent()) return get(schema.inherited().get(), name);
         return null;
     }
 
-    public RankProfile getGlobal(String name) {
+    public synchronized RankProfile getGlobal(String name) {
         Map<String, RankProfile> profiles = rankProfiles.get(globalRankProfilesKey);
         if (profiles == null) return null;
         return profiles.get(name);
     }
 
-    public RankProfile resolve(SDDocumentType docType, String name) {
+    public synchronized RankProfile resolve(SDDocumentType docType, String name) {
         RankProfile rankProfile = get(docType.getName(), name);
         if (rankProfile != null) return rankProfile;
         for (var parent : docType.getInheritedTypes()) {
@@ -102,7 +104,7 @@ public class RankProfileRegistry {
      *
      * @return a set of global {@link RankProfile} instances
      */
-    public Collection<RankProfile> all() {
+    public synchronized Collection<RankProfile> all() {
         List<RankProfile> all = new ArrayList<>();
         for (var entry : rankProfiles.values()) {
             all.addAll(entry.values());
@@ -116,7 +118,7 @@ public class RankProfileRegistry {
      * @param schema the schema to fetch rank profiles for, or null for the global ones
      * @return a collection of {@link RankProfile} instances
      */
-    public Collection<RankProfile> rankProfilesOf(ImmutableSchema schema) {
+    public synchronized Collection<RankProfile> rankProfilesOf(ImmutableSchema schema) {
         String key = schema == null ? globalRankProfilesKey : schema.getName();
 
         if ( ! rankProfiles.containsKey(key)) return List.of();
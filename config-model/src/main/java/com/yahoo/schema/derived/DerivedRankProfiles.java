@@ -0,0 +1,299 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.schema.derived;
+
+import com.yahoo.config.application.api.ApplicationFile;
+import com.yahoo.config.application.api.ApplicationPackage;
+import com.yahoo.config.model.api.ModelContext;
+import com.yahoo.config.model.deploy.DeployState;
+import com.yahoo.path.Path;
+import com.yahoo.schema.DistributableResource;
+import com.yahoo.schema.LargeRankingExpressions;
+import com.yahoo.schema.OnnxModel;
+import com.yahoo.schema.RankProfile;
+import com.yahoo.schema.Schema;
+import com.yahoo.search.query.profile.types.FieldDescription;
+import com.yahoo.search.query.profile.types.QueryProfileType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static com.yahoo.config.application.api.ApplicationPackage.SCHEMAS_DIR;
+import static com.yahoo.config.application.api.ApplicationPackage.SEARCH_DEFINITIONS_DIR;
+
+/**
+ * The rank profiles derived while building a model, which are reused when building the next model of the
+ * same application, for schemas whose inputs are unchanged. Deriving rank profiles compiles all their expressions,
+ * which dominates the time spent building models of applications with many schemas and rank profiles.
+ * <p>
+ * The inputs of each schema are fingerprinted, and include the source files of the schema, and of the schemas
+ * it inherits or references, and the onnx model files they declare, as well as the inputs shared by all schemas:
+ * Other files in the schema directories, the models directory, query profile types, the feature flags used when
+ * deriving rank profiles, and the Vespa version. Global rank profiles are never reused.
+ * <p>
+ * This is thread safe.
+ */
+public class DerivedRankProfiles {
+
+    private static final Logger log = Logger.getLogger(DerivedRankProfiles.class.getName());
+
+    private final boolean reuse;
+    private final Map<Key, Entry> derived = new ConcurrentHashMap<>();
+    private final AtomicInteger reusedCount = new AtomicInteger();
+    private final AtomicInteger derivedCount = new AtomicInteger();
+
+    /** The rank profiles of the previous model, which are released when the model using this is built */
+    private volatile Map<Key, Entry> previous;
+
+    /** The fingerprints of the inputs of each schema of the model using this, computed on first use */
+    private Map<String, Optional<String>> fingerprints = null;
+
+    /** Creates an instance which derives all rank profiles */
+    public DerivedRankProfiles() {
+        this(Optional.empty(), false);
+    }
+
+    /** Creates an instance which reuses the rank profiles of the given instance of the previous model, if reuse is true */
+    public DerivedRankProfiles(Optional<DerivedRankProfiles> previous, boolean reuse) {
+        this.reuse = reuse;
+        this.previous = reuse ? previous.map(p -> p.derived).orElse(Map.of()) : Map.of();
+    }
+
+    /**
+     * Returns the raw rank profile of the given rank profile of the given schema, which is either reused, with the
+     * constants and onnx models of the given profile, if the inputs of the schema are the same as when it was derived,
+     * or derived by the given deriver.
+     * Large ranking expressions of reused profiles are added to the given large expressions, as when deriving them.
+     */
+    public RawRankProfile get(Schema schema, RankProfile profile, DeployState deployState,
+                              LargeRankingExpressions largeExpressions, Supplier<RawRankProfile> deriver) {
+        Optional<String> fingerprint = reuse && schema != null ? fingerprintOf(schema, deployState) : Optional.empty();
+        if (fingerprint.isEmpty()) {
+            derivedCount.incrementAndGet();
+            return deriver.get();
+        }
+
+        Key key = new Key(schema.getName(), profile.name());
+        Entry existing = derived.get(key); // Derived for another cluster with the same schema
+        if (existing == null || ! existing.fingerprint.equals(fingerprint.get()))
+            existing = previous.get(key);
+        if (existing != null && existing.fingerprint.equals(fingerprint.get())) {
+            Optional<RawRankProfile> reused = RawRankProfile.reuse(existing.profile, profile, largeExpressions);
+            if (reused.isPresent()) {
+                derived.put(key, existing);
+                reusedCount.incrementAndGet();
+                return reused.get();
+            }
+        }
+
+        RawRankProfile rawProfile = deriver.get();
+        derived.put(key, new Entry(fingerprint.get(), rawProfile.reusable()));
+        derivedCount.incrementAndGet();
+        return rawProfile;
+    }
+
+    /** Releases the rank profiles of the previous model, which must be done once the model using this is built */
+    public void completed() {
+        log.log(Level.FINE, () -> "Reused " + reusedCount.get() + " and derived " + derivedCount.get() + " rank profiles");
+        previous = Map.of();
+    }
+
+    /** Returns the number of rank profiles reused from the previous model so far */
+    public int reused() { return reusedCount.get(); }
+
+    /** Returns the number of rank profiles derived so far */
+    public int derived() { return derivedCount.get(); }
+
+    private synchronized Optional<String> fingerprintOf(Schema schema, DeployState deployState) {
+        if (fingerprints == null)
+            fingerprints = new Fingerprinter(deployState).fingerprints();
+        return fingerprints.getOrDefault(schema.getName(), Optional.empty());
+    }
+
+    private record Key(String schema, String profile) { }
+
+    /** A derived rank profile, without the objects of the model it was derived for, which later models must not modify */
+    private record Entry(String fingerprint, RawRankProfile.Reusable profile) { }
+
+    /** Computes the fingerprints of the inputs of all schemas of a model */
+    private static class Fingerprinter {
+
+        private final DeployState deployState;
+        private final ApplicationPackage application;
+        private final Map<String, Schema> schemas = new HashMap<>();
+
+        Fingerprinter(DeployState deployState) {
+            this.deployState = deployState;
+            this.application = deployState.getApplicationPackage();
+            deployState.getSchemas().forEach(schema -> schemas.put(schema.getName(), schema));
+        }
+
+        /** Returns the fingerprint of each schema, or empty for those which can not be fingerprinted */
+        Map<String, Optional<String>> fingerprints() {
+            try {
+                byte[] shared = sharedInputs();
+                Map<String, byte[]> own = new HashMap<>();
+                for (Schema schema : schemas.values())
+                    ownInputs(schema).ifPresent(inputs -> own.put(schema.getName(), inputs));
+
+                Map<String, Optional<String>> fingerprints = new HashMap<>();
+                for (Schema schema : schemas.values()) {
+                    Set<String> dependencies = dependencies(schema);
+                    if ( ! own.keySet().containsAll(dependencies)) continue;
+
+                    MessageDigest digest = digest();
+                    digest.update(shared);
+                    for (String name : dependencies) {
+                        update(digest, name);
+                        digest.update(own.get(name));
+                    }
+                    fingerprints.put(schema.getName(), Optional.of(HexFormat.of().formatHex(digest.digest())));
+                }
+                return fingerprints;
+            }
+            catch (RuntimeException e) { // Unexpected application package content: Derive everything
+                log.log(Level.INFO, "Could not fingerprint schemas, rank profiles will not be reused: " + e.getMessage());
+                return Map.of();
+            }
+        }
+
+        /** Returns the given schema, and the schemas it inherits from or references, directly or indirectly, by name */
+        private Set<String> dependencies(Schema schema) {
+            Set<String> dependencies = new LinkedHashSet<>();
+            addDependencies(schema, dependencies);
+            return dependencies;
+        }
+
+        private void addDependencies(Schema schema, Set<String> dependencies) {
+            if (schema == null || ! dependencies.add(schema.getName())) return;
+
+            schema.inherited().ifPresent(inherited -> addDependencies(inherited, dependencies));
+            if (schema.getDocument() == null) return;
+            schema.getDocument().getInheritedTypes().forEach(type -> addDependencies(schemas.get(type.getName()), dependencies));
+            schema.getDocument().getDocumentReferences().ifPresent(references -> references.referenceMap().values()
+                    .forEach(reference -> addDependencies(reference.targetSearch(), dependencies)));
+        }
+
+        /** Hashes the inputs which are the same for all schemas */
+        private byte[] sharedInputs() {
+            MessageDigest digest = digest();
+            update(digest, deployState.getVespaVersion().toFullString());
+
+            ModelContext.FeatureFlags flags = deployState.getProperties().featureFlags();
+            update(digest, String.valueOf(flags.defaultTermwiseLimit()));
+            update(digest, String.valueOf(flags.alwaysMarkPhraseExpensive()));
+            update(digest, String.valueOf(flags.createPostinglistWhenNonStrict()));
+            update(digest, String.valueOf(flags.useEstimateForFetchPostings()));
+
+            List<QueryProfileType> types = deployState.getQueryProfiles().getRegistry().getTypeRegistry().allComponents().stream()
+                                                      .sorted(Comparator.comparing(type -> type.getId().toString()))
+                                                      .toList();
+            for (QueryProfileType type : types) {
+                update(digest, type.getId().toString());
+                for (FieldDescription field : type.declaredFields().values()) {
+                    update(digest, field.getName());
+                    update(digest, field.getType().stringValue());
+                }
+            }
+
+            for (Path directory : List.of(SCHEMAS_DIR, SEARCH_DEFINITIONS_DIR)) {
+                for (ApplicationFile file : files(application.getFile(directory)))
+                    if ( ! isSchemaOrProfile(file))
+                        update(digest, file);
+            }
+            for (ApplicationFile file : files(application.getFile(ApplicationPackage.MODELS_DIR)))
+                update(digest, file);
+            return digest.digest();
+        }
+
+        /**
+         * Hashes the inputs of the given schema which are not shared with others, or returns empty
+         * if its source is not a file in the application package, so changes to it can not be detected
+         */
+        private Optional<byte[]> ownInputs(Schema schema) {
+            MessageDigest digest = digest();
+            boolean hasSource = false;
+            for (Path directory : List.of(SCHEMAS_DIR, SEARCH_DEFINITIONS_DIR)) {
+                ApplicationFile source = application.getFile(directory.append(schema.getName() + ".sd"));
+                hasSource |= source.exists();
+                update(digest, source);
+                for (ApplicationFile file : files(application.getFile(directory.append(schema.getName()))))
+                    if (isSchemaOrProfile(file))
+                        update(digest, file);
+            }
+
+            Set<OnnxModel> models = new LinkedHashSet<>(schema.declaredOnnxModels().values());
+            for (RankProfile profile : deployState.rankProfileRegistry().rankProfilesOf(schema))
+                models.addAll(profile.declaredOnnxModels().values());
+            for (OnnxModel model : models) {
+                update(digest, model.getName());
+                if (model.getPathType() == DistributableResource.PathType.FILE)
+                    update(digest, application.getFile(model.getFilePath()));
+                else
+                    update(digest, model.getUri());
+            }
+            return hasSource ? Optional.of(digest.digest()) : Optional.empty();
+        }
+
+        private static boolean isSchemaOrProfile(ApplicationFile file) {
+            String name = file.getPath().getName();
+            return name.endsWith(".sd") || name.endsWith(".profile");
+        }
+
+        /** Returns all files in the given directory and its subdirectories, in a stable order */
+        private static Collection<ApplicationFile> files(ApplicationFile directory) {
+            if ( ! directory.exists() || ! directory.isDirectory()) return List.of();
+            return directory.listFiles(true).stream()
+                            .filter(file -> ! file.isDirectory())
+                            .sorted()
+                            .toList();
+        }
+
+        private static void update(MessageDigest digest, ApplicationFile file) {
+            update(digest, file.getPath().toString());
+            if ( ! file.exists() || file.isDirectory()) return;
+
+            try (InputStream in = file.createInputStream()) {
+                byte[] buffer = new byte[65536];
+                for (int read; (read = in.read(buffer)) > 0; )
+                    digest.update(buffer, 0, read);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Could not read " + file.getPath(), e);
+            }
+        }
+
+        private static void update(MessageDigest digest, String value) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+        }
+
+        private static MessageDigest digest() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            }
+            catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+    }
+
+}
@@ -1,10 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.schema.derived;
 
-import ai.vespa.rankingexpression.importer.configmodelview.ImportedMlModels;
-import com.yahoo.config.model.api.ModelContext;
+import com.yahoo.config.model.deploy.BuildTimes;
 import com.yahoo.config.model.deploy.DeployState;
-import com.yahoo.search.query.profile.QueryProfileRegistry;
 import com.yahoo.schema.LargeRankingExpressions;
 import com.yahoo.schema.OnnxModel;
 import com.yahoo.schema.RankProfileRegistry;
@@ -24,8 +22,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 /**
  * The derived rank profiles of a schema
@@ -60,7 +57,9 @@ public class RankProfileList extends Derived implements RankProfilesConfig.Produ
                            DeployState deployState) {
         setName(schema == null ? "default" : schema.getName());
         this.largeRankingExpressions = largeRankingExpressions;
+        long start = System.nanoTime();
         this.rankProfiles = deriveRankProfiles(schema, attributeFields, deployState);
+        deployState.buildTimes().addSince(BuildTimes.rankProfiles, start);
         this.constants = deriveFileDistributedConstants(schema, rankProfiles.values(), deployState);
         this.onnxModels = deriveFileDistributedOnnxModels(schema, rankProfiles.values(), deployState);
     }
@@ -76,12 +75,8 @@ public class RankProfileList extends Derived implements RankProfilesConfig.Produ
                                                             DeployState deployState) {
         Map<String,  RawRankProfile> rawRankProfiles = new LinkedHashMap<>();
         if (schema != null) { // profiles belonging to a schema have a default profile
-            RawRankProfile rawRank = new RawRankProfile(deployState.rankProfileRegistry().get(schema, "default"),
-                                                        largeRankingExpressions,
-                                                        deployState.getQueryProfiles().getRegistry(),
-                                                        deployState.getImportedModels(),
-                                                        attributeFields,
-                                                        deployState.getProperties());
+            RawRankProfile rawRank = processRankProfile(schema, deployState.rankProfileRegistry().get(schema, "default"),
+                                                        attributeFields, deployState);
             rawRankProfiles.put(rawRank.getName(), rawRank);
         }
 
@@ -94,31 +89,38 @@ public class RankProfileList extends Derived implements RankProfilesConfig.Produ
                 if (areDependenciesReady(profile, deployState.rankProfileRegistry(), rawRankProfiles.keySet()))
                     ready.add(profile);
             });
-            rawRankProfiles.putAll(processRankProfiles(ready,
-                                                       deployState.getQueryProfiles().getRegistry(),
-                                                       deployState.getImportedModels(),
-                                                       attributeFields,
-                                                       deployState.getProperties(),
-                                                       deployState.getExecutor()));
+            rawRankProfiles.putAll(processRankProfiles(schema, ready, attributeFields, deployState));
             ready.forEach(rank -> remaining.remove(rank.name()));
         }
         return rawRankProfiles;
     }
 
-    private Map<String, RawRankProfile> processRankProfiles(List<RankProfile> profiles,
-                                                            QueryProfileRegistry queryProfiles,
-                                                            ImportedMlModels importedModels,
+    /** Returns the raw rank profile of the given profile, reused from the previous model if possible */
+    private RawRankProfile processRankProfile(Schema schema, RankProfile profile, AttributeFields attributeFields, DeployState deployState) {
+        return deployState.derivedRankProfiles().get(schema, profile, deployState, largeRankingExpressions,
+                                                     () -> new RawRankProfile(profile,
+                                                                              largeRankingExpressions,
+                                                                              deployState.getQueryProfiles().getRegistry(),
+                                                                              deployState.getImportedModels(),
+                                                                              attributeFields,
+                                                                              deployState.getProperties()));
+    }
+
+    private Map<String, RawRankProfile> processRankProfiles(Schema schema,
+                                                            List<RankProfile> profiles,
                                                             AttributeFields attributeFields,
-                                                            ModelContext.Properties deployProperties,
-                                                            ExecutorService executor) {
-        Map<String, Future<RawRankProfile>> futureRawRankProfiles = new LinkedHashMap<>();
+                                                            DeployState deployState) {
+        Map<String, FutureTask<RawRankProfile>> futureRawRankProfiles = new LinkedHashMap<>();
         for (RankProfile profile : profiles) {
-            futureRawRankProfiles.put(profile.name(), executor.submit(() -> new RawRankProfile(profile, largeRankingExpressions, queryProfiles, importedModels,
-                                                                                               attributeFields, deployProperties)));
+            FutureTask<RawRankProfile> task = new FutureTask<>(() -> processRankProfile(schema, profile, attributeFields, deployState));
+            deployState.getExecutor().execute(task);
+            futureRawRankProfiles.put(profile.name(), task);
         }
         try {
             Map<String,  RawRankProfile> rawRankProfiles = new LinkedHashMap<>();
-            for (Future<RawRankProfile> rawFuture : futureRawRankProfiles.values()) {
+            for (FutureTask<RawRankProfile> rawFuture : futureRawRankProfiles.values()) {
+                // Run tasks not yet started by the executor here, as this may itself run on the executor, which may be full
+                rawFuture.run();
                 RawRankProfile rawRank = rawFuture.get();
                 rawRankProfiles.put(rawRank.getName(), rawRank);
             }
@@ -27,6 +27,7 @@ import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -34,6 +35,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
+import java.util.Optional;
 import java.util.OptionalDouble;
 import java.util.Set;
 
@@ -59,6 +61,9 @@ public class RawRankProfile implements RankProfilesConfig.Producer {
     private final Collection<RankProfile.Constant> constants;
     private final Collection<OnnxModel> onnxModels;
 
+    /** The UTF-8 bytes of the expressions of this which are too large to be rank properties, by their file names */
+    private final Map<String, byte[]> largeExpressions;
+
     /** Creates a raw rank profile from the given rank profile. */
     public RawRankProfile(RankProfile rankProfile, LargeRankingExpressions largeExpressions,
                           QueryProfileRegistry queryProfiles, ImportedMlModels importedModels,
@@ -73,12 +78,59 @@ public class RawRankProfile implements RankProfilesConfig.Producer {
         onnxModels = compiled.onnxModels().values();
         var deriver = new Deriver(compiled, attributeFields, deployProperties, queryProfiles);
         compressedProperties = compress(deriver.derive(largeExpressions));
-        this.featureNormalizers = compiled.getFeatureNormalizers();
+        this.largeExpressions = Collections.unmodifiableMap(deriver.largeExpressions);
+        this.featureNormalizers = Collections.unmodifiableMap(new LinkedHashMap<>(compiled.getFeatureNormalizers()));
+    }
+
+    private RawRankProfile(Reusable reusable, Collection<RankProfile.Constant> constants, Collection<OnnxModel> onnxModels) {
+        this.name = reusable.name;
+        this.compressedProperties = reusable.compressedProperties;
+        this.featureNormalizers = reusable.featureNormalizers;
+        this.largeExpressions = reusable.largeExpressions;
+        this.constants = constants;
+        this.onnxModels = onnxModels;
     }
 
     public Collection<RankProfile.Constant> constants() { return constants; }
     public Collection<OnnxModel> onnxModels() { return onnxModels; }
 
+    /** Returns the parts of this which may be reused by later models, as they refer to no objects of the model of this */
+    Reusable reusable() {
+        return new Reusable(name, compressedProperties, featureNormalizers,
+                            constants.stream().map(RankProfile.Constant::name).toList(),
+                            onnxModels.stream().map(OnnxModel::getName).toList(),
+                            largeExpressions);
+    }
+
+    /**
+     * Returns a raw rank profile with the given parts of one derived for a previous model, and the constants and
+     * onnx models of the given rank profile, which must have the same inputs as the one derived, or empty if some
+     * constant or model of the derived one is not in the given profile, e.g., as it was added when compiling it.
+     * The large expressions of the reused profile are added to the given large expressions, as when deriving it.
+     */
+    static Optional<RawRankProfile> reuse(Reusable reusable, RankProfile rankProfile, LargeRankingExpressions largeExpressions) {
+        Map<Reference, RankProfile.Constant> availableConstants = rankProfile.constants();
+        Map<String, OnnxModel> availableModels = rankProfile.onnxModels();
+        if ( ! availableConstants.keySet().containsAll(reusable.constants)) return Optional.empty();
+        if ( ! availableModels.keySet().containsAll(reusable.onnxModels)) return Optional.empty();
+
+        reusable.largeExpressions.forEach((name, expression) -> largeExpressions.add(new RankingExpressionBody(name, ByteBuffer.wrap(expression))));
+        return Optional.of(new RawRankProfile(reusable,
+                                              reusable.constants.stream().map(availableConstants::get).toList(),
+                                              reusable.onnxModels.stream().map(availableModels::get).toList()));
+    }
+
+    /**
+     * The parts of a raw rank profile which are never modified, and refer to no objects of the model they are derived for,
+     * and the names of its constants and onnx models, which are found in the model reusing this.
+     */
+    record Reusable(String name,
+                    Compressor.Compression compressedProperties,
+                    Map<String, RankProfile.RankFeatureNormalizer> featureNormalizers,
+                    List<Reference> constants,
+                    List<String> onnxModels,
+                    Map<String, byte[]> largeExpressions) { }
+
     private Compressor.Compression compress(List<Pair<String, String>> properties) {
         StringBuilder b = new StringBuilder();
         for (Pair<String, String> property : properties)
@@ -152,6 +204,7 @@ public class RawRankProfile implements RankProfilesConfig.Producer {
         private final Set<ReferenceNode> rankFeatures;
         private final Map<String, String> featureRenames = new java.util.LinkedHashMap<>();
         private final List<RankProfile.RankProperty> rankProperties;
+        private final Map<String, byte[]> largeExpressions = new LinkedHashMap<>();
 
         /**
          * Rank properties for weight settings to make these available to feature executors
@@ -549,7 +602,9 @@ public class RawRankProfile implements RankProfilesConfig.Producer {
                     String functionName = RankingExpression.extractScriptName(propertyName);
                     if (functionName != null) {
                         String mangledName = rankprofileName + "." + functionName;
-                        largeRankingExpressions.add(new RankingExpressionBody(mangledName, ByteBuffer.wrap(expression.getBytes(StandardCharsets.UTF_8))));
+                        byte[] bytes = expression.getBytes(StandardCharsets.UTF_8);
+                        largeRankingExpressions.add(new RankingExpressionBody(mangledName, ByteBuffer.wrap(bytes)));
+                        largeExpressions.put(mangledName, bytes);
                         iter.set(new Pair<>(RankingExpression.propertyExpressionName(functionName), mangledName));
                     }
                 }
@@ -22,6 +22,7 @@ import com.yahoo.config.model.api.ApplicationClusterInfo;
 import com.yahoo.config.model.api.HostInfo;
 import com.yahoo.config.model.api.Model;
 import com.yahoo.config.model.api.Provisioned;
+import com.yahoo.config.model.deploy.BuildTimes;
 import com.yahoo.config.model.deploy.DeployState;
 import com.yahoo.config.model.producer.AnyConfigProducer;
 import com.yahoo.config.model.producer.AbstractConfigProducerRoot;
@@ -35,6 +36,7 @@ import com.yahoo.schema.OnnxModel;
 import com.yahoo.schema.RankProfile;
 import com.yahoo.schema.RankProfileRegistry;
 import com.yahoo.schema.derived.AttributeFields;
+import com.yahoo.schema.derived.DerivedRankProfiles;
 import com.yahoo.schema.derived.RankProfileList;
 import com.yahoo.schema.document.SDField;
 import com.yahoo.schema.processing.Processing;
@@ -60,6 +62,7 @@ import com.yahoo.vespa.model.utils.internal.ReflectionUtil;
 import org.xml.sax.SAXException;
 import java.io.IOException;
 import java.lang.reflect.Constructor;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -119,6 +122,11 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
 
     private final Provisioned provisioned;
 
+    /** The rank profiles derived for this, which may be reused by the next model */
+    private final DerivedRankProfiles derivedRankProfiles;
+
+    private final BuildTimes buildTimes;
+
     /** Creates a Vespa Model from internal model types only */
     public VespaModel(ApplicationPackage app) throws IOException, SAXException {
         this(app, new NullConfigModelRegistry());
@@ -159,6 +167,8 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
         validationOverrides = deployState.validationOverrides();
         applicationPackage = deployState.getApplicationPackage();
         provisioned = deployState.provisioned();
+        derivedRankProfiles = deployState.derivedRankProfiles();
+        buildTimes = deployState.buildTimes();
         VespaModelBuilder builder = new VespaDomBuilder();
         root = builder.getRoot(VespaModel.ROOT_CONFIGID, deployState, this);
 
@@ -171,17 +181,22 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
         HostSystem hostSystem = root.hostSystem();
         if (complete) { // create a completed, frozen model
             root.useFeatureFlags(deployState.getProperties().featureFlags());
+            long start = System.nanoTime();
             configModelRepo.readConfigModels(deployState, this, builder, root, new VespaConfigModelRegistry(configModelRegistry));
             setupRouting(deployState);
             getAdmin().addPerHostServices(hostSystem.getHosts(), deployState);
             freezeModelTopology();
+            buildTimes.addSince(BuildTimes.configModels, start);
+            start = System.nanoTime();
             root.prepare(configModelRepo);
             configModelRepo.prepareConfigModels(deployState);
+            buildTimes.addSince(BuildTimes.prepare, start);
             validateWrapExceptions();
             hostSystem.dumpPortAllocations();
             propagateRestartOnDeploy();
         }
         // else: create a model with no services instantiated (no-op)
+        derivedRankProfiles.completed();
 
         // must be done last
         this.allocatedHosts = AllocatedHosts.withHosts(hostSystem.getHostSpecs());
@@ -336,6 +351,12 @@ public final class VespaModel extends AbstractConfigProducerRoot implements Mode
     /** Returns the global rank profiles as a rank profile list */
     public RankProfileList rankProfileList() { return rankProfileList; }
 
+    /** Returns the rank profiles derived for this, which may be reused when building the next model */
+    public DerivedRankProfiles derivedRankProfiles() { return derivedRankProfiles; }
+
+    @Override
+    public Map<String, Duration> buildTimes() { return buildTimes.asMap(); }
+
     private void setupRouting(DeployState deployState) {
         root.setupRouting(deployState, this, configModelRepo);
     }
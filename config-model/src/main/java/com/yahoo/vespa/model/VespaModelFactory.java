@@ -24,6 +24,7 @@ import com.yahoo.config.model.api.ModelFactory;
 import com.yahoo.config.model.api.ValidationParameters;
 import com.yahoo.config.model.application.provider.ApplicationPackageXmlFilesValidator;
 import com.yahoo.config.model.builder.xml.ConfigModelBuilder;
+import com.yahoo.config.model.deploy.BuildTimes;
 import com.yahoo.config.model.deploy.DeployState;
 import com.yahoo.config.provision.QuotaExceededException;
 import com.yahoo.config.provision.TransientException;
@@ -152,6 +153,8 @@ public class VespaModelFactory implements ModelFactory {
         VespaModel model = buildModel(deployState);
         List<ConfigChangeAction> changeActions = validateModel(model, deployState, validationParameters);
         logReindexingReasons(changeActions, model, deployState.getPreviousModel());
+        log.log(Level.FINE, () -> "Built model for " + deployState.getProperties().applicationId() + ": " + model.buildTimes() +
+                                  ", reused " + model.derivedRankProfiles().reused() + " rank profiles");
         return new ModelCreateResult(model, changeActions);
     }
     
@@ -215,6 +218,7 @@ public class VespaModelFactory implements ModelFactory {
     }
 
     private List<ConfigChangeAction> validateModel(VespaModel model, DeployState deployState, ValidationParameters validationParameters) {
+        long start = System.nanoTime();
         try {
             return new Validation(additionalValidators).validate(model, validationParameters, deployState);
         } catch (ValidationOverrides.ValidationException e) {
@@ -228,6 +232,8 @@ public class VespaModelFactory implements ModelFactory {
             rethrowUnlessIgnoreErrors(e, validationParameters.ignoreValidationErrors());
         } catch (Exception e) {
             throw new RuntimeException(e);
+        } finally {
+            deployState.buildTimes().addSince(BuildTimes.validation, start);
         }
         return new ArrayList<>();
     }
@@ -25,8 +25,12 @@ import com.yahoo.vespa.model.content.SearchCoverage;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * @author baldersheim
@@ -133,13 +137,31 @@ public class IndexedSearchCluster extends SearchCluster
         }
     }
 
+    /** Derives the configuration of each schema concurrently, and adds their document databases in schema order */
     @Override
     public void deriveFromSchemas(DeployState deployState) {
+        Map<String, FutureTask<DerivedConfiguration>> futureConfigs = new LinkedHashMap<>();
         for (SchemaInfo spec : schemas().values()) {
             if (spec.fullSchema() instanceof DocumentOnlySchema) continue;
-            DocumentDatabase db = new DocumentDatabase(this, spec.fullSchema().getName(),
-                                                       new DerivedConfiguration(spec.fullSchema(), deployState));
-            documentDbs.add(db);
+            FutureTask<DerivedConfiguration> task = new FutureTask<>(() -> new DerivedConfiguration(spec.fullSchema(), deployState));
+            deployState.getExecutor().execute(task);
+            futureConfigs.put(spec.fullSchema().getName(), task);
+        }
+        try {
+            for (Map.Entry<String, FutureTask<DerivedConfiguration>> futureConfig : futureConfigs.entrySet()) {
+                // Run tasks not yet started by the executor here, as these wait for tasks they submit themselves,
+                // and waiting for tasks queued behind the waiting ones would deadlock an executor with a fixed pool
+                futureConfig.getValue().run();
+                documentDbs.add(new DocumentDatabase(this, futureConfig.getKey(), futureConfig.getValue().get()));
+            }
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException iArg) throw iArg;
+            if (e.getCause() instanceof IllegalStateException iState) throw iState;
+            throw new IllegalStateException(e);
         }
     }
 
@@ -0,0 +1,160 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.schema.derived;
+
+import com.yahoo.config.ConfigInstance;
+import com.yahoo.config.model.application.provider.FilesApplicationPackage;
+import com.yahoo.config.model.deploy.DeployState;
+import com.yahoo.config.model.deploy.TestProperties;
+import com.yahoo.vespa.config.search.RankProfilesConfig;
+import com.yahoo.vespa.config.search.core.OnnxModelsConfig;
+import com.yahoo.vespa.config.search.core.RankingConstantsConfig;
+import com.yahoo.vespa.model.VespaModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class DerivedRankProfilesTestCase {
+
+    @TempDir
+    public File applicationDir;
+
+    @Test
+    void rank_profiles_of_unchanged_schemas_are_reused() throws Exception {
+        writeApplication("expression: attribute(year) + 1");
+        VespaModel first = model(Optional.empty(), true);
+        assertEquals(0, first.derivedRankProfiles().reused());
+        int derived = first.derivedRankProfiles().derived();
+
+        VespaModel second = model(Optional.of(first), true);
+        assertEquals(derived, second.derivedRankProfiles().reused());
+        assertEquals(0, second.derivedRankProfiles().derived());
+        assertEquals(rankProfiles(first, "music"), rankProfiles(second, "music"));
+        assertEquals(rankProfiles(first, "book"), rankProfiles(second, "book"));
+
+        writeApplication("expression: attribute(year) + 2");
+        VespaModel third = model(Optional.of(second), true);
+        assertEquals(derived / 2, third.derivedRankProfiles().reused());
+        assertEquals(rankProfiles(first, "book"), rankProfiles(third, "book"));
+        assertEquals(rankProfiles(model(Optional.empty(), false), "music"), rankProfiles(third, "music"));
+    }
+
+    @Test
+    void rank_profiles_are_not_reused_unless_enabled() throws Exception {
+        writeApplication("expression: attribute(year) + 1");
+        VespaModel first = model(Optional.empty(), false);
+        VespaModel second = model(Optional.of(first), false);
+        assertEquals(0, second.derivedRankProfiles().reused());
+        assertEquals(first.derivedRankProfiles().derived(), second.derivedRankProfiles().derived());
+    }
+
+    @Test
+    void rank_profiles_are_reused_with_the_onnx_models_and_constants_of_the_new_schema() throws Exception {
+        Path root = applicationDir.toPath();
+        Path files = Path.of("src/test/derived/globalphase_onnx_inside/files");
+        Files.createDirectories(root.resolve("schemas/files"));
+        Files.copy(files.resolve("ax_plus_b.onnx"), root.resolve("schemas/files/ax_plus_b.onnx"));
+        Files.copy(files.resolve("const_xx.json"), root.resolve("schemas/files/const_xx.json"));
+        Files.writeString(root.resolve("services.xml"), services("music"));
+        Files.writeString(root.resolve("schemas/music.sd"),
+                          """
+                          schema music {
+                            document music {
+                              field aa type tensor(d1[3]) {
+                                indexing: attribute
+                              }
+                            }
+                            constant xx {
+                              file: files/const_xx.json
+                              type: tensor(d0[2],d1[3])
+                            }
+                            onnx-model direct {
+                              file: files/ax_plus_b.onnx
+                              input vector_A: attribute(aa)
+                              input matrix_X: constant(xx)
+                              input vector_B: query(bb)
+                              output vector_Y: out
+                            }
+                            rank-profile model {
+                              inputs {
+                                query(bb) tensor(d0[2])
+                              }
+                              first-phase {
+                                expression: sum(attribute(aa))
+                              }
+                              global-phase {
+                                expression: sum(onnx(direct).out)
+                              }
+                            }
+                          }
+                          """);
+        VespaModel first = model(Optional.empty(), true);
+        VespaModel second = model(Optional.of(first), true);
+        assertEquals(first.derivedRankProfiles().derived(), second.derivedRankProfiles().reused());
+        assertEquals(rankProfiles(first, "music"), rankProfiles(second, "music"));
+        assertEquals(config(first, OnnxModelsConfig.class, "music"), config(second, OnnxModelsConfig.class, "music"));
+        assertEquals(config(first, RankingConstantsConfig.class, "music"), config(second, RankingConstantsConfig.class, "music"));
+    }
+
+    private VespaModel model(Optional<VespaModel> previous, boolean reuse) throws Exception {
+        DeployState.Builder builder = new DeployState.Builder()
+                .applicationPackage(FilesApplicationPackage.fromFile(applicationDir))
+                .properties(new TestProperties().setReuseDerivedRankProfiles(reuse));
+        previous.ifPresent(builder::previousModel);
+        return new VespaModel(builder.build());
+    }
+
+    private static String rankProfiles(VespaModel model, String schema) {
+        return config(model, RankProfilesConfig.class, schema);
+    }
+
+    private static String config(VespaModel model, Class<? extends ConfigInstance> type, String schema) {
+        return model.getConfig(type, "content/search/cluster.content/" + schema).toString();
+    }
+
+    private void writeApplication(String musicExpression) throws Exception {
+        Path root = applicationDir.toPath();
+        Files.createDirectories(root.resolve("schemas"));
+        Files.writeString(root.resolve("services.xml"), services("music", "book"));
+        Files.writeString(root.resolve("schemas/music.sd"), schema("music", musicExpression));
+        Files.writeString(root.resolve("schemas/book.sd"), schema("book", "expression: attribute(year) * 2"));
+    }
+
+    private static String services(String ... documentTypes) {
+        StringBuilder documents = new StringBuilder();
+        for (String type : documentTypes)
+            documents.append("      <document type=\"").append(type).append("\" mode=\"index\"/>\n");
+        return "<services version=\"1.0\">\n" +
+               "  <container id=\"container\" version=\"1.0\">\n" +
+               "    <search/>\n" +
+               "  </container>\n" +
+               "  <content id=\"content\" version=\"1.0\">\n" +
+               "    <redundancy>1</redundancy>\n" +
+               "    <documents>\n" +
+               documents +
+               "    </documents>\n" +
+               "  </content>\n" +
+               "</services>\n";
+    }
+
+    private static String schema(String name, String expression) {
+        return "schema " + name + " {\n" +
+               "  document " + name + " {\n" +
+               "    field year type int {\n" +
+               "      indexing: summary | attribute\n" +
+               "    }\n" +
+               "  }\n" +
+               "  rank-profile year {\n" +
+               "    first-phase {\n" +
+               "      " + expression + "\n" +
+               "    }\n" +
+               "  }\n" +
+               "}\n";
+    }
+
+}
@@ -23,6 +23,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -235,6 +236,30 @@ public class DocumentDatabaseTestCase {
         }
     }
 
+    @Test
+    void testSchemasAreDerivedConcurrentlyInOrder() {
+        List<String> sds = List.of("type1", "type2", "type3", "type4", "type5", "type6");
+        var tester = new SchemaTester();
+        var sequential = tester.createModelWithMode("index", sds, new DeployState.Builder());
+        ForkJoinPool executor = new ForkJoinPool(4);
+        try {
+            var concurrent = tester.createModelWithMode("index", sds, new DeployState.Builder().executor(executor));
+            ProtonConfig proton = tester.getProtonConfig(concurrent.getContentClusters().get("test").getSearch());
+            assertEquals(sds.size(), proton.documentdb().size());
+            for (int i = 0; i < sds.size(); i++) {
+                String configId = "test/search/cluster.test/" + sds.get(i);
+                assertEquals(sds.get(i), proton.documentdb(i).inputdoctypename());
+                assertEquals(sequential.getConfig(RankProfilesConfig.class, configId),
+                             concurrent.getConfig(RankProfilesConfig.class, configId));
+                assertEquals(sequential.getConfig(AttributesConfig.class, configId),
+                             concurrent.getConfig(AttributesConfig.class, configId));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     void testRankingConstants() {
         List<String> schemas = List.of("type1");
@@ -192,7 +192,7 @@ public class ConfigProxyRpcServer implements Runnable, TargetWatcher {
 
     private void invalidateCache(Request req) {
         dispatchRpcRequest(req, () -> {
-            proxyServer.memoryCache().clear();
+            proxyServer.memoryCache().invalidate();
             String[] s = new String[2];
             s[0] = "0";
             s[1] = "success";
@@ -0,0 +1,183 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.proxy;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Slime;
+import com.yahoo.text.Utf8Array;
+import com.yahoo.vespa.config.ConfigCacheKey;
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.PayloadChecksum;
+import com.yahoo.vespa.config.PayloadChecksums;
+import com.yahoo.vespa.config.RawConfig;
+import com.yahoo.vespa.config.protocol.CompressionInfo;
+import com.yahoo.vespa.config.protocol.CompressionType;
+import com.yahoo.vespa.config.protocol.Payload;
+import com.yahoo.yolean.Exceptions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static com.yahoo.vespa.config.PayloadChecksum.Type.MD5;
+import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
+
+/**
+ * A copy of the configs in the memory cache on disk, which is loaded when the proxy starts, so configs can be
+ * served before a config source has answered, e.g., after a host reboot.
+ *
+ * Each config is kept in a separate file, which is written to a temporary file first, synced, and then atomically
+ * moved into place, so a crash never leaves a partially written config behind. Files which cannot be read, or
+ * whose payload does not match its checksums, are deleted when loading. Writes are done in the background, in order.
+ */
+class DiskCache implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(DiskCache.class.getName());
+    private static final String suffix = ".config";
+    private static final String tmpSuffix = ".tmp";
+
+    private final Path dir;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("config-disk-cache"));
+
+    DiskCache(Path dir) {
+        this.dir = dir;
+    }
+
+    /** Returns all valid configs on disk, and deletes the invalid ones */
+    List<RawConfig> load() {
+        List<RawConfig> configs = new ArrayList<>();
+        if ( ! Files.isDirectory(dir)) return configs;
+
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Optional<RawConfig> config = file.toString().endsWith(suffix) ? read(file) : Optional.empty();
+                if (config.isPresent())
+                    configs.add(config.get());
+                else
+                    Files.deleteIfExists(file);
+            }
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed loading configs from '" + dir + "': " + Exceptions.toMessageString(e));
+        }
+        log.log(Level.INFO, "Loaded " + configs.size() + " configs from '" + dir + "'");
+        return configs;
+    }
+
+    /** Writes the given config to disk, replacing any previous version of it */
+    void write(RawConfig config) {
+        writer.execute(() -> {
+            Path file = dir.resolve(fileName(config));
+            Path tmp = file.resolveSibling(file.getFileName() + tmpSuffix);
+            try {
+                Files.createDirectories(dir);
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+                    channel.write(ByteBuffer.wrap(BinaryFormat.encode(toSlime(config))));
+                    channel.force(true);
+                }
+                Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            }
+            catch (IOException e) {
+                log.log(Level.WARNING, "Failed writing " + config.getKey() + " to '" + file + "': " + Exceptions.toMessageString(e));
+            }
+        });
+    }
+
+    /** Deletes all configs on disk */
+    void clear() {
+        writer.execute(() -> {
+            if ( ! Files.isDirectory(dir)) return;
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : files.toList())
+                    Files.deleteIfExists(file);
+            }
+            catch (IOException e) {
+                log.log(Level.WARNING, "Failed deleting configs in '" + dir + "': " + Exceptions.toMessageString(e));
+            }
+        });
+    }
+
+    /** Waits for pending writes to complete */
+    @Override
+    public void close() {
+        writer.shutdown();
+        try {
+            if ( ! writer.awaitTermination(10, TimeUnit.SECONDS))
+                log.log(Level.WARNING, "Timed out waiting for configs to be written to '" + dir + "'");
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Optional<RawConfig> read(Path file) {
+        try {
+            Inspector root = BinaryFormat.decode(Files.readAllBytes(file)).get();
+            if ( ! root.valid()) throw new IllegalArgumentException("Invalid data");
+
+            ConfigKey<?> key = new ConfigKey<>(root.field("name").asString(),
+                                               root.field("configId").asString(),
+                                               root.field("namespace").asString());
+            CompressionInfo compression = CompressionInfo.create(CompressionType.parse(root.field("compression").asString()),
+                                                                 (int) root.field("uncompressedSize").asLong());
+            Payload payload = Payload.from(new Utf8Array(root.field("payload").asData()), compression);
+            PayloadChecksums checksums = PayloadChecksums.from(new PayloadChecksum(root.field("md5").asString(), MD5),
+                                                               new PayloadChecksum(root.field("xxhash64").asString(), XXHASH64));
+            if ( ! checksums.matches(PayloadChecksums.fromPayload(payload.withCompression(CompressionType.UNCOMPRESSED))))
+                throw new IllegalArgumentException("Payload does not match checksums " + checksums);
+
+            return Optional.of(new RawConfig(key, root.field("defMd5").asString(), payload, checksums,
+                                             root.field("generation").asLong(), root.field("applyOnRestart").asBool(),
+                                             List.of(), Optional.empty()));
+        }
+        catch (IOException | RuntimeException e) {
+            log.log(Level.INFO, "Deleting invalid cached config '" + file + "': " + Exceptions.toMessageString(e));
+            return Optional.empty();
+        }
+    }
+
+    private static Slime toSlime(RawConfig config) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setString("name", config.getName());
+        root.setString("namespace", config.getNamespace());
+        root.setString("configId", config.getConfigId());
+        root.setString("defMd5", config.getDefMd5());
+        root.setLong("generation", config.getGeneration());
+        root.setBool("applyOnRestart", config.applyOnRestart());
+        root.setString("md5", checksum(config, MD5));
+        root.setString("xxhash64", checksum(config, XXHASH64));
+        root.setString("compression", config.getPayload().getCompressionInfo().getCompressionType().name());
+        root.setLong("uncompressedSize", config.getPayload().getCompressionInfo().getUncompressedSize());
+        ByteBuffer payload = ByteBuffer.allocate(config.getPayload().getData().getByteLength());
+        config.getPayload().getData().writeTo(payload);
+        root.setData("payload", payload.array());
+        return slime;
+    }
+
+    private static String checksum(RawConfig config, PayloadChecksum.Type type) {
+        PayloadChecksum checksum = config.getPayloadChecksums().getForType(type);
+        return checksum == null ? "" : checksum.asString();
+    }
+
+    static String fileName(RawConfig config) {
+        return MemoryCache.createCacheFileName(new ConfigCacheKey(config.getKey(), config.getDefMd5())) + suffix;
+    }
+
+}
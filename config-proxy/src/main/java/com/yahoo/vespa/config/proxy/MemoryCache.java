@@ -15,6 +15,7 @@ import java.io.Writer;
 import java.nio.file.Files;
 import java.util.Collection;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,11 +32,36 @@ public class MemoryCache {
     private static final String DEFAULT_DUMP_DIR = Defaults.getDefaults().underVespaHome("var/vespa/cache/config");
 
     private final ConcurrentHashMap<ConfigCacheKey, RawConfig> cache = new ConcurrentHashMap<>(500, 0.75f);
+    // Configs loaded from disk, which have not yet been received from a config source
+    private final Set<ConfigCacheKey> unverified = ConcurrentHashMap.newKeySet();
+    private final Optional<DiskCache> diskCache;
+
+    public MemoryCache() {
+        this.diskCache = Optional.empty();
+    }
+
+    /** Creates a cache with the configs in the given disk cache, which is then kept up to date with this */
+    MemoryCache(DiskCache diskCache) {
+        this.diskCache = Optional.of(diskCache);
+        for (RawConfig config : diskCache.load()) {
+            ConfigCacheKey key = new ConfigCacheKey(config.getKey(), config.getDefMd5());
+            cache.put(key, config);
+            unverified.add(key);
+        }
+    }
 
     public Optional<RawConfig> get(ConfigCacheKey key) {
         return Optional.ofNullable(cache.get(key));
     }
 
+    /**
+     * Returns whether the config with the given key was received from a config source, rather than loaded from disk
+     * when this was created, in which case it may be stale.
+     */
+    boolean isVerified(ConfigCacheKey key) {
+        return ! unverified.contains(key);
+    }
+
     /**
      * Put in cache, except when config has an error
      *
@@ -48,11 +74,19 @@ public class MemoryCache {
         // Do not cache empty configs (which have generation 0), remove everything in cache
         if (config.getGeneration() == 0) {
             cache.clear();
+            unverified.clear();
+            diskCache.ifPresent(DiskCache::clear);
             return;
         }
 
         log.log(Level.FINE, () -> "Putting '" + config + "' into memory cache");
-        cache.put(new ConfigCacheKey(config.getKey(), config.getDefMd5()), config);
+        ConfigCacheKey key = new ConfigCacheKey(config.getKey(), config.getDefMd5());
+        RawConfig previous = cache.put(key, config);
+        unverified.remove(key);
+        if (   previous == null
+            || previous.getGeneration() != config.getGeneration()
+            || ! previous.getPayloadChecksums().equals(config.getPayloadChecksums()))
+            diskCache.ifPresent(disk -> disk.write(config));
     }
 
     boolean containsKey(ConfigCacheKey key) {
@@ -67,8 +101,21 @@ public class MemoryCache {
         return cache.size();
     }
 
+    /** Removes all configs from this, but not from disk */
     public void clear() {
         cache.clear();
+        unverified.clear();
+    }
+
+    /** Removes all configs from this, and from disk */
+    void invalidate() {
+        clear();
+        diskCache.ifPresent(DiskCache::clear);
+    }
+
+    /** Waits for configs to be written to disk */
+    void close() {
+        diskCache.ifPresent(DiskCache::close);
     }
 
     @Override
@@ -145,7 +192,7 @@ public class MemoryCache {
         return createCacheFileName(new ConfigCacheKey(config.getKey(), config.getDefMd5()));
     }
 
-    private static String createCacheFileName(ConfigCacheKey key) {
+    static String createCacheFileName(ConfigCacheKey key) {
         final ConfigKey<?> configKey = key.getKey();
         return configKey.getNamespace() + "." + configKey.getName() + separator + configKey.getConfigId().replaceAll("/", "_") +
                 separator + key.getDefMd5();
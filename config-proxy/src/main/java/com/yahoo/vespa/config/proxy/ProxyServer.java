@@ -8,18 +8,30 @@ import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Transport;
 import com.yahoo.log.LogSetup;
 import com.yahoo.log.event.Event;
+import com.yahoo.net.HostName;
+import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.SlimeUtils;
 import com.yahoo.vespa.config.RawConfig;
+import com.yahoo.vespa.config.protocol.CompressionType;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.proxy.filedistribution.FileDistributionAndUrlDownload;
+import com.yahoo.vespa.defaults.Defaults;
 import com.yahoo.yolean.system.CatchSignals;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
@@ -31,6 +43,8 @@ import static com.yahoo.vespa.config.proxy.Mode.ModeName.DEFAULT;
  * A proxy server that handles RPC config requests. The proxy can run in two modes:
  * 'default' and 'memorycache', where the last one will not get config from an upstream
  * config source, but will serve config from memory cache only.
+ * The memory cache is kept on disk, and configs from the previous run are served when starting,
+ * while the current ones are retrieved from the config source.
  *
  * @author hmusum
  */
@@ -39,7 +53,9 @@ public class ProxyServer implements Runnable {
     private static final DaemonThreadFactory threadFactory = new DaemonThreadFactory("ProxyServer");
     private static final int DEFAULT_RPC_PORT = 19090;
     private static final int JRT_TRANSPORT_THREADS = 4;
+    private static final Duration peerUpdateInterval = Duration.ofMinutes(1);
     static final String DEFAULT_PROXY_CONFIG_SOURCES = "tcp/localhost:19070";
+    static final String DEFAULT_PROXY_CACHE_DIR = Defaults.getDefaults().underVespaHome("var/vespa/cache/config-proxy");
 
     private static final Logger log = Logger.getLogger(ProxyServer.class.getName());
 
@@ -48,6 +64,7 @@ public class ProxyServer implements Runnable {
 
     private final ConfigProxyRpcServer rpcServer;
     private final FileDistributionAndUrlDownload fileDistributionAndUrlDownload;
+    private final ScheduledExecutorService peerUpdater = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("peer-updater"));
 
     private ConfigSourceSet configSource;
     private volatile ConfigSourceClient configClient;
@@ -60,6 +77,9 @@ public class ProxyServer implements Runnable {
         this.rpcServer = createRpcServer(spec);
         this.configClient = Objects.requireNonNull(configClient);
         this.fileDistributionAndUrlDownload = new FileDistributionAndUrlDownload(supervisor, source);
+        // Peers are the config proxies of the members of the clusters of this host, which use the port of this
+        if (spec != null)
+            peerUpdater.scheduleWithFixedDelay(() -> updatePeers(spec.port()), 0, peerUpdateInterval.toSeconds(), TimeUnit.SECONDS);
     }
 
     @Override
@@ -100,7 +120,7 @@ public class ProxyServer implements Runnable {
                 break;
             case DEFAULT:
                 flush();
-                configClient = createRpcClient(configSource);
+                configClient = createRpcClient(configSource, configClient.memoryCache());
                 this.mode = new Mode(modeName);
                 break;
             default:
@@ -113,8 +133,13 @@ public class ProxyServer implements Runnable {
         return  (spec == null) ? null : new ConfigProxyRpcServer(this, supervisor, spec); // TODO: Try to avoid first argument being 'this'
     }
 
-    private static RpcConfigSourceClient createRpcClient(ConfigSourceSet source) {
-        return new RpcConfigSourceClient(new ResponseHandler(), source);
+    private static RpcConfigSourceClient createRpcClient(ConfigSourceSet source, MemoryCache memoryCache) {
+        return new RpcConfigSourceClient(new ResponseHandler(), source, memoryCache);
+    }
+
+    /** Returns a memory cache with the configs on disk from the previous run, or an empty one if persistence is disabled */
+    private static MemoryCache createMemoryCache(Properties properties) {
+        return properties.cacheDir.isEmpty() ? new MemoryCache() : new MemoryCache(new DiskCache(Path.of(properties.cacheDir)));
     }
 
     private void setupSignalHandler() {
@@ -157,7 +182,8 @@ public class ProxyServer implements Runnable {
         Event.started("configproxy");
 
         ConfigSourceSet configSources = new ConfigSourceSet(properties.configSources);
-        ProxyServer proxyServer = new ProxyServer(new Spec(null, port), configSources, createRpcClient(configSources));
+        ProxyServer proxyServer = new ProxyServer(new Spec(null, port), configSources,
+                                                  createRpcClient(configSources, createMemoryCache(properties)));
         // catch termination and interrupt signal
         proxyServer.setupSignalHandler();
         Thread proxyserverThread = threadFactory.newThread(proxyServer);
@@ -169,14 +195,18 @@ public class ProxyServer implements Runnable {
     static Properties getSystemProperties() {
         String[] inputConfigSources = System.getProperty("proxyconfigsources",
                                                          DEFAULT_PROXY_CONFIG_SOURCES).split(",");
-        return new Properties(inputConfigSources);
+        // Set to empty to not keep configs on disk
+        String cacheDir = System.getProperty("proxycachedir", DEFAULT_PROXY_CACHE_DIR);
+        return new Properties(inputConfigSources, cacheDir);
     }
 
     static class Properties {
         final String[] configSources;
+        final String cacheDir;
 
-        Properties(String[] configSources) {
+        Properties(String[] configSources, String cacheDir) {
             this.configSources = configSources;
+            this.cacheDir = cacheDir;
         }
     }
 
@@ -194,7 +224,10 @@ public class ProxyServer implements Runnable {
         configClient.shutdown();
         Event.stopping("configproxy", "flush");
         flush();
+        Event.stopping("configproxy", "close cache");
+        configClient.memoryCache().close();
         Event.stopping("configproxy", "close fileDistribution");
+        peerUpdater.shutdownNow();
         fileDistributionAndUrlDownload.close();
         Event.stopping("configproxy", "stop complete");
     }
@@ -211,10 +244,39 @@ public class ProxyServer implements Runnable {
         return configClient.getSourceConnections();
     }
 
+    /**
+     * Returns the specs of the config proxies of the other members of the clusters of the given host, as listed by
+     * the cluster info configs among the given configs, which are those this proxy serves to the services on the host.
+     */
+    static List<String> peersIn(Collection<RawConfig> configs, String hostname, int port) {
+        Set<String> peers = new TreeSet<>();
+        for (RawConfig config : configs) {
+            if ( ! config.getNamespace().equals("cloud.config") || ! config.getName().equals("cluster-info")) continue;
+
+            Inspector services = SlimeUtils.jsonToSlime(config.getPayload().withCompression(CompressionType.UNCOMPRESSED).toString())
+                                           .get().field("services");
+            services.traverse((ArrayTraverser) (__, service) -> {
+                String peer = service.field("hostname").asString();
+                if ( ! peer.isEmpty() && ! peer.equals(hostname))
+                    peers.add(new Spec(peer, port).toString());
+            });
+        }
+        return List.copyOf(peers);
+    }
+
+    private void updatePeers(int port) {
+        try {
+            fileDistributionAndUrlDownload.updatePeers(peersIn(memoryCache().values(), HostName.getLocalhost(), port));
+        }
+        catch (Exception e) {
+            log.log(Level.WARNING, "Failed updating peers to download file references from", e);
+        }
+    }
+
     void updateSourceConnections(List<String> sources) {
         configSource = new ConfigSourceSet(sources);
         flush();
-        configClient = createRpcClient(configSource);
+        configClient = createRpcClient(configSource, configClient.memoryCache());
     }
 
     DelayedResponses delayedResponses() {
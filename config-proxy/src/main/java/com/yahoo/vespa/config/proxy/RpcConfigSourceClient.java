@@ -62,9 +62,13 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
     private final ScheduledFuture<?> delayedResponsesFuture;
 
     RpcConfigSourceClient(ResponseHandler responseHandler, ConfigSourceSet configSourceSet) {
+        this(responseHandler, configSourceSet, new MemoryCache());
+    }
+
+    RpcConfigSourceClient(ResponseHandler responseHandler, ConfigSourceSet configSourceSet, MemoryCache memoryCache) {
         this.responseHandler = responseHandler;
         this.configSourceSet = configSourceSet;
-        this.memoryCache = new MemoryCache();
+        this.memoryCache = memoryCache;
         this.delayedResponses = new DelayedResponses();
         checkConfigSources();
         nextConfigFuture = nextConfigScheduler.scheduleAtFixedRate(this, 0, SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(10)).toMillis(), MILLISECONDS);
@@ -101,8 +105,8 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
      * If the requested config is different from the one in cache, the cached request is returned immediately.
      * If they are equal, this method returns null.
      * <p>
-     * If the config was not in cache, this method starts a <em>Subscriber</em> in a separate thread
-     * that gets the config and calls updateSubscribers().
+     * If the config was not in cache, or was loaded from disk and not yet received from a config source, this method
+     * starts a <em>Subscriber</em> in a separate thread that gets the config and calls updateSubscribers().
      *
      * @param input The config to retrieve - can be empty (no payload), or have a valid payload.
      * @return A Config with a payload.
@@ -125,14 +129,18 @@ class RpcConfigSourceClient implements ConfigSourceClient, Runnable {
             log.log(Level.FINE, () -> "Found config " + configCacheKey + " in cache, generation=" + config.getGeneration() +
                     ",config checksums=" + config.getPayloadChecksums());
             log.log(Level.FINEST, () -> "input config=" + input + ",cached config=" + config);
+            boolean verified = memoryCache.isVerified(configCacheKey);
             if (ProxyServer.configOrGenerationHasChanged(config, request)) {
                 log.log(Level.FINEST, () -> "Cached config is not equal to requested, will return it");
+                if ( ! verified)
+                    request.getRequestTrace().trace(ConfigProxyRpcServer.TRACELEVEL, "Config proxy returning config loaded from disk, which may be stale");
                 if (delayedResponses.remove(delayedResponse)) {
                     // unless another thread already did it
+                    if ( ! verified) subscribeToConfig(input, configCacheKey); // Get the current config in the background
                     return cachedConfig;
                 }
             }
-            if (!config.isError() && config.getGeneration() > 0) {
+            if (!config.isError() && config.getGeneration() > 0 && verified) {
                 needToGetConfig = false;
             }
         }
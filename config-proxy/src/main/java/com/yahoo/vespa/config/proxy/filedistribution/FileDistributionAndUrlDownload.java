@@ -5,7 +5,10 @@ import com.yahoo.config.subscription.ConfigSourceSet;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.vespa.filedistribution.FileDistributionConnectionPool;
 import com.yahoo.vespa.filedistribution.FileDownloader;
+import com.yahoo.vespa.filedistribution.PeerConnectionPool;
+import com.yahoo.vespa.filedistribution.PeerFileServer;
 import java.time.Duration;
+import java.util.List;
 
 /**
  * Keeps track of file distribution and url download rpc servers.
@@ -14,24 +17,42 @@ import java.time.Duration;
  */
 public class FileDistributionAndUrlDownload {
 
+    private static final int maxConcurrentUploadsToPeers = 2;
+
+    private final PeerConnectionPool peers;
+    private final PeerFileServer peerFileServer;
     private final FileDistributionRpcServer fileDistributionRpcServer;
     private final UrlDownloadRpcServer urlDownloadRpcServer;
     private final FileReferencesAndDownloadsMaintainer maintainer;
 
     public FileDistributionAndUrlDownload(Supervisor supervisor, ConfigSourceSet source) {
-        fileDistributionRpcServer = new FileDistributionRpcServer(supervisor, createDownloader(supervisor, source));
+        peers = new PeerConnectionPool(supervisor, List.of());
+        peerFileServer = new PeerFileServer(supervisor, peers, FileDownloader.defaultDownloadDirectory, maxConcurrentUploadsToPeers);
+        fileDistributionRpcServer = new FileDistributionRpcServer(supervisor, createDownloader(supervisor, source, peers));
         urlDownloadRpcServer = new UrlDownloadRpcServer(supervisor);
         maintainer = new FileReferencesAndDownloadsMaintainer();
     }
 
+    /**
+     * Sets the peers of this node, i.e., the config proxies of the other members of its cluster,
+     * which file references are downloaded from, when they have them, before the config servers are asked,
+     * and which this serves the file references it has.
+     */
+    public void updatePeers(List<String> peerSpecs) {
+        peers.setPeers(peerSpecs);
+    }
+
     public void close() {
+        peerFileServer.close();
+        peers.close();
         fileDistributionRpcServer.close();
         urlDownloadRpcServer.close();
         maintainer.close();
     }
 
-    private FileDownloader createDownloader(Supervisor supervisor, ConfigSourceSet source) {
+    private FileDownloader createDownloader(Supervisor supervisor, ConfigSourceSet source, PeerConnectionPool peers) {
         return new FileDownloader(new FileDistributionConnectionPool(source, supervisor),
+                                  peers,
                                   supervisor,
                                   Duration.ofMinutes(5));
     }
@@ -10,11 +10,15 @@ import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.Payload;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -118,4 +122,29 @@ public class MemoryCacheTest {
         cache.clear();
         assertEquals(0, cache.size());
     }
+
+    @Test
+    void configs_are_kept_on_disk(@TempDir Path dir) {
+        RawConfig persisted = new RawConfig(configKey, defMd5, payload, PayloadChecksums.fromPayload(payload), generation,
+                                            false, List.of(), Optional.empty());
+        MemoryCache cache = new MemoryCache(new DiskCache(dir));
+        cache.update(persisted);
+        cache.update(config2); // Checksums do not match payload, so this is deleted when loading
+        cache.close();
+
+        cache = new MemoryCache(new DiskCache(dir));
+        assertEquals(1, cache.size());
+        assertFalse(cache.isVerified(cacheKey));
+        RawConfig loaded = cache.get(cacheKey).orElseThrow();
+        assertEquals(payload.toString(), loaded.getPayload().toString());
+        assertEquals(persisted.getPayloadChecksums(), loaded.getPayloadChecksums());
+        assertEquals(generation, loaded.getGeneration());
+
+        cache.update(persisted);
+        assertTrue(cache.isVerified(cacheKey));
+        cache.invalidate();
+        cache.close();
+        assertEquals(0, new MemoryCache(new DiskCache(dir)).size());
+    }
+
 }
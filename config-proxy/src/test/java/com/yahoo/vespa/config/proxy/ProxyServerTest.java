@@ -5,6 +5,7 @@ import com.yahoo.config.subscription.ConfigSourceSet;
 import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.Payload;
@@ -14,6 +15,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -216,6 +218,19 @@ public class ProxyServerTest {
         assertEquals(ProxyServer.DEFAULT_PROXY_CONFIG_SOURCES, properties.configSources[0]);
     }
 
+    @Test
+    void peersAreTheOtherHostsInClusterInfoConfigs() {
+        RawConfig clusterInfo = new RawConfig(new ConfigKey<>("cluster-info", "container/0", "cloud.config"), "",
+                                              Payload.from("{\"clusterId\":\"container\",\"services\":[" +
+                                                           "{\"index\":0,\"hostname\":\"host1\"}," +
+                                                           "{\"index\":1,\"hostname\":\"host2\"}," +
+                                                           "{\"index\":2,\"hostname\":\"host3\"}]}"),
+                                              PayloadChecksums.empty(), 1, false, List.of(), Optional.empty());
+        assertEquals(List.of("tcp/host1:19090", "tcp/host3:19090"),
+                     ProxyServer.peersIn(List.of(clusterInfo, ConfigTester.fooConfig), "host2", 19090));
+        assertEquals(List.of(), ProxyServer.peersIn(List.of(ConfigTester.fooConfig), "host2", 19090));
+    }
+
     private static ProxyServer createTestServer(ConfigSourceSet source, ConfigSourceClient configSourceClient) {
         return new ProxyServer(null, source, configSourceClient);
     }
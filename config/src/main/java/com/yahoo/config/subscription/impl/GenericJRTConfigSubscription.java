@@ -70,6 +70,10 @@ public class GenericJRTConfigSubscription extends JRTConfigSubscription<RawConfi
         }
     }
 
+    /** Accepts deltas, as the payload is kept in the raw config anyway */
+    @Override
+    public boolean acceptsDelta() { return true; }
+
     public RawConfig getRawConfig() {
         return getConfigState().getConfig();
     }
@@ -10,6 +10,7 @@ import com.yahoo.text.internal.SnippetGenerator;
 import com.yahoo.vespa.config.Connection;
 import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.TimingValues;
 import com.yahoo.vespa.config.protocol.JRTClientConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTConfigRequestFactory;
@@ -18,8 +19,15 @@ import com.yahoo.yolean.Exceptions;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -35,6 +43,11 @@ import static java.util.logging.Level.WARNING;
  * It uses the {@link JRTConfigSubscription} and {@link JRTClientConfigRequest}
  * as context, and puts the request objects on a queue on the subscription,
  * for handling by the user thread.
+ * <p>
+ * If the connection is subscribed to notifications that config is activated, the next request for a
+ * config is sent when such a notification is received, instead of right away with a long server timeout.
+ * Otherwise, or if notifications are not supported by the config source, the server holds each request
+ * until config changes, or the request times out.
  *
  * @author Vegard Havdal
  */
@@ -55,6 +68,10 @@ public class JRTConfigRequester implements RequestWaiter {
     private final ConnectionPool connectionPool;
     private final ConfigSourceSet configSourceSet;
 
+    /** Subscriptions whose next request is sent when config in their scope is activated, guarded by itself */
+    private final Map<JRTConfigSubscription<?>, Parked> parked = new HashMap<>();
+    private final Map<Connection, Consumer<String>> listeners = new ConcurrentHashMap<>();
+
     private Instant timeForLastLogWarning;
     private int failures = 0;
     private volatile boolean closed = false;
@@ -99,7 +116,9 @@ public class JRTConfigRequester implements RequestWaiter {
     private <T extends ConfigInstance> void doRequest(JRTConfigSubscription<T> sub, JRTClientConfigRequest req) {
         Connection connection = connectionPool.getCurrent();
         Request request = req.getRequest();
-        request.setContext(new RequestContext(sub, req, connection));
+        long notifications = connection.notifications();
+        boolean subscribed = connection.subscribe(req);
+        request.setContext(new RequestContext(sub, req, connection, subscribed ? notifications : -1));
         if (!req.validateParameters())
             throw new ConfigurationRuntimeException("Error in parameters for config request: " + req);
 
@@ -117,7 +136,7 @@ public class JRTConfigRequester implements RequestWaiter {
         try {
             RequestContext context = (RequestContext) req.getContext();
             sub = context.sub;
-            doHandle(sub, context.jrtReq, context.connection);
+            doHandle(sub, context);
         } catch (RuntimeException e) {
             if (sub != null) {
                 // Sets this field, it will get thrown from the user thread
@@ -130,16 +149,18 @@ public class JRTConfigRequester implements RequestWaiter {
         }
     }
 
-    private void doHandle(JRTConfigSubscription<ConfigInstance> sub, JRTClientConfigRequest jrtReq, Connection connection) {
+    private void doHandle(JRTConfigSubscription<ConfigInstance> sub, RequestContext context) {
         if (sub.isClosed()) return; // Avoid error messages etc. after closing
 
+        JRTClientConfigRequest jrtReq = context.jrtReq;
+        Connection connection = context.connection;
         boolean validResponse = jrtReq.validateResponse();
         log.log(FINE, () -> "Response " + (validResponse ? "valid" : "invalid") + ". Req: " + jrtReq + "\nSpec: " + connection);
         Trace trace = jrtReq.getResponseTrace();
         trace.trace(TRACELEVEL, "JRTConfigRequester.doHandle()");
         log.log(FINEST, () -> trace.toString());
         if (validResponse)
-            handleOKRequest(jrtReq, sub);
+            handleOKRequest(jrtReq, sub, context);
         else
             handleFailedRequest(jrtReq, sub, connection);
     }
@@ -190,7 +211,7 @@ public class JRTConfigRequester implements RequestWaiter {
         return timingValues.getPlusMinusFractionRandom(timingValues.getErrorTimeout(), randomFraction);
     }
 
-    private void handleOKRequest(JRTClientConfigRequest jrtReq, JRTConfigSubscription<ConfigInstance> sub) {
+    private void handleOKRequest(JRTClientConfigRequest jrtReq, JRTConfigSubscription<ConfigInstance> sub, RequestContext context) {
         failures = 0;
         sub.setLastCallBackOKTS(Instant.now());
         log.log(FINE, () -> "OK response received in handleOkRequest: " + jrtReq);
@@ -206,7 +227,55 @@ public class JRTConfigRequester implements RequestWaiter {
                     " (changes to code generating config that are different between versions) or non-deterministic config generation" +
                     " (e.g. when using collections with non-deterministic iteration order)");
         }
-        scheduleNextRequest(jrtReq, sub, calculateSuccessDelay(), calculateSuccessTimeout());
+        if (context.notifications < 0 || ! park(jrtReq, sub, context.connection, context.notifications))
+            scheduleNextRequest(jrtReq, sub, calculateSuccessDelay(), calculateSuccessTimeout());
+    }
+
+    /**
+     * Parks the given subscription until config in its scope is activated, and returns whether it was parked,
+     * which it is not if the connection has been notified of anything since the given number of notifications.
+     * A parked subscription is also requested after the success timeout, in case a notification is lost.
+     */
+    private boolean park(JRTClientConfigRequest jrtReq, JRTConfigSubscription<?> sub, Connection connection, long notifications) {
+        listeners.computeIfAbsent(connection, __ -> {
+            Consumer<String> listener = scope -> configActivated(connection, scope);
+            connection.addListener(listener);
+            return listener;
+        });
+        synchronized (parked) {
+            if (closed || connection.notifications() != notifications) return false;
+
+            long fallbackDelay = calculateSuccessTimeout();
+            ScheduledFuture<?> fallback = scheduler.schedule(() -> unpark(sub), fallbackDelay, TimeUnit.MILLISECONDS);
+            parked.put(sub, new Parked(jrtReq, connection, JRTMethods.configActivationScope(jrtReq), fallback));
+        }
+        log.log(FINE, () -> "Waiting for config activation before requesting " + jrtReq.getConfigKey() + " again");
+        return true;
+    }
+
+    /** Requests the config of all subscriptions parked on the given connection in the given scope, or any scope if null */
+    private void configActivated(Connection connection, String scope) {
+        List<JRTConfigSubscription<?>> activated = new ArrayList<>();
+        synchronized (parked) {
+            parked.forEach((sub, parking) -> {
+                if (parking.connection == connection && (scope == null || scope.equals(parking.scope)))
+                    activated.add(sub);
+            });
+        }
+        activated.forEach(sub -> scheduler.execute(() -> unpark(sub)));
+    }
+
+    private void unpark(JRTConfigSubscription<?> sub) {
+        Parked parking;
+        synchronized (parked) {
+            parking = parked.remove(sub);
+        }
+        if (parking == null || closed || sub.isClosed()) return;
+
+        parking.fallback.cancel(false);
+        // Config has normally changed, so the server responds right away. Use a short timeout, so the server
+        // does not hold the request long if not, e.g., when this is requested because a notification was lost
+        doRequest(sub, parking.jrtReq.nextRequest(calculateSuccessDelay()));
     }
 
     private long calculateSuccessTimeout() {
@@ -244,6 +313,12 @@ public class JRTConfigRequester implements RequestWaiter {
 
     public void close() {
         closed = true;
+        synchronized (parked) {
+            parked.values().forEach(parking -> parking.fallback.cancel(false));
+            parked.clear();
+        }
+        listeners.forEach((connection, listener) -> connection.removeListener(listener));
+        listeners.clear();
         if (configSourceSet != null) {
             managedPool.release(configSourceSet);
         }
@@ -254,14 +329,19 @@ public class JRTConfigRequester implements RequestWaiter {
         final JRTConfigSubscription sub;
         final JRTClientConfigRequest jrtReq;
         final Connection connection;
+        /** The number of notifications received by the connection when the request was sent, or -1 if it was not subscribed */
+        final long notifications;
 
-        private RequestContext(JRTConfigSubscription sub, JRTClientConfigRequest jrtReq, Connection connection) {
+        private RequestContext(JRTConfigSubscription sub, JRTClientConfigRequest jrtReq, Connection connection, long notifications) {
             this.sub = sub;
             this.jrtReq = jrtReq;
             this.connection = connection;
+            this.notifications = notifications;
         }
     }
 
+    private record Parked(JRTClientConfigRequest jrtReq, Connection connection, String scope, ScheduledFuture<?> fallback) { }
+
     int getFailures() { return failures; }
 
     // TODO: Should be package private, used in integrationtest.rb in system tests
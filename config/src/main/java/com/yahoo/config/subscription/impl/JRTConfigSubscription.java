@@ -217,6 +217,12 @@ public class JRTConfigSubscription<T extends ConfigInstance> extends ConfigSubsc
         return timingValues;
     }
 
+    /**
+     * Returns whether this accepts a delta from the config it has, instead of the full config, in responses.
+     * Applying a delta requires keeping the payload of the config, in addition to the config instance.
+     */
+    public boolean acceptsDelta() { return false; }
+
     // Used in integration tests
     @SuppressWarnings("UnusedDeclaration")
     public JRTConfigRequester requester() {
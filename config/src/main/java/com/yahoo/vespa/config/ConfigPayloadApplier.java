@@ -3,6 +3,7 @@ package com.yahoo.vespa.config;
 
 import com.yahoo.config.ConfigBuilder;
 import com.yahoo.config.ConfigInstance;
+import com.yahoo.config.DirectConfigBuilder;
 import com.yahoo.config.FileReference;
 import com.yahoo.config.ModelReference;
 import com.yahoo.config.UrlReference;
@@ -57,9 +58,13 @@ public class ConfigPayloadApplier<T extends ConfigInstance.Builder> {
     }
 
     public void applyPayload(ConfigPayload payload) {
-        stack.push(new NamedBuilder(rootBuilder));
         try {
-            handleValue(payload.getSlime().get());
+            if (rootBuilder instanceof DirectConfigBuilder direct) {
+                applyObject(direct, payload.getSlime().get());
+            } else {
+                stack.push(new NamedBuilder(rootBuilder));
+                handleValue(payload.getSlime().get());
+            }
         } catch (FileReferenceDoesNotExistException e) {
             throw e;
         } catch (Exception e) {
@@ -67,6 +72,47 @@ public class ConfigPayloadApplier<T extends ConfigInstance.Builder> {
         }
     }
 
+    /** Applies the given object to the given builder, through the methods generated for this, rather than reflection */
+    private void applyObject(DirectConfigBuilder builder, Inspector object) {
+        object.traverse((String name, Inspector value) -> {
+            DirectConfigBuilder.ValueType type = builder.__valueType(name);
+            if (type == null) {
+                log.log(INFO, "Skipping unknown field " + name + " in " + builder.getClass());
+            } else if (builder.__isMap(name)) {
+                value.traverse((String key, Inspector entry) -> {
+                    Object resolved = resolveValue(builder, name, type, entry);
+                    if (resolved != null) builder.__put(name, key, resolved);
+                });
+            } else if (value.type() == Type.ARRAY) {
+                value.traverse((ArrayTraverser) (__, element) -> setValue(builder, name, type, element));
+            } else {
+                setValue(builder, name, type, value);
+            }
+        });
+    }
+
+    private void setValue(DirectConfigBuilder builder, String name, DirectConfigBuilder.ValueType type, Inspector value) {
+        Object resolved = resolveValue(builder, name, type, value);
+        if (resolved != null) builder.__set(name, resolved);
+    }
+
+    /** Returns the value to set for the given field, or null if it should be left unset */
+    private Object resolveValue(DirectConfigBuilder builder, String name, DirectConfigBuilder.ValueType type, Inspector value) {
+        if (value.type() == Type.NIX) return null;
+        return switch (type) {
+            case STRING -> getValueFromInspector(value);
+            case PATH -> resolvePath(value.asString());
+            case OPTIONAL_PATH -> resolvePath(value.asString().isEmpty() ? Optional.empty() : Optional.of(value.asString()));
+            case URL -> value.asString().isEmpty() ? new UrlReference("") : resolveUrl(value.asString());
+            case MODEL -> value.asString().isEmpty() ? null : resolveModel(value.asString());
+            case STRUCT -> {
+                DirectConfigBuilder struct = builder.__newBuilder(name);
+                applyObject(struct, value);
+                yield struct;
+            }
+        };
+    }
+
     private void handleValue(Inspector inspector) {
         switch (inspector.type()) {
             case NIX, BOOL, LONG, DOUBLE, STRING, DATA -> handleLeafValue(inspector);
@@ -3,8 +3,10 @@ package com.yahoo.vespa.config;
 
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.RequestWaiter;
+import com.yahoo.vespa.config.protocol.JRTClientConfigRequest;
 
 import java.time.Duration;
+import java.util.function.Consumer;
 
 /**
  * @author hmusum
@@ -17,4 +19,23 @@ public interface Connection {
 
     String getAddress();
 
+    /**
+     * Subscribes to notifications that config is activated in the config source, for configs in the scope of the
+     * given request, see {@link JRTMethods#configActivationScope}, unless already subscribed. Returns whether this
+     * is subscribed to the scope, in which case its configs need not be requested again until listeners are notified.
+     * Subscribing is asynchronous, and this returns false if the config source does not support it.
+     */
+    default boolean subscribe(JRTClientConfigRequest request) { return false; }
+
+    /** Returns the number of notifications received by this, including those that subscriptions are lost */
+    default long notifications() { return 0; }
+
+    /**
+     * Adds a listener which is called with the scope of each notification that config is activated,
+     * and with null when all subscriptions are lost, e.g., because the connection is closed.
+     */
+    default void addListener(Consumer<String> listener) { }
+
+    default void removeListener(Consumer<String> listener) { }
+
 }
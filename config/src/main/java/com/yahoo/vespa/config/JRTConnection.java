@@ -4,10 +4,20 @@ package com.yahoo.vespa.config;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.RequestWaiter;
 import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Target;
+import com.yahoo.vespa.config.protocol.JRTClientConfigRequest;
+
 import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -19,11 +29,19 @@ import java.util.logging.Logger;
  */
 public class JRTConnection implements Connection {
     private final static Logger logger = Logger.getLogger(JRTConnection.class.getName());
+    private static final Duration subscribeTimeout = Duration.ofSeconds(30);
+    private static final Duration retryFailedSubscriptionsAfter = Duration.ofMinutes(10);
 
     private final String address;
     private final Supervisor supervisor;
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong notifications = new AtomicLong();
     private Target target;
 
+    /** The target subscriptions are made over, and the state of the subscription to each scope over it */
+    private Target subscribedTarget;
+    private final Map<String, Subscription> subscriptions = new HashMap<>();
+
     public JRTConnection(String address, Supervisor supervisor) {
         this.address = address;
         this.supervisor = supervisor;
@@ -43,6 +61,70 @@ public class JRTConnection implements Connection {
         return address;
     }
 
+    @Override
+    public synchronized boolean subscribe(JRTClientConfigRequest request) {
+        Target current = getTarget();
+        if (current != subscribedTarget) { // Subscriptions over the previous target, if any, are lost
+            subscriptions.clear();
+            subscribedTarget = current;
+            current.addWatcher(this::subscriptionsLost);
+        }
+        String scope = JRTMethods.configActivationScope(request);
+        Subscription subscription = subscriptions.get(scope);
+        if (subscription == null || subscription.shouldRetry()) {
+            subscriptions.put(scope, Subscription.pending);
+            Request subscribe = new Request(JRTMethods.configV3SubscribeMethodName);
+            subscribe.parameters().add(new StringValue(request.getRequest().parameters().get(0).asString()));
+            current.invokeAsync(subscribe, subscribeTimeout, done -> subscribed(current, scope, done));
+            return false;
+        }
+        return subscription.subscribed();
+    }
+
+    private synchronized void subscribed(Target target, String scope, Request request) {
+        if (target != subscribedTarget) return;
+
+        boolean active = ! request.isError() && JRTMethods.checkSubscribeReturnTypes(request) && request.returnValues().get(0).asInt32() == 0;
+        subscriptions.put(scope, active ? Subscription.active : Subscription.failed(Instant.now()));
+        logger.log(Level.FINE, () -> "Subscribing to config activations for '" + scope + "' on " + address +
+                                     (active ? " succeeded" : " failed: " + (request.isError() ? request.errorMessage()
+                                                                                                 : ErrorCode.getName(request.returnValues().get(0).asInt32()))));
+    }
+
+    /** Called when the given target is notified that config in the given scope is activated */
+    void configActivated(Target from, String scope, long generation) {
+        synchronized (this) {
+            if (from != subscribedTarget) return;
+        }
+        logger.log(Level.FINE, () -> "Config for '" + scope + "' activated with generation " + generation + " on " + address);
+        notifications.incrementAndGet();
+        listeners.forEach(listener -> listener.accept(scope));
+    }
+
+    private void subscriptionsLost(Target target) {
+        synchronized (this) {
+            if (target != subscribedTarget) return;
+            subscriptions.clear();
+        }
+        notifications.incrementAndGet();
+        listeners.forEach(listener -> listener.accept(null));
+    }
+
+    @Override
+    public long notifications() {
+        return notifications.get();
+    }
+
+    @Override
+    public void addListener(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(Consumer<String> listener) {
+        listeners.remove(listener);
+    }
+
     /**
      * This is synchronized to avoid multiple ConfigInstances creating new targets simultaneously, if
      * the existing target is null, invalid or has not yet been initialized.
@@ -76,4 +158,19 @@ public class JRTConnection implements Connection {
         return Objects.hash(address);
     }
 
+    /** The state of a subscription: Pending until the config source responds, then active, or failed at some instant */
+    private record Subscription(boolean subscribed, Instant failedAt) {
+
+        static final Subscription pending = new Subscription(false, null);
+        static final Subscription active = new Subscription(true, null);
+
+        static Subscription failed(Instant at) { return new Subscription(false, at); }
+
+        /** Returns whether this has failed, and it is time to try again, e.g., as the config source may be upgraded */
+        boolean shouldRetry() {
+            return failedAt != null && failedAt.plus(retryFailedSubscriptionsAfter).isBefore(Instant.now());
+        }
+
+    }
+
 }
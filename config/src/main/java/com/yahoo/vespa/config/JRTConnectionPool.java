@@ -2,8 +2,10 @@
 package com.yahoo.vespa.config;
 
 import com.yahoo.config.subscription.ConfigSourceSet;
+import com.yahoo.jrt.Request;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.jrt.Transport;
+import com.yahoo.security.tls.Capability;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -18,6 +20,7 @@ import java.util.logging.Logger;
  * The current connection is chosen randomly when calling {@link #switchConnection(Connection)}
  * (it will continue to use the same connection if there is only one source).
  * The current connection is available with {@link #getCurrent()}.
+ * Notifications that config is activated, sent by config sources to subscribing connections, are received here.
  *
  * @author Gunnar Gauslaa Bergem
  * @author hmusum
@@ -44,9 +47,18 @@ public class JRTConnectionPool implements ConnectionPool {
         if (sourceSet.getSources().isEmpty()) throw new IllegalArgumentException("sourceSet cannot be empty");
         this.supervisor = supervisor;
         this.poolName = supervisor.transport().getName();
+        supervisor.addMethod(JRTMethods.createConfigV3ConfigActivatedMethod(this::configActivated)
+                                       .requireCapabilities(Capability.CLIENT__CONFIG_API));
         addSources(sourceSet);
     }
 
+    private void configActivated(Request request) {
+        String scope = request.parameters().get(0).asString();
+        long generation = request.parameters().get(1).asInt64();
+        for (JRTConnection connection : getSources())
+            connection.configActivated(request.target(), scope, generation);
+    }
+
     public void addSources(ConfigSourceSet sourceSet) {
         this.sourceSet = sourceSet;
         synchronized (connections) {
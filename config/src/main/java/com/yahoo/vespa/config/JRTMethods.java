@@ -4,6 +4,7 @@ package com.yahoo.vespa.config;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.MethodHandler;
 import com.yahoo.jrt.Request;
+import com.yahoo.vespa.config.protocol.JRTConfigRequest;
 
 /**
  * Defines methods used for RPC config requests.
@@ -13,12 +14,44 @@ public class JRTMethods {
     public static final String configV3getConfigMethodName = "config.v3.getConfig";
     private static final String configV3GetConfigRequestTypes = "s";
     private static final String configV3GetConfigResponseTypes = "sx";
+    public static final String configV3SubscribeMethodName = "config.v3.subscribe";
+    private static final String configV3SubscribeResponseTypes = "i";
+    public static final String configV3ConfigActivatedMethodName = "config.v3.configActivated";
+    private static final String configV3ConfigActivatedRequestTypes = "sl";
 
     public static Method createConfigV3GetConfigMethod(MethodHandler methodHandler) {
         return addDescriptions(
                 new Method(configV3getConfigMethodName, configV3GetConfigRequestTypes, configV3GetConfigResponseTypes, methodHandler));
     }
 
+    /** Returns the method config sources implement to let clients subscribe to notifications that config is activated */
+    public static Method createConfigV3SubscribeMethod(MethodHandler methodHandler) {
+        return new Method(configV3SubscribeMethodName, configV3GetConfigRequestTypes, configV3SubscribeResponseTypes, methodHandler)
+                .methodDesc("subscribe to notifications that config is activated, for configs in the scope of the given request")
+                .paramDesc(0, "request", "config request, as for getConfig")
+                .returnDesc(0, "status", "0 if subscribed, an error code otherwise");
+    }
+
+    /** Returns the method clients implement to receive notifications that config is activated */
+    public static Method createConfigV3ConfigActivatedMethod(MethodHandler methodHandler) {
+        return new Method(configV3ConfigActivatedMethodName, configV3ConfigActivatedRequestTypes, "", methodHandler)
+                .methodDesc("notification that config is activated, for configs in the given scope")
+                .paramDesc(0, "scope", "the scope of the activated config, see configActivationScope")
+                .paramDesc(1, "generation", "the generation of the activated config, or 0 if unknown");
+    }
+
+    /**
+     * Returns the scope of notifications that config is activated, which a subscription for the given request is for:
+     * "*" for global configs, and the host name of the client for configs of the application of that host.
+     */
+    public static String configActivationScope(JRTConfigRequest request) {
+        return "*".equals(request.getConfigKey().getConfigId()) ? "*" : request.getClientHostName();
+    }
+
+    public static boolean checkSubscribeReturnTypes(Request request) {
+        return request.checkReturnTypes(configV3SubscribeResponseTypes);
+    }
+
     private static Method addDescriptions(Method method) {
         return method.methodDesc("get config v3")
                 .paramDesc(0, "request", "config request")
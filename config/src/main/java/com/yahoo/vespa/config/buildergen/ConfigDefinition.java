@@ -4,8 +4,10 @@ package com.yahoo.vespa.config.buildergen;
 import com.yahoo.config.codegen.DefParser;
 import com.yahoo.config.codegen.InnerCNode;
 import com.yahoo.text.StringUtilities;
+import com.yahoo.vespa.config.util.ConfigUtils;
 
 import java.io.StringReader;
+import java.util.Arrays;
 
 /**
  * Represents a higher level functionality on a config definition to (in the future) hide the InnerCNode class.
@@ -16,12 +18,19 @@ public class ConfigDefinition {
     private final String name;
     private final String[] defSchema;
     private final InnerCNode cnode;
+    private final String md5;
 
     // TODO: Should have namespace
     public ConfigDefinition(String name, String[] defSchema) {
         this.name = name;
         this.defSchema = defSchema;
         this.cnode = new DefParser(name, new StringReader(StringUtilities.implode(defSchema, "\n"))).getTree();
+        this.md5 = ConfigUtils.getDefMd5(Arrays.asList(defSchema));
+    }
+
+    /** Returns the md5 sum of this, as computed by subscribers which have the same config definition */
+    public String getMd5() {
+        return md5;
     }
 
     public InnerCNode getCNode() {
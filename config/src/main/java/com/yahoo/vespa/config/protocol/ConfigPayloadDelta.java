@@ -0,0 +1,204 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.slime.ArrayTraverser;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.ObjectTraverser;
+import com.yahoo.slime.Slime;
+import com.yahoo.slime.SlimeUtils;
+import com.yahoo.slime.Type;
+import com.yahoo.text.AbstractUtf8Array;
+import com.yahoo.vespa.config.ConfigPayload;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * A structural delta between two config payloads, which is sent instead of the full payload to clients which
+ * accept it, when it is smaller. A delta of an object is an object with the optional fields
+ *
+ * * "set": an object with the fields which are added, or replaced by a value of another type
+ * * "remove": an array with the names of the fields which are removed
+ * * "patch": an object with the deltas of the fields which are objects or arrays in both payloads
+ *
+ * A delta of an array has "length" instead of "remove", and uses the indices of the elements as field names.
+ * Objects are patched only when fields which are added come after all others in the new payload, so the
+ * payload obtained by applying a delta is identical to the one it was computed from, and has the same checksums.
+ */
+public class ConfigPayloadDelta {
+
+    private static final String SET = "set";
+    private static final String REMOVE = "remove";
+    private static final String PATCH = "patch";
+    private static final String LENGTH = "length";
+
+    private ConfigPayloadDelta() { }
+
+    /**
+     * Returns the delta from the given base payload to the given target payload, uncompressed,
+     * or empty if the delta is not smaller than the target payload.
+     */
+    public static Optional<Payload> diff(Payload base, Payload target) {
+        AbstractUtf8Array targetData = target.withCompression(CompressionType.UNCOMPRESSED).getData();
+        Inspector baseRoot = slime(base).get();
+        Inspector targetRoot = ConfigPayload.fromUtf8Array(targetData).getSlime().get();
+        if (targetRoot.type() != Type.OBJECT || ! patchable(baseRoot, targetRoot)) return Optional.empty();
+
+        Slime delta = new Slime();
+        diff(baseRoot, targetRoot, delta.setObject());
+
+        Payload payload = Payload.from(new ConfigPayload(delta));
+        return payload.getData().getByteLength() < targetData.getByteLength() ? Optional.of(payload) : Optional.empty();
+    }
+
+    /**
+     * Returns the uncompressed payload obtained by applying the given delta to the given base payload.
+     *
+     * @throws IllegalArgumentException if the delta was not computed from a payload with the structure of the base
+     */
+    public static Payload apply(Payload base, Payload delta) {
+        Inspector baseRoot = slime(base).get();
+        if (baseRoot.type() != Type.OBJECT)
+            throw new IllegalArgumentException("Base payload is not an object");
+
+        Slime target = new Slime();
+        applyObject(baseRoot, slime(delta).get(), target.setObject());
+        return Payload.from(new ConfigPayload(target));
+    }
+
+    private static Slime slime(Payload payload) {
+        return ConfigPayload.fromUtf8Array(payload.withCompression(CompressionType.UNCOMPRESSED).getData()).getSlime();
+    }
+
+    /** Returns whether the given object or array can be patched into the given target, rather than replaced */
+    private static boolean patchable(Inspector base, Inspector target) {
+        if (base.type() != target.type()) return false;
+        if (target.type() == Type.ARRAY) return true;
+        if (target.type() != Type.OBJECT) return false;
+
+        // Fields which are kept must be in the same order, and before the ones which are added
+        List<String> kept = fieldNames(base);
+        kept.removeIf(name -> ! target.field(name).valid());
+        List<String> targetFields = fieldNames(target);
+        return targetFields.size() >= kept.size() && targetFields.subList(0, kept.size()).equals(kept);
+    }
+
+    private static void diff(Inspector base, Inspector target, Cursor delta) {
+        List<String> names;
+        if (target.type() == Type.ARRAY) {
+            delta.setLong(LENGTH, target.entries());
+            names = new ArrayList<>();
+            for (int i = 0; i < target.entries(); i++) names.add(Integer.toString(i));
+        }
+        else {
+            names = fieldNames(target);
+            List<String> removed = fieldNames(base);
+            removed.removeIf(name -> target.field(name).valid());
+            if ( ! removed.isEmpty()) {
+                Cursor remove = delta.setArray(REMOVE);
+                removed.forEach(remove::addString);
+            }
+        }
+
+        Cursor set = null;
+        Cursor patch = null;
+        for (String name : names) {
+            Inspector from = get(base, name);
+            Inspector to = get(target, name);
+            if (from.valid() && SlimeUtils.equalTo(from, to)) continue;
+
+            if (from.valid() && patchable(from, to)) {
+                if (patch == null) patch = delta.setObject(PATCH);
+                diff(from, to, patch.setObject(name));
+            }
+            else {
+                if (set == null) set = delta.setObject(SET);
+                SlimeUtils.setObjectEntry(to, name, set);
+            }
+        }
+    }
+
+    private static void applyObject(Inspector base, Inspector delta, Cursor target) {
+        Inspector set = delta.field(SET);
+        Inspector patch = delta.field(PATCH);
+        Set<String> removed = new HashSet<>();
+        delta.field(REMOVE).traverse((ArrayTraverser) (__, name) -> removed.add(name.asString()));
+
+        base.traverse((ObjectTraverser) (name, value) -> {
+            if (removed.contains(name)) return;
+            if (set.field(name).valid())
+                SlimeUtils.setObjectEntry(set.field(name), name, target);
+            else if (patch.field(name).valid())
+                switch (value.type()) {
+                    case OBJECT -> applyObject(value, patch.field(name), target.setObject(name));
+                    case ARRAY -> applyArray(value, patch.field(name), target.setArray(name));
+                    default -> throw notPatchable(name, value);
+                }
+            else
+                SlimeUtils.setObjectEntry(value, name, target);
+        });
+        set.traverse((ObjectTraverser) (name, value) -> {
+            if ( ! base.field(name).valid())
+                SlimeUtils.setObjectEntry(value, name, target);
+        });
+        patch.traverse((ObjectTraverser) (name, __) -> {
+            if ( ! base.field(name).valid()) throw notPatchable(name, base.field(name));
+        });
+    }
+
+    private static void applyArray(Inspector base, Inspector delta, Cursor target) {
+        Inspector set = delta.field(SET);
+        Inspector patch = delta.field(PATCH);
+        long length = delta.field(LENGTH).asLong();
+        for (int i = 0; i < length; i++) {
+            String name = Integer.toString(i);
+            Inspector value = base.entry(i);
+            if (set.field(name).valid())
+                addEntry(set.field(name), target);
+            else if (patch.field(name).valid())
+                switch (value.type()) {
+                    case OBJECT -> applyObject(value, patch.field(name), target.addObject());
+                    case ARRAY -> applyArray(value, patch.field(name), target.addArray());
+                    default -> throw notPatchable(name, value);
+                }
+            else if (value.valid())
+                addEntry(value, target);
+            else
+                throw new IllegalArgumentException("Delta has no value for array element " + i +
+                                                   ", which is not in the base payload");
+        }
+    }
+
+    private static IllegalArgumentException notPatchable(String name, Inspector base) {
+        return new IllegalArgumentException("Delta patches '" + name + "', which is " +
+                                            (base.valid() ? "a " + base.type() : "missing") + " in the base payload");
+    }
+
+    private static Inspector get(Inspector inspector, String name) {
+        return inspector.type() == Type.ARRAY ? inspector.entry(Integer.parseInt(name)) : inspector.field(name);
+    }
+
+    private static void addEntry(Inspector from, Cursor to) {
+        switch (from.type()) {
+            case NIX -> to.addNix();
+            case BOOL -> to.addBool(from.asBool());
+            case LONG -> to.addLong(from.asLong());
+            case DOUBLE -> to.addDouble(from.asDouble());
+            case STRING -> to.addString(from.asString());
+            case DATA -> to.addData(from.asData());
+            case ARRAY -> SlimeUtils.copyArray(from, to.addArray());
+            case OBJECT -> SlimeUtils.copyObject(from, to.addObject());
+        }
+    }
+
+    private static List<String> fieldNames(Inspector object) {
+        List<String> names = new ArrayList<>(object.fields());
+        object.traverse((ObjectTraverser) (name, __) -> names.add(name));
+        return names;
+    }
+
+}
@@ -11,11 +11,13 @@ import com.yahoo.slime.Slime;
 import com.yahoo.text.Utf8;
 import com.yahoo.text.Utf8Array;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.ErrorCode;
 import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.util.ConfigUtils;
+import com.yahoo.yolean.Exceptions;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -40,6 +42,12 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
     protected final SlimeRequestData requestData;
     protected final Request request;
     private final SlimeResponseData responseData;
+    /** Whether this accepts deltas from the config it has, when it has its payload */
+    private final boolean acceptDelta;
+    /** The payload of the config with the checksums in this, if kept */
+    private final Optional<Payload> basePayload;
+    private Payload newPayload = null;
+    private boolean deltaFailed = false;
 
     protected JRTClientConfigRequestV3(ConfigKey<?> key,
                                        String hostname,
@@ -50,6 +58,21 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                        Trace trace,
                                        CompressionType compressionType,
                                        Optional<VespaVersion> vespaVersion) {
+        this(key, hostname, defSchema, payloadChecksums, generation, timeout, trace, compressionType, vespaVersion,
+             false, Optional.empty());
+    }
+
+    protected JRTClientConfigRequestV3(ConfigKey<?> key,
+                                       String hostname,
+                                       DefContent defSchema,
+                                       PayloadChecksums payloadChecksums,
+                                       long generation,
+                                       long timeout,
+                                       Trace trace,
+                                       CompressionType compressionType,
+                                       Optional<VespaVersion> vespaVersion,
+                                       boolean acceptDelta,
+                                       Optional<Payload> basePayload) {
         Slime data = SlimeRequestData.encodeRequest(key,
                                                     hostname,
                                                     defSchema,
@@ -59,13 +82,16 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                                     trace,
                                                     getProtocolVersion(),
                                                     compressionType,
-                                                    vespaVersion);
+                                                    vespaVersion,
+                                                    acceptDelta && basePayload.isPresent());
         Request jrtReq = new Request(getJRTMethodName());
         jrtReq.parameters().add(new StringValue(encodeAsUtf8String(data)));
 
         this.requestData = new SlimeRequestData(jrtReq, data);
         this.responseData = new SlimeResponseData(jrtReq);
         this.request = jrtReq;
+        this.acceptDelta = acceptDelta;
+        this.basePayload = basePayload;
     }
 
     protected static String encodeAsUtf8String(Slime data) {
@@ -86,11 +112,38 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
         return JRTMethods.checkV3ReturnTypes(request);
     }
 
+    /**
+     * Returns the config payload of the response. If the response is a delta from the config of this,
+     * this is the payload obtained by applying it.
+     *
+     * @throws IllegalArgumentException if the response is a delta which could not be applied
+     */
     @Override
     public Payload getNewPayload() {
+        if (newPayload == null)
+            newPayload = resolveNewPayload();
+        return newPayload;
+    }
+
+    private Payload resolveNewPayload() {
         CompressionInfo compressionInfo = getResponseData().getCompressionInfo();
         Utf8Array payload = new Utf8Array(request.returnValues().get(1).asData());
-        return Payload.from(payload, compressionInfo);
+        Optional<PayloadChecksum> deltaBase = responseData.getResponseDeltaBase();
+        if (deltaBase.isEmpty()) return Payload.from(payload, compressionInfo);
+
+        PayloadChecksum requestXxhash64 = getRequestConfigChecksums().getForType(XXHASH64);
+        if (basePayload.isEmpty() || ! deltaBase.get().equals(requestXxhash64))
+            throw new IllegalArgumentException("Got delta from config with checksum " + deltaBase.get() +
+                                               ", but has config with checksum " + requestXxhash64);
+
+        Payload resolved = ConfigPayloadDelta.apply(basePayload.get(), Payload.from(payload, compressionInfo));
+        PayloadChecksum expected = getNewChecksums().getForType(XXHASH64);
+        PayloadChecksum actual = PayloadChecksum.fromPayload(resolved, XXHASH64);
+        if ( ! actual.equals(expected))
+            throw new IllegalArgumentException("Config obtained by applying delta has checksum " + actual +
+                                               ", but expected " + expected);
+
+        return resolved.withCompression(requestData.getCompressionType());
     }
 
     @Override
@@ -108,7 +161,16 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                 timeout,
                 Trace.createNew(),
                 requestData.getCompressionType(),
-                requestData.getVespaVersion());
+                requestData.getVespaVersion(),
+                acceptDelta,
+                nextBasePayload());
+    }
+
+    /** Returns the payload of the config the next request will have, if this accepts deltas */
+    private Optional<Payload> nextBasePayload() {
+        if ( ! acceptDelta || deltaFailed) return Optional.empty(); // Get the full config once, after a failed delta
+        if (isError() || PayloadChecksums.empty().equals(getNewChecksums())) return basePayload;
+        return Optional.of(getNewPayload());
     }
 
     public static <T extends ConfigInstance> JRTClientConfigRequest createFromSub(JRTConfigSubscription<T> sub,
@@ -116,15 +178,17 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
                                                                                   CompressionType compressionType,
                                                                                   Optional<VespaVersion> vespaVersion) {
         ConfigSubscription.ConfigState<T> configState = sub.getConfigState();
-        return createWithParams(sub.getKey(),
-                                sub.getDefContent(),
-                                ConfigUtils.getCanonicalHostName(),
-                                configState.getChecksums(),
-                                configState.getGeneration(),
-                                sub.timingValues().getSubscribeTimeout(),
-                                trace,
-                                compressionType,
-                                vespaVersion);
+        return new JRTClientConfigRequestV3(sub.getKey(),
+                                            ConfigUtils.getCanonicalHostName(),
+                                            sub.getDefContent(),
+                                            configState.getChecksums(),
+                                            configState.getGeneration(),
+                                            sub.timingValues().getSubscribeTimeout(),
+                                            trace,
+                                            compressionType,
+                                            vespaVersion,
+                                            sub.acceptsDelta(),
+                                            Optional.empty());
     }
 
     public static JRTClientConfigRequest createFromRaw(RawConfig config,
@@ -290,6 +354,14 @@ public class JRTClientConfigRequestV3 implements JRTClientConfigRequest {
         } else if (!checkReturnTypes(request)) {
             log.warning("Invalid return types for config response: " + errorMessage());
             return false;
+        } else if (responseData.getResponseDeltaBase().isPresent()) {
+            try {
+                getNewPayload();
+            } catch (IllegalArgumentException e) {
+                deltaFailed = true;
+                request.setError(ErrorCode.INCONSISTENT_CONFIG_MD5, "Failed applying config delta: " + Exceptions.toMessageString(e));
+                return false;
+            }
         }
         return true;
     }
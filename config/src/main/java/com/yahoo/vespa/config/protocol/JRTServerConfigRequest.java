@@ -39,6 +39,21 @@ public interface JRTServerConfigRequest extends JRTConfigRequest, GetConfigReque
      */
     void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums payloadChecksums);
 
+    /**
+     * Signal that the request was handled, with a payload which is a {@link ConfigPayloadDelta} from the config with
+     * the checksums in this request. Must only be used when {@link #acceptsDelta()}.
+     *
+     * @param delta The delta from the config of the client to the config that the client should receive.
+     * @param generation The config generation of the config that the client should receive.
+     * @param applyOnRestart true if this config should only be applied on the next restart,
+     *                       false if it should be applied right away
+     * @param payloadChecksums checksums of the config that the client should receive.
+     */
+    void addOkDeltaResponse(Payload delta, long generation, boolean applyOnRestart, PayloadChecksums payloadChecksums);
+
+    /** Returns whether the client accepts a delta from the config it has, instead of the full config payload. */
+    boolean acceptsDelta();
+
     /**
      * Returns the md5 of the config definition in the request.
      *
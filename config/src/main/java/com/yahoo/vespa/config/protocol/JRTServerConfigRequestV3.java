@@ -27,6 +27,9 @@ import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
  * * A metadata field containing json data describing config generation, md5 and compression info
  * * A data field containing compressed or uncompressed json config payload
  *
+ * Clients which accept it may get a {@link ConfigPayloadDelta} from the config they have in the data field instead,
+ * which is then indicated by the checksum of that config in the metadata field.
+ *
  * The implementation of addOkResponse is optimized for doing as little copying of payload data as possible, ensuring
  * that we get a lower memory footprint.
  *
@@ -71,6 +74,17 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
 
     @Override
     public void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums checksums) {
+        addOkResponse(payload, generation, applyOnRestart, checksums, false);
+    }
+
+    @Override
+    public void addOkDeltaResponse(Payload delta, long generation, boolean applyOnRestart, PayloadChecksums checksums) {
+        if ( ! acceptsDelta())
+            throw new IllegalStateException("Client does not accept a delta for " + this);
+        addOkResponse(delta, generation, applyOnRestart, checksums, true);
+    }
+
+    private void addOkResponse(Payload payload, long generation, boolean applyOnRestart, PayloadChecksums checksums, boolean isDelta) {
         this.applyOnRestart = applyOnRestart;
         Payload responsePayload = payload.withCompression(getCompressionType());
         if (responsePayload == null)
@@ -85,6 +99,9 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
             addPayloadCheckSums(jsonGenerator, checksums);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_CONFIG_GENERATION, generation);
             setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_APPLY_ON_RESTART, applyOnRestart);
+            if (isDelta)
+                setResponseField(jsonGenerator, SlimeResponseData.RESPONSE_DELTA_BASE_XXHASH64,
+                                 getRequestConfigChecksums().getForType(XXHASH64).asString());
             jsonGenerator.writeObjectFieldStart(SlimeResponseData.RESPONSE_COMPRESSION_INFO);
             responsePayload.getCompressionInfo().serialize(jsonGenerator);
             jsonGenerator.writeEndObject();
@@ -102,6 +119,9 @@ public class JRTServerConfigRequestV3 implements JRTServerConfigRequest {
         return 3;
     }
 
+    @Override
+    public boolean acceptsDelta() { return requestData.getAcceptDelta(); }
+
     @Override
     public boolean applyOnRestart() { return applyOnRestart; }
 
@@ -8,6 +8,8 @@ import com.yahoo.slime.Inspector;
 import com.yahoo.slime.Slime;
 import com.yahoo.slime.SlimeUtils;
 
+import java.util.Optional;
+
 import static com.yahoo.vespa.config.PayloadChecksum.Type.MD5;
 import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
 
@@ -31,6 +33,7 @@ class SlimeResponseData {
     static final String RESPONSE_CONFIG_GENERATION = "generation";
     static final String RESPONSE_APPLY_ON_RESTART = "applyOnRestart";
     static final String RESPONSE_COMPRESSION_INFO = "compressionInfo";
+    static final String RESPONSE_DELTA_BASE_XXHASH64 = "deltaBaseXxhash64";
 
     private final Request request;
     private Slime data = null;
@@ -91,4 +94,10 @@ class SlimeResponseData {
         return inspector.valid() && inspector.asBool();
     }
 
+    /** Returns the checksum of the config which the payload is a delta from, or empty if it is the full config */
+    Optional<PayloadChecksum> getResponseDeltaBase() {
+        Inspector field = getResponseField(RESPONSE_DELTA_BASE_XXHASH64);
+        return field.valid() ? Optional.of(new PayloadChecksum(field.asString(), XXHASH64)) : Optional.empty();
+    }
+
 }
@@ -8,12 +8,21 @@ import com.yahoo.jrt.RequestWaiter;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.TimingValues;
+import com.yahoo.vespa.config.protocol.JRTClientConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
 import org.junit.Test;
 
+import java.time.Duration;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import static com.yahoo.config.subscription.impl.JRTConfigRequester.calculateFailedRequestDelay;
 import static org.junit.Assert.assertEquals;
@@ -167,6 +176,29 @@ public class JRTConfigRequesterTest {
         }
     }
 
+    @Test
+    public void testRequestsAreParkedUntilConfigIsActivated() throws InterruptedException {
+        TimingValues timingValues = new TimingValues(60_000, 500, 500, 2000, 250); // Only notifications cause new requests
+        SubscribedConnection connection = new SubscribedConnection();
+        JRTConfigRequester requester = new JRTConfigRequester(connection, timingValues);
+        requester.request(createSubscription(requester, timingValues));
+        Thread.sleep(timingValues.getFixedDelay() * 4);
+        assertEquals(1, connection.getNumberOfRequests());
+        String scope = JRTMethods.configActivationScope(JRTServerConfigRequestV3.createFromRequest(connection.getRequest()));
+
+        connection.configActivated("other." + scope);
+        Thread.sleep(timingValues.getFixedDelay() * 4);
+        assertEquals(1, connection.getNumberOfRequests());
+
+        connection.configActivated(scope);
+        waitUntil(() -> connection.getNumberOfRequests() == 2);
+        assertTrue(JRTServerConfigRequestV3.createFromRequest(connection.getRequest()).getTimeout() < timingValues.getSuccessTimeout());
+
+        connection.configActivated(null); // Subscriptions are lost
+        waitUntil(() -> connection.getNumberOfRequests() == 3);
+        requester.close();
+    }
+
     private JRTConfigSubscription<SimpletypesConfig> createSubscription(JRTConfigRequester requester, TimingValues timingValues) {
         return new JRTConfigSubscription<>(new ConfigKey<>(SimpletypesConfig.class, "testid"),
                                            requester,
@@ -190,6 +222,12 @@ public class JRTConfigRequesterTest {
         }
     }
 
+    private void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 6000 && ! condition.getAsBoolean(); i++)
+            Thread.sleep(10);
+        assertTrue(condition.getAsBoolean());
+    }
+
     public static TimingValues getTestTimingValues() { return new TimingValues(
             1000,  // successTimeout
             500,   // errorTimeout
@@ -237,6 +275,45 @@ public class JRTConfigRequesterTest {
         }
     }
 
+    /** A connection which is always subscribed, and which is notified by the test */
+    private static class SubscribedConnection extends MockConnection {
+
+        private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+        private final AtomicLong notifications = new AtomicLong();
+        private final AtomicInteger requests = new AtomicInteger();
+
+        SubscribedConnection() {
+            super(new MockConnection.OKResponseHandler());
+        }
+
+        @Override
+        public void invokeAsync(Request request, Duration jrtTimeout, RequestWaiter requestWaiter) {
+            requests.incrementAndGet();
+            super.invokeAsync(request, jrtTimeout, requestWaiter);
+        }
+
+        @Override
+        public int getNumberOfRequests() { return requests.get(); }
+
+        @Override
+        public boolean subscribe(JRTClientConfigRequest request) { return true; }
+
+        @Override
+        public long notifications() { return notifications.get(); }
+
+        @Override
+        public void addListener(Consumer<String> listener) { listeners.add(listener); }
+
+        @Override
+        public void removeListener(Consumer<String> listener) { listeners.remove(listener); }
+
+        void configActivated(String scope) {
+            notifications.incrementAndGet();
+            listeners.forEach(listener -> listener.accept(scope));
+        }
+
+    }
+
     @Test
     public void testManagedPool() {
         ConfigSourceSet sourceSet = ConfigSourceSet.createDefault();
@@ -69,6 +69,21 @@ public class ConfigPayloadApplierTest {
         assertEndsWith("resolvedPath/myPath.txt", config.myModel().toString());
     }
 
+    @Test
+    public void testUnknownFieldsAreIgnored() {
+        var configBuilder = new ResolvedTypesConfig.Builder();
+        var applier = new ConfigPayloadApplier<>(configBuilder, new MockAcquirer(), new MockDownloader());
+
+        applier.applyPayload(ConfigPayload.fromString("{ \"myPath\": \"myPath.txt\", \"myUrl\": \"myUrl.txt\", " +
+                                                      "\"myModel\": \"my-id \\\"\\\" myPath.txt\", " +
+                                                      "\"newField\": \"foo\", \"newStruct\": { \"bar\": 1 }, \"newArray\": [ 1, 2 ] }"));
+        var config = configBuilder.build();
+
+        assertEndsWith("resolvedPath/myPath.txt", config.myPath().toString());
+        assertEndsWith("resolvedUrl/myUrl.txt", config.myUrl().toString());
+        assertEndsWith("resolvedPath/myPath.txt", config.myModel().toString());
+    }
+
     private void assertEndsWith(String ending, String string) {
         String assertingThat = "'" + string + "' ends with '" + ending + "'";
         try {
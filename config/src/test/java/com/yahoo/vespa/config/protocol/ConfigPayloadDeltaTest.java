@@ -0,0 +1,78 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.protocol;
+
+import com.yahoo.vespa.config.ConfigPayload;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class ConfigPayloadDeltaTest {
+
+    private static final String base = "{" +
+                                       "\"name\":\"foo\"," +
+                                       "\"removed\":1," +
+                                       "\"struct\":{\"a\":1,\"b\":\"an unchanged value which is long enough to make the delta smaller than the full payload\"}," +
+                                       "\"array\":[{\"x\":1,\"y\":2},{\"x\":3,\"y\":4},{\"x\":5,\"y\":6}]," +
+                                       "\"numbers\":[1,2,3]," +
+                                       "\"retyped\":{\"a\":1}" +
+                                       "}";
+
+    @Test
+    public void delta_reproduces_the_target_payload() {
+        String target = "{" +
+                        "\"name\":\"bar\"," +
+                        "\"struct\":{\"a\":2,\"b\":\"an unchanged value which is long enough to make the delta smaller than the full payload\"}," +
+                        "\"array\":[{\"x\":1,\"y\":2},{\"x\":3,\"y\":7}]," +
+                        "\"numbers\":[1,2,3,4]," +
+                        "\"retyped\":[1]," +
+                        "\"added\":true" +
+                        "}";
+        Payload delta = ConfigPayloadDelta.diff(payload(base), payload(target)).get();
+        assertEquals("{" +
+                     "\"remove\":[\"removed\"]," +
+                     "\"set\":{\"name\":\"bar\",\"retyped\":[1],\"added\":true}," +
+                     "\"patch\":{" +
+                     "\"struct\":{\"set\":{\"a\":2}}," +
+                     "\"array\":{\"length\":2,\"patch\":{\"1\":{\"set\":{\"y\":7}}}}," +
+                     "\"numbers\":{\"length\":4,\"set\":{\"3\":4}}" +
+                     "}}",
+                     delta.toString());
+        assertEquals(target, ConfigPayloadDelta.apply(payload(base), delta).toString());
+        assertEquals(target, ConfigPayloadDelta.apply(payload(base).withCompression(CompressionType.LZ4),
+                                                      delta.withCompression(CompressionType.LZ4)).toString());
+    }
+
+    @Test
+    public void objects_with_reordered_fields_are_replaced() {
+        String target = base.replace("\"struct\":{\"a\":1,\"b\"", "\"struct\":{\"c\":0,\"a\":1,\"b\"");
+        Payload delta = ConfigPayloadDelta.diff(payload(base), payload(target)).get();
+        assertTrue(delta.toString().contains("\"set\":{\"struct\":{\"c\":0,\"a\":1,"));
+        assertEquals(target, ConfigPayloadDelta.apply(payload(base), delta).toString());
+
+        String reordered = "{\"removed\":1,\"name\":\"foo\"}";
+        assertEquals(Optional.empty(), ConfigPayloadDelta.diff(payload(base), payload(reordered)));
+    }
+
+    @Test
+    public void delta_is_not_used_when_larger_than_target() {
+        assertFalse(ConfigPayloadDelta.diff(payload(base), payload("{\"name\":\"bar\"}")).isPresent());
+    }
+
+    @Test
+    public void delta_must_match_base() {
+        Payload delta = payload("{\"patch\":{\"name\":{\"set\":{\"a\":1}}}}");
+        assertThrows(IllegalArgumentException.class, () -> ConfigPayloadDelta.apply(payload(base), delta));
+        Payload missing = payload("{\"patch\":{\"missing\":{\"set\":{\"a\":1}}}}");
+        assertThrows(IllegalArgumentException.class, () -> ConfigPayloadDelta.apply(payload(base), missing));
+    }
+
+    private static Payload payload(String json) {
+        return Payload.from(ConfigPayload.fromString(json));
+    }
+
+}
@@ -127,6 +127,36 @@ public class JRTConfigRequestV3Test {
         assertTrue(clientReq.hasUpdatedGeneration());
     }
 
+    @Test
+    public void delta_response_is_applied_to_config_of_request() {
+        assertFalse(serverReq.acceptsDelta());
+
+        Payload base = createPayload("bar", "a long value which is the same in both configs, so a delta is smaller");
+        Payload target = createPayload("baz", "a long value which is the same in both configs, so a delta is smaller");
+        PayloadChecksums targetChecksums = PayloadChecksums.fromPayload(target);
+        clientReq = createDeltaReq(base);
+        serverReq = createReq(clientReq.getRequest());
+        assertTrue(serverReq.acceptsDelta());
+        serverReq.addOkDeltaResponse(ConfigPayloadDelta.diff(base, target).get(), 4L, false, targetChecksums);
+        assertTrue(clientReq.errorMessage(), clientReq.validateResponse());
+        assertEquals(target.getData().toString(), clientReq.getNewPayload().withCompression(CompressionType.UNCOMPRESSED).getData().toString());
+        assertTrue(clientReq.hasUpdatedConfig());
+
+        // The next request accepts a delta from the new config
+        JRTClientConfigRequest next = clientReq.nextRequest(timeout);
+        assertEquals(targetChecksums, next.getRequestConfigChecksums());
+        serverReq = createReq(next.getRequest());
+        assertTrue(serverReq.acceptsDelta());
+
+        // A delta which does not produce the config with the given checksums is an error, and the full config is requested next
+        serverReq.addOkDeltaResponse(ConfigPayloadDelta.diff(target, base).get(), 5L, false, targetChecksums);
+        assertFalse(next.validateResponse());
+        assertEquals(ErrorCode.INCONSISTENT_CONFIG_MD5, next.errorCode());
+        JRTClientConfigRequest afterError = next.nextRequest(timeout);
+        assertEquals(targetChecksums, afterError.getRequestConfigChecksums());
+        assertFalse(createReq(afterError.getRequest()).acceptsDelta());
+    }
+
     @Test
     public void error_response_adds_common_elements() {
         serverReq.addErrorResponse(ErrorCode.APPLICATION_NOT_LOADED, ErrorCode.getName(ErrorCode.APPLICATION_NOT_LOADED));
@@ -259,6 +289,28 @@ public class JRTConfigRequestV3Test {
         return Payload.from(new ConfigPayload(slime));
     }
 
+    private static Payload createPayload(String value, String other) {
+        Slime slime = new Slime();
+        slime.setObject().setString("myfield", value);
+        slime.get().setString("other", other);
+        return Payload.from(new ConfigPayload(slime));
+    }
+
+    private JRTClientConfigRequest createDeltaReq(Payload basePayload) {
+        trace = Trace.createNew(3, new ManualClock());
+        return new JRTClientConfigRequestV3(ConfigKey.createFull(defName, configId, defNamespace),
+                                            hostname,
+                                            DefContent.fromList(List.of(configDefinition)),
+                                            PayloadChecksums.fromPayload(basePayload),
+                                            currentGeneration,
+                                            timeout,
+                                            trace,
+                                            CompressionType.LZ4,
+                                            vespaVersion,
+                                            true,
+                                            Optional.of(basePayload));
+    }
+
     private JRTClientConfigRequest createReq(String defName, String defNamespace,
                                              String hostname, String configId, PayloadChecksums payloadChecksums,
                                              long currentGeneration, long timeout, Trace trace) {
@@ -8,7 +8,9 @@ import com.yahoo.config.codegen.LeafCNode.OptionalPathLeaf;
 import com.yahoo.config.codegen.LeafCNode.UrlLeaf;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -27,6 +29,10 @@ import static java.util.Arrays.stream;
  */
 public class BuilderGenerator {
 
+    // Fully qualified, as users are free to define a struct with the same name
+    private static final String DIRECT_BUILDER = "com.yahoo.config.DirectConfigBuilder";
+    private static final String VALUE_TYPE = DIRECT_BUILDER + ".ValueType";
+
     public static String getBuilder(InnerCNode node) {
         return getDeclaration(node) + "\n" + //
                 indentCode(INDENTATION, getUninitializedScalars(node) + "\n\n" + //
@@ -34,14 +40,16 @@ public class BuilderGenerator {
                         + "\n\n" + //
                         getBuilderConstructors(node, nodeClass(node)) + "\n\n" + //
                         getOverrideMethod(node) + "\n\n" + //
-                        getBuilderSetters(node) + "\n" + //
+                        getBuilderSetters(node) + "\n\n" + //
+                        getDirectBuilderMethods(node) + "\n" + //
                         getSpecialRootBuilderCode(node) + "\n" + //
                         getBuildMethod(node) + "\n") //
                 + "}";
     }
 
     private static String getDeclaration(InnerCNode node) {
-        String getInterfaces = (node.getParent() == null) ? "implements ConfigInstance.Builder" : "implements ConfigBuilder";
+        String getInterfaces = (node.getParent() == null) ? "implements ConfigInstance.Builder, " + DIRECT_BUILDER
+                                                          : "implements " + DIRECT_BUILDER;
 
         return "public static final class Builder " + getInterfaces + " {";
     }
@@ -313,6 +321,96 @@ public class BuilderGenerator {
         }
     }
 
+    /** Returns the methods which let payloads be applied to this builder without reflection */
+    private static String getDirectBuilderMethods(InnerCNode node) {
+        String field = INTERNAL_PREFIX + "field";
+        String key = INTERNAL_PREFIX + "key";
+        String value = INTERNAL_PREFIX + "value";
+        List<CNode> children = List.of(node.getChildren());
+        Map<String, List<String>> fieldsByValueType = new LinkedHashMap<>();
+        for (CNode child : children)
+            fieldsByValueType.computeIfAbsent(valueType(child), __ -> new ArrayList<>()).add(quoted(child));
+        List<String> maps = children.stream().filter(child -> child.isMap).map(BuilderGenerator::quoted).toList();
+
+        return "@java.lang.Override\n" +
+               "public final " + VALUE_TYPE + " " + INTERNAL_PREFIX + "valueType(String " + field + ") {\n" +
+               "  return switch (" + field + ") {\n" +
+               fieldsByValueType.entrySet().stream()
+                                .map(entry -> "    case " + String.join(", ", entry.getValue()) + " -> " + VALUE_TYPE + "." + entry.getKey() + ";\n")
+                                .collect(Collectors.joining()) +
+               "    default -> null;\n" +
+               "  };\n" +
+               "}\n" +
+               "\n" +
+               "@java.lang.Override\n" +
+               "public final boolean " + INTERNAL_PREFIX + "isMap(String " + field + ") {\n" +
+               (maps.isEmpty() ? "  return false;\n"
+                               : "  return switch (" + field + ") {\n" +
+                                 "    case " + String.join(", ", maps) + " -> true;\n" +
+                                 "    default -> false;\n" +
+                                 "  };\n") +
+               "}\n" +
+               "\n" +
+               "@java.lang.Override\n" +
+               "public final " + DIRECT_BUILDER + " " + INTERNAL_PREFIX + "newBuilder(String " + field + ") {\n" +
+               directSwitch(field, "return ", "No struct field",
+                            children.stream().filter(child -> child instanceof InnerCNode)
+                                    .map(child -> "case " + quoted(child) + " -> new " + builderType(child) + "();")
+                                    .toList()) +
+               "}\n" +
+               "\n" +
+               "@java.lang.Override\n" +
+               "@SuppressWarnings(\"unchecked\")\n" +
+               "public final void " + INTERNAL_PREFIX + "set(String " + field + ", Object " + value + ") {\n" +
+               directSwitch(field, "", "No field",
+                            children.stream().filter(child -> ! child.isMap)
+                                    .map(child -> "case " + quoted(child) + " -> " + child.getName() + "((" + directValueType(child) + ") " + value + ");")
+                                    .toList()) +
+               "}\n" +
+               "\n" +
+               "@java.lang.Override\n" +
+               "public final void " + INTERNAL_PREFIX + "put(String " + field + ", String " + key + ", Object " + value + ") {\n" +
+               directSwitch(field, "", "No map field",
+                            children.stream().filter(child -> child.isMap)
+                                    .map(child -> "case " + quoted(child) + " -> " + child.getName() + "(" + key + ", (" + directValueType(child) + ") " + value + ");")
+                                    .toList()) +
+               "}\n";
+    }
+
+    /** Returns a switch over the given field name with the given cases, which throws if none match */
+    private static String directSwitch(String field, String prefix, String message, List<String> cases) {
+        String fail = "throw new IllegalArgumentException(\"" + message + " '\" + " + field + " + \"'\");";
+        if (cases.isEmpty()) return "  " + fail + "\n";
+
+        return "  " + prefix + "switch (" + field + ") {\n" +
+               cases.stream().map(line -> "    " + line + "\n").collect(Collectors.joining()) +
+               "    default -> " + fail + "\n" +
+               "  }" + (prefix.isEmpty() ? "" : ";") + "\n";
+    }
+
+    private static String quoted(CNode node) {
+        return "\"" + node.getName() + "\"";
+    }
+
+    private static String valueType(CNode node) {
+        if (node instanceof InnerCNode) return "STRUCT";
+        if (node instanceof PathLeaf) return "PATH";
+        if (node instanceof OptionalPathLeaf) return "OPTIONAL_PATH";
+        if (node instanceof UrlLeaf) return "URL";
+        if (node instanceof ModelLeaf) return "MODEL";
+        return "STRING";
+    }
+
+    /** Returns the type of the values given for the node to the direct builder methods, see {@link #valueType} */
+    private static String directValueType(CNode node) {
+        return switch (valueType(node)) {
+            case "STRING" -> "String";
+            case "PATH" -> "FileReference";
+            case "OPTIONAL_PATH" -> "Optional<FileReference>";
+            default -> builderType(node);
+        };
+    }
+
     private static String setBuilderValueFromConfig(CNode child, CNode node) {
         String name = child.getName();
         boolean isArray = child.isArray;
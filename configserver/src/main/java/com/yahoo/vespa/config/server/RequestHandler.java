@@ -6,7 +6,9 @@ import com.yahoo.config.FileReference;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.GetConfigRequest;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
 
 import java.util.Optional;
 import java.util.Set;
@@ -28,6 +30,17 @@ public interface RequestHandler {
      */
     ConfigResponse resolveConfig(ApplicationId appId, GetConfigRequest req, Optional<Version> vespaVersion);
 
+    /**
+     * Returns the delta to a resolved config from the config with the given checksums, previously sent to the client.
+     *
+     * @param appId the application id to use
+     * @param vespaVersion optional vespa version
+     * @param base checksums of the config the client has
+     * @param config the resolved config
+     * @return the delta, or empty if the base config is no longer known, or the delta is not smaller than the config
+     */
+    Optional<Payload> resolveDelta(ApplicationId appId, Optional<Version> vespaVersion, PayloadChecksums base, ConfigResponse config);
+
     /**
      * Lists all configs (name, configKey) in the config model.
      *
@@ -6,9 +6,15 @@ import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.buildergen.ConfigDefinition;
+import com.yahoo.vespa.config.protocol.ConfigPayloadDelta;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
@@ -29,6 +35,10 @@ public class ServerCache {
     private final Map<PayloadChecksum, ConfigResponse> checksumToConfig = new ConcurrentHashMap<>();
     private final Object [] stripedLocks = new Object[113];
 
+    // Configs of previous generations, newest first, and deltas from these, or configs of this, to configs of this
+    private volatile List<Map<PayloadChecksum, ConfigResponse>> previousConfigs = List.of();
+    private final Map<DeltaKey, Optional<Payload>> deltas = new ConcurrentHashMap<>();
+
     public ServerCache(ConfigDefinitionRepo builtinConfigDefinitions, ConfigDefinitionRepo userConfigDefinitions) {
         this.builtinConfigDefinitions = builtinConfigDefinitions;
         this.userConfigDefinitions = userConfigDefinitions;
@@ -70,6 +80,42 @@ public class ServerCache {
         }
     }
 
+    /**
+     * Retains the configs of the given cache, which is for the previous generation of the same application,
+     * and of the generations it retains, up to the given number of generations, to compute deltas from.
+     */
+    public void retainPrevious(ServerCache previous, int generations) {
+        List<Map<PayloadChecksum, ConfigResponse>> retained = new ArrayList<>();
+        retained.add(previous.checksumToConfig);
+        retained.addAll(previous.previousConfigs);
+        previousConfigs = List.copyOf(retained.subList(0, Math.max(0, Math.min(generations, retained.size()))));
+    }
+
+    /**
+     * Returns the delta from the config with the given checksum to the given config of this, if the former is a config
+     * of this or a retained generation, and the delta is smaller than the config. Each delta is computed only once.
+     */
+    public Optional<Payload> getDelta(PayloadChecksum base, ConfigResponse config) {
+        PayloadChecksum target = config.getPayloadChecksums().getForType(XXHASH64);
+        if (base == null || base.isEmpty() || target == null || target.isEmpty()) return Optional.empty();
+
+        // Only deltas from known configs are cached, as clients may send any checksum
+        return getByChecksum(base).flatMap(baseConfig -> deltas.computeIfAbsent(new DeltaKey(base, target), __ ->
+                ConfigPayloadDelta.diff(payloadOf(baseConfig), payloadOf(config))
+                                  .map(delta -> delta.withCompression(config.getCompressionInfo().getCompressionType()))));
+    }
+
+    private static Payload payloadOf(ConfigResponse config) {
+        return Payload.from(config.getPayload(), config.getCompressionInfo());
+    }
+
+    private Optional<ConfigResponse> getByChecksum(PayloadChecksum xxhash64) {
+        ConfigResponse config = checksumToConfig.get(xxhash64);
+        for (Iterator<Map<PayloadChecksum, ConfigResponse>> previous = previousConfigs.iterator(); config == null && previous.hasNext(); )
+            config = previous.next().get(xxhash64);
+        return Optional.ofNullable(config);
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -78,6 +124,8 @@ public class ServerCache {
         sb.append("user defs:    ").append(userConfigDefinitions.getConfigDefinitions().size()).append("\n");
         sb.append("md5sums:      ").append(checksums.size()).append("\n");
         sb.append("md5ToConfig:  ").append(checksumToConfig.size()).append("\n");
+        sb.append("generations:  ").append(previousConfigs.size()).append(" retained\n");
+        sb.append("deltas:       ").append(deltas.size()).append("\n");
 
         return sb.toString();
     }
@@ -103,4 +151,6 @@ public class ServerCache {
         return checksums.size();
     }
 
+    private record DeltaKey(PayloadChecksum base, PayloadChecksum target) { }
+
 }
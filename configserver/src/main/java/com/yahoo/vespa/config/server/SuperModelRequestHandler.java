@@ -9,7 +9,9 @@ import com.yahoo.config.model.api.ConfigDefinitionRepo;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.GetConfigRequest;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.config.server.application.ApplicationVersions;
 import com.yahoo.vespa.config.server.rpc.ConfigResponseFactory;
 
@@ -108,6 +110,11 @@ public class SuperModelRequestHandler implements RequestHandler {
         throw new UnsupportedOperationException();
     }
 
+    @Override
+    public Optional<Payload> resolveDelta(ApplicationId appId, Optional<Version> vespaVersion, PayloadChecksums base, ConfigResponse config) {
+        return Optional.empty();
+    }
+
     @Override
     public boolean compatibleWith(Optional<Version> vespaVersion, ApplicationId application) {
         return true;
@@ -16,9 +16,12 @@ import com.yahoo.vespa.config.ConfigPayload;
 import com.yahoo.vespa.config.ConfigPayloadBuilder;
 import com.yahoo.vespa.config.GenericConfig;
 import com.yahoo.vespa.config.GetConfigRequest;
+import com.yahoo.vespa.config.PayloadChecksum;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.DefContent;
+import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.config.server.ServerCache;
 import com.yahoo.vespa.config.server.UnknownConfigDefinitionException;
 import com.yahoo.vespa.config.server.modelfactory.ModelResult;
@@ -31,6 +34,7 @@ import com.yahoo.yolean.Exceptions;
 
 import java.util.logging.Level;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -113,8 +117,7 @@ public class Application implements ModelResult {
         if (useCache(req)) {
             config = cache.computeIfAbsent(cacheKey, (ConfigCacheKey key) -> {
                 var response = createConfigResponse(configKey, req, responseFactory);
-                metricUpdater.setCacheConfigElems(cache.configElems());
-                metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+                updateCacheMetrics();
                 return response;
             });
         } else {
@@ -124,17 +127,51 @@ public class Application implements ModelResult {
         return config;
     }
 
+    /**
+     * Returns the delta to the given config from the config with the given checksums, if that is retained in the
+     * cache of this or a previous generation of this application, and the delta is smaller than the config.
+     */
+    public Optional<Payload> resolveDelta(PayloadChecksums base, ConfigResponse config) {
+        return cache.getDelta(base.getForType(PayloadChecksum.Type.XXHASH64), config);
+    }
+
+    /**
+     * Builds the given config into the cache, as it would be for requests with the config definition known to this,
+     * unless it is there already. Returns the cached config, or empty if there is no such config definition.
+     */
+    Optional<ConfigResponse> precomputeConfig(ConfigKey<?> configKey, ConfigResponseFactory responseFactory) {
+        ConfigDefinition def = cache.getDef(new ConfigDefinitionKey(configKey.getName(), configKey.getNamespace()));
+        if (def == null) return Optional.empty();
+
+        return Optional.of(cache.computeIfAbsent(new ConfigCacheKey(configKey, def.getMd5()), (ConfigCacheKey key) -> {
+            // Empty checksums of all types in the request means both md5 and xxhash64 checksums are in the response
+            var response = createConfigResponse(configKey, def, PayloadChecksums.empty(), responseFactory);
+            updateCacheMetrics();
+            return response;
+        }));
+    }
+
+    private void updateCacheMetrics() {
+        metricUpdater.setCacheConfigElems(cache.configElems());
+        metricUpdater.setCacheChecksumElems(cache.checkSumElems());
+    }
+
     private ConfigResponse createConfigResponse(ConfigKey<?> configKey, GetConfigRequest req, ConfigResponseFactory responseFactory) {
         ConfigDefinition def = getTargetDef(req);
         if (def == null) {
             metricUpdater.incrementFailedRequests();
             throw new UnknownConfigDefinitionException("Unable to find config definition for '" + configKey.getNamespace() + "." + configKey.getName());
         }
+        return createConfigResponse(configKey, def, req.configPayloadChecksums(), responseFactory);
+    }
+
+    private ConfigResponse createConfigResponse(ConfigKey<?> configKey, ConfigDefinition def,
+                                                PayloadChecksums requestPayloadChecksums, ConfigResponseFactory responseFactory) {
         log.log(Level.FINE, () -> TenantRepository.logPre(getId()) + "Resolving " + configKey + " with config definition " + def);
 
         var payload = createPayload(configKey, def);
 
-        return responseFactory.createResponse(payload.getFirst(), applicationGeneration, payload.getSecond(), req.configPayloadChecksums());
+        return responseFactory.createResponse(payload.getFirst(), applicationGeneration, payload.getSecond(), requestPayloadChecksums);
     }
 
     private Pair<AbstractUtf8Array, Boolean> createPayload(ConfigKey<?> configKey, ConfigDefinition def) {
@@ -187,6 +224,10 @@ public class Application implements ModelResult {
         }
     }
 
+    MetricUpdater metricUpdater() {
+        return metricUpdater;
+    }
+
     void updateHostMetrics(int numHosts) {
         metricUpdater.setHosts(numHosts);
     }
@@ -0,0 +1,101 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.application;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
+import com.yahoo.vespa.config.server.rpc.ConfigResponseFactory;
+import com.yahoo.vespa.config.server.tenant.TenantRepository;
+import com.yahoo.yolean.Exceptions;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Builds all configs produced by an application into its cache when it is activated, before it is served,
+ * so the many nodes which subscribe to the new generation at once get their config from the cache, rather
+ * than build the same configs concurrently on request.
+ *
+ * Configs are no longer built when the total size of those already built exceeds the memory budget;
+ * the remaining configs are then built when first requested, as when this is disabled.
+ */
+class ConfigPrecomputer implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(ConfigPrecomputer.class.getName());
+
+    private final ThreadPoolExecutor executor;
+    private final long memoryBudgetBytes;
+    private final Clock clock;
+
+    ConfigPrecomputer(int threads, long memoryBudgetBytes, Clock clock) {
+        this.executor = threads > 0 ? new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                                                             new DaemonThreadFactory("config-precomputer-"))
+                                    : null;
+        if (executor != null) executor.allowCoreThreadTimeOut(true);
+        this.memoryBudgetBytes = memoryBudgetBytes;
+        this.clock = clock;
+    }
+
+    /** Returns whether configs are built on activation at all */
+    boolean enabled() { return executor != null; }
+
+    /** Builds the configs of the given application into its cache, and returns the number of configs built */
+    int precompute(Application application, ConfigResponseFactory responseFactory) {
+        if ( ! enabled()) return 0;
+
+        Instant start = clock.instant();
+        MetricUpdater metrics = application.metricUpdater();
+        Set<ConfigKey<?>> keys = application.allConfigsProduced();
+        AtomicLong built = new AtomicLong();
+        AtomicLong remaining = new AtomicLong(keys.size());
+        AtomicLong bytes = new AtomicLong();
+        metrics.setCachePrecomputeProgress(0, keys.size());
+        List<CompletableFuture<?>> futures = new ArrayList<>(keys.size());
+        for (ConfigKey<?> key : keys) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    if (bytes.get() >= memoryBudgetBytes) return;
+                    application.precomputeConfig(key, responseFactory).ifPresent(response -> {
+                        bytes.addAndGet(response.getPayload().getByteLength());
+                        built.incrementAndGet();
+                    });
+                }
+                catch (RuntimeException e) {
+                    // The same error is returned to the subscriber which requests this config
+                    log.log(Level.FINE, () -> TenantRepository.logPre(application.getId()) + "Failed building " + key +
+                                              ": " + Exceptions.toMessageString(e));
+                }
+                finally {
+                    metrics.setCachePrecomputeProgress(built.get(), remaining.decrementAndGet());
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        Duration duration = Duration.between(start, clock.instant());
+        metrics.setCachePrecomputeProgress(built.get(), keys.size() - built.get());
+        metrics.setCachePrecomputeDuration(duration.toMillis());
+        log.log(bytes.get() >= memoryBudgetBytes ? Level.INFO : Level.FINE,
+                () -> TenantRepository.logPre(application.getId()) + "Built " + built.get() + " of " + keys.size() +
+                      " configs for " + application + " into the cache in " + duration + ", with total size " +
+                      bytes.get() + " bytes, of budget " + memoryBudgetBytes);
+        return (int) built.get();
+    }
+
+    @Override
+    public void close() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+}
@@ -12,7 +12,9 @@ import com.yahoo.path.Path;
 import com.yahoo.transaction.Transaction;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.GetConfigRequest;
+import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.config.server.ConfigActivationListener;
 import com.yahoo.vespa.config.server.NotFoundException;
 import com.yahoo.vespa.config.server.RequestHandler;
@@ -71,6 +73,8 @@ public class TenantApplications implements RequestHandler, HostValidator {
     private final TenantName tenant;
     private final ConfigActivationListener configActivationListener;
     private final ConfigResponseFactory responseFactory;
+    private final ConfigPrecomputer configPrecomputer;
+    private final int configDeltaGenerations;
     private final HostRegistry hostRegistry;
     private final ApplicationMapper applicationMapper = new ApplicationMapper();
     private final MetricUpdater tenantMetricUpdater;
@@ -93,6 +97,10 @@ public class TenantApplications implements RequestHandler, HostValidator {
         this.metrics = metrics;
         this.configActivationListener = configActivationListener;
         this.responseFactory = ConfigResponseFactory.create(configserverConfig);
+        this.configPrecomputer = new ConfigPrecomputer(configserverConfig.numConfigPrecomputationThreads(),
+                                                       configserverConfig.configPrecomputationMemoryBudget(),
+                                                       clock);
+        this.configDeltaGenerations = configserverConfig.configDeltaGenerations();
         this.tenantMetricUpdater = metrics.getOrCreateMetricUpdater(Metrics.createDimensions(tenant));
         this.hostRegistry = hostRegistry;
         this.tenantFileSystemDirs = tenantFileSystemDirs;
@@ -201,6 +209,7 @@ public class TenantApplications implements RequestHandler, HostValidator {
      */
     public void close() {
         directoryCache.close();
+        configPrecomputer.close();
     }
 
     /** Returns the lock for changing the session status of the given application. */
@@ -241,6 +250,11 @@ public class TenantApplications implements RequestHandler, HostValidator {
         return application.resolveConfig(req, responseFactory);
     }
 
+    @Override
+    public Optional<Payload> resolveDelta(ApplicationId appId, Optional<Version> vespaVersion, PayloadChecksums base, ConfigResponse config) {
+        return getApplication(appId, vespaVersion).resolveDelta(base, config);
+    }
+
     private void notifyConfigActivationListeners(ApplicationVersions applicationVersions) {
         List<Application> applications = applicationVersions.applications();
         if (applications.isEmpty()) throw new IllegalArgumentException("application set cannot be empty");
@@ -250,23 +264,35 @@ public class TenantApplications implements RequestHandler, HostValidator {
     }
 
     /**
-     * Activates the config of the given app. Notifies listeners
+     * Activates the config of the given app. Notifies listeners. If enabled, configs are built into the cache first.
      *
      * @param applicationVersions the {@link ApplicationVersions} to be activated
      */
     public void activateApplication(ApplicationVersions applicationVersions, long activeSessionId) {
         ApplicationId id = applicationVersions.getId();
+        // Build configs before taking the lock, as this may take a while, and the cache is safe to fill concurrently
+        applicationVersions.applications().forEach(application -> configPrecomputer.precompute(application, responseFactory));
         try (@SuppressWarnings("unused") Lock lock = lock(id)) {
             if ( ! exists(id))
                 return; // Application was deleted before activation.
             if (applicationVersions.applicationGeneration() != activeSessionId)
                 return; // Application activated a new session before we got here.
 
+            retainPreviousConfigs(applicationVersions);
             setActiveApp(applicationVersions);
             notifyConfigActivationListeners(applicationVersions);
         }
     }
 
+    /** Lets the new versions of an application send deltas from the configs of the versions they replace */
+    private void retainPreviousConfigs(ApplicationVersions applicationVersions) {
+        if (configDeltaGenerations <= 0 || ! hasApplication(applicationVersions.getId())) return;
+
+        for (Application previous : applicationMapper.listApplications(applicationVersions.getId()))
+            applicationVersions.get(previous.getVespaVersion())
+                               .ifPresent(application -> application.getCache().retainPrevious(previous.getCache(), configDeltaGenerations));
+    }
+
     // Note: Assumes that caller already holds the application lock
     // (when getting event from zookeeper to remove application,
     // the lock should be held by the thread that causes the event to happen)
@@ -282,7 +308,7 @@ public class TenantApplications implements RequestHandler, HostValidator {
             hostRegistry.removeHosts(applicationId);
             configActivationListenersOnRemove(applicationId);
             tenantMetricUpdater.setApplications(applicationMapper.numApplications());
-            metrics.removeMetricUpdater(Metrics.createDimensions(applicationId));
+            metrics.removeMetricUpdaters(Metrics.createDimensions(applicationId)); // Also those per model build phase
             getRemoveApplicationWaiter(applicationId).notifyCompletion();
             log.log(Level.INFO, "Application removed: " + applicationId);
         }
@@ -211,6 +211,7 @@ public class ModelContextImpl implements ModelContext {
         private final long mergingMaxMemoryUsagePerNode;
         private final boolean usePerDocumentThrottledDeleteBucket;
         private final boolean restartOnDeployWhenOnnxModelChanges;
+        private final boolean reuseDerivedRankProfiles;
 
         public FeatureFlags(FlagSource source, ApplicationId appId, Version version) {
             this.defaultTermwiseLimit = flagValue(source, appId, version, Flags.DEFAULT_TERM_WISE_LIMIT);
@@ -258,6 +259,7 @@ public class ModelContextImpl implements ModelContext {
             this.createPostinglistWhenNonStrict = flagValue(source, appId, version, Flags.CREATE_POSTINGLIST_WHEN_NON_STRICT);
             this.useEstimateForFetchPostings = flagValue(source, appId, version, Flags.USE_ESTIMATE_FOR_FETCH_POSTINGS);
             this.restartOnDeployWhenOnnxModelChanges = flagValue(source, appId, version, Flags.RESTART_ON_DEPLOY_WHEN_ONNX_MODEL_CHANGES);
+            this.reuseDerivedRankProfiles = flagValue(source, appId, version, Flags.REUSE_DERIVED_RANK_PROFILES);
         }
 
         @Override public int heapSizePercentage() { return heapPercentage; }
@@ -313,6 +315,7 @@ public class ModelContextImpl implements ModelContext {
         @Override public long mergingMaxMemoryUsagePerNode() { return mergingMaxMemoryUsagePerNode; }
         @Override public boolean usePerDocumentThrottledDeleteBucket() { return usePerDocumentThrottledDeleteBucket; }
         @Override public boolean restartOnDeployWhenOnnxModelChanges() { return restartOnDeployWhenOnnxModelChanges; }
+        @Override public boolean reuseDerivedRankProfiles() { return reuseDerivedRankProfiles; }
 
         private static <V> V flagValue(FlagSource source, ApplicationId appId, Version vespaVersion, UnboundFlag<? extends V, ?, ?> flag) {
             return flag.bindTo(source)
@@ -31,6 +31,10 @@ public class MetricUpdater {
     private static final String METRIC_APPLICATIONS = getMetricName("applications");
     private static final String METRIC_CACHE_CONFIG_ELEMENTS = getMetricName("cacheConfigElems");
     private static final String METRIC_CACHE_CONFIG_CHECKSUMS = getMetricName("cacheChecksumElems");
+    private static final String METRIC_CACHE_PRECOMPUTED_CONFIGS = getMetricName("cachePrecomputedConfigs");
+    private static final String METRIC_CACHE_PRECOMPUTE_REMAINING_CONFIGS = getMetricName("cachePrecomputeRemainingConfigs");
+    private static final String METRIC_CACHE_PRECOMPUTE_DURATION = getMetricName("cachePrecomputeDuration");
+    private static final String METRIC_MODEL_BUILD_DURATION = getMetricName("modelBuildDuration");
     private static final String METRIC_DELAYED_RESPONSES = getMetricName("delayedResponses");
     private static final String METRIC_RPCSERVER_WORK_QUEUE_SIZE = getMetricName("rpcServerWorkQueueSize");
 
@@ -76,6 +80,35 @@ public class MetricUpdater {
         staticMetrics.put(METRIC_CACHE_CONFIG_CHECKSUMS, elems);
     }
 
+    /**
+     * Sets the progress of building configs into the {@link ServerCache} on activation
+     *
+     * @param precomputed number of configs built so far
+     * @param remaining number of configs not yet built
+     */
+    public void setCachePrecomputeProgress(long precomputed, long remaining) {
+        staticMetrics.put(METRIC_CACHE_PRECOMPUTED_CONFIGS, precomputed);
+        staticMetrics.put(METRIC_CACHE_PRECOMPUTE_REMAINING_CONFIGS, remaining);
+    }
+
+    /**
+     * Sets the time spent building configs into the {@link ServerCache} on the last activation
+     *
+     * @param millis duration in milliseconds
+     */
+    public void setCachePrecomputeDuration(long millis) {
+        staticMetrics.put(METRIC_CACHE_PRECOMPUTE_DURATION, millis);
+    }
+
+    /**
+     * Sets the time spent in a phase of building the last model prepared, given by the dimensions of this
+     *
+     * @param millis duration in milliseconds
+     */
+    public void setModelBuildDuration(long millis) {
+        staticMetrics.put(METRIC_MODEL_BUILD_DURATION, millis);
+    }
+
     /**
      * Sets the number of outstanding responses (unchanged config in long poll)
      *
@@ -91,6 +91,11 @@ public class Metrics extends AbstractComponent implements MetricUpdaterFactory,
         return metricUpdaters.remove(dimensions);
     }
 
+    /** Removes the metric updater with the given dimensions, and all updaters with these and additional dimensions */
+    public void removeMetricUpdaters(Map<String, String> dimensions) {
+        metricUpdaters.keySet().removeIf(updaterDimensions -> updaterDimensions.entrySet().containsAll(dimensions.entrySet()));
+    }
+
     public static Map<String, String> createDimensions(ApplicationId applicationId) {
         final Map<String, String> properties = new LinkedHashMap<>();
         properties.put("tenantName", applicationId.tenant().value());
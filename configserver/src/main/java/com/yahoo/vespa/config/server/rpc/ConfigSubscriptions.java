@@ -0,0 +1,116 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.config.server.rpc;
+
+import com.yahoo.config.provision.ApplicationId;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Target;
+import com.yahoo.jrt.TargetWatcher;
+import com.yahoo.vespa.config.JRTMethods;
+import com.yahoo.vespa.config.server.tenant.TenantRepository;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Clients subscribing to notifications that config is activated, which are pushed over the connection they
+ * subscribed on. Subscribing clients request their configs again when notified, instead of keeping a delayed
+ * request with a timer here for each of their configs, see {@link DelayedConfigResponses}.
+ * <p>
+ * A client subscribes once per scope, which is either the global configs, or the configs of the application
+ * of a host. Subscriptions are removed when their connection is closed.
+ */
+class ConfigSubscriptions {
+
+    private static final Logger log = Logger.getLogger(ConfigSubscriptions.class.getName());
+
+    private final Map<Target, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final Function<String, ApplicationId> applicationOfHost;
+
+    /** Creates subscriptions which resolve the current application of a host with the given function */
+    ConfigSubscriptions(Function<String, ApplicationId> applicationOfHost) {
+        this.applicationOfHost = applicationOfHost;
+    }
+
+    /** Subscribes the client at the given target to activations of config in the given scope, in the given application */
+    void subscribe(Target target, String scope, ApplicationId applicationId) {
+        Subscriber subscriber = subscribers.get(target);
+        if (subscriber == null) {
+            Subscriber added = new Subscriber(target);
+            subscriber = Objects.requireNonNullElse(subscribers.putIfAbsent(target, added), added);
+            if (subscriber == added && ! target.addWatcher(added))
+                remove(added); // Already closed
+        }
+        subscriber.applications.put(scope, applicationId);
+        log.log(Level.FINE, () -> TenantRepository.logPre(applicationId) + "Added subscription for " + scope + " from " + target);
+    }
+
+    /**
+     * Notifies all clients subscribing to config of the given application, including those of hosts which
+     * have moved to or from it since they subscribed, that config with the given generation is activated.
+     *
+     * @return the number of notifications sent
+     */
+    int configActivated(ApplicationId applicationId, long generation) {
+        int notified = 0;
+        for (Subscriber subscriber : subscribers.values()) {
+            for (Map.Entry<String, ApplicationId> subscription : subscriber.applications.entrySet()) {
+                String scope = subscription.getKey();
+                ApplicationId subscribed = subscription.getValue();
+                ApplicationId current = "*".equals(scope) ? subscribed
+                                                          : Optional.ofNullable(applicationOfHost.apply(scope)).orElse(subscribed);
+                if ( ! current.equals(subscribed))
+                    subscriber.applications.replace(scope, subscribed, current);
+
+                if ((applicationId.equals(subscribed) || applicationId.equals(current)) && subscriber.send(scope, generation))
+                    notified++;
+            }
+        }
+        return notified;
+    }
+
+    int size() {
+        return subscribers.size();
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.target, subscriber))
+            log.log(Level.FINE, () -> "Removed subscriptions from " + subscriber.target);
+    }
+
+    private class Subscriber implements TargetWatcher {
+
+        private final Target target;
+
+        /** The application of the configs of each scope this subscribes to */
+        private final Map<String, ApplicationId> applications = new ConcurrentHashMap<>();
+
+        Subscriber(Target target) {
+            this.target = target;
+        }
+
+        /** Sends a notification to this subscriber, and returns whether it could be sent */
+        boolean send(String scope, long generation) {
+            Request request = new Request(JRTMethods.configV3ConfigActivatedMethodName);
+            request.parameters().add(new StringValue(scope));
+            request.parameters().add(new Int64Value(generation));
+            if (target.invokeVoid(request)) return true;
+
+            remove(this);
+            return false;
+        }
+
+        @Override
+        public void notifyTargetInvalid(Target target) {
+            remove(this);
+        }
+
+    }
+
+}
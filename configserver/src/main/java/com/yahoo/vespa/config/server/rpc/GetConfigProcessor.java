@@ -136,7 +136,13 @@ class GetConfigProcessor implements Runnable {
             }
 
             // debugLog(trace, "config response before encoding:" + config.toString());
-            request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
+            Optional<Payload> delta = request.acceptsDelta()
+                    ? context.requestHandler().resolveDelta(context.applicationId(), vespaVersion, request.getRequestConfigChecksums(), config)
+                    : Optional.empty();
+            if (delta.isPresent())
+                request.addOkDeltaResponse(delta.get(), config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
+            else
+                request.addOkResponse(request.payloadFromResponse(config), config.getGeneration(), config.applyOnRestart(), config.getPayloadChecksums());
             debugLog(trace, "return response: " + request.getShortDescription());
             respond(request);
         } else {
@@ -9,9 +9,7 @@ import com.yahoo.config.FileReference;
 import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.TenantName;
 import com.yahoo.jrt.Acceptor;
-import com.yahoo.jrt.DataValue;
 import com.yahoo.jrt.Int32Value;
-import com.yahoo.jrt.Int64Value;
 import com.yahoo.jrt.ListenFailedException;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.Request;
@@ -26,6 +24,7 @@ import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequest;
 import com.yahoo.vespa.config.protocol.JRTServerConfigRequestV3;
+import com.yahoo.vespa.config.protocol.RequestValidation;
 import com.yahoo.vespa.config.protocol.Trace;
 import com.yahoo.vespa.config.server.ConfigActivationListener;
 import com.yahoo.vespa.config.server.GetConfigContext;
@@ -41,13 +40,12 @@ import com.yahoo.vespa.config.server.tenant.Tenant;
 import com.yahoo.vespa.config.server.tenant.TenantListener;
 import com.yahoo.vespa.config.server.tenant.TenantRepository;
 import com.yahoo.vespa.filedistribution.FileDownloader;
-import com.yahoo.vespa.filedistribution.FileReceiver;
 import com.yahoo.vespa.filedistribution.FileReferenceData;
 import com.yahoo.vespa.filedistribution.FileReferenceDownload;
+import com.yahoo.vespa.filedistribution.FileSender;
 
-import java.nio.ByteBuffer;
-import java.time.Duration;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -94,6 +92,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     private static final Logger log = Logger.getLogger(RpcServer.class.getName());
 
     private final DelayedConfigResponses delayedConfigResponses;
+    private final ConfigSubscriptions configSubscriptions;
 
     private final HostRegistry hostRegistry;
     private final Map<TenantName, Tenant> tenants = new ConcurrentHashMap<>();
@@ -137,6 +136,7 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         executorService = new ThreadPoolExecutor(rpcWorkerThreads, rpcWorkerThreads,
                 0, TimeUnit.SECONDS, workQueue, ThreadFactoryFactory.getDaemonThreadFactory(THREADPOOL_NAME));
         delayedConfigResponses = new DelayedConfigResponses(this, config.numDelayedResponseThreads());
+        configSubscriptions = new ConfigSubscriptions(hostRegistry::getApplicationId);
         spec = new Spec(null, config.rpcport());
         this.hostRegistry = hostRegistry;
         this.useRequestVersion = config.useVespaVersionInRequest();
@@ -163,6 +163,32 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
                 .thenRun(() -> addToRequestQueue(JRTServerConfigRequestV3.createFromRequest(req)));
     }
 
+    /**
+     * Handles RPC method "config.v3.subscribe" requests, which subscribe the client to notifications
+     * that config in the scope of the given config request is activated. Returns 0 if subscribed.
+     */
+    private void subscribe(Request req) {
+        req.detach();
+        rpcAuthorizer.authorizeConfigRequest(req)
+                .thenRun(() -> {
+                    req.returnValues().add(new Int32Value(subscribe(req.target(), JRTServerConfigRequestV3.createFromRequest(req))));
+                    req.returnRequest();
+                });
+    }
+
+    private int subscribe(Target target, JRTServerConfigRequest request) {
+        int errorCode = RequestValidation.validateRequest(request);
+        if (errorCode != 0) return errorCode;
+
+        Trace trace = request.getRequestTrace();
+        GetConfigContext context = createGetConfigContext(resolveTenant(request, trace), request, trace);
+        if (context.isEmpty() || ! context.requestHandler().hasApplication(context.applicationId(), Optional.empty()))
+            return ErrorCode.APPLICATION_NOT_LOADED;
+
+        configSubscriptions.subscribe(target, JRTMethods.configActivationScope(request), context.applicationId());
+        return 0;
+    }
+
     /**
      * Returns 0 if server is alive.
      */
@@ -236,6 +262,8 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         // The getConfig method in this class will handle RPC calls for getting config
         getSupervisor().addMethod(JRTMethods.createConfigV3GetConfigMethod(this::getConfigV3)
                                           .requireCapabilities(Capability.CONFIGSERVER__CONFIG_API));
+        getSupervisor().addMethod(JRTMethods.createConfigV3SubscribeMethod(this::subscribe)
+                                          .requireCapabilities(Capability.CONFIGSERVER__CONFIG_API));
         isServingConfigRequests = true;
     }
 
@@ -273,6 +301,8 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
     void configActivated(ApplicationId applicationId) {
         List<DelayedConfigResponses.DelayedConfigResponse> responses = delayedConfigResponses.drainQueue(applicationId);
         String logPre = TenantRepository.logPre(applicationId);
+        int notified = configSubscriptions.configActivated(applicationId, getState(applicationId).getActiveGeneration());
+        log.log(FINE, () -> logPre + "Notified " + notified + " subscribers of config activation");
         log.log(FINE, () -> logPre + "Start of configActivated: " + responses.size() + " requests on delayed requests queue");
         int responsesSent = 0;
         CompletionService<Boolean> completionService = new ExecutorCompletionService<>(executorService);
@@ -447,8 +477,15 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
 
     static class ChunkedFileReceiver implements FileServer.Receiver {
         final Target target;
+        private final FileSender sender;
+
         ChunkedFileReceiver(Target target) {
+            this(target, Optional.empty());
+        }
+
+        ChunkedFileReceiver(Target target, Optional<BitSet> receivedParts) {
             this.target = target;
+            this.sender = new FileSender(target, receivedParts);
         }
 
         @Override
@@ -458,97 +495,12 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
 
         @Override
         public void receive(FileReferenceData fileData, FileServer.ReplayStatus status) {
-            int session = sendMeta(fileData);
-            sendParts(session, fileData);
-            sendEof(session, fileData, status);
-        }
-
-        private void sendParts(int session, FileReferenceData fileData) {
-            ByteBuffer bb = ByteBuffer.allocate(0x100000);
-            for (int partId = 0, read = fileData.nextContent(bb); read >= 0; partId++, read = fileData.nextContent(bb)) {
-                byte [] buf = bb.array();
-                if (buf.length != bb.position()) {
-                    buf = new byte [bb.position()];
-                    bb.flip();
-                    bb.get(buf);
-                }
-                sendPart(session, fileData.fileReference(), partId, buf);
-                bb.clear();
-            }
-        }
-
-        private int sendMeta(FileReferenceData fileData) {
-            Request request = createMetaRequest(fileData);
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                log.log(WARNING, () -> "Failed delivering meta for reference '" + fileData.fileReference().value() +
-                        "' with file '" + fileData.filename() + "' to " +
-                        target.toString() + " with error: '" + request.errorMessage() + "'.");
-                return 1;
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
-                return request.returnValues().get(1).asInt32();
-            }
+            sender.send(fileData, status.getCode(), status.getDescription());
         }
 
         // non-private for testing
         static Request createMetaRequest(FileReferenceData fileData) {
-            Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
-            request.parameters().add(new StringValue(fileData.fileReference().value()));
-            request.parameters().add(new StringValue(fileData.filename()));
-            request.parameters().add(new StringValue(fileData.type().name()));
-            request.parameters().add(new Int64Value(fileData.size()));
-            // Only add parameter if not gzip, this is default and old clients will not handle the extra parameter
-            // TODO Always add parameter in Vespa 9
-            if (fileData.compressionType() != CompressionType.gzip)
-                request.parameters().add(new StringValue(fileData.compressionType().name()));
-            return request;
-        }
-
-        private void sendPart(int session, FileReference ref, int partId, byte [] buf) {
-            Request request = new Request(FileReceiver.RECEIVE_PART_METHOD);
-            request.parameters().add(new StringValue(ref.value()));
-            request.parameters().add(new Int32Value(session));
-            request.parameters().add(new Int32Value(partId));
-            request.parameters().add(new DataValue(buf));
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                throw new IllegalArgumentException("Failed delivering part of reference '" + ref.value() + "' to " +
-                                                           target.toString() + " with error: '" + request.errorMessage() + "'.");
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
-            }
-        }
-
-        private void sendEof(int session, FileReferenceData fileData, FileServer.ReplayStatus status) {
-            Request request = new Request(FileReceiver.RECEIVE_EOF_METHOD);
-            request.parameters().add(new StringValue(fileData.fileReference().value()));
-            request.parameters().add(new Int32Value(session));
-            request.parameters().add(new Int64Value(fileData.xxhash()));
-            request.parameters().add(new Int32Value(status.getCode()));
-            request.parameters().add(new StringValue(status.getDescription()));
-            invokeRpcIfValidConnection(request);
-            if (request.isError()) {
-                throw new IllegalArgumentException("Failed delivering eof for reference '" + fileData.fileReference().value() +
-                                                           "' with file '" + fileData.filename() + "' to " +
-                                                           target.toString() + " with error: '" + request.errorMessage() + "'.");
-            } else {
-                if (request.returnValues().get(0).asInt32() != 0) {
-                    throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
-                }
-            }
-        }
-
-        private void invokeRpcIfValidConnection(Request request) {
-            if (target.isValid()) {
-                target.invokeSync(request, Duration.ofMinutes(10));
-            } else {
-                throw new RuntimeException("Connection to " + target + " is invalid", target.getConnectionLostReason());
-            }
+            return FileSender.createMetaRequest(fileData);
         }
     }
 
@@ -556,7 +508,8 @@ public class RpcServer implements Runnable, ConfigActivationListener, TenantList
         request.detach();
         rpcAuthorizer.authorizeFileRequest(request)
                 .thenRun(() -> { // okay to do in authorizer thread as serveFile is async
-                    FileServer.Receiver receiver = new ChunkedFileReceiver(request.target());
+                    // Newer clients specify parts already received, and thereby that they accept parts out of order
+                    FileServer.Receiver receiver = new ChunkedFileReceiver(request.target(), FileSender.receivedParts(request));
 
                     FileReference reference = new FileReference(request.parameters().get(0).asString());
                     boolean downloadFromOtherSourceIfNotFound = request.parameters().get(1).asInt32() == 0;
@@ -69,6 +69,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -262,13 +263,23 @@ public class SessionRepository {
                                                           getActiveSessionId(applicationId))
                     .commit();
         }
-        ConfigChangeActions actions = sessionPreparer.prepare(applicationRepo, logger, params,
-                                                              activeApplicationVersions, now, getSessionAppDir(sessionId),
-                                                              session.getApplicationPackage(), sessionZooKeeperClient)
-                .getConfigChangeActions();
+        SessionPreparer.PrepareResult result = sessionPreparer.prepare(applicationRepo, logger, params,
+                                                                       activeApplicationVersions, now, getSessionAppDir(sessionId),
+                                                                       session.getApplicationPackage(), sessionZooKeeperClient);
+        updateModelBuildMetrics(applicationId, result);
         setPrepared(session);
         waiter.ifPresent(w -> w.awaitCompletion(params.getTimeoutBudget().timeLeft()));
-        return actions;
+        return result.getConfigChangeActions();
+    }
+
+    private void updateModelBuildMetrics(ApplicationId applicationId, SessionPreparer.PrepareResult result) {
+        for (var modelResult : result.asList()) {
+            modelResult.model.buildTimes().forEach((phase, duration) -> {
+                Map<String, String> dimensions = new LinkedHashMap<>(Metrics.createDimensions(applicationId));
+                dimensions.put("phase", phase);
+                metrics.getOrCreateMetricUpdater(dimensions).setModelBuildDuration(duration.toMillis());
+            });
+        }
     }
 
     /**
@@ -5,15 +5,18 @@ import com.yahoo.vespa.config.ConfigCacheKey;
 import com.yahoo.vespa.config.ConfigDefinitionKey;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ConfigPayload;
+import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.vespa.config.buildergen.ConfigDefinition;
 import com.yahoo.vespa.config.protocol.ConfigResponse;
+import com.yahoo.vespa.config.protocol.Payload;
 import com.yahoo.vespa.config.protocol.SlimeConfigResponse;
 import org.junit.Before;
 import org.junit.Test;
 
 import static com.yahoo.vespa.config.PayloadChecksum.Type.XXHASH64;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertSame;
 
@@ -77,6 +80,38 @@ public class ServerCacheTest {
         assertSame(cache.get(fooBarCacheKey), cache.get(bazQuuxCacheKey));
     }
 
+    @Test
+    public void testThatDeltasAreComputedFromRetainedGenerations() {
+        String unchanged = "\"b\":\"an unchanged value which is long enough to make the delta smaller than the config\"";
+        ConfigResponse first = createConfig("{\"a\":1," + unchanged + "}");
+        ConfigResponse second = createConfig("{\"a\":2," + unchanged + "}");
+        ConfigResponse third = createConfig("{\"a\":3," + unchanged + "}");
+
+        ServerCache firstCache = new ServerCache();
+        firstCache.computeIfAbsent(fooBarCacheKey, (ConfigCacheKey key) -> first);
+        ServerCache secondCache = new ServerCache();
+        secondCache.computeIfAbsent(fooBarCacheKey, (ConfigCacheKey key) -> second);
+        secondCache.retainPrevious(firstCache, 1);
+        ServerCache thirdCache = new ServerCache();
+        thirdCache.computeIfAbsent(fooBarCacheKey, (ConfigCacheKey key) -> third);
+        thirdCache.retainPrevious(secondCache, 1);
+
+        PayloadChecksum firstChecksum = first.getPayloadChecksums().getForType(XXHASH64);
+        PayloadChecksum secondChecksum = second.getPayloadChecksums().getForType(XXHASH64);
+        assertEquals("{\"set\":{\"a\":2}}", secondCache.getDelta(firstChecksum, second).get().toString());
+        assertEquals("{\"set\":{\"a\":3}}", thirdCache.getDelta(secondChecksum, third).get().toString());
+        assertFalse("Only one generation is retained", thirdCache.getDelta(firstChecksum, third).isPresent());
+
+        thirdCache.retainPrevious(secondCache, 2);
+        assertEquals("{\"set\":{\"a\":3}}", thirdCache.getDelta(firstChecksum, third).get().toString());
+        assertFalse(thirdCache.getDelta(PayloadChecksum.empty(XXHASH64), third).isPresent());
+    }
+
+    private static ConfigResponse createConfig(String json) {
+        ConfigPayload payload = ConfigPayload.fromString(json);
+        return SlimeConfigResponse.fromConfigPayload(payload, 2, false, PayloadChecksums.fromPayload(Payload.from(payload)));
+    }
+
     SlimeConfigResponse createResponse(String xxhash64) {
         return SlimeConfigResponse.fromConfigPayload(ConfigPayload.empty(), 2, false,
                                                      PayloadChecksums.from("", xxhash64));
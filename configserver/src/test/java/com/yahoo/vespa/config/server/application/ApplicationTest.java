@@ -11,6 +11,7 @@ import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.ApplicationName;
 import com.yahoo.config.provision.InstanceName;
 import com.yahoo.config.provision.TenantName;
+import com.yahoo.vespa.config.PayloadChecksum;
 import com.yahoo.vespa.config.PayloadChecksums;
 import com.yahoo.jrt.Request;
 import com.yahoo.text.Utf8;
@@ -30,6 +31,7 @@ import com.yahoo.vespa.config.server.UnknownConfigDefinitionException;
 import com.yahoo.vespa.config.server.UserConfigDefinitionRepo;
 import com.yahoo.vespa.config.server.monitoring.MetricUpdater;
 import com.yahoo.vespa.config.server.monitoring.Metrics;
+import com.yahoo.vespa.config.server.rpc.UncompressedConfigResponseFactory;
 import com.yahoo.vespa.model.VespaModel;
 import org.junit.Before;
 import org.junit.Test;
@@ -39,6 +41,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Clock;
 import java.util.Optional;
 
 import static org.junit.Assert.assertEquals;
@@ -147,9 +150,39 @@ public class ApplicationTest {
         assertSame(response, cached_response);
     }
 
+    @Test
+    public void require_that_configs_can_be_built_into_cache_before_requested() {
+        ConfigKey<?> key = handler.allConfigsProduced().stream()
+                                  .filter(produced -> produced.getName().equals(SlobroksConfig.CONFIG_DEF_NAME))
+                                  .findFirst().orElseThrow();
+        try (ConfigPrecomputer precomputer = new ConfigPrecomputer(2, Long.MAX_VALUE, Clock.systemUTC())) {
+            int built = precomputer.precompute(handler, new UncompressedConfigResponseFactory());
+            assertTrue(built > 0);
+            assertEquals(built, handler.getCache().checkSumElems());
+        }
+
+        int cached = handler.getCache().checkSumElems();
+        ConfigResponse response = handler.resolveConfig(createRequest(key.getName(), key.getConfigId(), key.getNamespace(), SlobroksConfig.CONFIG_DEF_SCHEMA));
+        assertNotNull(response);
+        assertEquals("Request is served from the cache", cached, handler.getCache().checkSumElems());
+        assertTrue(response.getPayloadChecksums().getForType(PayloadChecksum.Type.MD5) != null);
+    }
+
+    @Test
+    public void require_that_configs_are_not_built_into_cache_beyond_budget() {
+        try (ConfigPrecomputer precomputer = new ConfigPrecomputer(1, 1, Clock.systemUTC())) {
+            assertEquals(1, precomputer.precompute(handler, new UncompressedConfigResponseFactory()));
+            assertEquals(1, handler.getCache().checkSumElems());
+        }
+    }
+
     private static GetConfigRequest createRequest(String name, String namespace, String[] schema) {
+        return createRequest(name, "admin/model", namespace, schema);
+    }
+
+    private static GetConfigRequest createRequest(String name, String configId, String namespace, String[] schema) {
         Request request =
-                JRTClientConfigRequestV3.createWithParams(new ConfigKey<>(name, "admin/model", namespace, null),
+                JRTClientConfigRequestV3.createWithParams(new ConfigKey<>(name, configId, namespace, null),
                                                           DefContent.fromArray(schema), "fromHost",
                                                           PayloadChecksums.empty(), 0, 100,
                                                           Trace.createDummy(), CompressionType.UNCOMPRESSED,
@@ -12,11 +12,17 @@ import com.yahoo.config.provision.ApplicationId;
 import com.yahoo.config.provision.ApplicationName;
 import com.yahoo.config.provision.InstanceName;
 import com.yahoo.config.provision.TenantName;
+import com.yahoo.config.subscription.ConfigSourceSet;
 import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Transport;
 import com.yahoo.vespa.config.ConfigKey;
 import com.yahoo.vespa.config.ConfigPayload;
 import com.yahoo.vespa.config.ConfigPayloadApplier;
 import com.yahoo.vespa.config.ErrorCode;
+import com.yahoo.vespa.config.JRTConnection;
+import com.yahoo.vespa.config.JRTConnectionPool;
+import com.yahoo.vespa.config.JRTMethods;
 import com.yahoo.vespa.config.RawConfig;
 import com.yahoo.vespa.config.protocol.CompressionType;
 import com.yahoo.vespa.config.protocol.JRTClientConfigRequest;
@@ -37,6 +43,9 @@ import org.xml.sax.SAXException;
 import java.io.File;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import static com.yahoo.vespa.config.server.rpc.RpcServer.ChunkedFileReceiver.createMetaRequest;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.gzip;
@@ -102,6 +111,34 @@ public class RpcServerTest {
         }
     }
 
+    @Test
+    public void testSubscribersAreNotifiedWhenConfigIsActivated() throws InterruptedException, IOException {
+        try (RpcTester tester = new RpcTester(applicationId, temporaryFolder)) {
+            tester.applicationRepository().deploy(testApp, new PrepareParams.Builder().applicationId(applicationId).build());
+            JRTConnectionPool pool = new JRTConnectionPool(new ConfigSourceSet(tester.spec().toString()),
+                                                           new Supervisor(new Transport()));
+            try {
+                JRTConnection connection = pool.getCurrent();
+                BlockingQueue<String> notifications = new LinkedBlockingQueue<>();
+                connection.addListener(scope -> notifications.add(String.valueOf(scope)));
+                JRTClientConfigRequest request = createSimpleRequest();
+                long end = System.currentTimeMillis() + 60_000;
+                while ( ! connection.subscribe(request)) {
+                    assertTrue("subscribed within timeout", System.currentTimeMillis() < end);
+                    Thread.sleep(10);
+                }
+
+                tester.rpcServer().configActivated(ApplicationId.global()); // Not subscribed to global configs
+                tester.rpcServer().configActivated(applicationId);
+                assertEquals(JRTMethods.configActivationScope(request), notifications.poll(60, TimeUnit.SECONDS));
+                assertEquals(1, connection.notifications());
+            }
+            finally {
+                pool.close();
+            }
+        }
+    }
+
     @Test
     public void testFileReceiverMetaRequest() throws IOException {
         File file = temporaryFolder.newFile();
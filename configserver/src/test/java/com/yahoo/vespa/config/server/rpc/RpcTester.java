@@ -181,6 +181,10 @@ public class RpcTester implements AutoCloseable {
         return rpcServer;
     }
 
+    Spec spec() {
+        return spec;
+    }
+
     public ApplicationRepository applicationRepository() { return applicationRepository; }
 
 }
@@ -2,6 +2,9 @@
 package com.yahoo.container.di;
 
 import com.google.inject.Injector;
+import com.yahoo.component.ComponentId;
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.concurrent.InThreadExecutorService;
 import com.yahoo.config.ConfigInstance;
 import com.yahoo.config.ConfigurationRuntimeException;
 import com.yahoo.config.subscription.ConfigInterruptedException;
@@ -18,9 +21,9 @@ import com.yahoo.container.di.config.ApplicationBundlesConfig;
 import com.yahoo.container.di.config.PlatformBundlesConfig;
 import com.yahoo.container.di.config.SubscriberFactory;
 import com.yahoo.vespa.config.ConfigKey;
-import com.yahoo.yolean.UncheckedInterruptedException;
 import org.osgi.framework.Bundle;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -29,10 +32,15 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import static java.util.logging.Level.FINE;
+import static java.util.logging.Level.INFO;
 
 /**
  * @author gjoranv
@@ -42,6 +50,8 @@ import static java.util.logging.Level.FINE;
 public class Container {
 
     private static final Logger log = Logger.getLogger(Container.class.getName());
+    private static final int constructionThreads = Integer.getInteger("jdisc.container.constructionThreads",
+                                                                      Math.min(8, Runtime.getRuntime().availableProcessors()));
 
     private final SubscriberFactory subscriberFactory;
     private final ConfigKey<ApplicationBundlesConfig> applicationBundlesConfigKey;
@@ -49,6 +59,7 @@ public class Container {
     private final ConfigKey<ComponentsConfig> componentsConfigKey;
     private final ComponentDeconstructor destructor;
     private final Osgi osgi;
+    private final ExecutorService constructionExecutor;
 
     private final ConfigRetriever retriever;
     private List<String> platformBundles;  // Used to verify that platform bundles don't change.
@@ -65,6 +76,16 @@ public class Container {
         componentsConfigKey = new ConfigKey<>(ComponentsConfig.class, configId);
         var bootstrapKeys = Set.of(applicationBundlesConfigKey, platformBundlesConfigKey, componentsConfigKey);
         this.retriever = new ConfigRetriever(bootstrapKeys, subscriberFactory);
+        this.constructionExecutor = createConstructionExecutor(constructionThreads);
+    }
+
+    /** Returns an executor which constructs independent components in parallel, or in the calling thread if threads is 1. */
+    private static ExecutorService createConstructionExecutor(int threads) {
+        if (threads <= 1) return new InThreadExecutorService();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(),
+                                                             new DaemonThreadFactory("component-constructor-"));
+        executor.allowCoreThreadTimeOut(true); // Only needed while a new graph is constructed.
+        return executor;
     }
 
     // TODO: try to simplify by returning the result even when the graph failed, instead of throwing here.
@@ -102,11 +123,17 @@ public class Container {
     }
 
     private void constructComponents(ComponentGraph graph) {
-        graph.nodes().forEach(n -> {
-            if (Thread.interrupted())
-                throw new UncheckedInterruptedException("Interrupted while constructing component graph", true);
-            n.constructInstance();
-        });
+        long startNanos = System.nanoTime();
+        graph.constructComponents(constructionExecutor);
+        Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+        Map<ComponentId, Duration> constructionTimes = graph.constructionTimes();
+        if (constructionTimes.isEmpty()) return;
+
+        log.log(duration.compareTo(Duration.ofMinutes(1)) > 0 ? INFO : FINE,
+                () -> "Constructed " + constructionTimes.size() + " components for generation " + graph.generation() +
+                      " in " + duration + ", slowest: " + constructionTimes.entrySet().stream().limit(5)
+                                                                           .map(entry -> entry.getKey() + " (" + entry.getValue() + ")")
+                                                                           .toList());
     }
 
     private ComponentGraph waitForNewConfigGenAndCreateGraph(
@@ -282,6 +309,7 @@ public class Container {
             deconstructComponentsAndBundles(graph.generation(), List.of(), graph.allConstructedComponentsAndProviders());
             destructor.shutdown();
         }
+        constructionExecutor.shutdown();
     }
 
     public void shutdownConfigRetriever() {
@@ -16,22 +16,30 @@ import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.container.di.componentgraph.cycle.CycleFinder;
 import com.yahoo.container.di.componentgraph.cycle.Graph;
 import com.yahoo.vespa.config.ConfigKey;
+import com.yahoo.yolean.UncheckedInterruptedException;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.lang.reflect.WildcardType;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -164,6 +172,97 @@ public class ComponentGraph {
         }
     }
 
+    /**
+     * Constructs all components of this which are not already constructed, using the given executor.
+     * A component is submitted for construction only when all the components it uses are constructed, so
+     * components which do not depend on each other may be constructed in parallel, if the executor allows it.
+     * If a component fails to construct, or this thread is interrupted, no more components are submitted,
+     * and the first failure is thrown when the components already being constructed are done, so that all
+     * constructed components are present in this graph, and may be deconstructed.
+     */
+    public void constructComponents(Executor executor) {
+        List<Node> sorted = topologicalSort(nodes());
+        Map<ComponentId, Integer> remainingDependencies = new HashMap<>();
+        Map<ComponentId, List<Node>> dependents = new HashMap<>();
+        List<Node> ready = new ArrayList<>();
+        for (Node node : sorted) {
+            if (node.constructedInstance().isPresent()) continue;
+            Set<ComponentId> dependencies = new HashSet<>();
+            for (Node used : node.usedComponents())
+                if (used.constructedInstance().isEmpty() && dependencies.add(used.componentId()))
+                    dependents.computeIfAbsent(used.componentId(), __ -> new ArrayList<>()).add(node);
+            remainingDependencies.put(node.componentId(), dependencies.size());
+            if (dependencies.isEmpty()) ready.add(node);
+        }
+
+        ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+        BlockingQueue<Map.Entry<Node, Optional<Throwable>>> done = new LinkedBlockingQueue<>();
+        Throwable failure = null;
+        boolean interrupted = false;
+        int running = 0;
+        while (true) {
+            for (Node node : ready) {
+                interrupted |= Thread.interrupted();
+                if (failure != null || interrupted) break;
+                try {
+                    executor.execute(() -> done.add(Map.entry(node, construct(node, contextClassLoader))));
+                    running++;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            ready.clear();
+            if (running == 0) break;
+
+            Map.Entry<Node, Optional<Throwable>> result;
+            try {
+                result = done.take();
+            } catch (InterruptedException e) {
+                interrupted = true; // Wait for the running constructors regardless, so their components are not lost.
+                continue;
+            }
+            running--;
+            if (result.getValue().isPresent()) {
+                if (failure == null) failure = result.getValue().get();
+                continue;
+            }
+            for (Node dependent : dependents.getOrDefault(result.getKey().componentId(), List.of()))
+                if (remainingDependencies.merge(dependent.componentId(), -1, Integer::sum) == 0)
+                    ready.add(dependent);
+        }
+        if (failure == null && interrupted)
+            throw new UncheckedInterruptedException("Interrupted while constructing component graph", true);
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        if (failure instanceof RuntimeException e) throw e;
+        if (failure instanceof Error e) throw e;
+        if (failure != null) throw new RuntimeException(failure);
+    }
+
+    /** Returns the time it took to construct each component constructed by this graph, slowest first. */
+    public Map<ComponentId, Duration> constructionTimes() {
+        Map<ComponentId, Duration> times = new LinkedHashMap<>();
+        nodes().stream()
+               .filter(node -> node.constructionTime().isPresent())
+               .sorted(Comparator.comparing((Node node) -> node.constructionTime().get()).reversed())
+               .forEach(node -> times.put(node.componentId(), node.constructionTime().get()));
+        return times;
+    }
+
+    private static Optional<Throwable> construct(Node node, ClassLoader contextClassLoader) {
+        Thread thread = Thread.currentThread();
+        ClassLoader original = thread.getContextClassLoader();
+        thread.setContextClassLoader(contextClassLoader);
+        try {
+            node.constructInstance();
+            return Optional.empty();
+        } catch (Throwable t) {
+            return Optional.of(t);
+        } finally {
+            thread.setContextClassLoader(original);
+        }
+    }
+
     /** All constructed components and providers of this, in reverse creation order, i.e., suited for ordered deconstruction. */
     public List<Object> allConstructedComponentsAndProviders() {
         List<Node> orderedNodes = topologicalSort(nodes());
@@ -7,6 +7,7 @@ import com.yahoo.config.ConfigInstance;
 import com.yahoo.container.di.componentgraph.Provider;
 import com.yahoo.vespa.config.ConfigKey;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -23,6 +24,7 @@ public abstract class Node {
 
     private final ComponentId componentId;
     protected volatile Optional<Object> instance = Optional.empty();
+    private volatile Duration constructionTime = null;
     List<Node> componentsToInject = new ArrayList<>();
 
     public Node(ComponentId componentId) {
@@ -39,16 +41,29 @@ public abstract class Node {
     protected abstract Object newInstance();
 
     /** Constructs the instance represented by this node, if not already done. */
-    public void constructInstance() {
-        if ( ! instance.isPresent())
+    public synchronized void constructInstance() {
+        if ( ! instance.isPresent()) {
+            long startNanos = System.nanoTime();
             instance = Optional.of(newInstance());
+            constructionTime = Duration.ofNanos(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Returns the time it took to construct the instance of this, including any components it used which were
+     * not already constructed, or empty if the instance was not constructed by this node, e.g., because it was reused.
+     */
+    public Optional<Duration> constructionTime() {
+        return Optional.ofNullable(constructionTime);
     }
 
     /**
      * Returns the component represented by this - which is either the instance, or if the instance is a provider,
-     * the component returned by it.
+     * the component returned by it. Providers are not required to be thread safe, so they are called under
+     * the lock of this node, as parallel construction of a graph may need the component of a node from several
+     * threads at once.
      */
-    public Object component() {
+    public synchronized Object component() {
         constructInstance();
         if (instance.get() instanceof Provider) {
             Provider<?> provider = (Provider<?>) instance.get();
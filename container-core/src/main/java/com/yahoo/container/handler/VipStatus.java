@@ -9,6 +9,7 @@ import com.yahoo.container.jdisc.state.StateMonitor;
 import com.yahoo.jdisc.Metric;
 
 import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 /**
@@ -85,6 +86,28 @@ public class VipStatus {
         }
     }
 
+    /** Returns the value explicitly set by {@link #setInRotation}, or null if there is none */
+    public Boolean getRotationOverride() {
+        synchronized (mutex) {
+            return rotationOverride;
+        }
+    }
+
+    /**
+     * Explicitly sets this container in or out of rotation, as {@link #setInRotation} does, but only if the
+     * current override is the expected one, so overrides set by others are not lost.
+     *
+     * @return whether the override was set
+     */
+    public boolean compareAndSetInRotation(Boolean expected, Boolean inRotation) {
+        synchronized (mutex) {
+            if ( ! Objects.equals(rotationOverride, expected)) return false;
+
+            setInRotation(inRotation);
+            return true;
+        }
+    }
+
     /** Note that a cluster (which influences up/down state) is up */
     public void addToRotation(String clusterIdentifier) {
         clustersStatus.setUp(clusterIdentifier);
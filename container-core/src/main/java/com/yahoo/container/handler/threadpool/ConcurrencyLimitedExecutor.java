@@ -0,0 +1,15 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.concurrent.Executor;
+
+/**
+ * An executor which also carries the limit on the number of requests a threaded request handler using it
+ * may have in flight, per binding.
+ */
+public interface ConcurrencyLimitedExecutor extends Executor {
+
+    /** Returns the maximum number of requests in flight per handler binding, or 0 if this is not limited */
+    int maxConcurrencyLimit();
+
+}
@@ -9,8 +9,10 @@ import com.yahoo.jdisc.Metric;
 
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -48,6 +50,27 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         log.info(String.format("Threadpool '%s': min=%d, max=%d, queue=%d", name, minThreads, maxThreads, queueSize));
 
         ThreadPoolMetric threadPoolMetric = new ThreadPoolMetric(metric, name);
+        Optional<ThreadFactory> virtualThreadFactory = config.virtualThreads() ? VirtualThreadExecutor.virtualThreadFactory(name)
+                                                                              : Optional.empty();
+        if (config.virtualThreads() && virtualThreadFactory.isEmpty())
+            log.warning(String.format("Threadpool '%s': virtual threads are not supported by this JVM, using platform threads", name));
+
+        MeteredExecutorService executor = virtualThreadFactory.isPresent()
+                ? createVirtualThreadExecutor(name, virtualThreadFactory.get(), maxThreads + queueSize, threadPoolMetric)
+                : createThreadPoolExecutor(config, name, minThreads, maxThreads, queueSize, threadPoolMetric);
+        threadpool = new ExecutorServiceWrapper(
+                executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
+                Math.max(0, config.maxConcurrencyLimit()), name);
+    }
+
+    private static MeteredExecutorService createVirtualThreadExecutor(String name, ThreadFactory threadFactory,
+                                                                      int maxConcurrency, ThreadPoolMetric metric) {
+        log.info(String.format("Threadpool '%s': using virtual threads, with at most %d tasks in flight", name, maxConcurrency));
+        return new VirtualThreadExecutor(threadFactory, maxConcurrency, metric);
+    }
+
+    private static MeteredExecutorService createThreadPoolExecutor(ContainerThreadpoolConfig config, String name, int minThreads,
+                                                                   int maxThreads, int queueSize, ThreadPoolMetric threadPoolMetric) {
         WorkerCompletionTimingThreadPoolExecutor executor =
                 new WorkerCompletionTimingThreadPoolExecutor(minThreads, maxThreads,
                         (long) config.keepAliveTime() * 1000, TimeUnit.MILLISECONDS,
@@ -58,9 +81,7 @@ public class ContainerThreadpoolImpl extends AbstractComponent implements AutoCl
         // get the dreaded thread locals initialized even if they will never run.
         // That counters what we want to achieve with the Q that will prefer thread locality.
         executor.prestartAllCoreThreads();
-        threadpool = new ExecutorServiceWrapper(
-                executor, threadPoolMetric, processTerminator, config.maxThreadExecutionTimeSeconds() * 1000L,
-                name);
+        return executor;
     }
 
     @Override public Executor executor() { return threadpool; }
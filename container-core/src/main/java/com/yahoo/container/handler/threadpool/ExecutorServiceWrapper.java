@@ -18,45 +18,42 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * @author baldersheim
  * @author bratseth
  */
-class ExecutorServiceWrapper extends ForwardingExecutorService {
+class ExecutorServiceWrapper extends ForwardingExecutorService implements ConcurrencyLimitedExecutor {
 
-    private final WorkerCompletionTimingThreadPoolExecutor wrapped;
+    private final MeteredExecutorService wrapped;
     private final ThreadPoolMetric metric;
     private final ProcessTerminator processTerminator;
     private final long maxThreadExecutionTimeMillis;
-    private final int queueCapacity;
+    private final int maxConcurrencyLimit;
     private final Thread metricReporter;
-    private final boolean threadPoolIsOnlyQ;
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
-    ExecutorServiceWrapper(WorkerCompletionTimingThreadPoolExecutor wrapped,
+    ExecutorServiceWrapper(MeteredExecutorService wrapped,
                            ThreadPoolMetric metric,
                            ProcessTerminator processTerminator,
                            long maxThreadExecutionTimeMillis,
+                           int maxConcurrencyLimit,
                            String name) {
         this.wrapped = wrapped;
         this.metric = metric;
         this.processTerminator = processTerminator;
         this.maxThreadExecutionTimeMillis = maxThreadExecutionTimeMillis;
-        int maxQueueCapacity = wrapped.getQueue().remainingCapacity() + wrapped.getQueue().size();
-        this.threadPoolIsOnlyQ = (maxQueueCapacity == 0);
-        this.queueCapacity = threadPoolIsOnlyQ
-                ? wrapped.getMaximumPoolSize()
-                : maxQueueCapacity;
+        this.maxConcurrencyLimit = maxConcurrencyLimit;
         reportMetrics();
         metricReporter = new Thread(this::reportMetricsRegularly);
         metricReporter.setName(name + "-threadpool-metric-reporter");
         metricReporter.start();
     }
 
+    @Override
+    public int maxConcurrencyLimit() { return maxConcurrencyLimit; }
+
     private void reportMetrics() {
-        int activeThreads = wrapped.getActiveCount();
-        metric.reportThreadPoolSize(wrapped.getPoolSize());
-        metric.reportMaxAllowedThreadPoolSize(wrapped.getMaximumPoolSize());
-        metric.reportActiveThreads(activeThreads);
-        int queueSize = threadPoolIsOnlyQ ? activeThreads : wrapped.getQueue().size();
-        metric.reportWorkQueueSize(queueSize);
-        metric.reportWorkQueueCapacity(queueCapacity);
+        metric.reportThreadPoolSize(wrapped.poolSize());
+        metric.reportMaxAllowedThreadPoolSize(wrapped.maxPoolSize());
+        metric.reportActiveThreads(wrapped.activeCount());
+        metric.reportWorkQueueSize(wrapped.queueSize());
+        metric.reportWorkQueueCapacity(wrapped.queueCapacity());
     }
 
     private void reportMetricsRegularly() {
@@ -101,7 +98,7 @@ class ExecutorServiceWrapper extends ForwardingExecutorService {
             super.execute(command);
         } catch (RejectedExecutionException e) {
             metric.reportRejectRequest();
-            long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis;
+            long timeSinceLastReturnedThreadMillis = System.currentTimeMillis() - wrapped.lastThreadAssignmentTimeMillis();
             if (timeSinceLastReturnedThreadMillis > maxThreadExecutionTimeMillis)
                 processTerminator.logAndDie("No worker threads have been available for " +
                         timeSinceLastReturnedThreadMillis + " ms. Shutting down.", true);
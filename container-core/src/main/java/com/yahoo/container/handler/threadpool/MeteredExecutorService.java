@@ -0,0 +1,30 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The executor service backing a container thread pool, exposing what is needed to report
+ * {@link ThreadPoolMetric}s, and to detect when no workers have been available for too long.
+ */
+interface MeteredExecutorService extends ExecutorService {
+
+    /** Returns the last time, in epoch milliseconds, a task was assigned a thread. */
+    long lastThreadAssignmentTimeMillis();
+
+    /** Returns the current number of threads. */
+    int poolSize();
+
+    /** Returns the maximum number of threads running tasks at the same time. */
+    int maxPoolSize();
+
+    /** Returns the number of tasks currently running. */
+    int activeCount();
+
+    /** Returns the number of tasks waiting to run, or in flight if this has no queue. */
+    int queueSize();
+
+    /** Returns the maximum number of tasks waiting to run, or in flight if this has no queue. */
+    int queueCapacity();
+
+}
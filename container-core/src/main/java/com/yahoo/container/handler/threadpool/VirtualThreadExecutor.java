@@ -0,0 +1,160 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.threadpool;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An executor which runs each task in a new thread, typically a virtual one, with the number of
+ * tasks in flight bounded by a semaphore rather than by the size of a pool. Tasks are rejected
+ * when the bound is reached, as they are by a full thread pool.
+ *
+ * Tasks start as soon as their thread is scheduled, so the queue reported is just the tasks which
+ * are submitted, but not yet started.
+ */
+class VirtualThreadExecutor extends AbstractExecutorService implements MeteredExecutorService {
+
+    private final ThreadFactory threadFactory;
+    private final ThreadPoolMetric metric;
+    private final int maxConcurrency;
+    private final Semaphore permits;
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger notStarted = new AtomicInteger(0);
+    private final Set<Thread> running = ConcurrentHashMap.newKeySet();
+    private final Object monitor = new Object();
+    private volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+    private volatile boolean shutdown = false;
+
+    VirtualThreadExecutor(ThreadFactory threadFactory, int maxConcurrency, ThreadPoolMetric metric) {
+        if (maxConcurrency < 1) throw new IllegalArgumentException("maxConcurrency must be positive, but was " + maxConcurrency);
+        this.threadFactory = threadFactory;
+        this.metric = metric;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * Returns a factory for virtual threads with names starting with the given prefix, or empty if
+     * this JVM does not support virtual threads. This is resolved reflectively, so the container
+     * may still be built for, and run on, older JVMs.
+     */
+    static Optional<ThreadFactory> virtualThreadFactory(String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 0L);
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        }
+        catch (ReflectiveOperationException | RuntimeException e) {
+            // Not available, or a preview feature which is not enabled, which fails with an InvocationTargetException.
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (shutdown) throw new RejectedExecutionException("Executor is shut down");
+        if ( ! permits.tryAcquire()) throw new RejectedExecutionException("All " + maxConcurrency + " permits are in use");
+
+        inFlight.incrementAndGet();
+        notStarted.incrementAndGet();
+        try {
+            Thread thread = threadFactory.newThread(() -> run(command));
+            if (thread == null) throw new RejectedExecutionException("Thread factory did not create a thread");
+            thread.start();
+        }
+        catch (RuntimeException | Error e) {
+            notStarted.decrementAndGet();
+            done();
+            throw e instanceof RejectedExecutionException rejected ? rejected : new RejectedExecutionException(e);
+        }
+    }
+
+    private void run(Runnable command) {
+        notStarted.decrementAndGet();
+        lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+        Thread current = Thread.currentThread();
+        running.add(current);
+        try {
+            command.run();
+        }
+        catch (RuntimeException | Error e) {
+            metric.reportUnhandledException(e);
+            throw e;
+        }
+        finally {
+            running.remove(current);
+            done();
+        }
+    }
+
+    private void done() {
+        permits.release();
+        if (inFlight.decrementAndGet() == 0 && shutdown) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        shutdown = true;
+        synchronized (monitor) {
+            monitor.notifyAll();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        shutdown();
+        running.forEach(Thread::interrupt);
+        return List.of(); // Nothing is ever waiting to run.
+    }
+
+    @Override
+    public boolean isShutdown() { return shutdown; }
+
+    @Override
+    public boolean isTerminated() { return shutdown && inFlight.get() == 0; }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        synchronized (monitor) {
+            while ( ! isTerminated()) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remainingMillis <= 0) return false;
+                monitor.wait(remainingMillis);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+    @Override
+    public int poolSize() { return inFlight.get(); }
+
+    @Override
+    public int maxPoolSize() { return maxConcurrency; }
+
+    @Override
+    public int activeCount() { return running.size(); }
+
+    @Override
+    public int queueSize() { return notStarted.get(); }
+
+    @Override
+    public int queueCapacity() { return maxConcurrency; }
+
+}
@@ -14,9 +14,9 @@ import java.util.concurrent.atomic.AtomicLong;
  * @author baldersheim
  * @author bratseth
  */
-class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor {
+class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor implements MeteredExecutorService {
 
-    volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
+    private volatile long lastThreadAssignmentTimeMillis = System.currentTimeMillis();
     private final AtomicLong startedCount = new AtomicLong(0);
     private final AtomicLong completedCount = new AtomicLong(0);
     private final ThreadPoolMetric metric;
@@ -53,5 +53,26 @@ class WorkerCompletionTimingThreadPoolExecutor extends ThreadPoolExecutor {
         return (int)(startedCount.get() - completedCount.get());
     }
 
+    @Override
+    public long lastThreadAssignmentTimeMillis() { return lastThreadAssignmentTimeMillis; }
+
+    @Override
+    public int poolSize() { return getPoolSize(); }
+
+    @Override
+    public int maxPoolSize() { return getMaximumPoolSize(); }
+
+    @Override
+    public int activeCount() { return getActiveCount(); }
+
+    @Override
+    public int queueSize() { return hasQueue() ? getQueue().size() : getActiveCount(); }
+
+    @Override
+    public int queueCapacity() { return hasQueue() ? getQueue().remainingCapacity() + getQueue().size() : getMaximumPoolSize(); }
+
+    /** Returns whether tasks may wait for a thread, which they may not when the queue is a synchronous hand-off. */
+    private boolean hasQueue() { return getQueue().remainingCapacity() + getQueue().size() > 0; }
+
 }
 
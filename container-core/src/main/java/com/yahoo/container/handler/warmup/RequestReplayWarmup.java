@@ -0,0 +1,247 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.warmup;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.component.AbstractComponent;
+import com.yahoo.component.annotation.Inject;
+import com.yahoo.container.core.WarmupConfig;
+import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.RequestDispatch;
+import com.yahoo.jdisc.http.HttpRequest;
+import com.yahoo.jdisc.service.ContainerNotReadyException;
+import com.yahoo.jdisc.service.CurrentContainer;
+import com.yahoo.vespa.defaults.Defaults;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replays a recorded sample of requests through the handlers of this container when it starts, and keeps it out of
+ * rotation until that is done, so the first requests it receives are served by compiled code, and warm caches and
+ * connections, rather than paying for these with their latency.
+ *
+ * Requests are dispatched in-process, through the server bindings of the active container, but not through Jetty
+ * and its filters. Only GET and HEAD requests are replayed, unless replaying writes is explicitly enabled, as these
+ * are dispatched to the live handlers.
+ *
+ * Only the first container generation of the process is warmed up: later ones are created by reconfiguration,
+ * while the previous generation is still serving, so there is nothing to keep out of rotation for them.
+ */
+public class RequestReplayWarmup extends AbstractComponent {
+
+    private static final Logger log = Logger.getLogger(RequestReplayWarmup.class.getName());
+    /** Set by the first container generation of the process, which is the only one to be warmed up. */
+    private static final AtomicBoolean processWarmedUp = new AtomicBoolean(false);
+    private static final Duration notReadyBackoff = Duration.ofMillis(100);
+
+    private final WarmupConfig config;
+    private final VipStatus vipStatus;
+    private final CurrentContainer container;
+    private final Metric metric;
+    private final Thread thread;
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean stopped = false;
+    private Boolean previousRotationOverride = null; // Written before the warmup thread is started.
+
+    @Inject
+    public RequestReplayWarmup(WarmupConfig config, VipStatus vipStatus, CurrentContainer container, Metric metric) {
+        this(config, vipStatus, container, metric, processWarmedUp);
+    }
+
+    RequestReplayWarmup(WarmupConfig config, VipStatus vipStatus, CurrentContainer container, Metric metric,
+                        AtomicBoolean warmedUp) {
+        this.config = config;
+        this.vipStatus = vipStatus;
+        this.container = container;
+        this.metric = metric;
+        if (config.enabled() && warmedUp.compareAndSet(false, true)) {
+            do {
+                previousRotationOverride = vipStatus.getRotationOverride();
+            } while ( ! vipStatus.compareAndSetInRotation(previousRotationOverride, false));
+            this.thread = new Thread(this::warmUp, "request-replay-warmup");
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+        else {
+            this.thread = null;
+        }
+    }
+
+    /** Returns whether this is still warming up the container. */
+    boolean isWarmingUp() {
+        return thread != null && thread.isAlive();
+    }
+
+    private void warmUp() {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + (long) (config.duration() * 1e9);
+        try {
+            Path file = Path.of(Defaults.getDefaults().underVespaHome(config.requestsFile()));
+            List<RecordedRequest> requests = parse(Files.readAllLines(file, StandardCharsets.UTF_8), config.targets(), config.replayWrites());
+            log.log(Level.INFO, "Warming up with " + requests.size() + " requests from " + file +
+                                ", for at most " + Duration.ofNanos(deadlineNanos - startNanos));
+            AtomicInteger next = new AtomicInteger();
+            int total = requests.size() * Math.max(1, config.iterations());
+            List<Thread> workers = new ArrayList<>();
+            for (int i = 0; i < Math.max(1, config.concurrency()); i++) {
+                Thread worker = new Thread(() -> {
+                    for (int index; ! stopped && (index = next.getAndIncrement()) < total && System.nanoTime() < deadlineNanos; )
+                        replay(requests.get(index % requests.size()), deadlineNanos);
+                }, "request-replay-warmup-" + i);
+                worker.setDaemon(true);
+                workers.add(worker);
+                worker.start();
+            }
+            for (Thread worker : workers)
+                worker.join();
+        }
+        catch (IOException | UncheckedIOException e) {
+            log.log(Level.WARNING, "Failed reading warmup requests, not warming up: " + e.getMessage());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        catch (RuntimeException e) {
+            log.log(Level.WARNING, "Failed warming up", e);
+        }
+        finally {
+            Duration duration = Duration.ofNanos(System.nanoTime() - startNanos);
+            Metric.Context context = metric.createContext(Map.of());
+            metric.add(ContainerMetrics.JDISC_WARMUP_REQUESTS.baseName(), replayed.sum(), context);
+            metric.add(ContainerMetrics.JDISC_WARMUP_FAILED_REQUESTS.baseName(), failed.sum(), context);
+            metric.set(ContainerMetrics.JDISC_WARMUP_DURATION_MILLIS.baseName(), duration.toMillis(), context);
+            log.log(Level.INFO, "Warmup done in " + duration + ", after replaying " + replayed.sum() +
+                                " requests, of which " + failed.sum() + " failed");
+            // Restore the previous rotation override, unless someone else has overridden ours meanwhile.
+            vipStatus.compareAndSetInRotation(false, previousRotationOverride);
+        }
+    }
+
+    /** Dispatches the given request, and waits for its response, or until the deadline. */
+    private void replay(RecordedRequest recorded, long deadlineNanos) {
+        while (true) {
+            long remainingNanos = deadlineNanos - System.nanoTime();
+            if (remainingNanos <= 0 || stopped) return;
+            try {
+                Response response = new RequestDispatch() {
+                    @Override
+                    protected Request newRequest() {
+                        HttpRequest request = HttpRequest.newServerRequest(container, URI.create("http://localhost" + recorded.path()), recorded.method());
+                        request.setTimeout(TimeUnit.NANOSECONDS.toMillis(remainingNanos), TimeUnit.MILLISECONDS);
+                        recorded.body().ifPresent(__ -> request.headers().put("Content-Type", "application/json"));
+                        return request;
+                    }
+
+                    @Override
+                    protected Iterable<ByteBuffer> requestContent() {
+                        return recorded.body().map(body -> List.of(ByteBuffer.wrap(body))).orElse(List.of());
+                    }
+
+                    @Override
+                    public ContentChannel handleResponse(Response response) {
+                        return DiscardingContent.instance;
+                    }
+                }.dispatch().get(remainingNanos, TimeUnit.NANOSECONDS);
+                replayed.increment();
+                if (response.getStatus() >= 500) failed.increment();
+                return;
+            }
+            catch (ContainerNotReadyException e) { // Replay starts before the first container is activated.
+                try {
+                    Thread.sleep(notReadyBackoff.toMillis());
+                }
+                catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            catch (ExecutionException | TimeoutException | RuntimeException e) {
+                log.log(Level.FINE, () -> "Warmup request " + recorded + " failed: " + e);
+                replayed.increment();
+                failed.increment();
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void deconstruct() {
+        stopped = true;
+    }
+
+    /**
+     * Returns the requests in the given lines, which are to one of the given path prefixes, or to any path if none,
+     * and which are GET or HEAD requests, unless writes should also be replayed.
+     */
+    static List<RecordedRequest> parse(List<String> lines, List<String> targets, boolean replayWrites) {
+        List<RecordedRequest> requests = new ArrayList<>();
+        for (String line : lines) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            String[] fields = line.split("\t", 3);
+            if (fields.length < 2 || ! fields[1].startsWith("/"))
+                throw new IllegalArgumentException("Expected method, path and optional body separated by tabs, but got '" + line + "'");
+            if ( ! targets.isEmpty() && targets.stream().noneMatch(fields[1]::startsWith)) continue;
+
+            HttpRequest.Method method = HttpRequest.Method.valueOf(fields[0].trim().toUpperCase());
+            if ( ! replayWrites && method != HttpRequest.Method.GET && method != HttpRequest.Method.HEAD) continue;
+
+            requests.add(new RecordedRequest(method,
+                                             fields[1],
+                                             fields.length < 3 || fields[2].isEmpty() ? Optional.empty()
+                                                                                      : Optional.of(fields[2].getBytes(StandardCharsets.UTF_8))));
+        }
+        return requests;
+    }
+
+    record RecordedRequest(HttpRequest.Method method, String path, Optional<byte[]> body) {
+
+        @Override
+        public String toString() { return method + " " + path; }
+
+    }
+
+    private static class DiscardingContent implements ContentChannel {
+
+        static final DiscardingContent instance = new DiscardingContent();
+
+        @Override
+        public void write(ByteBuffer buf, CompletionHandler handler) {
+            if (handler != null) handler.completed();
+        }
+
+        @Override
+        public void close(CompletionHandler handler) {
+            if (handler != null) handler.completed();
+        }
+
+    }
+
+}
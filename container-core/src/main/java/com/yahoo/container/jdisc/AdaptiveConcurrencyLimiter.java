@@ -0,0 +1,119 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * A limit on the number of concurrent requests, which adapts to the latency of the requests it admits.
+ *
+ * Latencies are averaged over short windows, and compared to a long-term average, which is what the latency is
+ * when there is no queueing. When the short-term average rises above the long-term one, requests are queueing up,
+ * and the limit is lowered in proportion to the gradient between the two; otherwise, the limit grows by a small
+ * queue allowance, for as long as it is actually used. Requests beyond the limit should be rejected immediately,
+ * so the latency of admitted ones stays close to the long-term average during overload.
+ *
+ * Acquiring and releasing a permit is lock-free; the limit is updated by one releasing thread per window.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    static final int MIN_WINDOW_SAMPLES = 10;
+
+    private static final double LONG_WINDOW_WEIGHT = 1.0 / 60; // About 6 seconds of windows.
+    private static final double TOLERANCE = 1.5; // How much above the long-term latency the short-term may be, before the limit is lowered.
+    private static final double SMOOTHING = 0.2;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private volatile int limit;
+
+    private final LongAdder windowLatencyNanos = new LongAdder();
+    private final LongAdder windowSamples = new LongAdder();
+    private final LongAccumulator windowMaxInflight = new LongAccumulator(Math::max, 0);
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private volatile long windowStartNanos;
+
+    // Guarded by updateLock.
+    private double estimatedLimit;
+    private double longLatencyNanos = 0;
+
+    AdaptiveConcurrencyLimiter(int minLimit, int initialLimit, int maxLimit, LongSupplier nanoClock) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit)
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max, but were " +
+                                               minLimit + ", " + initialLimit + ", " + maxLimit);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.nanoClock = nanoClock;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+        this.windowStartNanos = nanoClock.getAsLong();
+    }
+
+    /** Returns whether a request may be admitted, in which case {@link #release} must be called when it completes. */
+    boolean tryAcquire() {
+        int current = inflight.incrementAndGet();
+        if (current > limit) {
+            inflight.decrementAndGet();
+            return false;
+        }
+        windowMaxInflight.accumulate(current);
+        return true;
+    }
+
+    /** Releases a permit, and records the latency of the request which held it. */
+    void release(long latencyNanos) {
+        inflight.decrementAndGet();
+        long now = nanoClock.getAsLong();
+        windowLatencyNanos.add(latencyNanos);
+        windowSamples.increment();
+        if (now - windowStartNanos >= WINDOW_NANOS && windowSamples.sum() >= MIN_WINDOW_SAMPLES && updateLock.tryLock()) {
+            try {
+                if (now - windowStartNanos >= WINDOW_NANOS) // Not already updated by another thread.
+                    update(now);
+            } finally {
+                updateLock.unlock();
+            }
+        }
+    }
+
+    /** Releases a permit for a request which was not run after all, so its latency says nothing about the load. */
+    void abort() {
+        inflight.decrementAndGet();
+    }
+
+    private void update(long now) {
+        long samples = windowSamples.sumThenReset();
+        double shortLatencyNanos = (double) windowLatencyNanos.sumThenReset() / Math.max(1, samples);
+        long maxInflight = windowMaxInflight.getThenReset();
+        windowStartNanos = now;
+        if (samples == 0 || shortLatencyNanos <= 0) return;
+
+        if (longLatencyNanos == 0)
+            longLatencyNanos = shortLatencyNanos;
+        else
+            longLatencyNanos += (shortLatencyNanos - longLatencyNanos) * LONG_WINDOW_WEIGHT;
+
+        if (longLatencyNanos > 2 * shortLatencyNanos) // Latency dropped well below the long-term average, so let that catch up.
+            longLatencyNanos *= 0.95;
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatencyNanos / shortLatencyNanos));
+        if (gradient == 1.0 && maxInflight < estimatedLimit / 2) return; // Don't grow a limit which isn't used.
+
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+
+    int limit() { return limit; }
+
+    int inflight() { return inflight.get(); }
+
+}
@@ -1,13 +1,17 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.jdisc;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.annotation.Inject;
+import com.yahoo.container.handler.threadpool.ConcurrencyLimitedExecutor;
 import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.Request;
 import com.yahoo.jdisc.ResourceReference;
 import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.application.BindingMatch;
 import com.yahoo.jdisc.handler.AbstractRequestHandler;
 import com.yahoo.jdisc.handler.BufferedContentChannel;
+import com.yahoo.jdisc.handler.CompletionHandler;
 import com.yahoo.jdisc.handler.ContentChannel;
 import com.yahoo.jdisc.handler.OverloadException;
 import com.yahoo.jdisc.handler.ReadableContentChannel;
@@ -15,13 +19,16 @@ import com.yahoo.jdisc.handler.ResponseDispatch;
 import com.yahoo.jdisc.handler.ResponseHandler;
 import com.yahoo.container.core.HandlerMetricContextUtil;
 
+import java.nio.ByteBuffer;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,9 +46,17 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
 
     private static final Logger log = Logger.getLogger(ThreadedRequestHandler.class.getName());
     private static final Duration TIMEOUT = Duration.ofSeconds(Integer.parseInt(System.getProperty("ThreadedRequestHandler.timeout", "300")));
+    private static final String CONCURRENCY_LIMIT_METRIC = ContainerMetrics.JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT.baseName();
+    private static final String CONCURRENCY_LIMIT_REJECTED_METRIC = ContainerMetrics.JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT_REJECTED.baseName();
+    static final int MIN_CONCURRENCY_LIMIT = 8;
+    static final int INITIAL_CONCURRENCY_LIMIT = 100;
+    static final String RETRY_AFTER_SECONDS = "1";
+
     private final Executor executor;
     protected final Metric metric;
     private final boolean allowAsyncResponse;
+    private final int maxConcurrencyLimit; // From the thread pool config; concurrency is not limited when this is 0.
+    private final Map<String, AdaptiveConcurrencyLimiter> concurrencyLimiters = new ConcurrentHashMap<>(); // By binding.
 
     private static final Object rejectedExecutionsLock = new Object();
 
@@ -74,6 +89,7 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
         this.executor = Objects.requireNonNull(executor);
         this.metric = (metric == null) ? new NullRequestMetric() : metric;
         this.allowAsyncResponse = allowAsyncResponse;
+        this.maxConcurrencyLimit = executor instanceof ConcurrencyLimitedExecutor limited ? limited.maxConcurrencyLimit() : 0;
     }
 
     Metric.Context contextFor(Request request, Map<String, String> extraDimensions) {
@@ -94,8 +110,13 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
                 request.setTimeout(timeout.getSeconds(), TimeUnit.SECONDS);
             }
         }
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiterFor(request);
+        if (limiter != null && ! limiter.tryAcquire()) {
+            rejectOnConcurrencyLimit(request, responseHandler, limiter);
+            throw new OverloadException("Concurrency limit " + limiter.limit() + " reached for " + getClass().getSimpleName(), null);
+        }
         BufferedContentChannel content = new BufferedContentChannel();
-        RequestTask command = new RequestTask(request, content, responseHandler);
+        RequestTask command = new RequestTask(request, content, responseHandler, limiter);
         try {
             executor.execute(command);
         } catch (RejectedExecutionException e) {
@@ -107,6 +128,35 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
         return content;
     }
 
+    /**
+     * Returns the adaptive concurrency limiter for the binding of the given request, or null if concurrency is
+     * not limited. Each binding of this handler has its own limit, as different bindings may do different work.
+     */
+    private AdaptiveConcurrencyLimiter concurrencyLimiterFor(Request request) {
+        if (maxConcurrencyLimit <= 0) return null;
+        BindingMatch<?> match = request.getBindingMatch();
+        String binding = match == null || match.matched() == null ? "" : match.matched().toString();
+        AdaptiveConcurrencyLimiter limiter = concurrencyLimiters.get(binding);
+        if (limiter == null)
+            limiter = concurrencyLimiters.computeIfAbsent(binding, __ -> new AdaptiveConcurrencyLimiter(
+                    Math.min(MIN_CONCURRENCY_LIMIT, maxConcurrencyLimit),
+                    Math.min(INITIAL_CONCURRENCY_LIMIT, maxConcurrencyLimit),
+                    maxConcurrencyLimit,
+                    System::nanoTime));
+        return limiter;
+    }
+
+    /** Rejects the given request before it reaches the executor, with the overload response and a hint for when to retry. */
+    private void rejectOnConcurrencyLimit(Request request, ResponseHandler responseHandler, AdaptiveConcurrencyLimiter limiter) {
+        Metric.Context context = contextFor(request, Map.of());
+        metric.add(CONCURRENCY_LIMIT_REJECTED_METRIC, 1, context);
+        metric.set(CONCURRENCY_LIMIT_METRIC, limiter.limit(), context);
+        writeErrorResponseOnOverload(request, response -> {
+            response.headers().put("Retry-After", RETRY_AFTER_SECONDS);
+            return responseHandler.handleResponse(response);
+        });
+    }
+
     /**
      * <p>Returns the request type classification to use for requests to this handler.
      * This overrides the default classification based on request method, and can in turn
@@ -170,13 +220,17 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
         private final ResourceReference requestReference;
         final BufferedContentChannel content;
         final ResponseHandler responseHandler;
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final long createdNanos = System.nanoTime();
+        private final AtomicBoolean permitReleased = new AtomicBoolean(false);
         private boolean hasResponded = false;
 
-        RequestTask(Request request, BufferedContentChannel content, ResponseHandler responseHandler) {
+        RequestTask(Request request, BufferedContentChannel content, ResponseHandler responseHandler, AdaptiveConcurrencyLimiter limiter) {
             this.request = request;
             this.requestReference = request.refer(this);
             this.content = content;
             this.responseHandler = responseHandler;
+            this.limiter = limiter;
         }
 
         @Override
@@ -186,6 +240,16 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
             }
         }
 
+        /**
+         * Releases the permit of this, once, with the time from the request was received until its response was
+         * completed, which may be after the worker thread is done, for handlers which respond asynchronously.
+         */
+        private void releaseConcurrencyPermit() {
+            if (limiter == null || ! permitReleased.compareAndSet(false, true)) return;
+            limiter.release(System.nanoTime() - createdNanos);
+            metric.set(CONCURRENCY_LIMIT_METRIC, limiter.limit(), contextFor(request, Map.of()));
+        }
+
         private void processRequest() {
             try {
                 ThreadedRequestHandler.this.handleRequest(request, content, this);
@@ -206,9 +270,20 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
             if ( tryHasResponded()) throw new IllegalStateException("Response already handled");
             if (getRequestType().isPresent() && response.getRequestType() == null)
                 response.setRequestType(getRequestType().get());
-            ContentChannel cc = responseHandler.handleResponse(response);
+            ContentChannel cc;
+            try {
+                cc = responseHandler.handleResponse(response);
+            } catch (RuntimeException e) {
+                releaseConcurrencyPermit();
+                throw e;
+            }
             HandlerMetricContextUtil.onHandled(request, metric, getClass());
-            return cc;
+            if (limiter == null) return cc;
+            if (cc == null) {
+                releaseConcurrencyPermit();
+                return null;
+            }
+            return new PermitReleasingContentChannel(cc);
         }
 
         private boolean tryHasResponded() {
@@ -222,6 +297,7 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
         private void respondWithErrorIfNotResponded() {
             if ( tryHasResponded() ) return;
             ResponseDispatch.newInstance(Response.Status.INTERNAL_SERVER_ERROR).dispatch(responseHandler);
+            releaseConcurrencyPermit();
             log.warning("This handler is not async but did not produce a response. Responding with status 500." +
                         "(If this handler is async, pass a boolean true in the super constructor to avoid this.)");
         }
@@ -240,10 +316,38 @@ public abstract class ThreadedRequestHandler extends AbstractRequestHandler {
         }
 
 
+        /** Response content which releases the concurrency permit of this when it is closed, i.e., the response is complete. */
+        private class PermitReleasingContentChannel implements ContentChannel {
+
+            private final ContentChannel delegate;
+
+            PermitReleasingContentChannel(ContentChannel delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public void write(ByteBuffer buf, CompletionHandler handler) {
+                delegate.write(buf, handler);
+            }
+
+            @Override
+            public void close(CompletionHandler handler) {
+                releaseConcurrencyPermit();
+                delegate.close(handler);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                delegate.onError(error);
+            }
+
+        }
+
         /**
          * Clean up when the task can not be executed because no worker thread is available.
          */
         void failOnOverload() {
+            if (limiter != null && permitReleased.compareAndSet(false, true)) limiter.abort();
             try (ResourceReference reference = requestReference) {
                 incrementRejectedRequests();
                 logRejectedRequests();
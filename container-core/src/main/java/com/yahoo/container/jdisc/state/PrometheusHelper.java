@@ -3,8 +3,8 @@ package com.yahoo.container.jdisc.state;
 
 import com.fasterxml.jackson.databind.JsonNode;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 
@@ -13,14 +13,12 @@ import java.util.List;
  */
 public class PrometheusHelper {
 
-    private static final String HELP_LINE = "# HELP %s\n# TYPE %s untyped\n";
-    private static final String METRIC_LINE = "%s{%s} %s %d\n";
     private static final String DIMENSION_KEY = "dimensions";
     private static final String METRIC_KEY = "metrics";
     private static final String APPLICATION_KEY = "application";
 
     protected static byte[] buildPrometheusOutput(List<JsonNode> metrics, long timestamp) throws IOException {
-        var outputStream = new ByteArrayOutputStream();
+        var output = new StringBuilder();
 
         for (var metric : metrics) {
             var metricDimensions = metric.get(DIMENSION_KEY);
@@ -40,19 +38,20 @@ public class PrometheusHelper {
             for (var it = metricValues.fieldNames(); it.hasNext(); ) {
                 var metricName = it.next();
                 var metricVal = metricValues.get(metricName).numberValue();
-                outputStream.write(getMetricLines(sanitize(metricName), dimensions, metricVal, timestamp));
+                appendMetricLines(output, sanitize(metricName), dimensions, metricVal, timestamp);
             }
         }
-        return outputStream.toByteArray();
+        return output.toString().getBytes(StandardCharsets.UTF_8);
     }
 
-    private static byte[] getMetricLines(String metricName, String dimensions, Number value, long timestamp) {
-        return (String.format(HELP_LINE, metricName, metricName) +
-                String.format(METRIC_LINE, metricName, dimensions, value, timestamp)).getBytes();
+    private static void appendMetricLines(StringBuilder output, String metricName, String dimensions, Number value, long timestamp) {
+        output.append("# HELP ").append(metricName).append('\n')
+              .append("# TYPE ").append(metricName).append(" untyped\n")
+              .append(metricName).append('{').append(dimensions).append("} ").append(value).append(' ').append(timestamp).append('\n');
     }
 
     private static String sanitize(String name) {
-        return name.replaceAll("([-.])", "_");
+        return name.replace('-', '_').replace('.', '_');
     }
 
 }
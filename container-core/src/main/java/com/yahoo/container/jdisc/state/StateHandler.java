@@ -25,6 +25,9 @@ import com.yahoo.jdisc.handler.ResponseDispatch;
 import com.yahoo.jdisc.handler.ResponseHandler;
 import com.yahoo.jdisc.http.HttpHeaders;
 import com.yahoo.security.tls.Capability;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
 
 import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
@@ -32,6 +35,7 @@ import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -42,6 +46,11 @@ import static com.yahoo.container.jdisc.state.JsonUtil.sanitizeDouble;
 /**
  * A handler which returns state (health) information from this container instance: Status, metrics and vespa version.
  *
+ * Metrics may also be requested as binary Slime, with <code>format=slime</code>. This has the same structure as the
+ * JSON, except each distinct set of dimensions is listed once, in <code>metrics.dimensions</code>, and referred to by
+ * its index from the <code>dimensions</code> of each value. Metrics responses carry an ETag, and a request with a
+ * matching <code>If-None-Match</code> gets 304 Not Modified, without content, until there is a new snapshot.
+ *
  * @author Simon Thoresen Hult
  */
 public class StateHandler extends AbstractRequestHandler implements CapabilityRequiringRequestHandler {
@@ -49,6 +58,8 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
     private static final ObjectMapper jsonMapper = Jackson.mapper();
 
     public static final String STATE_API_ROOT = "/state/v1";
+    public static final String SLIME_CONTENT_TYPE = "application/x-slime";
+    private static final String SLIME_FORMAT_QUERY = "format=slime";
     private static final String METRICS_PATH = "metrics";
     private static final String HISTOGRAMS_PATH = "metrics/histograms";
     private static final String CONFIG_GENERATION_PATH = "config";
@@ -105,45 +116,67 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
     public ContentChannel handleRequest(Request request, ResponseHandler handler) {
         List<ByteBuffer> input = new ArrayList<>();
         var respDisp = new ResponseDispatch() {
+            private Content content;
+
             @Override
             protected Response newResponse() {
-                Response response = new Response(Response.Status.OK);
-                response.headers().add(HttpHeaders.Names.CONTENT_TYPE, resolveContentType(request.getUri()));
+                content = buildContent(request);
+                Response response = new Response(content.status());
+                response.headers().add(HttpHeaders.Names.CONTENT_TYPE, content.type());
+                if (content.etag() != null)
+                    response.headers().add(HttpHeaders.Names.ETAG, content.etag());
                 return response;
             }
 
             @Override
             protected Iterable<ByteBuffer> responseContent() {
-                return Collections.singleton(buildContent(request.getUri(), input));
+                return content.data() == null ? List.of() : Collections.singleton(ByteBuffer.wrap(content.data()));
             }
         };
         return new MyContentChannel(input, () -> { respDisp.dispatch(handler); });
     }
 
-    private String resolveContentType(URI requestUri) {
-        if (resolvePath(requestUri).equals(HISTOGRAMS_PATH)) {
-            return "text/plain; charset=utf-8";
-        } else {
-            return "application/json";
-        }
-    }
-
-    private ByteBuffer buildContent(URI requestUri, List<ByteBuffer> input) {
+    private Content buildContent(Request request) {
+        URI requestUri = request.getUri();
         try {
             String suffix = resolvePath(requestUri);
             return switch (suffix) {
-                case "" -> ByteBuffer.wrap(apiLinks(requestUri));
-                case CONFIG_GENERATION_PATH -> ByteBuffer.wrap(toPrettyString(config));
-                case HISTOGRAMS_PATH -> ByteBuffer.wrap(buildHistogramsOutput());
-                case HEALTH_PATH, METRICS_PATH -> ByteBuffer.wrap(buildMetricOutput(suffix));
-                case VERSION_PATH -> ByteBuffer.wrap(buildVersionOutput());
-                default -> ByteBuffer.wrap(buildMetricOutput(suffix)); // XXX should possibly do something else here
+                case "" -> Content.json(apiLinks(requestUri));
+                case CONFIG_GENERATION_PATH -> Content.json(toPrettyString(config));
+                case HISTOGRAMS_PATH -> new Content(Response.Status.OK, "text/plain; charset=utf-8", buildHistogramsOutput(), null);
+                case HEALTH_PATH -> Content.json(buildMetricOutput(suffix, getSnapshot()));
+                case VERSION_PATH -> Content.json(buildVersionOutput());
+                default -> buildMetricContent(request, suffix); // XXX should possibly do something else here
             };
         } catch (JsonProcessingException e) {
             throw new RuntimeException("Bad JSON construction", e);
         }
     }
 
+    /** Returns the metrics for the given consumer, or nothing if the client already has the current snapshot. */
+    private Content buildMetricContent(Request request, String consumer) throws JsonProcessingException {
+        boolean slime = wantsSlime(request.getUri());
+        MetricSnapshot snapshot = getSnapshot();
+        StateMonitor.Status status = getStatus();
+        String etag = snapshot == null ? null
+                                       : "\"" + status.name() + "-" + snapshot.getToTime(TimeUnit.MILLISECONDS) + (slime ? "-slime\"" : "\"");
+        if (etag != null && etag.equals(request.headers().getFirst(HttpHeaders.Names.IF_NONE_MATCH)))
+            return new Content(Response.Status.NOT_MODIFIED, slime ? SLIME_CONTENT_TYPE : "application/json", null, etag);
+
+        return slime ? new Content(Response.Status.OK, SLIME_CONTENT_TYPE, buildSlimeForConsumer(consumer, status, snapshot), etag)
+                     : new Content(Response.Status.OK, "application/json", toPrettyString(buildJsonForConsumer(consumer, status, snapshot)), etag);
+    }
+
+    private static boolean wantsSlime(URI requestUri) {
+        String query = requestUri.getRawQuery();
+        if (query == null) return false;
+        for (String parameter : query.split("&"))
+            if (parameter.equals(SLIME_FORMAT_QUERY))
+                return true;
+
+        return false;
+    }
+
     private byte[] apiLinks(URI requestUri) throws JsonProcessingException {
         int port = requestUri.getPort();
         String host = requestUri.getHost();
@@ -192,8 +225,8 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
                 .put("version", Vtag.currentVersion.toString()));
     }
 
-    private byte[] buildMetricOutput(String consumer) throws JsonProcessingException {
-        return toPrettyString(buildJsonForConsumer(consumer));
+    private byte[] buildMetricOutput(String consumer, MetricSnapshot snapshot) throws JsonProcessingException {
+        return toPrettyString(buildJsonForConsumer(consumer, getStatus(), snapshot));
     }
 
     private byte[] buildHistogramsOutput() {
@@ -204,14 +237,76 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
         return baos.toByteArray();
     }
 
-    private ObjectNode buildJsonForConsumer(String consumer) {
+    private ObjectNode buildJsonForConsumer(String consumer, StateMonitor.Status status, MetricSnapshot snapshot) {
         ObjectNode ret = jsonMapper.createObjectNode();
         ret.put("time", timer.currentTimeMillis());
-        ret.set("status", jsonMapper.createObjectNode().put("code", getStatus().name()));
-        ret.set(METRICS_PATH, buildJsonForSnapshot(consumer, getSnapshot()));
+        ret.set("status", jsonMapper.createObjectNode().put("code", status.name()));
+        ret.set(METRICS_PATH, buildJsonForSnapshot(consumer, snapshot));
         return ret;
     }
 
+    private byte[] buildSlimeForConsumer(String consumer, StateMonitor.Status status, MetricSnapshot snapshot) {
+        Slime slime = new Slime();
+        Cursor root = slime.setObject();
+        root.setLong("time", timer.currentTimeMillis());
+        root.setObject("status").setString("code", status.name());
+        Cursor metrics = root.setObject(METRICS_PATH);
+        if (snapshot != null)
+            buildSlimeForSnapshot(consumer, snapshot, metrics);
+
+        return BinaryFormat.encode(slime);
+    }
+
+    /** Like {@link #buildJsonForSnapshot}, but with each distinct set of dimensions written only once. */
+    private static void buildSlimeForSnapshot(String consumer, MetricSnapshot metricSnapshot, Cursor metrics) {
+        Cursor snapshot = metrics.setObject("snapshot");
+        snapshot.setDouble("from", sanitizeDouble(metricSnapshot.getFromTime(TimeUnit.MILLISECONDS) / 1000.0));
+        snapshot.setDouble("to", sanitizeDouble(metricSnapshot.getToTime(TimeUnit.MILLISECONDS) / 1000.0));
+
+        boolean includeDimensions = !consumer.equals(HEALTH_PATH);
+        long periodInMillis = metricSnapshot.getToTime(TimeUnit.MILLISECONDS) -
+                              metricSnapshot.getFromTime(TimeUnit.MILLISECONDS);
+        Cursor dimensions = metrics.setArray("dimensions");
+        Map<MetricDimensions, Integer> dimensionIndices = new HashMap<>();
+        Cursor values = metrics.setArray("values");
+        for (Tuple tuple : collapseMetrics(metricSnapshot, consumer)) {
+            Cursor slimeTuple = values.addObject();
+            slimeTuple.setString("name", tuple.key);
+            Cursor valueFields = slimeTuple.setObject("values");
+            if (tuple.val instanceof CountMetric count) {
+                valueFields.setLong("count", count.getCount());
+                valueFields.setDouble("rate", sanitizeDouble(count.getCount() * 1000.0) / periodInMillis);
+            } else if (tuple.val instanceof GaugeMetric gauge) {
+                valueFields.setDouble("average", sanitizeDouble(gauge.getAverage()));
+                valueFields.setDouble("sum", sanitizeDouble(gauge.getSum()));
+                valueFields.setLong("count", gauge.getCount());
+                valueFields.setDouble("last", sanitizeDouble(gauge.getLast()));
+                valueFields.setDouble("max", sanitizeDouble(gauge.getMax()));
+                valueFields.setDouble("min", sanitizeDouble(gauge.getMin()));
+                valueFields.setDouble("rate", sanitizeDouble((gauge.getCount() * 1000.0) / periodInMillis));
+                if (gauge.getPercentiles().isPresent()) {
+                    for (Tuple2<String, Double> prefixAndValue : gauge.getPercentiles().get()) {
+                        valueFields.setDouble(prefixAndValue.first + "percentile", sanitizeDouble(prefixAndValue.second));
+                    }
+                }
+            } else {
+                throw new UnsupportedOperationException(tuple.val.getClass().getName());
+            }
+            if (tuple.dim != null && includeDimensions && tuple.dim.iterator().hasNext()) {
+                Integer index = dimensionIndices.get(tuple.dim);
+                if (index == null) {
+                    index = dimensions.entries();
+                    dimensionIndices.put(tuple.dim, index);
+                    Cursor slimeDim = dimensions.addObject();
+                    for (Map.Entry<String, String> entry : tuple.dim)
+                        if (entry.getValue() != null)
+                            slimeDim.setString(entry.getKey(), entry.getValue());
+                }
+                slimeTuple.setLong("dimensions", index);
+            }
+        }
+    }
+
     private MetricSnapshot getSnapshot() {
         return snapshotProvider.latestSnapshot();
     }
@@ -328,6 +423,15 @@ public class StateHandler extends AbstractRequestHandler implements CapabilityRe
                 .getBytes();
     }
 
+    /** The content of a response, with its status and type, and the ETag identifying it, if any. */
+    private record Content(int status, String type, byte[] data, String etag) {
+
+        static Content json(byte[] data) {
+            return new Content(Response.Status.OK, "application/json", data, null);
+        }
+
+    }
+
     static class Tuple {
 
         final MetricDimensions dim;
@@ -1,19 +1,28 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.logging;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.container.core.AccessLogConfig;
+import com.yahoo.jdisc.Metric;
 
 /**
+ * Writes access log entries to file from a separate thread. Entries are dropped, and counted in a metric,
+ * rather than blocking the request thread when that thread falls behind.
+ *
  * @author Bjorn Borud
  */
 class AccessLogHandler {
 
+    private static final String DROPPED_METRIC = ContainerMetrics.JDISC_HTTP_ACCESS_LOG_DROPPED.baseName();
+
     private final LogFileHandler<RequestLogEntry> logFileHandler;
+    private final Metric metric;
 
-    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter) {
+    AccessLogHandler(AccessLogConfig.FileHandler config, LogWriter<RequestLogEntry> logWriter, Metric metric) {
         logFileHandler = new LogFileHandler<>(
                 toCompression(config), config.bufferSize(), config.pattern(), config.rotation(),
                 config.symlink(), queueSize(config), "request-logger", logWriter);
+        this.metric = metric;
     }
 
     private static int queueSize(AccessLogConfig.FileHandler config) {
@@ -22,11 +31,13 @@ class AccessLogHandler {
     }
 
     public void log(RequestLogEntry entry) {
-        logFileHandler.publish(entry);
+        if ( ! logFileHandler.offer(entry))
+            metric.add(DROPPED_METRIC, 1, null);
     }
 
 
     private LogFileHandler.Compression toCompression(AccessLogConfig.FileHandler config) {
+        if (config.compressWhileWriting()) return LogFileHandler.Compression.ZSTD_STREAMING;
         if (!config.compressOnRotation()) return LogFileHandler.Compression.NONE;
         switch (config.compressionFormat()) {
             case ZSTD: return LogFileHandler.Compression.ZSTD;
@@ -32,6 +32,11 @@ public class JSONFormatter implements LogWriter<RequestLogEntry> {
 
     private final JsonFactory generatorFactory;
 
+    // The generator for the last output stream written to, which is reused for as long as the stream is,
+    // to avoid allocating a generator, with its buffers, per entry.
+    private OutputStream generatorTarget = null;
+    private JsonGenerator generator = null;
+
     private static final Logger logger = Logger.getLogger(JSONFormatter.class.getName());
 
     public JSONFormatter() {
@@ -39,8 +44,9 @@ public class JSONFormatter implements LogWriter<RequestLogEntry> {
     }
 
     @Override
-    public void write(RequestLogEntry entry, OutputStream outputStream) throws IOException {
-        try (JsonGenerator generator = createJsonGenerator(outputStream)){
+    public synchronized void write(RequestLogEntry entry, OutputStream outputStream) throws IOException {
+        try {
+            JsonGenerator generator = generatorFor(outputStream);
             generator.writeStartObject();
             String peerAddress = entry.peerAddress().get();
             generator.writeStringField("ip", peerAddress);
@@ -152,15 +158,30 @@ public class JSONFormatter implements LogWriter<RequestLogEntry> {
             }
 
             generator.writeEndObject();
+            generator.flush(); // Only to the output stream, which buffers further.
         } catch (IOException e) {
+            discardGenerator();
             logger.log(Level.WARNING, "Unable to generate JSON access log entry: " + e.getMessage(), e);
+        } catch (RuntimeException e) {
+            discardGenerator(); // It may be in the middle of an object.
+            throw e;
+        }
+    }
+
+    private JsonGenerator generatorFor(OutputStream outputStream) throws IOException {
+        if (generator == null || generatorTarget != outputStream) {
+            generator = generatorFactory.createGenerator(outputStream, JsonEncoding.UTF8)
+                                        .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
+                                        .configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false)
+                                        .setRootValueSeparator(null); // Entries are separated by the log file handler.
+            generatorTarget = outputStream;
         }
+        return generator;
     }
 
-    private JsonGenerator createJsonGenerator(OutputStream outputStream) throws IOException {
-        return generatorFactory.createGenerator(outputStream, JsonEncoding.UTF8)
-                .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
-                .configure(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM, false);
+    private void discardGenerator() {
+        generator = null;
+        generatorTarget = null;
     }
 
     private boolean remoteAddressDiffers(String ipV4Address, String remoteAddress) {
@@ -21,12 +21,12 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPOutputStream;
@@ -34,15 +34,21 @@ import java.util.zip.GZIPOutputStream;
 /**
  * Implements log file naming/rotating logic for container logs.
  *
+ * Records are passed to a single log thread through a lock-free ring buffer. Records which are
+ * {@link #offer offered} are dropped if the buffer is full, so logging never blocks the calling thread.
+ *
  * @author Bob Travis
  * @author bjorncs
  */
 class LogFileHandler <LOGTYPE> {
 
-    enum Compression {NONE, GZIP, ZSTD}
+    /** How to compress log files: after rotation, or, for {@link #ZSTD_STREAMING}, while they are written. */
+    enum Compression {NONE, GZIP, ZSTD, ZSTD_STREAMING}
 
     private final static Logger logger = Logger.getLogger(LogFileHandler.class.getName());
-    private final BlockingQueue<Operation<LOGTYPE>> logQueue;
+    private final RingBuffer<Operation<LOGTYPE>> logQueue;
+    private final LongAdder dropped = new LongAdder();
+    private volatile boolean logThreadWaiting = false;
     final LogThread<LOGTYPE> logThread;
 
     @FunctionalInterface private interface Pollable<T> { Operation<T> poll() throws InterruptedException; }
@@ -54,17 +60,31 @@ class LogFileHandler <LOGTYPE> {
 
     LogFileHandler(Compression compression, int bufferSize, String filePattern, long[] rotationTimes, String symlinkName,
                    int queueSize, String threadName, LogWriter<LOGTYPE> logWriter) {
-        this.logQueue = new LinkedBlockingQueue<>(queueSize);
+        this.logQueue = new RingBuffer<>(queueSize);
         this.logThread = new LogThread<>(logWriter, filePattern, compression, bufferSize, rotationTimes, symlinkName, threadName, this::poll);
         this.logThread.start();
     }
 
+    /** Returns the next operation, waiting up to 100ms for one. Called only by the log thread. */
     private Operation<LOGTYPE> poll() throws InterruptedException {
-        return logQueue.poll(100, TimeUnit.MILLISECONDS);
+        Operation<LOGTYPE> op = logQueue.poll();
+        if (op != null) return op;
+
+        // Producers unpark the log thread only when this is set, so it must be set before checking the queue again.
+        logThreadWaiting = true;
+        try {
+            if (logQueue.isEmpty())
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        finally {
+            logThreadWaiting = false;
+        }
+        if (Thread.interrupted()) throw new InterruptedException();
+        return logQueue.poll();
     }
 
     /**
-     * Sends logrecord to file, first rotating file if needed.
+     * Sends logrecord to file, first rotating file if needed, waiting for room in the queue if it is full.
      *
      * @param r logrecord to publish
      */
@@ -72,6 +92,27 @@ class LogFileHandler <LOGTYPE> {
         addOperation(new Operation<>(r));
     }
 
+    /**
+     * Sends logrecord to file, first rotating file if needed, unless the queue is full,
+     * in which case the record is dropped.
+     *
+     * @param r logrecord to publish
+     * @return whether the record was queued
+     */
+    boolean offer(LOGTYPE r) {
+        if (logQueue.offer(new Operation<>(r))) {
+            wakeLogThread();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    /** Returns the number of records dropped by {@link #offer} since this was created. */
+    long droppedCount() {
+        return dropped.sum();
+    }
+
     void publishAndWait(LOGTYPE r) {
         addOperationAndWait(new Operation<>(r));
     }
@@ -91,21 +132,29 @@ class LogFileHandler <LOGTYPE> {
         addOperationAndWait(new Operation<>(Operation.Type.close));
     }
 
-    private void addOperation(Operation<LOGTYPE> op) {
-        try {
-            logQueue.put(op);
-        } catch (InterruptedException e) {
+    private boolean addOperation(Operation<LOGTYPE> op) {
+        while ( ! logQueue.offer(op)) {
+            if ( ! logThread.isAlive() || Thread.currentThread().isInterrupted()) return false;
+            wakeLogThread();
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
         }
+        wakeLogThread();
+        return true;
     }
 
     private void addOperationAndWait(Operation<LOGTYPE> op) {
         try {
-            logQueue.put(op);
-            op.countDownLatch.await();
+            if (addOperation(op))
+                op.countDownLatch.await();
         } catch (InterruptedException e) {
         }
     }
 
+    private void wakeLogThread() {
+        if (logThreadWaiting)
+            LockSupport.unpark(logThread);
+    }
+
     /**
      * Flushes all queued messages, interrupts the log thread in this and
      * waits for it to end before returning
@@ -353,11 +402,12 @@ class LogFileHandler <LOGTYPE> {
 
             String oldFileName = fileName;
             long now = System.currentTimeMillis();
-            fileName = LogFormatter.insertDate(filePattern, now);
+            fileName = LogFormatter.insertDate(filePattern, now) + (compression == Compression.ZSTD_STREAMING ? ".zst" : "");
             internalClose();
             try {
                 checkAndCreateDir(fileName);
-                fileOutput = new PageCacheFriendlyFileOutputStream(nativeIO, Paths.get(fileName), bufferSize);
+                fileOutput = new PageCacheFriendlyFileOutputStream(nativeIO, Paths.get(fileName), bufferSize,
+                                                                   compression == Compression.ZSTD_STREAMING);
                 LogFileDb.nowLoggingTo(fileName);
             } catch (IOException e) {
                 throw new RuntimeException("Couldn't open log file '" + fileName + "'", e);
@@ -377,6 +427,8 @@ class LogFileHandler <LOGTYPE> {
 
 
         private static void runCompression(NativeIO nativeIO, Path oldFile, Compression compression) {
+            String name = oldFile.getFileName().toString();
+            if (name.endsWith(".zst") || name.endsWith(".gz")) compression = Compression.NONE; // Already compressed.
             switch (compression) {
                 case ZSTD:
                     runCompressionZstd(nativeIO, oldFile);
@@ -385,6 +437,7 @@ class LogFileHandler <LOGTYPE> {
                     runCompressionGzip(nativeIO, oldFile);
                     break;
                 case NONE:
+                case ZSTD_STREAMING:
                     runCompressionNone(nativeIO, oldFile);
                     break;
                 default:
@@ -501,29 +554,41 @@ class LogFileHandler <LOGTYPE> {
         }
     }
 
-    /** File output stream that signals to kernel to drop previous pages after write */
+    /**
+     * File output stream that signals to kernel to drop previous pages after write.
+     * When compressing, each flush of buffered data writes a complete zstd frame, and a file of
+     * concatenated frames is a valid zstd file, also when appended to after a restart.
+     */
     private static class PageCacheFriendlyFileOutputStream extends OutputStream {
 
         private final NativeIO nativeIO;
         private final FileOutputStream fileOut;
-        private final BufferedOutputStream bufferedOut;
+        private final OutputStream bufferedOut;
         private final int bufferSize;
         private long lastDropPosition = 0;
+        private boolean dirty = false; // Whether anything was written since the last flush, to avoid writing empty frames.
 
-        PageCacheFriendlyFileOutputStream(NativeIO nativeIO, Path file, int bufferSize) throws FileNotFoundException {
+        PageCacheFriendlyFileOutputStream(NativeIO nativeIO, Path file, int bufferSize, boolean compress) throws FileNotFoundException {
             this.nativeIO = nativeIO;
             this.fileOut = new FileOutputStream(file.toFile(), true);
-            this.bufferedOut = new BufferedOutputStream(fileOut, bufferSize);
+            this.bufferedOut = compress ? new ZstdOutputStream(fileOut, bufferSize) : new BufferedOutputStream(fileOut, bufferSize);
             this.bufferSize = bufferSize;
         }
 
-        @Override public void write(byte[] b) throws IOException { bufferedOut.write(b); }
-        @Override public void write(byte[] b, int off, int len) throws IOException { bufferedOut.write(b, off, len); }
-        @Override public void write(int b) throws IOException { bufferedOut.write(b); }
-        @Override public void close() throws IOException { bufferedOut.close(); }
+        @Override public void write(byte[] b) throws IOException { dirty = true; bufferedOut.write(b); }
+        @Override public void write(byte[] b, int off, int len) throws IOException { dirty = true; bufferedOut.write(b, off, len); }
+        @Override public void write(int b) throws IOException { dirty = true; bufferedOut.write(b); }
+
+        @Override
+        public void close() throws IOException {
+            if (dirty) bufferedOut.close();
+            else fileOut.close();
+        }
 
         @Override
         public void flush() throws IOException {
+            if ( ! dirty) return;
+            dirty = false;
             bufferedOut.flush();
             long newPos = fileOut.getChannel().position();
             if (newPos >= lastDropPosition + bufferSize) {
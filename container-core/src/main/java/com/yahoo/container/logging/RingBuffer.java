@@ -0,0 +1,85 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free queue for many producers and a single consumer, backed by an array.
+ * Offering to the queue never blocks, and does not allocate, so it is cheap to do from request threads;
+ * when the queue is full, the offer fails instead.
+ *
+ * Each slot has a sequence number, which tells whether the slot is free for the producer which claimed
+ * the position of it, or holds an element for the consumer, so producers only contend on claiming positions.
+ */
+class RingBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<T> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0); // The next position to claim for producers.
+    private volatile long head = 0; // The next position to poll, written only by the consumer.
+
+    /** Creates a new ring buffer with room for at least the given number of elements. */
+    RingBuffer(int minimumCapacity) {
+        if (minimumCapacity < 1) throw new IllegalArgumentException("Capacity must be positive, but was " + minimumCapacity);
+        if (minimumCapacity > 1 << 30) throw new IllegalArgumentException("Capacity must be at most 2^30, but was " + minimumCapacity);
+        this.capacity = Math.max(2, Integer.highestOneBit(minimumCapacity - 1) << 1); // A power of two, and at least 2, for the sequences to work.
+        this.mask = capacity - 1;
+        this.elements = new AtomicReferenceArray<>(capacity);
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++)
+            sequences.set(i, i);
+    }
+
+    /** Adds the given element to this, if there is room for it, and returns whether it was added. May be called by any thread. */
+    boolean offer(T element) {
+        if (element == null) throw new NullPointerException("Element can not be null");
+        while (true) {
+            long position = tail.get();
+            int index = (int) position & mask;
+            long difference = sequences.getAcquire(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    elements.setPlain(index, element);
+                    sequences.setRelease(index, position + 1); // Publishes the element to the consumer.
+                    return true;
+                }
+            }
+            else if (difference < 0) {
+                return false; // The consumer has not yet polled the element in this slot from the previous lap.
+            }
+            // Otherwise, another producer claimed this position first, so try the next.
+        }
+    }
+
+    /** Removes and returns the oldest element in this, or returns null if this is empty. Must only be called by a single thread. */
+    T poll() {
+        long position = head;
+        int index = (int) position & mask;
+        if (sequences.getAcquire(index) != position + 1)
+            return null; // Not yet published.
+
+        T element = elements.getPlain(index);
+        elements.setPlain(index, null);
+        sequences.setRelease(index, position + capacity); // Frees the slot for the producer of the next lap.
+        head = position + 1;
+        return element;
+    }
+
+    /** Returns whether this has no elements which are ready to be polled. */
+    boolean isEmpty() {
+        long position = head;
+        return sequences.getAcquire((int) position & mask) != position + 1;
+    }
+
+    /** Returns the approximate number of elements in this. */
+    int size() {
+        return (int) Math.max(0, Math.min(capacity, tail.get() - head));
+    }
+
+    int capacity() { return capacity; }
+
+}
@@ -144,6 +144,9 @@ public class JettyHttpServer extends AbstractResource implements ServerProvider
             if (connectorCfg.tlsClientAuthEnforcer().enable()) {
                 connectorChain.add(newTlsClientAuthEnforcerHandler(connectorCfg));
             }
+            if (connectorCfg.compression().zstd().enabled()) {
+                connectorChain.add(new ResponseCompressionHandler(connector));
+            }
             if (connectorCfg.healthCheckProxy().enable()) {
                 connectorChain.add(newHealthCheckProxyHandler(connectors));
             } else {
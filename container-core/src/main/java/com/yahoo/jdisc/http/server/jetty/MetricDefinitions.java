@@ -30,6 +30,8 @@ class MetricDefinitions {
 
     static final String NUM_BYTES_RECEIVED = ContainerMetrics.SERVER_BYTES_RECEIVED.baseName();
     static final String NUM_BYTES_SENT     = ContainerMetrics.SERVER_BYTES_SENT.baseName();
+    static final String COMPRESSION_RAW_BYTES = ContainerMetrics.JDISC_HTTP_COMPRESSION_RAW_BYTES.baseName();
+    static final String COMPRESSION_COMPRESSED_BYTES = ContainerMetrics.JDISC_HTTP_COMPRESSION_COMPRESSED_BYTES.baseName();
 
     static final String NUM_CONNECTIONS = ContainerMetrics.SERVER_NUM_CONNECTIONS.baseName();
 
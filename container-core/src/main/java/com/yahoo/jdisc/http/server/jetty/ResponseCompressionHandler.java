@@ -0,0 +1,205 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import com.yahoo.compress.ZstdCompressor;
+import com.yahoo.jdisc.Metric;
+import com.yahoo.jdisc.http.ConnectorConfig;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.eclipse.jetty.http.HttpFields;
+import org.eclipse.jetty.http.HttpHeader;
+import org.eclipse.jetty.server.HttpChannel;
+import org.eclipse.jetty.server.HttpOutput;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Response;
+import org.eclipse.jetty.server.handler.HandlerWrapper;
+import org.eclipse.jetty.util.BufferUtil;
+import org.eclipse.jetty.util.Callback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Jetty handler which compresses responses with zstd for clients which accept that encoding.
+ * Other responses are left to the gzip handler, which does not compress responses with a content encoding.
+ *
+ * Content is compressed in chunks of a configured size, where each chunk becomes one zstd frame, and a flush
+ * of the response ends the current frame. Chunks are compressed in the Jetty thread pool, rather than in the
+ * thread writing the response, and the compressed chunk is then written by that pool thread.
+ */
+class ResponseCompressionHandler extends HandlerWrapper {
+
+    static final String ZSTD = "zstd";
+
+    private static final Set<String> COMPRESSED_METHODS = Set.of("GET", "POST", "PUT", "PATCH");
+
+    private final int minResponseSize;
+    private final int chunkSize;
+    private final Metric.Context metricContext;
+    private final LongAdder rawBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+
+    ResponseCompressionHandler(JDiscServerConnector connector) {
+        ConnectorConfig.Compression config = connector.connectorConfig().compression();
+        if ( ! config.zstd().enabled()) throw new IllegalArgumentException();
+        this.minResponseSize = config.minResponseSize();
+        this.chunkSize = config.chunkSize();
+        this.metricContext = connector.getConnectorMetricContext();
+    }
+
+    @Override
+    public void handle(String target, Request request, HttpServletRequest servletRequest, HttpServletResponse servletResponse) throws IOException, ServletException {
+        if (COMPRESSED_METHODS.contains(request.getMethod()) && acceptsZstd(request.getHeader(HttpHeader.ACCEPT_ENCODING.asString()))) {
+            HttpOutput out = request.getResponse().getHttpOutput();
+            out.setInterceptor(new ZstdInterceptor(request.getHttpChannel(), out.getInterceptor()));
+        }
+        _handler.handle(target, request, servletRequest, servletResponse);
+    }
+
+    /** Reports the number of response bytes before and after compression since the last call to this. */
+    void reportMetrics(Metric metric) {
+        metric.add(MetricDefinitions.COMPRESSION_RAW_BYTES, rawBytes.sumThenReset(), metricContext);
+        metric.add(MetricDefinitions.COMPRESSION_COMPRESSED_BYTES, compressedBytes.sumThenReset(), metricContext);
+    }
+
+    /** Returns whether the given accept-encoding header value lists zstd with a non-zero quality. */
+    static boolean acceptsZstd(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            if ( ! parts[0].trim().equalsIgnoreCase(ZSTD)) continue;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                    try {
+                        return Double.parseDouble(parameter.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private enum State { UNDECIDED, COMPRESSING, NOT_COMPRESSING }
+
+    /**
+     * Compresses the content written to it, and writes the result to the next interceptor. Writes are never
+     * concurrent, as the servlet output does not write again until the callback of the previous write completes.
+     */
+    private class ZstdInterceptor implements HttpOutput.Interceptor {
+
+        private final HttpChannel channel;
+        private final HttpOutput.Interceptor next;
+        private final ZstdCompressor compressor = new ZstdCompressor();
+        private State state = State.UNDECIDED;
+        private byte[] input;
+        private int inputLength = 0;
+        private byte[] output = new byte[0]; // Reused, as the next write happens only after the previous completed.
+
+        ZstdInterceptor(HttpChannel channel, HttpOutput.Interceptor next) {
+            this.channel = channel;
+            this.next = next;
+        }
+
+        @Override
+        public HttpOutput.Interceptor getNextInterceptor() { return next; }
+
+        @Override
+        public void write(ByteBuffer content, boolean last, Callback callback) {
+            if (state == State.UNDECIDED)
+                state = decide(content, last);
+
+            if (state == State.NOT_COMPRESSING) {
+                next.write(content, last, callback);
+                return;
+            }
+
+            boolean flush = ! content.hasRemaining();
+            if ( ! last && ! flush && inputLength + content.remaining() < input.length) {
+                append(content); // Not enough for a chunk yet, so just copy it.
+                callback.succeeded();
+                return;
+            }
+
+            Runnable compression = () -> compressAndWrite(content, last, callback);
+            try {
+                Executor executor = channel.getConnector().getExecutor();
+                executor.execute(compression);
+            } catch (RejectedExecutionException e) {
+                compression.run();
+            }
+        }
+
+        private State decide(ByteBuffer content, boolean last) {
+            Response response = channel.getResponse();
+            HttpFields.Mutable fields = response.getHttpFields();
+            int status = response.getStatus();
+            if (status < 200 || status == 204 || status == 205 || status == 304) return State.NOT_COMPRESSING;
+            if (fields.contains(HttpHeader.CONTENT_ENCODING)) return State.NOT_COMPRESSING;
+            long contentLength = response.getContentLength();
+            if (contentLength >= 0 && contentLength < minResponseSize) return State.NOT_COMPRESSING;
+            if (last && content.remaining() < minResponseSize) return State.NOT_COMPRESSING;
+
+            fields.put(HttpHeader.CONTENT_ENCODING, ZSTD);
+            if ( ! fields.contains(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString()))
+                fields.add(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+            response.setContentLength(-1);
+            fields.remove(HttpHeader.CONTENT_LENGTH);
+            String etag = fields.get(HttpHeader.ETAG);
+            if (etag != null && ! etag.startsWith("W/")) // The compressed representation is only weakly equal to the raw one.
+                fields.put(HttpHeader.ETAG, "W/" + etag);
+            input = new byte[chunkSize];
+            return State.COMPRESSING;
+        }
+
+        private void compressAndWrite(ByteBuffer content, boolean last, Callback callback) {
+            try {
+                int outputLength = 0;
+                boolean flush = ! content.hasRemaining();
+                while (content.hasRemaining()) {
+                    append(content);
+                    if (inputLength == input.length)
+                        outputLength = compressInput(outputLength);
+                }
+                if ((last || flush) && inputLength > 0)
+                    outputLength = compressInput(outputLength);
+
+                if (outputLength == 0 && ! last && ! flush)
+                    callback.succeeded();
+                else
+                    next.write(outputLength == 0 ? BufferUtil.EMPTY_BUFFER : ByteBuffer.wrap(output, 0, outputLength), last, callback);
+            } catch (Throwable t) {
+                callback.failed(t);
+            }
+        }
+
+        private void append(ByteBuffer content) {
+            int length = Math.min(content.remaining(), input.length - inputLength);
+            content.get(input, inputLength, length);
+            inputLength += length;
+        }
+
+        /** Compresses the buffered input to a frame at the given offset in the output, and returns the new output length. */
+        private int compressInput(int outputOffset) {
+            int maxLength = ZstdCompressor.getMaxCompressedLength(inputLength);
+            if (output.length < outputOffset + maxLength)
+                output = Arrays.copyOf(output, Math.max(outputOffset + maxLength, 2 * output.length));
+            int compressedLength = compressor.compress(input, 0, inputLength, output, outputOffset, maxLength);
+            rawBytes.add(inputLength);
+            compressedBytes.add(compressedLength);
+            inputLength = 0;
+            return outputOffset + compressedLength;
+        }
+
+    }
+
+}
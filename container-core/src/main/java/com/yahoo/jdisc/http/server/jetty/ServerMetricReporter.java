@@ -5,6 +5,7 @@ import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.jdisc.Metric;
 import org.eclipse.jetty.io.ConnectionStatistics;
 import org.eclipse.jetty.server.Connector;
+import org.eclipse.jetty.server.Handler;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.handler.AbstractHandlerContainer;
 import org.eclipse.jetty.server.handler.StatisticsHandler;
@@ -64,6 +65,9 @@ class ServerMetricReporter {
             for (Connector connector : jetty.getConnectors()) {
                 setConnectorMetrics((JDiscServerConnector)connector);
             }
+            for (Handler handler : jetty.getChildHandlersByClass(ResponseCompressionHandler.class)) {
+                ((ResponseCompressionHandler) handler).reportMetrics(metric);
+            }
 
             setJettyThreadpoolMetrics();
         }
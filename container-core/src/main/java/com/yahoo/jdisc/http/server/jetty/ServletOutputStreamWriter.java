@@ -10,10 +10,11 @@ import org.eclipse.jetty.server.HttpOutput;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -21,6 +22,11 @@ import java.util.logging.Logger;
 import static com.yahoo.jdisc.http.server.jetty.CompletionHandlerUtils.NOOP_COMPLETION_HANDLER;
 
 /**
+ * Writes response content to a servlet output stream, in the thread which made writing possible.
+ *
+ * Content parts are queued without locking. A thread which queues a part only takes the monitor when it may have to
+ * change the state, that is, when no thread is writing or waiting for the output stream to become ready.
+ *
  * @author Tony Vaagenes
  * @author bjorncs
  */
@@ -50,15 +56,15 @@ class ServletOutputStreamWriter {
 
     private final Object monitor = new Object();
 
-    // GuardedBy("monitor")
-    private State state = State.NOT_STARTED;
+    // Written while holding monitor, but read without it when queueing content.
+    private volatile State state = State.NOT_STARTED;
 
     // GuardedBy("state")
     private final ServletOutputStream outputStream;
     private final Janitor janitor;
 
-    // GuardedBy("monitor")
-    private final Deque<ResponseContentPart> responseContentQueue = new ArrayDeque<>();
+    // Polled only while holding monitor, so each part is written or failed exactly once.
+    private final Queue<ResponseContentPart> responseContentQueue = new ConcurrentLinkedQueue<>();
 
     private final RequestMetricReporter metricReporter;
 
@@ -81,12 +87,17 @@ class ServletOutputStreamWriter {
         boolean thisThreadShouldWrite = false;
         Throwable registrationFailure = null;
 
+        if (state == State.FINISHED_OR_ERROR) {
+            janitor.scheduleTask(() ->  handler.failed(new IllegalStateException("ContentChannel already closed.")));
+            return;
+        }
+        responseContentQueue.add(new ResponseContentPart(buf, handler));
+        State current = state;
+        if (current == State.WRITING_BUFFERS || current == State.WAITING_FOR_WRITE_POSSIBLE_CALLBACK) {
+            return; // The writing thread, or the next write listener callback, will write the part. See writeBuffersInQueueToOutputStream.
+        }
+
         synchronized (monitor) {
-            if (state == State.FINISHED_OR_ERROR) {
-                janitor.scheduleTask(() ->  handler.failed(new IllegalStateException("ContentChannel already closed.")));
-                return;
-            }
-            responseContentQueue.addLast(new ResponseContentPart(buf, handler));
             switch (state) {
                 case NOT_STARTED:
                     try {
@@ -111,6 +122,11 @@ class ServletOutputStreamWriter {
                     thisThreadShouldWrite = true;
                     state = State.WRITING_BUFFERS;
                     break;
+                case FINISHED_OR_ERROR: // Finished after the part was queued, and perhaps also after the queue was failed.
+                    if ( ! responseContentQueue.isEmpty()) {
+                        failAllParts_holdingLock(new IllegalStateException("ContentChannel already closed."));
+                    }
+                    break;
                 default:
                     throw new IllegalStateException("Invalid state " + state);
             }
@@ -149,11 +165,16 @@ class ServletOutputStreamWriter {
                     return;
                 }
 
-                contentPart = responseContentQueue.pollFirst();
+                contentPart = responseContentQueue.poll();
 
                 if (contentPart == null && lastOperationWasFlush) {
                     state = State.WAITING_FOR_BUFFER;
-                    return;
+                    // A part queued before the state changed may have been queued by a thread which saw WRITING_BUFFERS.
+                    if (responseContentQueue.isEmpty()) {
+                        return;
+                    }
+                    state = State.WRITING_BUFFERS;
+                    contentPart = responseContentQueue.poll();
                 }
             }
 
@@ -198,8 +219,10 @@ class ServletOutputStreamWriter {
     private void failAllParts_holdingLock(Throwable e) {
         assert Thread.holdsLock(monitor);
 
-        ArrayList<ResponseContentPart> failedParts = new ArrayList<>(responseContentQueue);
-        responseContentQueue.clear();
+        List<ResponseContentPart> failedParts = new ArrayList<>();
+        for (ResponseContentPart part; (part = responseContentQueue.poll()) != null; ) {
+            failedParts.add(part);
+        }
 
         @SuppressWarnings("ThrowableInstanceNeverThrown")
         RuntimeException failReason = new RuntimeException("Failing due to earlier ServletOutputStream write failure", e);
@@ -218,6 +241,8 @@ class ServletOutputStreamWriter {
             try {
                 if (buffer.hasArray()) {
                     outputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                } else if (outputStream instanceof HttpOutput out) {
+                    out.write(buffer); // Writes direct buffers without copying them to the heap first.
                 } else {
                     final byte[] array = new byte[buffer.remaining()];
                     buffer.get(array);
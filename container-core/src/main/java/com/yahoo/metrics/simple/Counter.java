@@ -60,6 +60,26 @@ public class Counter {
         metricReceiver.update(new Sample(new Measurement(n), new Identifier(name, p), AssumedType.COUNTER));
     }
 
+    /**
+     * Resolve this counter at its default position, see {@link #handle(Point)}.
+     *
+     * @return a handle for adding to this counter at its default position
+     */
+    public Handle handle() {
+        return handle(defaultPosition);
+    }
+
+    /**
+     * Resolve this counter at the given point, once, for adding to it later. Adding through
+     * the returned handle is lock-free, and allocates nothing, and is thus preferable on hot paths.
+     *
+     * @param p the point in the metric space at which to add to the metric
+     * @return a handle for adding to this counter at the given point
+     */
+    public Handle handle(Point p) {
+        return new Handle(metricReceiver.cells().retainedCounter(name, p));
+    }
+
     /**
      * Create a PointBuilder with default dimension values as given when this
      * counter was declared.
@@ -70,4 +90,31 @@ public class Counter {
     public PointBuilder builder() {
         return new PointBuilder(defaultPosition);
     }
+
+    /** A counter resolved at a single point. Thread-safe. */
+    @Beta
+    public static final class Handle {
+
+        private final MetricCells.CounterCell cell;
+
+        Handle(MetricCells.CounterCell cell) {
+            this.cell = cell;
+        }
+
+        /** Increase the counter at this point by 1. */
+        public void add() {
+            cell.add(1L);
+        }
+
+        /**
+         * Add to the counter at this point.
+         *
+         * @param n the amount by which to increase this counter
+         */
+        public void add(long n) {
+            cell.add(n);
+        }
+
+    }
+
 }
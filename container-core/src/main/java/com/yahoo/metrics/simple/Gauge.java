@@ -46,6 +46,27 @@ public class Gauge {
         receiver.update(new Sample(new Measurement(x), new Identifier(name, p), AssumedType.GAUGE));
     }
 
+    /**
+     * Resolve this gauge at its default position, see {@link #handle(Point)}.
+     *
+     * @return a handle for sampling this gauge at its default position
+     */
+    public Handle handle() {
+        return handle(defaultPosition);
+    }
+
+    /**
+     * Resolve this gauge at the given position, once, for sampling it later. Sampling through
+     * the returned handle is lock-free, and allocates nothing, and is thus preferable on hot paths.
+     * Histograms are recorded concurrently, and merged when a snapshot is taken.
+     *
+     * @param p position/dimension values for the samples
+     * @return a handle for sampling this gauge at the given position
+     */
+    public Handle handle(Point p) {
+        return new Handle(receiver.cells().retainedGauge(name, p, receiver.getMetricDefinition(name)));
+    }
+
     /**
      * Create a PointBuilder with the default dimension values reflecting those
      * given when this gauge was declared.
@@ -55,4 +76,26 @@ public class Gauge {
     public PointBuilder builder() {
         return new PointBuilder(defaultPosition);
     }
+
+    /** A gauge resolved at a single position. Thread-safe. */
+    @Beta
+    public static final class Handle {
+
+        private final MetricCells.GaugeCell cell;
+
+        Handle(MetricCells.GaugeCell cell) {
+            this.cell = cell;
+        }
+
+        /**
+         * Record a sample at this position.
+         *
+         * @param x sample value
+         */
+        public void sample(double x) {
+            cell.sample(x);
+        }
+
+    }
+
 }
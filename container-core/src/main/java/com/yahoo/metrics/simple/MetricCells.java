@@ -0,0 +1,231 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.metrics.simple;
+
+import org.HdrHistogram.DoubleHistogram;
+import org.HdrHistogram.DoubleRecorder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The cells of metrics which are updated concurrently from all threads, instead of through
+ * thread local {@link Bucket}s. A cell is resolved once per metric name and point, after which
+ * updating it is lock-free and allocation-free. The {@link MetricAggregator} drains all cells
+ * into the bucket of each interval.
+ *
+ * Cells are keyed first on name, then on point, so looking up an existing cell does not
+ * require creating an {@link Identifier}.
+ *
+ * A metric which is used both as a counter and as a gauge keeps the type it was first used as,
+ * and updates of the other type are discarded, like mismatching buckets are when merged.
+ *
+ * Cells which are not updated over a given number of intervals, at least a whole report period, are removed,
+ * so points which are no longer used, e.g., with dimensions of requests long gone, are not kept, and drained,
+ * forever. Updates which race with the removal are kept, as a removed cell is drained also once more, at the
+ * next interval.
+ * Cells of handles, see {@link #retainedCounter} and {@link #retainedGauge}, are never removed.
+ */
+class MetricCells {
+
+    private static final Logger log = Logger.getLogger(MetricCells.class.getName());
+
+    /** The number of drains in the default report period, which is 60 seconds, drained every second */
+    private static final int defaultIdleDrainsBeforeRemoval = 60;
+
+    private final Map<String, Map<Point, Cell>> cells = new ConcurrentHashMap<>();
+    private final Set<String> mismatched = ConcurrentHashMap.newKeySet();
+    private final int idleDrainsBeforeRemoval;
+
+    /** The cells removed at the last drain, which are drained once more by the next */
+    private List<RemovedCell> removed = List.of();
+
+    MetricCells() {
+        this(defaultIdleDrainsBeforeRemoval);
+    }
+
+    /** Creates cells which are removed at the first drain after they had nothing recorded over the given number of drains */
+    MetricCells(int idleDrainsBeforeRemoval) {
+        if (idleDrainsBeforeRemoval < 1)
+            throw new IllegalArgumentException("Cells must be idle for at least one drain before they are removed, but got " +
+                                               idleDrainsBeforeRemoval);
+        this.idleDrainsBeforeRemoval = idleDrainsBeforeRemoval;
+    }
+
+    /** Returns the counter cell for the given metric name and point, which is created if needed. */
+    CounterCell counter(String name, Point point) {
+        Cell cell = cell(name, point, true, null);
+        if (cell instanceof CounterCell counter) return counter;
+
+        warnMismatch(name, "counter");
+        return new CounterCell();
+    }
+
+    /** Returns the gauge cell for the given metric name and point, which is created with the given settings if needed. */
+    GaugeCell gauge(String name, Point point, MetricSettings settings) {
+        Cell cell = cell(name, point, false, settings);
+        if (cell instanceof GaugeCell gauge) return gauge;
+
+        warnMismatch(name, "gauge");
+        return new GaugeCell(settings);
+    }
+
+    /** Returns the counter cell for the given metric name and point, which is never removed, for a handle. */
+    CounterCell retainedCounter(String name, Point point) {
+        CounterCell cell;
+        do cell = counter(name, point);
+        while ( ! cell.retain()); // Removed as this was called
+        return cell;
+    }
+
+    /** Returns the gauge cell for the given metric name and point, which is never removed, for a handle. */
+    GaugeCell retainedGauge(String name, Point point, MetricSettings settings) {
+        GaugeCell cell;
+        do cell = gauge(name, point, settings);
+        while ( ! cell.retain()); // Removed as this was called
+        return cell;
+    }
+
+    private void warnMismatch(String name, String type) {
+        if (mismatched.add(name))
+            log.log(Level.WARNING, "Metric '" + name + "' is used with different types, discarding updates to it as a " + type);
+    }
+
+    private Cell cell(String name, Point point, boolean counter, MetricSettings settings) {
+        if (name == null) name = "";
+        if (point == null) point = Point.emptyPoint();
+        Map<Point, Cell> byPoint = cells.get(name);
+        if (byPoint == null)
+            byPoint = cells.computeIfAbsent(name, __ -> new ConcurrentHashMap<>());
+        Cell cell = byPoint.get(point);
+        if (cell == null) // Only allocate the creating function when a cell is missing.
+            cell = byPoint.computeIfAbsent(point, __ -> counter ? new CounterCell() : new GaugeCell(settings));
+        return cell;
+    }
+
+    /**
+     * Returns a bucket with everything recorded in all cells since the last call to this,
+     * and removes the cells which had nothing recorded over the configured number of calls before that.
+     */
+    synchronized Bucket drain() {
+        Bucket late = new Bucket();
+        for (RemovedCell cell : removed) {
+            UntypedMetric drained = cell.cell.drain();
+            if (drained != null)
+                late.put(cell.id, drained);
+        }
+
+        Bucket bucket = new Bucket();
+        List<RemovedCell> removedNow = new ArrayList<>();
+        cells.forEach((name, byPoint) -> byPoint.forEach((point, cell) -> {
+            UntypedMetric drained = cell.drain();
+            if (drained != null) {
+                bucket.put(new Identifier(name, point), drained);
+                cell.idleDrains = 0;
+            }
+            else if (cell.idleDrains >= idleDrainsBeforeRemoval && cell.remove()) {
+                byPoint.remove(point, cell);
+                removedNow.add(new RemovedCell(new Identifier(name, point), cell));
+            }
+            else if (cell.idleDrains < idleDrainsBeforeRemoval) {
+                cell.idleDrains++;
+            }
+        }));
+        removed = removedNow;
+        bucket.merge(late, false);
+        return bucket;
+    }
+
+    /** Returns the number of cells in this */
+    int size() {
+        return cells.values().stream().mapToInt(Map::size).sum();
+    }
+
+    private record RemovedCell(Identifier id, Cell cell) { }
+
+    abstract static class Cell {
+
+        private static final int ACTIVE = 0, RETAINED = 1, REMOVED = 2;
+
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+
+        /** The number of drains in a row where nothing was recorded in this. Accessed only when draining. */
+        private int idleDrains = 0;
+
+        /** Marks this as used by a handle, so it is never removed, unless it is already removed, and returns whether it was not */
+        boolean retain() {
+            return state.compareAndSet(ACTIVE, RETAINED) || state.get() == RETAINED;
+        }
+
+        /** Marks this as removed, unless it is used by a handle, and returns whether it was marked */
+        boolean remove() {
+            return state.compareAndSet(ACTIVE, REMOVED);
+        }
+
+        /** Returns what was recorded since the last call to this, and resets this, or returns null if nothing was. */
+        abstract UntypedMetric drain();
+
+    }
+
+    static class CounterCell extends Cell {
+
+        private final LongAdder sum = new LongAdder();
+        private final LongAdder updates = new LongAdder();
+
+        void add(long n) {
+            sum.add(n);
+            updates.increment();
+        }
+
+        @Override
+        UntypedMetric drain() {
+            if (updates.sumThenReset() == 0) return null;
+            return UntypedMetric.counter(sum.sumThenReset());
+        }
+
+    }
+
+    static class GaugeCell extends Cell {
+
+        private final MetricSettings settings;
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final DoubleAccumulator max = new DoubleAccumulator(Math::max, Double.NEGATIVE_INFINITY);
+        private final DoubleAccumulator min = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        private final DoubleRecorder histogram; // Lock-free for concurrent writers, and reset when read.
+        private volatile double last;
+
+        GaugeCell(MetricSettings settings) {
+            this.settings = settings;
+            this.histogram = settings != null && settings.isHistogram() ? new DoubleRecorder(settings.getSignificantdigits()) : null;
+        }
+
+        void sample(double x) {
+            last = x;
+            sum.add(x);
+            max.accumulate(x);
+            min.accumulate(x);
+            if (histogram != null)
+                histogram.recordValue(x);
+            count.increment(); // Last, so a drain which sees this count also sees the other values.
+        }
+
+        @Override
+        UntypedMetric drain() {
+            long samples = count.sumThenReset();
+            if (samples == 0) return null;
+            DoubleHistogram interval = histogram == null ? null : histogram.getIntervalHistogram();
+            return UntypedMetric.gauge(settings, samples, sum.sumThenReset(), min.getThenReset(), max.getThenReset(), last, interval);
+        }
+
+    }
+
+}
@@ -22,6 +22,7 @@ public class MetricReceiver {
 
     public static final MetricReceiver nullImplementation = new NullReceiver();
     private final ThreadLocalDirectory<Bucket, Sample> metricsCollection;
+    private final MetricCells cells;
 
     // A reference to the current snapshot. The *reference* is shared with MetricsAggregator and updated from there :-/
     private final AtomicReference<Bucket> currentSnapshot;
@@ -31,8 +32,14 @@ public class MetricReceiver {
     private volatile Map<String, MetricSettings> metricSettings;
 
     public MetricReceiver(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot) {
+        this(metricsCollection, currentSnapshot, new MetricCells());
+    }
+
+    MetricReceiver(ThreadLocalDirectory<Bucket, Sample> metricsCollection, AtomicReference<Bucket> currentSnapshot,
+                   MetricCells cells) {
         this.metricsCollection = metricsCollection;
         this.currentSnapshot = currentSnapshot;
+        this.cells = cells;
         metricSettings = new ImmutableMap.Builder<String, MetricSettings>().build();
     }
 
@@ -51,6 +58,32 @@ public class MetricReceiver {
         metricsCollection.update(sample);
     }
 
+    /**
+     * Add to the counter with the given name at the given point. Unlike adding through a declared
+     * {@link Counter}, this does not allocate anything once the counter has been added to at this point.
+     *
+     * @param name the name of the metric
+     * @param n the amount by which to increase the counter
+     * @param point the point in the metric space at which to add to the metric, or null
+     */
+    public void add(String name, long n, Point point) {
+        cells.counter(name, point).add(n);
+    }
+
+    /**
+     * Record a sample in the gauge with the given name at the given point. Unlike sampling through a
+     * declared {@link Gauge}, this does not allocate anything once the gauge has been sampled at this point.
+     *
+     * @param name the name of the metric
+     * @param x the sample value
+     * @param point the position of the sample, or null
+     */
+    public void sample(String name, double x, Point point) {
+        cells.gauge(name, point, getMetricDefinition(name)).sample(x);
+    }
+
+    MetricCells cells() { return cells; }
+
     /**
      * Declare a counter metric without setting any default position.
      *
@@ -188,6 +221,11 @@ public class MetricReceiver {
         public void add(long n, Point p) {
         }
 
+        @Override
+        public Handle handle(Point p) {
+            return new Handle(new MetricCells.CounterCell());
+        }
+
         @Override
         public PointBuilder builder() {
             return super.builder();
@@ -207,6 +245,11 @@ public class MetricReceiver {
         public void sample(double x, Point p) {
         }
 
+        @Override
+        public Handle handle(Point p) {
+            return new Handle(new MetricCells.GaugeCell(null));
+        }
+
         @Override
         public PointBuilder builder() {
             return super.builder();
@@ -233,6 +276,7 @@ public class MetricReceiver {
             for (Bucket b : collection.fetch()) {
                 merged.merge(b, true);
             }
+            merged.merge(cells().drain(), true);
             return merged;
         }
 
@@ -253,6 +297,14 @@ public class MetricReceiver {
         public void update(Sample s) {
         }
 
+        @Override
+        public void add(String name, long n, Point point) {
+        }
+
+        @Override
+        public void sample(String name, double x, Point point) {
+        }
+
         @Override
         public Counter declareCounter(String name) {
             return new NullCounter();
@@ -4,7 +4,6 @@ package com.yahoo.metrics.simple;
 import com.yahoo.metrics.ManagerConfig;
 
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.TimeUnit;
 
 /**
  * Common code for running unit tests of simplemetrics
@@ -50,7 +49,7 @@ public class UnitTestSetup {
     }
 
     public Bucket getUpdatedSnapshot() throws InterruptedException {
-        updater.gotData.await(10, TimeUnit.SECONDS);
+        // Samples go through the updater, while updates through handles and the jdisc metric API do not
         Bucket s = receiver.getSnapshot();
         long startedWaitingForSnapshot = System.currentTimeMillis();
         // just waiting for the correct snapshot being constructed (yes, this is
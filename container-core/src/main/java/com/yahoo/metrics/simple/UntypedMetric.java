@@ -30,12 +30,35 @@ public class UntypedMetric {
     public enum AssumedType { NONE, GAUGE, COUNTER };
 
     UntypedMetric(MetricSettings metricSettings) {
+        this(metricSettings, metricSettings == null || !metricSettings.isHistogram()
+                             ? null
+                             : new DoubleHistogram(metricSettings.getSignificantdigits()));
+    }
+
+    private UntypedMetric(MetricSettings metricSettings, DoubleHistogram histogram) {
         this.metricSettings = metricSettings;
-        if (metricSettings == null || !metricSettings.isHistogram()) {
-            histogram = null;
-        } else {
-            histogram = new DoubleHistogram(metricSettings.getSignificantdigits());
-        }
+        this.histogram = histogram;
+    }
+
+    /** Returns a counter with the given count. */
+    static UntypedMetric counter(long count) {
+        UntypedMetric metric = new UntypedMetric(null, null);
+        metric.outputFormat = AssumedType.COUNTER;
+        metric.count = count;
+        return metric;
+    }
+
+    /** Returns a gauge with the given aggregate of samples, and the histogram of them, if any. */
+    static UntypedMetric gauge(MetricSettings metricSettings, long count, double sum, double min, double max, double last,
+                               DoubleHistogram histogram) {
+        UntypedMetric metric = new UntypedMetric(metricSettings, histogram);
+        metric.outputFormat = AssumedType.GAUGE;
+        metric.count = count;
+        metric.sum = sum;
+        metric.min = min;
+        metric.max = max;
+        metric.current = last;
+        return metric;
     }
 
     void add(Number x) {
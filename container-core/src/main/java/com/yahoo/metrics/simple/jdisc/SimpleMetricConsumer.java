@@ -5,12 +5,8 @@ import java.util.Map;
 
 import com.yahoo.jdisc.Metric.Context;
 import com.yahoo.jdisc.application.MetricConsumer;
-import com.yahoo.metrics.simple.Identifier;
-import com.yahoo.metrics.simple.Measurement;
 import com.yahoo.metrics.simple.Point;
 import com.yahoo.metrics.simple.MetricReceiver;
-import com.yahoo.metrics.simple.Sample;
-import com.yahoo.metrics.simple.UntypedMetric.AssumedType;
 
 /**
  * The metrics consumer in JDisc.
@@ -27,12 +23,12 @@ public class SimpleMetricConsumer implements MetricConsumer {
 
     @Override
     public void set(String key, Number val, Context ctx) {
-        receiver.update(new Sample(new Measurement(val), new Identifier(key, getSimpleCoordinate(ctx)), AssumedType.GAUGE));
+        receiver.sample(key, val.doubleValue(), getSimpleCoordinate(ctx));
     }
 
     @Override
     public void add(String key, Number val, Context ctx) {
-        receiver.update(new Sample(new Measurement(val), new Identifier(key, getSimpleCoordinate(ctx)), AssumedType.COUNTER));
+        receiver.add(key, val.longValue(), getSimpleCoordinate(ctx));
     }
 
     private Point getSimpleCoordinate(Context ctx) {
@@ -25,8 +25,12 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
 
 import static com.yahoo.container.di.componentgraph.core.ComponentGraph.isBindingAnnotation;
@@ -495,6 +499,74 @@ public class ComponentGraphTest {
         assertEquals(ComponentId.fromString(componentId), componentGraph.getInstance(ComponentTakingComponentId.class).componentId);
     }
 
+    @Test
+    void independent_components_are_constructed_in_parallel_after_their_dependencies() {
+        Node awaiting1 = mockComponentNode(ComponentAwaitingAnother.class);
+        Node awaiting2 = mockComponentNode(ComponentAwaitingAnother.class);
+        Node innerComponent = mockComponentNode(SimpleComponent.class);
+        Node middleComponent = mockComponentNode(ComponentTakingComponent.class);
+        Node outerComponent = mockComponentNode(ComponentTakingComponentTakingComponent.class);
+
+        ComponentGraph componentGraph = new ComponentGraph();
+        List.of(awaiting1, awaiting2, outerComponent, middleComponent, innerComponent).forEach(componentGraph::add);
+        componentGraph.complete();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            componentGraph.constructComponents(executor);
+        } finally {
+            executor.shutdown();
+        }
+        for (Node node : componentGraph.nodes())
+            assertTrue(node.constructedInstance().isPresent());
+        assertSame(middleComponent.constructedInstance().get(), componentGraph.getInstance(ComponentTakingComponentTakingComponent.class).injectedComponent);
+        assertEquals(componentGraph.size(), componentGraph.constructionTimes().size());
+    }
+
+    @Test
+    void providers_are_not_called_concurrently_during_parallel_construction() {
+        ComponentGraph componentGraph = new ComponentGraph();
+        Node executorProvider = mockComponentNode(SlowExecutorProvider.class);
+        componentGraph.add(executorProvider);
+        for (int i = 0; i < 4; i++) {
+            Node componentTakingExecutor = mockComponentNode(ComponentTakingExecutor.class);
+            componentTakingExecutor.inject(executorProvider);
+            componentGraph.add(componentTakingExecutor);
+        }
+        componentGraph.complete();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            componentGraph.constructComponents(executor);
+        } finally {
+            executor.shutdown();
+        }
+        SlowExecutorProvider provider = (SlowExecutorProvider) executorProvider.constructedInstance().get();
+        assertEquals(4, provider.calls);
+        assertFalse(provider.calledConcurrently);
+    }
+
+    @Test
+    void construction_failure_is_propagated_and_dependent_components_are_not_constructed() {
+        Node failing = mockComponentNode(ComponentThrowingInConstructor.class);
+        Node dependent = mockComponentNode(ComponentTakingComponent.class);
+        ComponentGraph componentGraph = new ComponentGraph();
+        componentGraph.add(failing);
+        componentGraph.add(dependent);
+        componentGraph.complete();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ComponentNode.ComponentConstructorException e = assertThrows(ComponentNode.ComponentConstructorException.class,
+                                                                         () -> componentGraph.constructComponents(executor));
+            assertEquals("Failed by design", e.getCause().getMessage());
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(failing.constructedInstance().isEmpty());
+        assertTrue(dependent.constructedInstance().isEmpty());
+        assertTrue(componentGraph.allConstructedComponentsAndProviders().isEmpty());
+    }
 
     //Note that all Components must be defined in a static context,
     //otherwise their constructor will take the outer class as the first parameter.
@@ -549,6 +621,20 @@ public class ComponentGraphTest {
         }
     }
 
+    public static class ComponentAwaitingAnother extends AbstractComponent {
+        private static final CyclicBarrier barrier = new CyclicBarrier(2);
+
+        public ComponentAwaitingAnother() throws Exception {
+            barrier.await(60, TimeUnit.SECONDS); // Times out unless two of these are constructed in parallel.
+        }
+    }
+
+    public static class ComponentThrowingInConstructor extends SimpleComponent {
+        public ComponentThrowingInConstructor() {
+            throw new IllegalStateException("Failed by design");
+        }
+    }
+
     @SuppressWarnings("unused")
     public static class ComponentTakingConfigAndComponent extends AbstractComponent {
         private final TestConfig config;
@@ -620,6 +706,26 @@ public class ComponentGraphTest {
     public static class DerivedExecutorProvider extends ExecutorProvider {
     }
 
+    public static class SlowExecutorProvider extends ExecutorProvider {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile boolean calledConcurrently = false;
+        private volatile int calls = 0;
+
+        @Override
+        public Executor get() {
+            if (inFlight.incrementAndGet() > 1) calledConcurrently = true;
+            try {
+                Thread.sleep(10);
+            }
+            catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            calls++;
+            inFlight.decrementAndGet();
+            return super.get();
+        }
+    }
+
     public static class FailOnGetIntProvider implements Provider<Integer> {
 
         public Integer get() {
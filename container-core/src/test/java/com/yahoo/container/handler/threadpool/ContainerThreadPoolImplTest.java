@@ -10,11 +10,15 @@ import com.yahoo.jdisc.Metric;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 /**
@@ -116,6 +120,56 @@ public class ContainerThreadPoolImplTest {
         assertEquals(CPUS * 4 * 100, executor.getQueue().remainingCapacity());
     }
 
+    @Test
+    void testVirtualThreadsAreUsedWhenSupported() {
+        ContainerThreadpoolConfig config = new ContainerThreadpoolConfig(new ContainerThreadpoolConfig.Builder()
+                .maxThreads(4)
+                .queueSize(6)
+                .virtualThreads(true));
+        ContainerThreadpoolImpl threadPool = new ContainerThreadpoolImpl(config, new MetricMock(), new MockProcessTerminator(), CPUS);
+        Object executor = ((ExecutorServiceWrapper) threadPool.executor()).delegate();
+        if (VirtualThreadExecutor.virtualThreadFactory("test").isPresent())
+            assertEquals(10, ((VirtualThreadExecutor) executor).maxPoolSize());
+        else // Falls back to platform threads on JVMs without virtual threads.
+            assertEquals(4, ((WorkerCompletionTimingThreadPoolExecutor) executor).getMaximumPoolSize());
+        threadPool.close();
+    }
+
+    @Test
+    void testVirtualThreadExecutorBoundsTasksInFlight() throws InterruptedException {
+        MetricMock metrics = new MetricMock();
+        VirtualThreadExecutor executor = new VirtualThreadExecutor(Executors.defaultThreadFactory(), 2,
+                                                                   new ThreadPoolMetric(metrics, "test"));
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            started.countDown();
+            try { release.await(); } catch (InterruptedException e) { throw new RuntimeException(e); }
+        };
+        executor.execute(blocking);
+        executor.execute(blocking);
+        assertTrue(started.await(60, TimeUnit.SECONDS));
+        assertEquals(2, executor.activeCount());
+        assertEquals(2, executor.poolSize());
+        assertEquals(0, executor.queueSize());
+        assertEquals(2, executor.queueCapacity());
+        try {
+            executor.execute(blocking);
+            fail("Expected execution rejected");
+        } catch (RejectedExecutionException expected) {
+        }
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+        assertEquals(0, executor.queueSize());
+        try {
+            executor.execute(blocking);
+            fail("Expected execution rejected after shutdown");
+        } catch (RejectedExecutionException expected) {
+        }
+    }
+
     private class FlipIt implements Runnable {
         public final Receiver<Boolean> didItRun = new Receiver<>();
 
@@ -0,0 +1,128 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.handler.warmup;
+
+import ai.vespa.metrics.ContainerMetrics;
+import com.yahoo.container.core.WarmupConfig;
+import com.yahoo.container.handler.VipStatus;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.application.ContainerBuilder;
+import com.yahoo.jdisc.handler.AbstractRequestHandler;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.handler.ResponseDispatch;
+import com.yahoo.jdisc.handler.ResponseHandler;
+import com.yahoo.jdisc.http.HttpRequest;
+import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.jdisc.test.TestDriver;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestReplayWarmupTest {
+
+    private static final List<String> lines = List.of("# Recorded requests",
+                                                      "GET\t/search/?query=foo",
+                                                      "",
+                                                      "post\t/search/\t{\"yql\":\"select * from sources * where true\"}",
+                                                      "GET\t/status.html");
+
+    @TempDir
+    public Path tmpDir;
+
+    @Test
+    void requests_are_parsed_and_filtered_by_target() {
+        List<RequestReplayWarmup.RecordedRequest> requests = RequestReplayWarmup.parse(lines, List.of("/search/"), true);
+        assertEquals(2, requests.size());
+        assertEquals(HttpRequest.Method.GET, requests.get(0).method());
+        assertEquals("/search/?query=foo", requests.get(0).path());
+        assertTrue(requests.get(0).body().isEmpty());
+        assertEquals(HttpRequest.Method.POST, requests.get(1).method());
+        assertEquals("{\"yql\":\"select * from sources * where true\"}", new String(requests.get(1).body().get()));
+
+        assertEquals(3, RequestReplayWarmup.parse(lines, List.of(), true).size());
+        assertThrows(IllegalArgumentException.class, () -> RequestReplayWarmup.parse(List.of("GET search"), List.of(), true));
+    }
+
+    @Test
+    void only_reads_are_replayed_unless_writes_are_enabled() {
+        List<RequestReplayWarmup.RecordedRequest> requests = RequestReplayWarmup.parse(lines, List.of("/search/"), false);
+        assertEquals(1, requests.size());
+        assertEquals(HttpRequest.Method.GET, requests.get(0).method());
+        assertEquals(2, RequestReplayWarmup.parse(lines, List.of(), false).size());
+        assertEquals(1, RequestReplayWarmup.parse(List.of("HEAD\t/search/", "DELETE\t/document/v1/ns/music/docid/1"), List.of(), false).size());
+    }
+
+    @Test
+    void container_is_kept_out_of_rotation_until_requests_are_replayed() throws IOException, InterruptedException {
+        Path file = tmpDir.resolve("requests.tsv");
+        Files.write(file, lines);
+
+        TestDriver driver = TestDriver.newSimpleApplicationInstanceWithoutOsgi();
+        ContainerBuilder builder = driver.newContainerBuilder();
+        RecordingHandler handler = new RecordingHandler();
+        builder.serverBindings().bind("http://*/search/*", handler);
+
+        VipStatus vipStatus = new VipStatus();
+        vipStatus.setInRotation(true);
+        MockMetric metric = new MockMetric();
+        AtomicBoolean warmedUp = new AtomicBoolean(false);
+        WarmupConfig config = new WarmupConfig.Builder().enabled(true)
+                                                        .requestsFile(file.toString())
+                                                        .iterations(3)
+                                                        .concurrency(2)
+                                                        .replayWrites(true)
+                                                        .targets(List.of("/search/"))
+                                                        .build();
+        RequestReplayWarmup warmup = new RequestReplayWarmup(config, vipStatus, driver, metric, warmedUp);
+        assertFalse(vipStatus.isInRotation());
+        assertEquals(Boolean.FALSE, vipStatus.getRotationOverride());
+
+        driver.activateContainer(builder); // Requests are retried until the container is activated.
+        while (warmup.isWarmingUp())
+            Thread.sleep(10);
+
+        assertTrue(vipStatus.isInRotation());
+        assertEquals(Boolean.TRUE, vipStatus.getRotationOverride(), "Previous override is restored");
+        assertEquals(6, handler.requests.size());
+        assertEquals(3, handler.requests.stream().filter(request -> request.getMethod() == HttpRequest.Method.POST).count());
+        assertEquals(6.0, metric.metrics().get(ContainerMetrics.JDISC_WARMUP_REQUESTS.baseName()).get(Map.of()));
+        assertEquals(0.0, metric.metrics().get(ContainerMetrics.JDISC_WARMUP_FAILED_REQUESTS.baseName()).get(Map.of()));
+
+        RequestReplayWarmup another = new RequestReplayWarmup(config, vipStatus, driver, metric, warmedUp);
+        assertFalse(another.isWarmingUp(), "Only the first container is warmed up");
+        assertTrue(vipStatus.isInRotation());
+        assertTrue(driver.close());
+    }
+
+    private static class RecordingHandler extends AbstractRequestHandler {
+
+        final Queue<HttpRequest> requests = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public ContentChannel handleRequest(Request request, ResponseHandler handler) {
+            requests.add((HttpRequest) request);
+            ResponseDispatch.newInstance(Response.Status.OK).dispatch(handler);
+            return new ContentChannel() {
+                @Override public void write(ByteBuffer buf, CompletionHandler handler) { handler.completed(); }
+                @Override public void close(CompletionHandler handler) { handler.completed(); }
+            };
+        }
+
+    }
+
+}
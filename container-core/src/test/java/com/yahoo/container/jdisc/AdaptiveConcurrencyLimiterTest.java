@@ -0,0 +1,92 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.container.jdisc;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.yahoo.container.jdisc.AdaptiveConcurrencyLimiter.WINDOW_NANOS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void requests_beyond_the_limit_are_rejected() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, 10, clock::get);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(2, limiter.inflight());
+
+        limiter.release(1000);
+        assertTrue(limiter.tryAcquire());
+        limiter.abort();
+        limiter.release(1000);
+        assertEquals(0, limiter.inflight());
+    }
+
+    @Test
+    void limit_grows_while_used_at_stable_latency() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 20, 100, clock::get);
+        for (int window = 0; window < 100; window++)
+            runWindow(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(100, limiter.limit());
+    }
+
+    @Test
+    void limit_does_not_grow_when_not_used() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 20, 100, clock::get);
+        for (int window = 0; window < 100; window++)
+            runWindow(limiter, 5, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(20, limiter.limit());
+    }
+
+    @Test
+    void limit_shrinks_when_latency_rises_and_recovers_when_it_drops() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 50, 100, clock::get);
+        for (int window = 0; window < 20; window++)
+            runWindow(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(10));
+        int normal = limiter.limit();
+
+        for (int window = 0; window < 15; window++)
+            runWindow(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(100));
+        int overloaded = limiter.limit();
+        assertTrue(overloaded < normal / 2, "Limit " + overloaded + " should be well below " + normal);
+
+        for (int window = 0; window < 200; window++)
+            runWindow(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(10));
+        assertTrue(limiter.limit() > overloaded);
+        assertEquals(100, limiter.limit());
+    }
+
+    @Test
+    void limit_stays_within_bounds() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(8, 10, 12, clock::get);
+        for (int window = 0; window < 50; window++)
+            runWindow(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(window < 25 ? 1 : 1000 * window));
+        assertEquals(8, limiter.limit());
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(0, 1, 1, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(2, 1, 3, clock::get));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 3, 2, clock::get));
+    }
+
+    /** Admits the given number of concurrent requests, and completes them with the given latency, at the end of a window. */
+    private void runWindow(AdaptiveConcurrencyLimiter limiter, int concurrency, long latencyNanos) {
+        int admitted = 0;
+        for (int i = 0; i < Math.max(concurrency, AdaptiveConcurrencyLimiter.MIN_WINDOW_SAMPLES); i++) {
+            if (i < concurrency && limiter.tryAcquire()) admitted++;
+        }
+        clock.addAndGet(WINDOW_NANOS);
+        for (int i = 0; i < Math.max(admitted, AdaptiveConcurrencyLimiter.MIN_WINDOW_SAMPLES); i++) {
+            if (i >= admitted) assertTrue(limiter.tryAcquire());
+            limiter.release(latencyNanos);
+        }
+    }
+
+}
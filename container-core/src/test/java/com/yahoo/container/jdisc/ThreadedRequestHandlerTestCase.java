@@ -1,6 +1,7 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.jdisc;
 
+import com.yahoo.container.handler.threadpool.ConcurrencyLimitedExecutor;
 import com.yahoo.jdisc.Request;
 import com.yahoo.jdisc.Response;
 import com.yahoo.jdisc.application.ContainerBuilder;
@@ -156,6 +157,46 @@ public class ThreadedRequestHandlerTestCase {
         assertTrue(driver.close());
     }
 
+    @Test
+    void requireThatRequestsBeyondTheConcurrencyLimitAreRejected() throws InterruptedException {
+        Executor pool = Executors.newFixedThreadPool(2);
+        MyRequestHandler requestHandler = MyRequestHandler.newInstance(new ConcurrencyLimitedExecutor() {
+            @Override public void execute(Runnable command) { pool.execute(command); }
+            @Override public int maxConcurrencyLimit() { return 1; }
+        });
+        TestDriver driver = TestDriver.newSimpleApplicationInstanceWithoutOsgi();
+        ContainerBuilder builder = driver.newContainerBuilder();
+        builder.serverBindings().bind("http://localhost/", requestHandler);
+        driver.activateContainer(builder);
+
+        MyResponseHandler admitted = new MyResponseHandler();
+        driver.dispatchRequest("http://localhost/", admitted);
+
+        MyResponseHandler rejected = new MyResponseHandler();
+        try {
+            driver.dispatchRequest("http://localhost/", rejected);
+            fail("Request beyond the concurrency limit should be rejected");
+        } catch (OverloadException e) {
+            // As expected.
+        }
+        assertEquals(0, rejected.latch.getCount());
+        assertEquals(Response.Status.SERVICE_UNAVAILABLE, rejected.response.getStatus());
+        assertEquals(ThreadedRequestHandler.RETRY_AFTER_SECONDS, rejected.response.headers().getFirst("Retry-After"));
+
+        requestHandler.entryLatch.countDown();
+        assertTrue(admitted.latch.await(60, TimeUnit.SECONDS));
+        assertEquals(Response.Status.OK, admitted.response.getStatus());
+        assertNull(admitted.content.read());
+
+        // The permit is released when the response is complete
+        MyResponseHandler next = new MyResponseHandler();
+        driver.dispatchRequest("http://localhost/", next);
+        assertTrue(next.latch.await(60, TimeUnit.SECONDS));
+        assertEquals(Response.Status.OK, next.response.getStatus());
+        assertNull(next.content.read());
+        assertTrue(driver.close());
+    }
+
     @Test
     void requireThatRequestContentIsClosedIfHandlerIgnoresIt() throws InterruptedException {
         Executor executor = Executors.newSingleThreadExecutor();
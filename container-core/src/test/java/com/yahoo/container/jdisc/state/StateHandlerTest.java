@@ -4,12 +4,25 @@ package com.yahoo.container.jdisc.state;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.yahoo.component.Vtag;
 import com.yahoo.container.jdisc.RequestHandlerTestDriver;
+import com.yahoo.jdisc.Request;
+import com.yahoo.jdisc.Response;
+import com.yahoo.jdisc.handler.CompletionHandler;
+import com.yahoo.jdisc.handler.ContentChannel;
+import com.yahoo.jdisc.http.HttpHeaders;
+import com.yahoo.jdisc.http.HttpRequest;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Inspector;
 import com.yahoo.vespa.defaults.Defaults;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -174,4 +187,84 @@ public class StateHandlerTest extends StateHandlerTestBase {
         JsonNode version = root.get("version");
         assertEquals(Vtag.currentVersion.toString(), version.asText());
     }
+
+    @Test
+    void testSlimeMetricsWithSharedDimensions() {
+        var snapshot = new MetricSnapshot();
+        var ctx = StateMetricContext.newInstance(Map.of("component", "test"));
+        snapshot.add(ctx, "foo", 3);
+        snapshot.set(ctx, "bar", 5);
+        snapshot.add(null, "baz", 1);
+        snapshotProvider.setSnapshot(snapshot);
+
+        RawResponse response = requestRaw(V1_URI + "metrics?format=slime", null);
+        assertEquals(Response.Status.OK, response.response.getStatus());
+        assertEquals(StateHandler.SLIME_CONTENT_TYPE, response.response.headers().getFirst(HttpHeaders.Names.CONTENT_TYPE));
+
+        Inspector root = BinaryFormat.decode(response.content).get();
+        assertEquals("up", root.field("status").field("code").asString());
+        Inspector metrics = root.field("metrics");
+        assertEquals(1, metrics.field("dimensions").entries());
+        assertEquals("test", metrics.field("dimensions").entry(0).field("component").asString());
+
+        Map<String, Inspector> values = new HashMap<>();
+        for (int i = 0; i < metrics.field("values").entries(); i++)
+            values.put(metrics.field("values").entry(i).field("name").asString(), metrics.field("values").entry(i));
+        assertEquals(3, values.size());
+        assertEquals(3, values.get("foo").field("values").field("count").asLong());
+        assertEquals(0, values.get("foo").field("dimensions").asLong());
+        assertEquals(5, values.get("bar").field("values").field("last").asDouble(), 0.001);
+        assertEquals(0, values.get("bar").field("dimensions").asLong());
+        assertFalse(values.get("baz").field("dimensions").valid());
+    }
+
+    @Test
+    void testMetricsAreNotSentAgainForSameSnapshot() throws Exception {
+        var snapshot = new MetricSnapshot();
+        snapshot.add(null, "foo", 1);
+        snapshotProvider.setSnapshot(snapshot);
+
+        RawResponse response = requestRaw(V1_URI + "metrics?format=slime", null);
+        String etag = response.response.headers().getFirst(HttpHeaders.Names.ETAG);
+        assertNotNull(etag);
+
+        RawResponse notModified = requestRaw(V1_URI + "metrics?format=slime", etag);
+        assertEquals(Response.Status.NOT_MODIFIED, notModified.response.getStatus());
+        assertEquals(0, notModified.content.length);
+
+        // The JSON and Slime representations have different tags
+        RawResponse json = requestRaw(V1_URI + "metrics", etag);
+        assertEquals(Response.Status.OK, json.response.getStatus());
+        assertNotEquals(etag, json.response.headers().getFirst(HttpHeaders.Names.ETAG));
+
+        snapshotProvider.setSnapshot(new MetricSnapshot(SNAPSHOT_INTERVAL, 2 * SNAPSHOT_INTERVAL, TimeUnit.MILLISECONDS));
+        assertEquals(Response.Status.OK, requestRaw(V1_URI + "metrics?format=slime", etag).response.getStatus());
+    }
+
+    private record RawResponse(Response response, byte[] content) { }
+
+    private static RawResponse requestRaw(String uri, String ifNoneMatch) {
+        Request request = HttpRequest.newServerRequest(testDriver.jDiscDriver(), URI.create(uri), HttpRequest.Method.GET);
+        if (ifNoneMatch != null)
+            request.headers().put(HttpHeaders.Names.IF_NONE_MATCH, ifNoneMatch);
+
+        AtomicReference<Response> response = new AtomicReference<>();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        ContentChannel requestContent = request.connect(r -> {
+            response.set(r);
+            return new ContentChannel() {
+                @Override public void write(ByteBuffer buf, CompletionHandler handler) {
+                    while (buf.hasRemaining()) content.write(buf.get());
+                    if (handler != null) handler.completed();
+                }
+                @Override public void close(CompletionHandler handler) {
+                    if (handler != null) handler.completed();
+                }
+            };
+        });
+        requestContent.close(null);
+        request.release();
+        return new RawResponse(response.get(), content.toByteArray());
+    }
+
 }
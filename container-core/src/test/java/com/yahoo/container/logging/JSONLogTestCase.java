@@ -10,6 +10,7 @@ import java.time.Duration;
 import java.time.Instant;
 
 import static com.yahoo.test.json.JsonTestHelper.assertJsonEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 
 
 /**
@@ -295,6 +296,21 @@ public class JSONLogTestCase {
                 newRequestLogEntry("test",  new Coverage(0, 0, 0, 2)).build());
     }
 
+    @Test
+    void test_entries_written_to_same_stream() throws IOException {
+        RequestLogEntry first = newRequestLogEntry("first").build();
+        RequestLogEntry second = newRequestLogEntry("second").build();
+        JSONFormatter formatter = new JSONFormatter();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        formatter.write(first, outputStream);
+        formatter.write(second, outputStream);
+        assertEquals(formatEntry(first) + formatEntry(second), outputStream.toString());
+
+        ByteArrayOutputStream otherStream = new ByteArrayOutputStream();
+        formatter.write(first, otherStream);
+        assertEquals(formatEntry(first), otherStream.toString());
+    }
+
     private String formatEntry(RequestLogEntry entry) {
         try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
             new JSONFormatter().write(entry, outputStream);
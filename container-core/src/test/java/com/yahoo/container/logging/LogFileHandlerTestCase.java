@@ -18,6 +18,7 @@ import java.nio.file.Paths;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.concurrent.CountDownLatch;
 import java.util.function.BiFunction;
 import java.util.logging.Formatter;
 import java.util.logging.Level;
@@ -25,6 +26,7 @@ import java.util.logging.LogRecord;
 import java.util.zip.GZIPInputStream;
 
 import static com.yahoo.yolean.Exceptions.uncheck;
+import static com.yahoo.yolean.Exceptions.uncheckInterrupted;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -176,6 +178,59 @@ public class LogFileHandlerTestCase {
                 }));
     }
 
+    @Test
+    @Timeout(300_000)
+    void compresses_active_log_file_while_writing() throws IOException {
+        File root = newFolder(temporaryFolder, "compresswhilewriting");
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.ZSTD_STREAMING, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S", new long[]{0}, null, 2048, "thread-name", new StringLogWriter());
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            h.publish("test " + i);
+            expected.append("test ").append(i).append('\n');
+        }
+        h.flush();
+        h.flush(); // Nothing to flush, so no empty frame.
+        h.publish("last");
+        expected.append("last\n");
+        h.flush();
+
+        String fileName = h.getFileName();
+        assertTrue(fileName.endsWith(".zst"));
+        byte[] compressed = Files.readAllBytes(Paths.get(fileName));
+        byte[] uncompressed = new byte[expected.length()];
+        int length = new ZstdCompressor().decompress(compressed, 0, compressed.length, uncompressed, 0, uncompressed.length);
+        assertEquals(expected.toString(), new String(uncompressed, 0, length, StandardCharsets.UTF_8));
+        h.shutdown();
+    }
+
+    @Test
+    @Timeout(300_000)
+    void drops_offered_records_when_queue_is_full() throws IOException, InterruptedException {
+        File root = newFolder(temporaryFolder, "dropwhenfull");
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        LogWriter<String> blockingWriter = (record, outputStream) -> {
+            writing.countDown();
+            uncheckInterrupted(proceed::await);
+            outputStream.write(record.getBytes(StandardCharsets.UTF_8));
+        };
+        LogFileHandler<String> h = new LogFileHandler<>(
+                Compression.NONE, BUFFER_SIZE, root.getAbsolutePath() + "/logfilehandlertest.%Y%m%d%H%M%S", new long[]{0}, null, 2, "thread-name", blockingWriter);
+
+        assertTrue(h.offer("first"));
+        writing.await(); // The log thread has taken the first record, and is stuck writing it.
+        assertTrue(h.offer("second"));
+        assertTrue(h.offer("third"));
+        assertFalse(h.offer("fourth"));
+        assertEquals(1, h.droppedCount());
+
+        proceed.countDown();
+        h.flush();
+        assertEquals("first\nsecond\nthird\n", IOUtils.readFile(new File(h.getFileName())));
+        h.shutdown();
+    }
+
     private void testcompression(Compression compression,
                                  String fileExtension,
                                  BiFunction<Path, Integer, String> decompressor) throws IOException, InterruptedException {
@@ -3,6 +3,7 @@ package com.yahoo.jdisc.http.server.jetty;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
+import com.yahoo.compress.ZstdCompressor;
 import com.yahoo.container.logging.ConnectionLog;
 import com.yahoo.container.logging.ConnectionLogEntry;
 import com.yahoo.container.logging.RequestLog;
@@ -47,6 +48,8 @@ import java.io.File;
 import java.io.IOException;
 import java.net.BindException;
 import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse.BodyHandlers;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
@@ -611,6 +614,53 @@ public class HttpServerTest {
         assertTrue(driver.close());
     }
 
+    @Test
+    void requireThatResponsesAreCompressedWithZstdWhenAccepted() throws Exception {
+        String content = generateContent('a', 100_000);
+        JettyTestDriver driver = JettyTestDriver.newConfiguredInstance(
+                new ContentRequestHandler(content),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder()
+                        .compression(new ConnectorConfig.Compression.Builder()
+                                             .zstd(new ConnectorConfig.Compression.Zstd.Builder().enabled(true))
+                                             .chunkSize(32_768)));
+        HttpClient client = HttpClient.newHttpClient();
+        URI uri = URI.create("http://localhost:" + driver.server().getListenPort() + "/status.html");
+
+        java.net.http.HttpResponse<byte[]> compressed = client.send(java.net.http.HttpRequest.newBuilder(uri).header("Accept-Encoding", "gzip;q=0.5, zstd").build(),
+                                                                    BodyHandlers.ofByteArray());
+        assertEquals(OK, compressed.statusCode());
+        assertEquals("zstd", compressed.headers().firstValue("Content-Encoding").orElseThrow());
+        assertTrue(compressed.body().length < content.length() / 10);
+        byte[] decompressed = new byte[content.length()];
+        assertEquals(content.length(), new ZstdCompressor().decompress(compressed.body(), 0, compressed.body().length, decompressed, 0, decompressed.length));
+        assertEquals(content, new String(decompressed, StandardCharsets.UTF_8));
+
+        java.net.http.HttpResponse<byte[]> raw = client.send(java.net.http.HttpRequest.newBuilder(uri).header("Accept-Encoding", "zstd;q=0").build(),
+                                                             BodyHandlers.ofByteArray());
+        assertEquals(OK, raw.statusCode());
+        assertTrue(raw.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals(content, new String(raw.body(), StandardCharsets.UTF_8));
+        assertTrue(driver.close());
+    }
+
+    @Test
+    void requireThatSmallResponsesAreNotCompressedWithZstd() throws Exception {
+        JettyTestDriver driver = JettyTestDriver.newConfiguredInstance(
+                new ContentRequestHandler("small"),
+                new ServerConfig.Builder(),
+                new ConnectorConfig.Builder()
+                        .compression(new ConnectorConfig.Compression.Builder()
+                                             .zstd(new ConnectorConfig.Compression.Zstd.Builder().enabled(true))));
+        URI uri = URI.create("http://localhost:" + driver.server().getListenPort() + "/status.html");
+        java.net.http.HttpResponse<String> response = HttpClient.newHttpClient().send(java.net.http.HttpRequest.newBuilder(uri).header("Accept-Encoding", "zstd").build(),
+                                                                                      BodyHandlers.ofString());
+        assertEquals(OK, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals("small", response.body());
+        assertTrue(driver.close());
+    }
+
     @Test
     void requireThatResponseStatsAreCollected() throws Exception {
         RequestTypeHandler handler = new RequestTypeHandler();
@@ -886,6 +936,23 @@ public class HttpServerTest {
         }
     }
 
+    private static class ContentRequestHandler extends AbstractRequestHandler {
+
+        final String content;
+
+        ContentRequestHandler(String content) {
+            this.content = content;
+        }
+
+        @Override
+        public ContentChannel handleRequest(Request request, ResponseHandler handler) {
+            ContentChannel ch = handler.handleResponse(new Response(OK));
+            ch.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)), null);
+            ch.close(null);
+            return null;
+        }
+    }
+
     private static class CookieSetterRequestHandler extends AbstractRequestHandler {
 
         final Cookie cookie;
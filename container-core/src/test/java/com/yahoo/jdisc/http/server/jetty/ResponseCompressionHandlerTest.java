@@ -0,0 +1,28 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.http.server.jetty;
+
+import org.junit.jupiter.api.Test;
+
+import static com.yahoo.jdisc.http.server.jetty.ResponseCompressionHandler.acceptsZstd;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCompressionHandlerTest {
+
+    @Test
+    void zstd_is_accepted_when_listed_with_non_zero_quality() {
+        assertTrue(acceptsZstd("zstd"));
+        assertTrue(acceptsZstd("gzip, deflate, br, zstd"));
+        assertTrue(acceptsZstd("gzip;q=1.0, ZSTD;q=0.5"));
+        assertTrue(acceptsZstd(" zstd ; level=3"));
+
+        assertFalse(acceptsZstd(null));
+        assertFalse(acceptsZstd(""));
+        assertFalse(acceptsZstd("gzip, deflate, br"));
+        assertFalse(acceptsZstd("zstd;q=0"));
+        assertFalse(acceptsZstd("zstd;q=0.000"));
+        assertFalse(acceptsZstd("zstd;q=nope"));
+        assertFalse(acceptsZstd("x-zstd"));
+    }
+
+}
@@ -46,6 +46,39 @@ public class CounterTest {
         assertEquals(1L, x.get(0).getValue().getCount());
     }
 
+    @Test
+    final void testCellsNotUpdatedOverTheIdlePeriodAreRemoved() {
+        MetricCells cells = new MetricCells(3);
+        MetricCells.CounterCell unused = cells.counter("unused", Point.emptyPoint());
+        MetricCells.CounterCell retained = cells.retainedCounter("retained", Point.emptyPoint());
+        unused.add(1);
+        retained.add(1);
+        assertEquals(2, cells.drain().getValuesByMetricName().size());
+        assertEquals(0, cells.drain().getValuesByMetricName().size());
+        assertEquals(0, cells.drain().getValuesByMetricName().size());
+        unused.add(1); // Used again before the idle period is over
+        assertEquals(1, cells.drain().getValuesByMetricName().size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, cells.drain().getValuesByMetricName().size());
+            assertEquals(2, cells.size());
+        }
+
+        assertEquals(0, cells.drain().getValuesByMetricName().size());
+        assertEquals(1, cells.size());
+
+        unused.add(5); // Racing with the removal
+        Bucket late = cells.drain();
+        assertEquals(5L, late.getValuesByMetricName().get("unused").get(0).getValue().getCount());
+        unused.add(5); // Too late
+        assertEquals(0, cells.drain().getValuesByMetricName().size());
+
+        retained.add(1);
+        assertEquals(1L, cells.drain().getValuesByMetricName().get("retained").get(0).getValue().getCount());
+        cells.counter("unused", Point.emptyPoint()).add(1);
+        assertEquals(1L, cells.drain().getValuesByMetricName().get("unused").get(0).getValue().getCount());
+        assertEquals(2, cells.size());
+    }
+
     @Test
     final void testAddLong() {
         final String metricName = "unitTestCounter";
@@ -107,4 +140,36 @@ public class CounterTest {
         assertEquals(twoToThePowerOfFourtyeight, x.get(0).getValue().getCount());
     }
 
+    @Test
+    final void testHandleFromManyThreads() throws InterruptedException {
+        final String metricName = "unitTestCounter";
+        Counter c = receiver.declareCounter(metricName);
+        Counter.Handle handle = c.handle();
+        c.add(5); // Merged with what is added through the handle
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 1000; j++)
+                    handle.add();
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        Bucket b = receiver.getSnapshot();
+        List<Entry<Point, UntypedMetric>> x = b.getValuesByMetricName().get(metricName);
+        assertEquals(1, x.size());
+        assertEquals(Point.emptyPoint(), x.get(0).getKey());
+        assertEquals(4005L, x.get(0).getValue().getCount());
+
+        Point p = receiver.pointBuilder().set("x", 2L).build();
+        c.handle(p).add(3);
+        b = receiver.getSnapshot();
+        x = b.getValuesByMetricName().get(metricName);
+        assertEquals(1, x.size());
+        assertEquals(p, x.get(0).getKey());
+        assertEquals(3L, x.get(0).getValue().getCount());
+    }
+
 }
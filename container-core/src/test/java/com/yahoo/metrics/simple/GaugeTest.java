@@ -6,6 +6,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -78,4 +79,28 @@ public class GaugeTest {
         assertEquals(Math.E, x.get(0).getValue().getLast(), 1e-15);
     }
 
+    @Test
+    final void testHandleWithHistogram() {
+        final String metricName = "unitTestGauge";
+        Point p = receiver.pointBuilder().set("x", 2L).build();
+        Gauge g = receiver.declareGauge(metricName, Optional.of(p), new MetricSettings.Builder().histogram(true).build());
+        Gauge.Handle handle = g.handle();
+        for (int i = 1; i <= 100; i++)
+            handle.sample(i);
+
+        Bucket b = receiver.getSnapshot();
+        List<Entry<Point, UntypedMetric>> x = b.getValuesByMetricName().get(metricName);
+        assertEquals(1, x.size());
+        assertEquals(p, x.get(0).getKey());
+        UntypedMetric value = x.get(0).getValue();
+        assertEquals(100L, value.getCount());
+        assertEquals(5050.0d, value.getSum(), 0.0d);
+        assertEquals(1.0d, value.getMin(), 0.0d);
+        assertEquals(100.0d, value.getMax(), 0.0d);
+        assertEquals(100.0d, value.getLast(), 0.0d);
+        assertEquals(50.0d, value.getHistogram().getValueAtPercentile(50.0d), 0.5d);
+
+        assertEquals(0, receiver.getSnapshot().getValuesByMetricName().size());
+    }
+
 }
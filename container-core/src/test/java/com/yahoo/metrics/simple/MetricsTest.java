@@ -5,8 +5,8 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -38,7 +38,6 @@ public class MetricsTest extends UnitTestSetup {
     final void smokeTest() throws InterruptedException {
         final String metricName = "testMetric";
         metricApi.set(metricName, 1.0d, null);
-        updater.gotData.await(10, TimeUnit.SECONDS);
         Bucket s = getUpdatedSnapshot();
         Collection<Entry<Point, UntypedMetric>> values = s.getValuesForMetric(metricName);
         assertEquals(1, values.size());
@@ -48,6 +47,31 @@ public class MetricsTest extends UnitTestSetup {
         assertEquals(1L, value.getValue().getCount());
     }
 
+    @Test
+    final void testCountersAndGaugesThroughJdiscApi() {
+        MetricReceiver mock = new MetricReceiver.MockReceiver();
+        SimpleMetricConsumer metricApi = new SimpleMetricConsumer(mock);
+        Point point = (Point) metricApi.createContext(Map.of("host", "a"));
+        metricApi.add("requests", 2, point);
+        metricApi.add("requests", 3L, point);
+        metricApi.set("latency", 4, point);
+        metricApi.set("latency", 2.0d, point);
+        metricApi.set("requests", 1.0d, point); // Type mismatch is discarded
+        Bucket s = mock.getSnapshot();
+
+        UntypedMetric requests = s.getValuesForMetric("requests").iterator().next().getValue();
+        assertTrue(requests.isCounter());
+        assertEquals(5L, requests.getCount());
+
+        Entry<Point, UntypedMetric> latency = s.getValuesForMetric("latency").iterator().next();
+        assertEquals(point, latency.getKey());
+        assertEquals(2L, latency.getValue().getCount());
+        assertEquals(2.0d, latency.getValue().getLast(), 0.0d);
+        assertEquals(6.0d, latency.getValue().getSum(), 0.0d);
+        assertEquals(4.0d, latency.getValue().getMax(), 0.0d);
+        assertEquals(2.0d, latency.getValue().getMin(), 0.0d);
+    }
+
     @Test
     final void testRedefinition() {
         MetricReceiver r = metricManager.get();
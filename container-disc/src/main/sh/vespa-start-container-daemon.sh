@@ -197,6 +197,30 @@ configure_gcopts() {
     fi
 }
 
+configure_class_data_sharing() {
+    cds_options=""
+    if [ "$jvm_classDataSharing" != "true" ]; then
+        return
+    fi
+    # An archive is only valid for the JDK and jars it was created with, so it is named after a digest of these,
+    # and a new one is created at exit when none exists for the current digest.
+    local cds_dir="${CONTAINER_HOME}/cds"
+    local digest
+    if test "$(uname -s)" = Darwin; then
+        digest=`(java -version 2>&1; ls -l "${VESPA_HOME}/lib/jars") | md5 -r | cut -d' ' -f1`
+    else
+        digest=`(java -version 2>&1; ls -l "${VESPA_HOME}/lib/jars") | md5sum | cut -d' ' -f1`
+    fi
+    local archive="${cds_dir}/${digest}.jsa"
+    mkdir -p "$cds_dir" || return
+    find "$cds_dir" -name '*.jsa' ! -name "${digest}.jsa" -delete
+    if [ -s "$archive" ]; then
+        cds_options="-XX:SharedArchiveFile=${archive} -Xshare:auto"
+    else
+        cds_options="-XX:ArchiveClassesAtExit=${archive}"
+    fi
+}
+
 configure_env_vars() {
     if [ "$qrs_env" ]; then
         for setting in ${qrs_env} ; do
@@ -250,6 +274,7 @@ import_cfg_var () {
 getconfig
 configure_memory
 configure_gcopts
+configure_class_data_sharing
 configure_env_vars
 configure_classpath
 configure_numactl
@@ -263,6 +288,7 @@ exec $numactlcmd $envcmd java \
         ${cpu_options} \
         ${memory_options} \
         ${jvm_gcopts} \
+        ${cds_options} \
         -XX:MaxJavaStackTraceDepth=1000000 \
         -XX:+HeapDumpOnOutOfMemoryError \
         -XX:HeapDumpPath="${VESPA_HOME}/var/crash" \
@@ -1,11 +1,14 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.container.jdisc.messagebus;
 
+import ai.vespa.metrics.ContainerMetrics;
 import com.yahoo.component.AbstractComponent;
 import com.yahoo.component.annotation.Inject;
 import com.yahoo.container.jdisc.ContainerMbusConfig;
 import com.yahoo.document.DocumentTypeManager;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.jdisc.Metric;
 import com.yahoo.jdisc.ReferencedResource;
 import com.yahoo.jdisc.References;
 import com.yahoo.jdisc.ResourceReference;
@@ -28,6 +31,9 @@ import com.yahoo.yolean.concurrent.Memoized;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -50,7 +56,13 @@ public final class SessionCache extends AbstractComponent {
 
     private static final Logger log = Logger.getLogger(SessionCache.class.getName());
 
+    private static final long metricReportingIntervalSeconds = 10;
+
     private final Memoized<SharedMessageBus, RuntimeException> messageBus;
+    private final ScheduledExecutorService metricReporter;
+    private volatile MessageBus createdBus = null;
+    private long reportedTaskCount = 0;
+    private long reportedTaskLatencyNanos = 0;
 
     private final Object intermediateLock = new Object();
     private final Map<String, SharedIntermediateSession> intermediates = new HashMap<>();
@@ -63,9 +75,8 @@ public final class SessionCache extends AbstractComponent {
     @Inject
     public SessionCache(NetworkMultiplexerProvider nets, ContainerMbusConfig containerMbusConfig,
                         DocumentTypeManager documentTypeManager,
-                        MessagebusConfig messagebusConfig) {
-        this(nets::net, containerMbusConfig, documentTypeManager, messagebusConfig);
-
+                        MessagebusConfig messagebusConfig, Metric metric) {
+        this(nets::net, containerMbusConfig, messagebusConfig, new DocumentProtocol(documentTypeManager), metric);
     }
 
     public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
@@ -79,30 +90,62 @@ public final class SessionCache extends AbstractComponent {
 
     public SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
                         MessagebusConfig messagebusConfig, Protocol protocol) {
+        this(net, containerMbusConfig, messagebusConfig, protocol, null);
+    }
+
+    private SessionCache(Supplier<NetworkMultiplexer> net, ContainerMbusConfig containerMbusConfig,
+                         MessagebusConfig messagebusConfig, Protocol protocol, Metric metric) {
         this.messageBus = new Memoized<>(() -> createSharedMessageBus(net.get(), containerMbusConfig, messagebusConfig, protocol),
                                          SharedMessageBus::release);
+        if (metric == null) {
+            this.metricReporter = null;
+        } else {
+            this.metricReporter = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("mbus-metric-reporter-"));
+            this.metricReporter.scheduleAtFixedRate(() -> reportMetrics(metric),
+                                                    metricReportingIntervalSeconds,
+                                                    metricReportingIntervalSeconds,
+                                                    TimeUnit.SECONDS);
+        }
     }
 
     @Override
     public void deconstruct() {
+        if (metricReporter != null) metricReporter.shutdownNow();
         messageBus.close();
     }
 
+    // Reports the messenger queue size, and the average queue latency of the tasks run since the last report.
+    private void reportMetrics(Metric metric) {
+        MessageBus bus = createdBus;
+        if (bus == null) return; // Not created until a session is needed.
+
+        metric.set(ContainerMetrics.MBUS_MESSENGER_QUEUE_SIZE.baseName(), bus.getMessengerQueueSize(), null);
+        long taskCount = bus.getMessengerTaskCount();
+        long taskLatencyNanos = bus.getMessengerTaskLatencyNanos();
+        if (taskCount > reportedTaskCount)
+            metric.set(ContainerMetrics.MBUS_MESSENGER_TASK_LATENCY.baseName(),
+                       (taskLatencyNanos - reportedTaskLatencyNanos) * 1e-6 / (taskCount - reportedTaskCount), null);
+        reportedTaskCount = taskCount;
+        reportedTaskLatencyNanos = taskLatencyNanos;
+    }
+
     // Lazily create shared message bus.
     private SharedMessageBus bus() {
         return messageBus.get();
     }
 
-    private static SharedMessageBus createSharedMessageBus(NetworkMultiplexer net,
-                                                           ContainerMbusConfig mbusConfig,
-                                                           MessagebusConfig messagebusConfig,
-                                                           Protocol protocol) {
+    private SharedMessageBus createSharedMessageBus(NetworkMultiplexer net,
+                                                    ContainerMbusConfig mbusConfig,
+                                                    MessagebusConfig messagebusConfig,
+                                                    Protocol protocol) {
         MessageBusParams mbusParams = new MessageBusParams().addProtocol(protocol);
 
         mbusParams.setMaxPendingCount(mbusConfig.maxpendingcount());
+        mbusParams.setNumMessengerThreads(mbusConfig.messengerthreads());
 
         MessageBus bus = new MessageBus(net, mbusParams);
         new ConfigAgent(messagebusConfig, bus); // Configure the wrapped MessageBus with a routing table.
+        createdBus = bus;
         return new SharedMessageBus(bus);
     }
 
@@ -3,6 +3,7 @@ package com.yahoo.documentapi;
 
 import java.util.Base64;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Logger;
@@ -266,6 +267,64 @@ public class ProgressToken {
         return new ProgressToken(serialized);
     }
 
+    /**
+     * Returns a single token with the combined progress of the slices of a visit over the whole bucket space,
+     * given as the progress tokens of each slice, ordered by slice id. Every bucket which is not finished by
+     * the slice owning it is pending in the returned token, so a visit resumed from it, sliced or not, and
+     * regardless of the number of slices, continues where each of the slices left off.
+     *
+     * @param slices the progress of each slice of a visit, where the index of a token is the id of its slice
+     * @return the combined progress of all the slices
+     * @throws IllegalArgumentException if a token is for an explicit set of buckets
+     */
+    public static ProgressToken fromSlices(List<ProgressToken> slices) {
+        int distributionBits = 0;
+        for (ProgressToken slice : slices) {
+            if (slice.getTotalBucketCount() == 0 || slice.getDistributionBitCount() == 1) {
+                continue; // Not yet started, or still waiting for the actual distribution bit count.
+            }
+            if (slice.getTotalBucketCount() != (1L << slice.getDistributionBitCount())) {
+                throw new IllegalArgumentException("Can only combine progress of visits over the whole bucket space");
+            }
+            distributionBits = Math.max(distributionBits, slice.getDistributionBitCount());
+        }
+        if (distributionBits == 0) {
+            return new ProgressToken();
+        }
+
+        ProgressToken combined = new ProgressToken(distributionBits);
+        long[] cursors = new long[slices.size()];
+        long minCursor = Long.MAX_VALUE, maxCursor = 0;
+        for (int i = 0; i < slices.size(); i++) {
+            ProgressToken slice = slices.get(i);
+            if (slice.getTotalBucketCount() != 0 && slice.getDistributionBitCount() != 1) {
+                synchronized (slice) {
+                    // Scale cursors of slices which have not yet seen a distribution bit change to the common count.
+                    cursors[i] = slice.getBucketCursor() << (distributionBits - slice.getDistributionBitCount());
+                    for (Map.Entry<BucketKeyWrapper, BucketEntry> entry : slice.getBuckets().entrySet()) {
+                        BucketId superbucket = new BucketId(keyToBucketId(entry.getKey().getKey()));
+                        if ( ! combined.buckets.containsKey(bucketToKeyWrapper(superbucket)))
+                            combined.addBucket(superbucket, entry.getValue().getProgress(), BucketState.BUCKET_PENDING);
+                    }
+                }
+            }
+            minCursor = Math.min(minCursor, cursors[i]);
+            maxCursor = Math.max(maxCursor, cursors[i]);
+        }
+        // Buckets before the furthest cursor, but not yet reached by the cursor of the slice owning them, are pending.
+        for (long cursor = minCursor; cursor < maxCursor; cursor++) {
+            if (cursor >= cursors[(int) (cursor % slices.size())]) {
+                BucketId superbucket = toBucketId(cursor, distributionBits);
+                if ( ! combined.buckets.containsKey(bucketToKeyWrapper(superbucket)))
+                    combined.addBucket(superbucket, NULL_BUCKET, BucketState.BUCKET_PENDING);
+            }
+        }
+        combined.setBucketCursor(maxCursor);
+        combined.setTotalBucketCount(1L << distributionBits);
+        combined.setFinishedBucketCount(maxCursor - combined.getPendingBucketCount());
+        return combined;
+    }
+
     public void addFailedBucket(BucketId superbucket, BucketId progress, String errorMsg) {
         BucketId existing = failedBuckets.put(superbucket, progress);
         if (existing != null) {
@@ -0,0 +1,341 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi;
+
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.select.BucketSelector;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.VisitorControlHandler.CompletionCode;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Trace;
+import com.yahoo.vdslib.VisitorStatistics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A visitor session which visits all slices of a visit concurrently, with one session per slice, and reports to
+ * the control and data handlers of its parameters as a single session would. The progress reported is the
+ * combined progress of all slices, see {@link ProgressToken#fromSlices}, and a visit may be resumed from it
+ * with any number of slices.
+ *
+ * Each slice gets its own copy of the parameters of this, with the slice set, and with the resume token and the
+ * maximum total hits split between the slices. The session factory may adjust these further, and should, e.g.,
+ * give each slice its own throttle policy if the policy of the parameters keeps state.
+ */
+public class SlicedVisitorSession implements VisitorSession {
+
+    private static final Logger log = Logger.getLogger(SlicedVisitorSession.class.getName());
+
+    /** Creates the session for a single slice of a visit. */
+    @FunctionalInterface
+    public interface SessionFactory {
+        VisitorSession create(VisitorParameters parameters) throws ParseException;
+    }
+
+    private final VisitorControlHandler controlHandler;
+    private final VisitorDataHandler dataHandler; // null when data is sent to a remote data handler
+    private final List<VisitorSession> sessions = new CopyOnWriteArrayList<>();
+    private final ProgressToken[] progress;
+    private final VisitorStatistics[] statistics;
+    private final CompletionCode[] codes;
+    private final String[] messages;
+    private final AtomicInteger remaining;
+    private final AtomicBoolean aborted = new AtomicBoolean(false);
+    private final ReentrantLock progressDelivery = new ReentrantLock();
+    private long progressVersion = 0;
+    private long deliveredVersion = 0;
+
+    /**
+     * Creates a session which visits the given number of slices concurrently, or just a single session from
+     * the given factory, if there is only one slice, or the document selection is for an explicit set of buckets,
+     * which are then visited in full by all slices.
+     *
+     * @param parameters the parameters of the visit, which must not be sliced, unless only one slice is visited
+     * @param slices the number of slices to visit concurrently
+     * @param factory the factory for the sessions of each slice
+     */
+    public static VisitorSession create(VisitorParameters parameters, int slices, SessionFactory factory) throws ParseException {
+        if (slices < 1)
+            throw new IllegalArgumentException("slices must be positive, but was " + slices);
+        if (slices > 1 && parameters.getSlices() != 1)
+            throw new IllegalArgumentException("Can not visit all slices of a visit which is itself a slice");
+
+        if (slices == 1 || visitsExplicitBuckets(parameters))
+            return factory.create(parameters);
+
+        return new SlicedVisitorSession(parameters, slices, factory);
+    }
+
+    private static boolean visitsExplicitBuckets(VisitorParameters parameters) throws ParseException {
+        return    (parameters.getBucketsToVisit() != null && ! parameters.getBucketsToVisit().isEmpty())
+               || new BucketSelector(new BucketIdFactory()).getBucketList(parameters.getDocumentSelection()) != null;
+    }
+
+    private SlicedVisitorSession(VisitorParameters parameters, int slices, SessionFactory factory) throws ParseException {
+        if (parameters.getControlHandler() == null)
+            parameters.setControlHandler(new VisitorControlHandler());
+        if (parameters.getLocalDataHandler() == null && parameters.getRemoteDataHandler() == null)
+            parameters.setLocalDataHandler(new VisitorDataQueue());
+
+        this.controlHandler = parameters.getControlHandler();
+        this.controlHandler.reset();
+        this.controlHandler.setSession(this);
+        this.dataHandler = parameters.getRemoteDataHandler() == null ? parameters.getLocalDataHandler() : null;
+        if (dataHandler != null) {
+            dataHandler.reset();
+            dataHandler.setSession(this);
+        }
+
+        this.progress = new ProgressToken[slices];
+        this.statistics = new VisitorStatistics[slices];
+        this.codes = new CompletionCode[slices];
+        this.messages = new String[slices];
+        this.remaining = new AtomicInteger(slices);
+        for (int i = 0; i < slices; i++) {
+            progress[i] = parameters.getResumeToken() == null ? new ProgressToken()
+                                                              : new ProgressToken(parameters.getResumeToken().serialize());
+        }
+
+        try {
+            for (int i = 0; i < slices; i++) {
+                VisitorParameters slice = new VisitorParameters(parameters);
+                slice.slice(slices, i);
+                // The session of each slice mutates its resume token, so each needs its own.
+                if (parameters.getResumeToken() != null)
+                    slice.setResumeToken(new ProgressToken(parameters.getResumeToken().serialize()));
+                if (parameters.getMaxTotalHits() > 0)
+                    slice.setMaxTotalHits((parameters.getMaxTotalHits() + slices - 1) / slices);
+                slice.setControlHandler(new SliceControlHandler(i));
+                if (dataHandler != null)
+                    slice.setLocalDataHandler(new SliceDataHandler());
+
+                VisitorSession session = factory.create(slice);
+                sessions.add(session);
+                if (aborted.get())
+                    session.abort();
+            }
+        }
+        catch (ParseException | RuntimeException e) {
+            destroy();
+            throw e;
+        }
+    }
+
+    /** Delivers the combined progress of all slices, unless another thread is already doing this for us. */
+    private void deliverProgress(boolean wait) {
+        do {
+            if (wait)
+                progressDelivery.lock();
+            else if ( ! progressDelivery.tryLock())
+                return; // Whoever holds the lock will also deliver our update.
+
+            try {
+                while (true) {
+                    ProgressToken combined;
+                    synchronized (this) {
+                        if (deliveredVersion == progressVersion)
+                            break;
+
+                        deliveredVersion = progressVersion;
+                        combined = ProgressToken.fromSlices(Arrays.asList(progress));
+                    }
+                    controlHandler.onProgress(combined);
+                }
+            }
+            finally {
+                progressDelivery.unlock();
+            }
+        } while (hasUndeliveredProgress());
+    }
+
+    private synchronized boolean hasUndeliveredProgress() {
+        return deliveredVersion != progressVersion;
+    }
+
+    private synchronized VisitorStatistics totalStatistics() {
+        VisitorStatistics total = new VisitorStatistics();
+        for (VisitorStatistics slice : statistics)
+            if (slice != null)
+                total.add(slice);
+
+        return total;
+    }
+
+    private void onSliceDone(int slice, CompletionCode code, String message) {
+        synchronized (this) {
+            codes[slice] = code;
+            messages[slice] = message;
+        }
+        if (remaining.decrementAndGet() > 0) {
+            if (code == CompletionCode.FAILURE || code == CompletionCode.ABORTED)
+                abort(); // The visit is over, and can be resumed from the combined progress of the slices.
+
+            return;
+        }
+
+        deliverProgress(true);
+        if (dataHandler != null)
+            dataHandler.onDone();
+
+        int worst = 0;
+        synchronized (this) {
+            for (int i = 1; i < codes.length; i++)
+                if (severity(codes[i]) > severity(codes[worst]))
+                    worst = i;
+        }
+        log.log(Level.FINE, () -> "All " + codes.length + " slices of visit completed");
+        controlHandler.onDone(codes[worst], messages[worst]);
+    }
+
+    private static int severity(CompletionCode code) {
+        return switch (code) {
+            case SUCCESS -> 0;
+            case ABORTED -> 1;
+            case TIMEOUT -> 2;
+            case FAILURE -> 3;
+        };
+    }
+
+    @Override
+    public boolean isDone() {
+        return controlHandler.isDone();
+    }
+
+    @Override
+    public synchronized ProgressToken getProgress() {
+        return ProgressToken.fromSlices(Arrays.asList(progress));
+    }
+
+    @Override
+    public Trace getTrace() {
+        Trace trace = new Trace();
+        for (VisitorSession session : sessions)
+            trace.getRoot().addChild(session.getTrace().getRoot());
+
+        return trace;
+    }
+
+    @Override
+    public boolean waitUntilDone(long timeoutMs) throws InterruptedException {
+        return controlHandler.waitUntilDone(timeoutMs);
+    }
+
+    @Override
+    public void ack(AckToken token) {
+        SliceAckToken sliceToken = (SliceAckToken) token;
+        sliceToken.handler.ack(sliceToken.token);
+    }
+
+    /**
+     * Aborts all slices. This is done in a separate thread, since a slice holds its own lock when calling its
+     * handlers, and aborting another slice requires the lock of that slice.
+     */
+    @Override
+    public void abort() {
+        if (aborted.compareAndSet(false, true)) {
+            Thread aborter = new Thread(() -> sessions.forEach(VisitorSession::abort), "sliced-visitor-abort");
+            aborter.setDaemon(true);
+            aborter.start();
+        }
+    }
+
+    @Override
+    public VisitorResponse getNext() {
+        if (dataHandler == null)
+            throw new IllegalStateException("Data has been routed to external source for this visitor");
+
+        return dataHandler.getNext();
+    }
+
+    @Override
+    public VisitorResponse getNext(int timeoutMilliseconds) throws InterruptedException {
+        if (dataHandler == null)
+            throw new IllegalStateException("Data has been routed to external source for this visitor");
+
+        return dataHandler.getNext(timeoutMilliseconds);
+    }
+
+    @Override
+    public void destroy() {
+        aborted.set(true);
+        for (VisitorSession session : sessions)
+            if ( ! session.isDone())
+                session.abort();
+
+        for (VisitorSession session : sessions)
+            session.destroy();
+    }
+
+    /** Forwards the callbacks of the session of a single slice to the control handler of this. */
+    private class SliceControlHandler extends VisitorControlHandler {
+
+        private final int slice;
+
+        SliceControlHandler(int slice) {
+            this.slice = slice;
+        }
+
+        @Override
+        public void onProgress(ProgressToken token) {
+            super.onProgress(token);
+            ProgressToken snapshot = new ProgressToken(token.serialize());
+            synchronized (SlicedVisitorSession.this) {
+                progress[slice] = snapshot;
+                ++progressVersion;
+            }
+            deliverProgress(false);
+        }
+
+        @Override
+        public void onVisitorError(String message) {
+            super.onVisitorError(message);
+            controlHandler.onVisitorError(message);
+        }
+
+        @Override
+        public void onVisitorStatistics(VisitorStatistics vs) {
+            super.onVisitorStatistics(vs);
+            synchronized (SlicedVisitorSession.this) {
+                statistics[slice] = vs;
+            }
+            controlHandler.onVisitorStatistics(totalStatistics());
+        }
+
+        @Override
+        public void onDone(CompletionCode code, String message) {
+            super.onDone(code, message);
+            onSliceDone(slice, code, message);
+        }
+
+    }
+
+    /** Forwards data from the session of a single slice to the data handler of this, with acks going back to that session. */
+    private class SliceDataHandler extends VisitorDataHandler {
+
+        @Override
+        public void onMessage(Message m, AckToken token) {
+            dataHandler.onMessage(m, new SliceAckToken(this, token));
+        }
+
+    }
+
+    private static class SliceAckToken extends AckToken {
+
+        private final SliceDataHandler handler;
+        private final AckToken token;
+
+        private SliceAckToken(SliceDataHandler handler, AckToken token) {
+            super(token.ackObject);
+            this.handler = handler;
+            this.token = token;
+        }
+
+    }
+
+}
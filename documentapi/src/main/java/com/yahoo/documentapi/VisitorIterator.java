@@ -7,6 +7,7 @@ import com.yahoo.document.select.BucketSelector;
 import com.yahoo.document.select.parser.ParseException;
 import java.util.logging.Level;
 
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
@@ -151,6 +152,11 @@ public class VisitorIterator {
                     correctInconsistentPending(progressToken.getDistributionBitCount());
                     // Fixup for bucket cursor in case of bucket space downscaling
                     correctTruncatedBucketCursor();
+                    // Pending buckets of other slices are left to those, e.g., when resuming
+                    // slices from the combined progress of a visit
+                    if (slices > 1 && distributionBitCount != 1) {
+                        removePendingOfOtherSlices();
+                    }
 
                     if (log.isLoggable(Level.FINE)) {
                         log.log(Level.FINE, "Partial bucket space progress; continuing "+
@@ -167,6 +173,23 @@ public class VisitorIterator {
             skipToSlice();
         }
 
+        private void removePendingOfOtherSlices() {
+            long removed = 0;
+            Iterator<ProgressToken.BucketKeyWrapper> keys = progressToken.getBuckets().keySet().iterator();
+            while (keys.hasNext()) {
+                long index = keys.next().getKey() >>> (64 - distributionBitCount);
+                if (index % slices != sliceId) {
+                    keys.remove();
+                    ++removed;
+                }
+            }
+            if (removed > 0 && log.isLoggable(Level.FINE)) {
+                log.log(Level.FINE, "Left " + removed + " pending buckets of other slices than " +
+                        sliceId + " of " + slices + " to those");
+            }
+            progressToken.setPendingBucketCount(progressToken.getPendingBucketCount() - removed);
+        }
+
         protected boolean isLosslessResetPossible() {
             // #pending must be equal to cursor, i.e. all buckets ever fetched
             // must be located in the set of pending
@@ -0,0 +1,186 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.documentapi;
+
+import com.yahoo.document.BucketIdFactory;
+import com.yahoo.document.DocumentId;
+import com.yahoo.document.select.parser.ParseException;
+import com.yahoo.documentapi.VisitorControlHandler.CompletionCode;
+import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
+import com.yahoo.messagebus.Message;
+import com.yahoo.messagebus.Trace;
+import com.yahoo.vdslib.VisitorStatistics;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SlicedVisitorSessionTest {
+
+    private final List<SliceSession> slices = new ArrayList<>();
+    private final List<Message> received = new CopyOnWriteArrayList<>();
+    private final AtomicInteger dataDone = new AtomicInteger();
+    private final VisitorDataHandler dataHandler = new VisitorDataHandler() {
+        @Override public void onMessage(Message m, AckToken token) {
+            received.add(m);
+            ack(token);
+        }
+        @Override public void onDone() {
+            dataDone.incrementAndGet();
+        }
+    };
+
+    private VisitorSession create(VisitorParameters parameters, int slices) throws ParseException {
+        parameters.setLocalDataHandler(dataHandler);
+        parameters.setControlHandler(new VisitorControlHandler());
+        return SlicedVisitorSession.create(parameters, slices, sliceParameters -> {
+            SliceSession session = new SliceSession(sliceParameters);
+            this.slices.add(session);
+            return session;
+        });
+    }
+
+    @Test
+    public void requireThatAllSlicesAreVisitedConcurrentlyAndReportedAsOne() throws ParseException, InterruptedException {
+        VisitorParameters parameters = new VisitorParameters("");
+        parameters.setMaxTotalHits(10);
+        VisitorSession session = create(parameters, 3);
+        VisitorControlHandler control = parameters.getControlHandler();
+
+        assertEquals(3, slices.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(3, slices.get(i).parameters.getSlices());
+            assertEquals(i, slices.get(i).parameters.getSliceId());
+            assertEquals(4, slices.get(i).parameters.getMaxTotalHits());
+        }
+
+        Message message = new RemoveDocumentMessage(new DocumentId("id:ns:type::1"));
+        AckToken token = new AckToken(new Object());
+        slices.get(1).parameters.getLocalDataHandler().onMessage(message, token);
+        assertEquals(List.of(message), received);
+        assertEquals(List.of(token), slices.get(1).acks);
+        assertTrue(slices.get(0).acks.isEmpty());
+
+        VisitorStatistics statistics = new VisitorStatistics();
+        statistics.setBucketsVisited(2);
+        slices.get(0).parameters.getControlHandler().onVisitorStatistics(statistics);
+        slices.get(2).parameters.getControlHandler().onVisitorStatistics(statistics);
+        assertEquals(4, control.getVisitorStatistics().getBucketsVisited());
+
+        slices.get(0).visitAll();
+        assertEquals(6, control.getProgress().getFinishedBucketCount()); // 16 buckets, where slice 0 has 0, 3, ..., 15.
+        assertFalse(control.getProgress().isFinished());
+
+        slices.get(0).done(CompletionCode.SUCCESS, null);
+        slices.get(1).visitAll();
+        slices.get(1).done(CompletionCode.TIMEOUT, "slow");
+        assertFalse(session.isDone());
+        assertEquals(0, dataDone.get());
+
+        slices.get(2).visitAll();
+        slices.get(2).done(CompletionCode.SUCCESS, null);
+        assertTrue(session.waitUntilDone(0));
+        assertEquals(1, dataDone.get());
+        assertEquals(CompletionCode.TIMEOUT, control.getResult().getCode());
+        assertEquals("slow", control.getResult().getMessage());
+        assertTrue(control.getProgress().isFinished());
+        assertTrue(session.getProgress().isFinished());
+
+        for (SliceSession slice : slices)
+            assertFalse(slice.aborted);
+
+        session.destroy();
+        for (SliceSession slice : slices)
+            assertTrue(slice.destroyed);
+    }
+
+    @Test
+    public void requireThatFailedSliceAbortsOthers() throws ParseException, InterruptedException {
+        VisitorParameters parameters = new VisitorParameters("");
+        VisitorSession session = create(parameters, 2);
+
+        slices.get(0).done(CompletionCode.FAILURE, "boom");
+        for (int i = 0; i < 600 && ! slices.get(1).aborted; i++)
+            Thread.sleep(100);
+
+        assertTrue(slices.get(1).aborted);
+        slices.get(1).done(CompletionCode.ABORTED, "aborted");
+        assertTrue(session.isDone());
+        assertEquals(CompletionCode.FAILURE, parameters.getControlHandler().getResult().getCode());
+        assertEquals("boom", parameters.getControlHandler().getResult().getMessage());
+    }
+
+    @Test
+    public void requireThatVisitsOfExplicitBucketsAreNotSliced() throws ParseException {
+        VisitorParameters parameters = new VisitorParameters("id.user == 1234");
+        VisitorSession session = create(parameters, 3);
+        assertEquals(1, slices.size());
+        assertSame(slices.get(0), session);
+        assertSame(parameters, slices.get(0).parameters);
+    }
+
+    @Test
+    public void requireThatSlicedParametersAreRejected() throws ParseException {
+        VisitorParameters parameters = new VisitorParameters("");
+        parameters.slice(2, 1);
+        try {
+            create(parameters, 3);
+            fail("Sliced parameters should be rejected");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals("Can not visit all slices of a visit which is itself a slice", e.getMessage());
+        }
+        assertSame(parameters, ((SliceSession) create(parameters, 1)).parameters);
+    }
+
+    private static class SliceSession implements VisitorSession {
+
+        final VisitorParameters parameters;
+        final List<AckToken> acks = new CopyOnWriteArrayList<>();
+        volatile boolean aborted = false;
+        volatile boolean destroyed = false;
+
+        SliceSession(VisitorParameters parameters) {
+            this.parameters = parameters;
+            parameters.getControlHandler().reset();
+            parameters.getControlHandler().setSession(this);
+            parameters.getLocalDataHandler().reset();
+            parameters.getLocalDataHandler().setSession(this);
+        }
+
+        /** Visits all buckets of this slice, with 4 distribution bits, and reports the progress. */
+        void visitAll() throws ParseException {
+            ProgressToken token = new ProgressToken();
+            VisitorIterator iterator = VisitorIterator.createFromDocumentSelection("", new BucketIdFactory(), 4, token,
+                                                                                   parameters.getSlices(), parameters.getSliceId());
+            while (iterator.hasNext())
+                iterator.update(iterator.getNext().getSuperbucket(), ProgressToken.FINISHED_BUCKET);
+
+            parameters.getControlHandler().onProgress(token);
+        }
+
+        void done(CompletionCode code, String message) {
+            parameters.getLocalDataHandler().onDone();
+            parameters.getControlHandler().onDone(code, message);
+        }
+
+        @Override public boolean isDone() { return parameters.getControlHandler().isDone(); }
+        @Override public ProgressToken getProgress() { return parameters.getControlHandler().getProgress(); }
+        @Override public Trace getTrace() { return new Trace(); }
+        @Override public boolean waitUntilDone(long timeoutMs) throws InterruptedException { return parameters.getControlHandler().waitUntilDone(timeoutMs); }
+        @Override public void ack(AckToken token) { acks.add(token); }
+        @Override public void abort() { aborted = true; }
+        @Override public VisitorResponse getNext() { return null; }
+        @Override public VisitorResponse getNext(int timeoutMilliseconds) { return null; }
+        @Override public void destroy() { destroyed = true; }
+
+    }
+
+}
@@ -207,6 +207,58 @@ public class VisitorIteratorTestCase {
         }
     }
 
+    @Test
+    public void testResumingFromCombinedProgressOfSlices() throws ParseException {
+        int distBits = 4;
+        int buckets = 1 << distBits;
+        int slices = 4;
+        BucketIdFactory idFactory = new BucketIdFactory();
+        Set<BucketId> finished = new TreeSet<>();
+        List<ProgressToken> progress = new ArrayList<>();
+        for (int sliceId = 0; sliceId < slices - 1; sliceId++) {
+            ProgressToken token = new ProgressToken();
+            VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                    "id.group != \"yahoo.com\"", idFactory, distBits, token, slices, sliceId);
+            // Slices finish different numbers of buckets, and leave one partially visited
+            for (int i = 0; i <= sliceId; i++) {
+                BucketId superbucket = iter.getNext().getSuperbucket();
+                iter.update(superbucket, ProgressToken.FINISHED_BUCKET);
+                finished.add(superbucket);
+            }
+            BucketId partial = iter.getNext().getSuperbucket();
+            iter.update(partial, new BucketId(distBits + 1, partial.getId()));
+            progress.add(token);
+        }
+        progress.add(new ProgressToken()); // The last slice has not yet started
+
+        ProgressToken combined = ProgressToken.fromSlices(progress);
+        assertEquals(distBits, combined.getDistributionBitCount());
+        assertEquals(buckets, combined.getTotalBucketCount());
+        assertEquals(finished.size(), combined.getFinishedBucketCount());
+        assertFalse(combined.isFinished());
+
+        // Resuming with any number of slices visits exactly the buckets not yet finished
+        for (int resumedSlices = 1; resumedSlices <= 5; resumedSlices++) {
+            Set<BucketId> visited = new TreeSet<>();
+            for (int sliceId = 0; sliceId < resumedSlices; sliceId++) {
+                VisitorIterator iter = VisitorIterator.createFromDocumentSelection(
+                        "id.group != \"yahoo.com\"", idFactory, distBits,
+                        new ProgressToken(combined.serialize()), resumedSlices, sliceId);
+                while (iter.hasNext()) {
+                    BucketId superbucket = iter.getNext().getSuperbucket();
+                    assertTrue("slices: " + resumedSlices + ", " + superbucket, visited.add(superbucket));
+                    iter.update(superbucket, ProgressToken.FINISHED_BUCKET);
+                }
+                assertTrue(iter.isDone());
+            }
+            for (BucketId bucket : visited)
+                assertFalse(finished.contains(bucket));
+            assertEquals(buckets, visited.size() + finished.size());
+        }
+
+        assertTrue(ProgressToken.fromSlices(List.of(new ProgressToken(), new ProgressToken())).isEmpty());
+    }
+
     @Test
     public void testProgressSerializationRange() throws ParseException {
         int distBits = 4;
@@ -3,6 +3,7 @@ package com.yahoo.documentapi;
 
 import com.yahoo.document.fieldset.AllFields;
 import com.yahoo.documentapi.messagebus.protocol.DocumentProtocol;
+import com.yahoo.messagebus.StaticThrottlePolicy;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -21,6 +22,7 @@ public class VisitorParametersTestCase {
         params.setPriority(DocumentProtocol.Priority.HIGHEST);
         params.setRoute("extraterrestrial/highway");
         params.setTimeoutMs(1337);
+        params.setSessionTimeoutMs(4242);
         params.setMaxPending(111);
         params.setFieldSet(AllFields.NAME);
         params.setVisitRemoves(true);
@@ -32,6 +34,7 @@ public class VisitorParametersTestCase {
         params.setControlHandler(new VisitorControlHandler());
         params.setMaxTotalHits(777);
         params.skipBucketsOnFatalErrors(true);
+        params.setThrottlePolicy(new StaticThrottlePolicy().setMaxPendingCount(7));
 
         return params;
     }
@@ -39,6 +42,7 @@ public class VisitorParametersTestCase {
     @Test
     public void testCopyConstructor() {
         VisitorParameters params = createVisitorParameters();
+        params.slice(3, 2);
 
         VisitorParameters copy = new VisitorParameters(params);
 
@@ -53,6 +57,7 @@ public class VisitorParametersTestCase {
         assertEquals(DocumentProtocol.Priority.HIGHEST, copy.getPriority());
         assertEquals("extraterrestrial/highway", copy.getRoute().toString());
         assertEquals(1337, copy.getTimeoutMs());
+        assertEquals(4242, copy.getSessionTimeoutMs());
         assertEquals(111, copy.getMaxPending());
         assertEquals(AllFields.NAME, copy.getFieldSet());
         assertEquals(true, copy.getVisitRemoves());
@@ -64,6 +69,9 @@ public class VisitorParametersTestCase {
         assertEquals(params.getControlHandler(), copy.getControlHandler());
         assertEquals(777, copy.getMaxTotalHits());
         assertEquals(true, copy.skipBucketsOnFatalErrors());
+        assertEquals(params.getThrottlePolicy(), copy.getThrottlePolicy()); // instance compare
+        assertEquals(3, copy.getSlices());
+        assertEquals(2, copy.getSliceId());
 
         // Test local data handler copy
         VisitorParameters params2 = new VisitorParameters("");
@@ -44,6 +44,12 @@ public class Downloads {
         }
     }
 
+    void failedDownloading(FileReference fileReference, Throwable cause) {
+        Optional<FileReferenceDownload> download = get(fileReference);
+        remove(fileReference);
+        download.ifPresent(d -> d.future().completeExceptionally(cause));
+    }
+
     void add(FileReferenceDownload fileReferenceDownload) {
         downloads.put(fileReferenceDownload.fileReference(), fileReferenceDownload);
         downloadStatuses.put(fileReferenceDownload.fileReference());
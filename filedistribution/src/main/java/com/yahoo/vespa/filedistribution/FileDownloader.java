@@ -8,6 +8,7 @@ import com.yahoo.vespa.config.ConnectionPool;
 import com.yahoo.vespa.defaults.Defaults;
 import java.io.File;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -45,7 +46,24 @@ public class FileDownloader implements AutoCloseable {
         this(connectionPool, supervisor, downloadDirectory, timeout, defaultSleepBetweenRetries);
     }
 
+    public FileDownloader(ConnectionPool connectionPool, PeerConnectionPool peers, Supervisor supervisor, Duration timeout) {
+        this(connectionPool, peers, supervisor, defaultDownloadDirectory, timeout, defaultSleepBetweenRetries);
+    }
+
+    public FileDownloader(ConnectionPool connectionPool,
+                          Supervisor supervisor,
+                          File downloadDirectory,
+                          Duration timeout,
+                          Duration sleepBetweenRetries) {
+        this(connectionPool, new PeerConnectionPool(supervisor, List.of()), supervisor, downloadDirectory, timeout, sleepBetweenRetries);
+    }
+
+    /**
+     * Creates a downloader which tries to download file references from the given peers before the given sources.
+     * Connections to peers must use the given supervisor.
+     */
     public FileDownloader(ConnectionPool connectionPool,
+                          PeerConnectionPool peers,
                           Supervisor supervisor,
                           File downloadDirectory,
                           Duration timeout,
@@ -55,8 +73,9 @@ public class FileDownloader implements AutoCloseable {
         this.downloadDirectory = downloadDirectory;
         this.timeout = timeout;
         // Needed to receive RPC receiveFile* calls from server after starting download of file reference
-        new FileReceiver(supervisor, downloads, downloadDirectory);
+        new FileReceiver(supervisor, peers, downloads, downloadDirectory);
         this.fileReferenceDownloader = new FileReferenceDownloader(connectionPool,
+                                                                   peers,
                                                                    downloads,
                                                                    timeout,
                                                                    sleepBetweenRetries,
@@ -100,7 +119,7 @@ public class FileDownloader implements AutoCloseable {
         return getFileFromFileSystem(fileReference, downloadDirectory);
     }
 
-    private static Optional<File> getFileFromFileSystem(FileReference fileReference, File downloadDirectory) {
+    static Optional<File> getFileFromFileSystem(FileReference fileReference, File downloadDirectory) {
         if (forceDownload) return Optional.empty();
 
         File[] files = new File(downloadDirectory, fileReference.value()).listFiles();
@@ -6,19 +6,23 @@ import com.yahoo.io.IOUtils;
 import com.yahoo.jrt.Int32Value;
 import com.yahoo.jrt.Method;
 import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequestAccessFilter;
+import com.yahoo.jrt.RequireCapabilitiesFilter;
 import com.yahoo.jrt.Supervisor;
 import com.yahoo.security.tls.Capability;
-import net.jpountz.xxhash.StreamingXXHash64;
-import net.jpountz.xxhash.XXHashFactory;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
-import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -29,7 +33,8 @@ import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType
 /**
  * When asking for a file reference, this handles RPC callbacks from config server with file data and metadata.
  * Uses the same Supervisor as the original caller that requests files, so communication uses the same
- * connection in both directions.
+ * connection in both directions. Peers, see {@link PeerConnectionPool}, send files back the same way, and are
+ * required to have the capability of config proxies, rather than that of config servers.
  *
  * @author baldersheim
  */
@@ -39,27 +44,35 @@ public class FileReceiver {
     public final static String RECEIVE_META_METHOD = "filedistribution.receiveFileMeta";
     public final static String RECEIVE_PART_METHOD = "filedistribution.receiveFilePart";
     public final static String RECEIVE_EOF_METHOD = "filedistribution.receiveFileEof";
+    public final static String RECEIVE_HASHED_PART_METHOD = "filedistribution.receiveFileHashedPart";
+    /** Size of the parts files are sent in, unless another size is given in the file meta data */
+    public final static int DEFAULT_PART_SIZE = 0x100000;
+    /** Sessions which have received nothing for this long may be replaced by a new session for the same file reference */
+    private static final Duration idleSessionTimeout = Duration.ofMinutes(1);
+    /** How long to wait for extraction of the parts received before the end of a transfer to complete */
+    private static final Duration extractionTimeout = Duration.ofMinutes(10);
 
     private final Supervisor supervisor;
+    private final PeerConnectionPool peers;
     private final Downloads downloads;
     private final File downloadDirectory;
     private final AtomicInteger nextSessionId = new AtomicInteger(1);
     private final Map<Integer, Session> sessions = new HashMap<>();
 
     final static class Session {
-        private final StreamingXXHash64 hasher;
         private final int sessionId;
         private final FileReference reference;
         private final Type fileType;
         private final CompressionType compressionType;
         private final String fileName;
-        private final long fileSize;
-        private long currentFileSize;
-        private long currentPartId;
-        private final long currentHash;
         private final File fileReferenceDir;
         private final File tmpDir;
-        private final File inprogressFile;
+        private final PartialFile partialFile;
+        // Compressed content is extracted while it is received, into this directory, when possible
+        private final File extractionDir;
+        private final StreamingExtractor extractor;
+        private volatile Instant lastReceived = Instant.now();
+        private boolean extractedWhileReceiving = false;
 
         Session(File downloadDirectory,
                 int sessionId,
@@ -67,55 +80,79 @@ public class FileReceiver {
                 Type fileType,
                 FileReferenceData.CompressionType compressionType,
                 String fileName,
-                long fileSize) {
-            this.hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
+                long fileSize,
+                int partSize,
+                boolean resume) {
             this.sessionId = sessionId;
             this.reference = reference;
             this.fileType = fileType;
             this.compressionType = compressionType;
             this.fileName = fileName;
-            this.fileSize = fileSize;
-            currentFileSize = 0;
-            currentPartId = 0;
-            currentHash = 0;
             fileReferenceDir = new File(downloadDirectory, reference.value());
             this.tmpDir = downloadDirectory;
 
             try {
-                inprogressFile = Files.createTempFile(tmpDir.toPath(), fileName, ".inprogress").toFile();
+                // Compressed content may differ between sources, so only transfers of plain files are resumed
+                partialFile = PartialFile.open(tmpDir.toPath(), reference, fileSize, partSize, resume && fileType == Type.file);
+                extractionDir = fileType == Type.compressed ? Files.createTempDirectory(tmpDir.toPath(), "archive").toFile() : null;
+                extractor = fileType == Type.compressed
+                        ? new StreamingExtractor(new FileReferenceCompressor(fileType, compressionType), extractionDir)
+                        : null;
             } catch (IOException e) {
-                String msg = "Failed creating temp file for inprogress file for " + fileName + " in '" + tmpDir.toPath() + "': ";
+                String msg = "Failed creating inprogress file for " + fileName + " in '" + tmpDir.toPath() + "': ";
                 log.log(Level.SEVERE, msg + e.getMessage(), e);
                 throw new RuntimeException(msg, e);
             }
         }
 
+        /** Adds the given part, which may be received in any order */
         void addPart(int partId, byte [] part) {
-            if (partId != currentPartId) {
-                throw new IllegalStateException("Received partid " + partId + " while expecting " + currentPartId);
-            }
-            if (fileSize < currentFileSize + part.length) {
-                throw new IllegalStateException("Received part would extend the file from " + currentFileSize + " to " +
-                                                (currentFileSize + part.length) + ", but " + fileSize + " is max.");
-            }
+            lastReceived = Instant.now();
             try {
-                Files.write(inprogressFile.toPath(), part, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
-            } catch (IOException e) {
-                String message = "Failed writing to file (" + inprogressFile.toPath() + "): ";
+                partialFile.write(partId, part);
+                if (extractor != null) extractor.add(partId, part);
+            } catch (UncheckedIOException e) {
+                String message = "Failed writing to file (" + partialFile.path() + "): ";
                 log.log(Level.SEVERE, message + e.getMessage(), e);
-                boolean successfulDelete = inprogressFile.delete();
-                if ( ! successfulDelete)
-                    log.log(Level.INFO, "Unable to delete " + inprogressFile.toPath());
+                partialFile.delete();
                 throw new RuntimeException(message, e);
             }
-            currentFileSize += part.length;
-            currentPartId++;
-            hasher.update(part, 0, part.length);
+        }
+
+        /** Adds the given part, after verifying it has the given xxhash64 */
+        void addPart(int partId, byte [] part, long xxhash) {
+            if (PartialFile.hash(part) != xxhash)
+                throw new IllegalArgumentException("xxhash of part " + partId + " (" + PartialFile.hash(part) +
+                                                   ") is not equal to xxhash in request (" + xxhash + ")");
+            addPart(partId, part);
+        }
+
+        /** Returns the parts received so far, including those received in earlier sessions, if resumed */
+        BitSet receivedParts() {
+            return partialFile.received();
         }
 
         File close(long hash) {
+            if (extractor != null) {
+                boolean extracted = partialFile.isComplete() && extractor.finish(extractionTimeout).equals(Optional.of(hash));
+                if (extracted) {
+                    log.log(Level.FINE, () -> "Extracted " + reference.value() + " while receiving it");
+                    extractedWhileReceiving = true;
+                    partialFile.delete();
+                    try {
+                        moveFileToDestination(extractionDir, fileReferenceDir);
+                    } finally {
+                        deletePath(extractionDir);
+                    }
+                    return new File(fileReferenceDir, fileName);
+                }
+                stopExtraction(); // Verifies and decompresses the complete file below instead
+            }
+
             verifyHash(hash);
+            partialFile.complete();
 
+            File inprogressFile = partialFile.path().toFile();
             File file = new File(fileReferenceDir, fileName);
             File decompressedDir = null;
             try {
@@ -144,19 +181,47 @@ public class FileReceiver {
             return file;
         }
 
+        /** Returns whether parts have been received in this session recently, i.e., whether its sender is still alive */
+        boolean isActive() {
+            return lastReceived.isAfter(Instant.now().minus(idleSessionTimeout));
+        }
+
+        /** Stops receiving parts in this session, and keeps those received, so the transfer can be resumed */
+        void abandon() {
+            if (extractor != null) stopExtraction();
+            partialFile.close();
+        }
+
+        /** Returns whether this was extracted while its parts were received, instead of after the last part was */
+        boolean extractedWhileReceiving() {
+            return extractedWhileReceiving;
+        }
+
+        private void stopExtraction() {
+            extractor.close();
+            deletePath(extractionDir);
+        }
+
         double percentageReceived() {
-            return (double)currentFileSize/(double)fileSize;
+            return partialFile.percentageReceived();
         }
 
         void verifyHash(long hash) {
-            if (hasher.getValue() != hash)
-                throw new RuntimeException("xxhash from content (" + currentHash + ") is not equal to xxhash in request (" + hash + ")");
+            if ( ! partialFile.verify(hash)) {
+                partialFile.close(); // Keeps the parts which were received intact
+                throw new HashMismatchException("xxhash from content is not equal to xxhash in request (" + hash + ")");
+            }
         }
 
     }
 
-    FileReceiver(Supervisor supervisor, Downloads downloads, File downloadDirectory) {
+    static class HashMismatchException extends RuntimeException {
+        HashMismatchException(String message) { super(message); }
+    }
+
+    FileReceiver(Supervisor supervisor, PeerConnectionPool peers, Downloads downloads, File downloadDirectory) {
         this.supervisor = supervisor;
+        this.peers = peers;
         this.downloads = downloads;
         this.downloadDirectory = downloadDirectory;
         registerMethods();
@@ -169,25 +234,38 @@ public class FileReceiver {
     // Defined here so that it can be added to supervisor used by client (server will use same connection when calling
     // receiveFile after getting a serveFile method call). handler needs to implement receiveFile* methods
     private List<Method> receiveFileMethod() {
+        RequestAccessFilter fromConfigServers = new RequireCapabilitiesFilter(Capability.CLIENT__FILERECEIVER_API);
+        RequestAccessFilter fromPeers = new RequireCapabilitiesFilter(Capability.CONFIGPROXY__FILEDISTRIBUTION_API);
+        RequestAccessFilter filter = request -> peers.isConnectionToPeer(request.target()) ? fromPeers.allow(request)
+                                                                                            : fromConfigServers.allow(request);
         List<Method> methods = new ArrayList<>();
         methods.add(new Method(RECEIVE_META_METHOD, "sssl*", "ii", this::receiveFileMeta)
-                .requireCapabilities(Capability.CLIENT__FILERECEIVER_API)
+                .requestAccessFilter(filter)
                 .paramDesc(0, "filereference", "file reference to download")
                 .paramDesc(1, "filename", "filename")
                 .paramDesc(2, "type", "'file' or 'compressed'")
                 .paramDesc(3, "filelength", "length in bytes of file")
-                .paramDesc(3, "compressionType", "compression type: gzip, lz4, zstd")
+                .paramDesc(4, "compressionType, partSize", "optional compression type: gzip, lz4, zstd, and optional size " +
+                                                           "of all parts but the last, which may then be sent in any order")
                 .returnDesc(0, "ret", "0 if success, 1 otherwise")
                 .returnDesc(1, "session-id", "Session id to be used for this transfer"));
         methods.add(new Method(RECEIVE_PART_METHOD, "siix", "i", this::receiveFilePart)
-                .requireCapabilities(Capability.CLIENT__FILERECEIVER_API)
+                .requestAccessFilter(filter)
+                .paramDesc(0, "filereference", "file reference to download")
+                .paramDesc(1, "session-id", "Session id to be used for this transfer")
+                .paramDesc(2, "partid", "relative part number starting at zero")
+                .paramDesc(3, "data", "bytes in this part")
+                .returnDesc(0, "ret", "0 if success, 1 otherwise"));
+        methods.add(new Method(RECEIVE_HASHED_PART_METHOD, "siixl", "i", this::receiveFilePart)
+                .requestAccessFilter(filter)
                 .paramDesc(0, "filereference", "file reference to download")
                 .paramDesc(1, "session-id", "Session id to be used for this transfer")
                 .paramDesc(2, "partid", "relative part number starting at zero")
                 .paramDesc(3, "data", "bytes in this part")
+                .paramDesc(4, "crc-code", "crc code (xxhash64) of the bytes in this part")
                 .returnDesc(0, "ret", "0 if success, 1 otherwise"));
         methods.add(new Method(RECEIVE_EOF_METHOD, "silis", "i", this::receiveFileEof)
-                .requireCapabilities(Capability.CLIENT__FILERECEIVER_API)
+                .requestAccessFilter(filter)
                 .paramDesc(0, "filereference", "file reference to download")
                 .paramDesc(1, "session-id", "Session id to be used for this transfer")
                 .paramDesc(2, "crc-code", "crc code (xxhash64)")
@@ -238,6 +316,9 @@ public class FileReceiver {
         CompressionType compressionType = (req.parameters().size() > 4)
                 ? CompressionType.valueOf(req.parameters().get(4).asString())
                 : CompressionType.gzip; // fallback/legacy compression type
+        // Senders which give the part size send only the parts not already received, so those are kept
+        boolean resume = req.parameters().size() > 5;
+        int partSize = resume ? req.parameters().get(5).asInt32() : DEFAULT_PART_SIZE;
         int sessionId = nextSessionId.getAndIncrement();
         int retval = 0;
         synchronized (sessions) {
@@ -245,11 +326,23 @@ public class FileReceiver {
                 retval = 1;
                 log.severe("Session id " + sessionId + " already exist, impossible. Request from " + req.target());
             } else {
-                try {
-                    sessions.put(sessionId, new Session(downloadDirectory, sessionId, reference,
-                                                        type, compressionType, fileName, fileSize));
-                } catch (Exception e) {
+                // Another source may be sending the same file reference, e.g., a peer and a config server, after a retry.
+                // The two would use the same file, so an unfinished one is replaced only when its sender seems gone.
+                Optional<Session> existing = sessions.values().stream().filter(session -> session.reference.equals(reference)).findAny();
+                if (existing.isPresent() && existing.get().isActive()) {
                     retval = 1;
+                    log.log(Level.FINE, () -> reference.value() + " is already being received, rejecting transfer from " + req.target());
+                } else {
+                    existing.ifPresent(session -> {
+                        session.abandon();
+                        sessions.remove(session.sessionId);
+                    });
+                    try {
+                        sessions.put(sessionId, new Session(downloadDirectory, sessionId, reference,
+                                                            type, compressionType, fileName, fileSize, partSize, resume));
+                    } catch (Exception e) {
+                        retval = 1;
+                    }
                 }
             }
         }
@@ -268,12 +361,15 @@ public class FileReceiver {
         int retval = verifySession(session, sessionId, reference);
         if (retval == 0) {
             try {
-                session.addPart(partId, part);
+                if (req.methodName().equals(RECEIVE_HASHED_PART_METHOD))
+                    session.addPart(partId, part, req.parameters().get(4).asInt64());
+                else
+                    session.addPart(partId, part);
             } catch (Exception e) {
                 log.severe("Got exception " + e);
                 retval = 1;
             }
-            double completeness = (double) session.currentFileSize / (double) session.fileSize;
+            double completeness = session.percentageReceived();
             log.log(Level.FINEST, () -> String.format("%.1f percent of '%s' downloaded", completeness * 100, reference.value()));
             downloads.setDownloadStatus(reference, completeness);
         }
@@ -287,10 +383,19 @@ public class FileReceiver {
         long xxhash = req.parameters().get(2).asInt64();
         Session session = getSession(sessionId);
         int retval = verifySession(session, sessionId, reference);
-        File file = session.close(xxhash);
-        downloads.completedDownloading(reference, file);
-        synchronized (sessions) {
-            sessions.remove(sessionId);
+        if (retval == 0) {
+            synchronized (sessions) {
+                sessions.remove(sessionId);
+            }
+            try {
+                File file = session.close(xxhash);
+                downloads.completedDownloading(reference, file);
+            } catch (RuntimeException e) {
+                // Parts which were received intact are kept, and only the others are requested when retrying
+                log.log(Level.WARNING, "Failed receiving " + reference.value() + ": " + e.getMessage());
+                downloads.failedDownloading(reference, e);
+                retval = e instanceof HashMismatchException ? 1 : 2;
+            }
         }
         req.returnValues().add(new Int32Value(retval));
     }
@@ -33,6 +33,8 @@ public class FileReferenceCompressor {
 
     private static final Logger log = Logger.getLogger(FileReferenceCompressor.class.getName());
     private static final int recurseDepth = 100;
+    // Larger blocks than the default give a much better compression ratio for large files, e.g., models
+    private static final int zstdBufferSize = 2 * 1024 * 1024;
 
     private final FileReferenceData.Type type;
     private final FileReferenceData.CompressionType compressionType;
@@ -59,13 +61,24 @@ public class FileReferenceCompressor {
 
     public void decompress(File inputFile, File outputDir) throws IOException {
         log.log(Level.FINEST, () -> "Decompressing '" + inputFile + "' into '" + outputDir + "'");
-        try (TarArchiveInputStream ais = new TarArchiveInputStream(decompressedInputStream(inputFile))) {
+        try (TarArchiveInputStream ais = new TarArchiveInputStream(decompressedInputStream(new FileInputStream(inputFile)))) {
             decompress(ais, outputDir);
         } catch (IllegalArgumentException e) {
             throw new RuntimeException("Unable to decompress '" + inputFile.getAbsolutePath() + "': " + e.getMessage());
         }
     }
 
+    /** Decompresses the given stream into the given directory, as it is read; the stream is not closed */
+    public void decompress(InputStream input, File outputDir) throws IOException {
+        log.log(Level.FINEST, () -> "Decompressing stream into '" + outputDir + "'");
+        TarArchiveInputStream ais = new TarArchiveInputStream(decompressedInputStream(input));
+        try {
+            decompress(ais, outputDir);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unable to decompress stream: " + e.getMessage());
+        }
+    }
+
     private static void decompress(TarArchiveInputStream archiveInputStream, File outputFile) throws IOException {
         int entries = 0;
         ArchiveEntry entry;
@@ -122,7 +135,7 @@ public class FileReferenceCompressor {
                 yield switch (compressionType) {
                     case gzip -> new GZIPOutputStream(new FileOutputStream(outputFile));
                     case lz4 -> new LZ4BlockOutputStream(new FileOutputStream(outputFile));
-                    case zstd -> new ZstdOutputStream(new FileOutputStream(outputFile));
+                    case zstd -> new ZstdOutputStream(new FileOutputStream(outputFile), zstdBufferSize);
                 };
             }
             case file -> new FileOutputStream(outputFile);
@@ -130,17 +143,17 @@ public class FileReferenceCompressor {
         };
     }
 
-    private InputStream decompressedInputStream(File inputFile) throws IOException {
+    private InputStream decompressedInputStream(InputStream input) throws IOException {
         return switch (type) {
             case compressed -> {
                 log.log(Level.FINEST, () -> "Decompressing with compression type " + compressionType);
                 yield switch (compressionType) {
-                    case gzip -> new GZIPInputStream(new FileInputStream(inputFile));
-                    case lz4 -> new LZ4BlockInputStream(new FileInputStream(inputFile));
-                    case zstd -> new ZstdInputStream(new FileInputStream(inputFile));
+                    case gzip -> new GZIPInputStream(input);
+                    case lz4 -> new LZ4BlockInputStream(input);
+                    case zstd -> new ZstdInputStream(input);
                 };
             }
-            case file -> new FileInputStream(inputFile);
+            case file -> input;
             default -> throw new RuntimeException("Unknown file reference type " + type);
         };
     }
@@ -3,6 +3,7 @@ package com.yahoo.vespa.filedistribution;
 
 import com.yahoo.concurrent.DaemonThreadFactory;
 import com.yahoo.config.FileReference;
+import com.yahoo.jrt.Int32Array;
 import com.yahoo.jrt.Int32Value;
 import com.yahoo.jrt.Request;
 import com.yahoo.jrt.StringArray;
@@ -36,11 +37,13 @@ public class FileReferenceDownloader {
 
     private static final Logger log = Logger.getLogger(FileReferenceDownloader.class.getName());
     private static final Set<CompressionType> defaultAcceptedCompressionTypes = Set.of(gzip, lz4, zstd);
+    private static final int maxPeersToTry = 3;
 
     private final ExecutorService downloadExecutor =
             Executors.newFixedThreadPool(Math.max(8, Runtime.getRuntime().availableProcessors()),
                                          new DaemonThreadFactory("filereference downloader"));
     private final ConnectionPool connectionPool;
+    private final ConnectionPool peers;
     private final Downloads downloads;
     private final Duration downloadTimeout;
     private final Duration sleepBetweenRetries;
@@ -48,11 +51,13 @@ public class FileReferenceDownloader {
     private final File downloadDirectory;
 
     FileReferenceDownloader(ConnectionPool connectionPool,
+                            ConnectionPool peers,
                             Downloads downloads,
                             Duration timeout,
                             Duration sleepBetweenRetries,
                             File downloadDirectory) {
         this.connectionPool = connectionPool;
+        this.peers = peers;
         this.downloads = downloads;
         this.downloadTimeout = timeout;
         this.sleepBetweenRetries = sleepBetweenRetries;
@@ -64,6 +69,9 @@ public class FileReferenceDownloader {
     private void waitUntilDownloadStarted(FileReferenceDownload fileReferenceDownload) {
         Instant end = Instant.now().plus(downloadTimeout);
         FileReference fileReference = fileReferenceDownload.fileReference();
+        if (startDownloadFromPeer(fileReferenceDownload))
+            return;
+
         int retryCount = 0;
         Connection connection = connectionPool.getCurrent();
         do {
@@ -85,6 +93,25 @@ public class FileReferenceDownloader {
         downloads.remove(fileReference);
     }
 
+    /**
+     * Asks a few random peers to serve the given file reference, which they do only if they have it, and are not
+     * too busy, and returns whether one did. Chunks from peers are verified with their hashes, like those from
+     * config servers, and a failed transfer is resumed from the next source.
+     */
+    private boolean startDownloadFromPeer(FileReferenceDownload fileReferenceDownload) {
+        // Peers never download from other sources, as they would then all go to the config servers for the file
+        FileReferenceDownload fromPeer = new FileReferenceDownload(fileReferenceDownload.fileReference(),
+                                                                   fileReferenceDownload.client(),
+                                                                   false);
+        Connection peer = peers.getCurrent();
+        for (int i = 0; i < Math.min(maxPeersToTry, peers.getSize()) && peer != null; i++) {
+            if (startDownloadRpc(fromPeer, 0, peer))
+                return true;
+            peer = peers.switchConnection(peer);
+        }
+        return false;
+    }
+
     private void backoff(int retryCount) {
         if (retryCount > 0) {
             try {
@@ -143,6 +170,10 @@ public class FileReferenceDownloader {
         String[] temp = new String[defaultAcceptedCompressionTypes.size()];
         defaultAcceptedCompressionTypes.stream().map(Enum::name).toList().toArray(temp);
         request.parameters().add(new StringArray(temp));
+        // Parts received in an earlier, interrupted transfer, which also tells the source that parts may be sent out of order
+        int[] receivedParts = PartialFile.receivedParts(downloadDirectory.toPath(), fileReferenceDownload.fileReference())
+                                         .stream().toArray();
+        request.parameters().add(new Int32Array(receivedParts));
         return request;
     }
 
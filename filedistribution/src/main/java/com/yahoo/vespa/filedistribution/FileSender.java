@@ -0,0 +1,225 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.DataValue;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Int64Value;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Target;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Logger;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
+import static java.util.logging.Level.WARNING;
+
+/**
+ * Sends file reference data to a target which has requested it, by calling the RPC methods of its {@link FileReceiver}.
+ * Used both by config servers, and by nodes serving the file references they have to their peers.
+ */
+public class FileSender {
+
+    private static final Logger log = Logger.getLogger(FileSender.class.getName());
+
+    public static final int partSize = FileReceiver.DEFAULT_PART_SIZE;
+    private static final int maxOutstandingParts = 4;
+
+    private final Target target;
+    private final Optional<BitSet> receivedParts;
+
+    /**
+     * Creates a sender which sends parts out of order, with their hashes, and skips the given parts, if present,
+     * which the target already has from an earlier transfer. Otherwise, all parts are sent in order, one at a time.
+     */
+    public FileSender(Target target, Optional<BitSet> receivedParts) {
+        this.target = target;
+        this.receivedParts = receivedParts;
+    }
+
+    /**
+     * Returns the parts the sender of the given serveFile request already has, if it specifies them,
+     * and thereby that it accepts parts out of order.
+     */
+    public static Optional<BitSet> receivedParts(Request serveFileRequest) {
+        if (serveFileRequest.parameters().size() <= 3) return Optional.empty();
+
+        BitSet parts = new BitSet();
+        for (int part : serveFileRequest.parameters().get(3).asInt32Array())
+            if (part >= 0) parts.set(part);
+        return Optional.of(parts);
+    }
+
+    public void send(FileReferenceData fileData, int status, String statusDescription) {
+        if (receivedParts.isPresent()) {
+            int session = sendMeta(createMetaRequest(fileData, partSize), fileData);
+            sendHashedParts(session, fileData, receivedParts.get());
+            sendEof(session, fileData, status, statusDescription);
+        }
+        else {
+            int session = sendMeta(createMetaRequest(fileData), fileData);
+            sendParts(session, fileData);
+            sendEof(session, fileData, status, statusDescription);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+
+    private void sendParts(int session, FileReferenceData fileData) {
+        ByteBuffer bb = ByteBuffer.allocate(partSize);
+        for (int partId = 0, read = fileData.nextContent(bb); read >= 0; partId++, read = fileData.nextContent(bb)) {
+            byte [] buf = bb.array();
+            if (buf.length != bb.position()) {
+                buf = new byte [bb.position()];
+                bb.flip();
+                bb.get(buf);
+            }
+            sendPart(session, fileData.fileReference(), partId, buf);
+            bb.clear();
+        }
+    }
+
+    /**
+     * Sends all parts the target does not already have, with a few requests outstanding at a time.
+     * All content is read, also of parts which are not sent, as the hash sent on eof is computed while reading.
+     */
+    private void sendHashedParts(int session, FileReferenceData fileData, BitSet receivedParts) {
+        // Compressed content may differ from what the target received earlier, so all of it is sent
+        boolean skipReceived = fileData.type() == FileReferenceData.Type.file;
+        Semaphore outstanding = new Semaphore(maxOutstandingParts);
+        AtomicReference<String> failure = new AtomicReference<>();
+        ByteBuffer bb = ByteBuffer.allocate(partSize);
+        for (int partId = 0; failure.get() == null; partId++) {
+            bb.clear();
+            while (bb.hasRemaining() && fileData.nextContent(bb) > 0) { }
+            if (bb.position() == 0) break;
+
+            if ( ! (skipReceived && receivedParts.get(partId))) {
+                byte[] buf = Arrays.copyOf(bb.array(), bb.position());
+                outstanding.acquireUninterruptibly();
+                sendHashedPart(session, fileData.fileReference(), partId, buf, outstanding, failure);
+            }
+            if (bb.hasRemaining()) break; // Only the last part is smaller than the part size
+        }
+        outstanding.acquireUninterruptibly(maxOutstandingParts);
+        if (failure.get() != null)
+            throw new IllegalArgumentException(failure.get());
+    }
+
+    private int sendMeta(Request request, FileReferenceData fileData) {
+        invokeRpcIfValidConnection(request);
+        if (request.isError()) {
+            log.log(WARNING, () -> "Failed delivering meta for reference '" + fileData.fileReference().value() +
+                    "' with file '" + fileData.filename() + "' to " +
+                    target.toString() + " with error: '" + request.errorMessage() + "'.");
+            return 1;
+        } else {
+            if (request.returnValues().get(0).asInt32() != 0) {
+                throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
+            }
+            return request.returnValues().get(1).asInt32();
+        }
+    }
+
+    public static Request createMetaRequest(FileReferenceData fileData) {
+        Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
+        request.parameters().add(new StringValue(fileData.fileReference().value()));
+        request.parameters().add(new StringValue(fileData.filename()));
+        request.parameters().add(new StringValue(fileData.type().name()));
+        request.parameters().add(new Int64Value(fileData.size()));
+        // Only add parameter if not gzip, this is default and old clients will not handle the extra parameter
+        // TODO Always add parameter in Vespa 9
+        if (fileData.compressionType() != CompressionType.gzip)
+            request.parameters().add(new StringValue(fileData.compressionType().name()));
+        return request;
+    }
+
+    // non-private for testing
+    static Request createMetaRequest(FileReferenceData fileData, int partSize) {
+        Request request = new Request(FileReceiver.RECEIVE_META_METHOD);
+        request.parameters().add(new StringValue(fileData.fileReference().value()));
+        request.parameters().add(new StringValue(fileData.filename()));
+        request.parameters().add(new StringValue(fileData.type().name()));
+        request.parameters().add(new Int64Value(fileData.size()));
+        request.parameters().add(new StringValue(fileData.compressionType().name()));
+        request.parameters().add(new Int32Value(partSize));
+        return request;
+    }
+
+    private void sendPart(int session, FileReference ref, int partId, byte [] buf) {
+        Request request = new Request(FileReceiver.RECEIVE_PART_METHOD);
+        request.parameters().add(new StringValue(ref.value()));
+        request.parameters().add(new Int32Value(session));
+        request.parameters().add(new Int32Value(partId));
+        request.parameters().add(new DataValue(buf));
+        invokeRpcIfValidConnection(request);
+        if (request.isError()) {
+            throw new IllegalArgumentException("Failed delivering part of reference '" + ref.value() + "' to " +
+                                               target.toString() + " with error: '" + request.errorMessage() + "'.");
+        } else {
+            if (request.returnValues().get(0).asInt32() != 0) {
+                throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
+            }
+        }
+    }
+
+    private void sendHashedPart(int session, FileReference ref, int partId, byte [] buf,
+                                Semaphore outstanding, AtomicReference<String> failure) {
+        Request request = new Request(FileReceiver.RECEIVE_HASHED_PART_METHOD);
+        request.parameters().add(new StringValue(ref.value()));
+        request.parameters().add(new Int32Value(session));
+        request.parameters().add(new Int32Value(partId));
+        request.parameters().add(new DataValue(buf));
+        request.parameters().add(new Int64Value(PartialFile.hash(buf)));
+        if ( ! target.isValid()) {
+            outstanding.release();
+            throw new RuntimeException("Connection to " + target + " is invalid", target.getConnectionLostReason());
+        }
+        target.invokeAsync(request, Duration.ofMinutes(10), done -> {
+            if (done.isError())
+                failure.compareAndSet(null, "Failed delivering part of reference '" + ref.value() + "' to " +
+                                            target.toString() + " with error: '" + done.errorMessage() + "'.");
+            else if (done.returnValues().get(0).asInt32() != 0)
+                failure.compareAndSet(null, "Unknown error from target '" + target.toString() + "' during rpc call " + done.methodName());
+            outstanding.release();
+        });
+    }
+
+    private void sendEof(int session, FileReferenceData fileData, int status, String statusDescription) {
+        Request request = new Request(FileReceiver.RECEIVE_EOF_METHOD);
+        request.parameters().add(new StringValue(fileData.fileReference().value()));
+        request.parameters().add(new Int32Value(session));
+        request.parameters().add(new Int64Value(fileData.xxhash()));
+        request.parameters().add(new Int32Value(status));
+        request.parameters().add(new StringValue(statusDescription));
+        invokeRpcIfValidConnection(request);
+        if (request.isError()) {
+            throw new IllegalArgumentException("Failed delivering eof for reference '" + fileData.fileReference().value() +
+                                               "' with file '" + fileData.filename() + "' to " +
+                                               target.toString() + " with error: '" + request.errorMessage() + "'.");
+        } else {
+            if (request.returnValues().get(0).asInt32() != 0) {
+                throw new IllegalArgumentException("Unknown error from target '" + target.toString() + "' during rpc call " + request.methodName());
+            }
+        }
+    }
+
+    private void invokeRpcIfValidConnection(Request request) {
+        if (target.isValid()) {
+            target.invokeSync(request, Duration.ofMinutes(10));
+        } else {
+            throw new RuntimeException("Connection to " + target + " is invalid", target.getConnectionLostReason());
+        }
+    }
+
+}
@@ -0,0 +1,278 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A file which is received in parts of a fixed size, in any order, and written to their position in a preallocated file.
+ *
+ * The received parts and their xxhash64 are kept in a state file next to it, so a transfer of the same file reference
+ * which is interrupted can be resumed later, possibly from another source, by asking only for the missing parts.
+ * The state is persisted regularly, not after every part, so a crash may cause some parts to be received again.
+ * Parts which were lost, e.g., in a crash, are found by their hashes when the file is verified.
+ *
+ * All transfers of a file reference use the same file, so once this is closed, a later transfer may own the file:
+ * Writes to a closed instance are then dropped, and deleting it leaves the file alone.
+ */
+class PartialFile implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(PartialFile.class.getName());
+    private static final XXHash64 hasher = XXHashFactory.fastestInstance().hash64();
+    private static final int persistInterval = 64;
+
+    private final Path file;
+    private final Path stateFile;
+    private final long size;
+    private final int partSize;
+    private final int parts;
+    private final BitSet received;
+    private final long[] hashes;
+    private final FileChannel channel;
+    private int receivedSincePersistedState = 0;
+    private boolean closed = false;
+
+    private PartialFile(Path file, long size, int partSize, BitSet received, long[] hashes) throws IOException {
+        this.file = file;
+        this.stateFile = stateFile(file);
+        this.size = size;
+        this.partSize = partSize;
+        this.parts = parts(size, partSize);
+        this.received = received;
+        this.hashes = hashes;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens the partial file for the given file reference in the given directory. Parts already received are kept
+     * if resume is true, and the state of the file matches the given size and part size; otherwise, the file is
+     * received from scratch.
+     */
+    static PartialFile open(Path directory, FileReference reference, long size, int partSize, boolean resume) throws IOException {
+        if (partSize <= 0) throw new IllegalArgumentException("Part size must be positive, but was " + partSize);
+        if (size < 0 || parts(size, partSize) < 0) throw new IllegalArgumentException("Invalid file size " + size);
+
+        Path file = directory.resolve(reference.value() + ".inprogress");
+        Optional<State> state = resume ? readState(file).filter(s -> s.size == size && s.partSize == partSize && Files.exists(file))
+                                       : Optional.empty();
+        if (state.isEmpty()) Files.deleteIfExists(file);
+
+        int parts = parts(size, partSize);
+        PartialFile partial = new PartialFile(file, size, partSize,
+                                              state.map(s -> s.received).orElseGet(BitSet::new),
+                                              state.map(s -> s.hashes).orElseGet(() -> new long[parts]));
+        if (state.isPresent())
+            log.log(Level.FINE, () -> "Resuming transfer of " + reference + " with " + partial.received.cardinality() +
+                                      " of " + parts + " parts received");
+        else if (size > 0) // Allocate the full size up front, so parts can be written at their position
+            partial.channel.write(ByteBuffer.allocate(1), size - 1);
+        return partial;
+    }
+
+    /** Returns the parts of the given file reference which were received in a previous, interrupted transfer */
+    static BitSet receivedParts(Path directory, FileReference reference) {
+        Path file = directory.resolve(reference.value() + ".inprogress");
+        return Files.exists(file) ? readState(file).map(state -> state.received).orElseGet(BitSet::new) : new BitSet();
+    }
+
+    /**
+     * Writes the given part to its position in this, and returns whether all parts are now received.
+     * The part is dropped if this is closed, also while it is written.
+     */
+    boolean write(int part, byte[] data) {
+        if (part < 0 || part >= Math.max(1, parts))
+            throw new IllegalArgumentException("Received part " + part + ", but file of size " + size + " has " + parts + " parts");
+        long offset = (long) part * partSize;
+        if (data.length != Math.min(partSize, size - offset))
+            throw new IllegalArgumentException("Received part " + part + " of size " + data.length + ", but expected " +
+                                               Math.min(partSize, size - offset));
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining())
+                channel.write(buffer, offset + buffer.position());
+        }
+        catch (IOException e) {
+            synchronized (this) {
+                if (closed) return false;
+            }
+            throw new UncheckedIOException("Failed writing part " + part + " to '" + file + "'", e);
+        }
+        long hash = hash(data);
+        synchronized (this) {
+            if (closed) return false;
+            hashes[part] = hash;
+            received.set(part);
+            if (++receivedSincePersistedState >= persistInterval) persistState();
+            return isComplete();
+        }
+    }
+
+    /** Returns the xxhash64 of the given data, as computed for parts */
+    static long hash(byte[] data) {
+        return hasher.hash(data, 0, data.length, 0);
+    }
+
+    synchronized boolean isComplete() {
+        return received.cardinality() >= parts;
+    }
+
+    synchronized double percentageReceived() {
+        return parts == 0 ? 1 : (double) received.cardinality() / parts;
+    }
+
+    synchronized BitSet received() {
+        return (BitSet) received.clone();
+    }
+
+    Path path() { return file; }
+
+    /**
+     * Returns whether this is open, all parts are received, and the content of this has the given xxhash64.
+     * Otherwise, parts whose content on disk do not match their hash are removed, so they are received again
+     * on resume, or all are, if no parts are found to be bad.
+     */
+    synchronized boolean verify(long expectedHash) {
+        if (closed || ! isComplete()) return false;
+
+        BitSet bad = new BitSet();
+        long hash;
+        try (StreamingXXHash64 fileHasher = XXHashFactory.fastestInstance().newStreamingHash64(0)) {
+            channel.force(false);
+            ByteBuffer buffer = ByteBuffer.allocate(partSize);
+            for (int part = 0; part < parts; part++) {
+                buffer.clear().limit((int) Math.min(partSize, size - (long) part * partSize));
+                while (buffer.hasRemaining())
+                    if (channel.read(buffer, (long) part * partSize + buffer.position()) < 0)
+                        throw new IOException("Unexpected end of file");
+                fileHasher.update(buffer.array(), 0, buffer.limit());
+                if (hasher.hash(buffer.array(), 0, buffer.limit(), 0) != hashes[part]) bad.set(part);
+            }
+            hash = fileHasher.getValue();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Failed verifying '" + file + "'", e);
+        }
+        if (hash == expectedHash && bad.isEmpty()) return true;
+
+        if (bad.isEmpty()) received.clear(); // Content differs from what was expected; start over
+        else received.andNot(bad);
+        persistState();
+        log.log(Level.WARNING, "xxhash of '" + file + "' (" + hash + ") is not equal to expected xxhash (" + expectedHash +
+                               "), " + bad.cardinality() + " of " + parts + " parts were lost");
+        return false;
+    }
+
+    /** Persists which parts are received, so a transfer interrupted after this can be resumed */
+    synchronized void persistState() {
+        receivedSincePersistedState = 0;
+        Path tmp = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(tmp))) {
+            out.writeLong(size);
+            out.writeInt(partSize);
+            byte[] bits = received.toByteArray();
+            out.writeInt(bits.length);
+            out.write(bits);
+            for (long hash : hashes) out.writeLong(hash);
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed writing state of '" + file + "': " + e.getMessage());
+            return;
+        }
+        try {
+            Files.move(tmp, stateFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed moving state of '" + file + "' into place: " + e.getMessage());
+        }
+    }
+
+    /** Closes this, and keeps the received parts on disk, to be resumed later */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        persistState();
+        closeChannel();
+    }
+
+    /** Closes this, and deletes the state, but not the file, which is then owned by the caller */
+    synchronized void complete() {
+        if (closed) return;
+        closeChannel();
+        deleteIfExists(stateFile);
+    }
+
+    /** Closes this, and deletes the file and its state, unless this was already closed, and no longer owns them */
+    synchronized void delete() {
+        if (closed) return;
+        closeChannel();
+        deleteIfExists(file);
+        deleteIfExists(stateFile);
+    }
+
+    private void closeChannel() {
+        closed = true;
+        try {
+            channel.close();
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed closing '" + file + "': " + e.getMessage());
+        }
+    }
+
+    private static void deleteIfExists(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        }
+        catch (IOException e) {
+            log.log(Level.WARNING, "Failed deleting '" + path + "': " + e.getMessage());
+        }
+    }
+
+    private static int parts(long size, int partSize) {
+        long parts = (size + partSize - 1) / partSize;
+        return parts > Integer.MAX_VALUE ? -1 : (int) parts;
+    }
+
+    private static Path stateFile(Path file) {
+        return file.resolveSibling(file.getFileName() + ".parts");
+    }
+
+    private static Optional<State> readState(Path file) {
+        Path stateFile = stateFile(file);
+        if ( ! Files.exists(stateFile)) return Optional.empty();
+
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(stateFile))) {
+            long size = in.readLong();
+            int partSize = in.readInt();
+            byte[] bits = new byte[in.readInt()];
+            in.readFully(bits);
+            long[] hashes = new long[parts(size, partSize)];
+            for (int i = 0; i < hashes.length; i++) hashes[i] = in.readLong();
+            return Optional.of(new State(size, partSize, BitSet.valueOf(bits), hashes));
+        }
+        catch (IOException | RuntimeException e) {
+            log.log(Level.INFO, "Ignoring invalid state of '" + file + "': " + e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private record State(long size, int partSize, BitSet received, long[] hashes) { }
+
+}
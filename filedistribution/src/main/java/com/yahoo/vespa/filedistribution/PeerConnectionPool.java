@@ -0,0 +1,130 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
+import com.yahoo.vespa.config.Connection;
+import com.yahoo.vespa.config.ConnectionPool;
+import com.yahoo.vespa.config.JRTConnection;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A pool of connections to the peers of a node, i.e., the other members of its cluster, which may serve
+ * the file references they have downloaded. Unlike {@link FileDistributionConnectionPool}, this may be empty,
+ * in which case {@link #getCurrent()} returns null, and the set of peers may change at any time.
+ * Connections must use the supervisor of the {@link FileReceiver}, as peers send files back on the same connection.
+ * <p>
+ * This also identifies connections from and to peers, as peers are allowed to download files from each other,
+ * since they belong to the same application.
+ */
+public class PeerConnectionPool implements ConnectionPool {
+
+    private static final Logger log = Logger.getLogger(PeerConnectionPool.class.getName());
+
+    private final Supervisor supervisor;
+    private final Map<String, JRTConnection> connections = new LinkedHashMap<>();
+    private volatile Set<InetSocketAddress> addresses = Set.of();
+
+    public PeerConnectionPool(Supervisor supervisor, Collection<String> peers) {
+        this.supervisor = supervisor;
+        setPeers(peers);
+    }
+
+    /** Sets the specs of the peers in this, keeping connections to those which were already present */
+    public void setPeers(Collection<String> peers) {
+        Set<InetSocketAddress> resolved = new HashSet<>();
+        for (String peer : peers)
+            resolved.addAll(resolve(new Spec(peer)));
+
+        synchronized (this) {
+            Map<String, JRTConnection> retained = new LinkedHashMap<>();
+            for (String peer : peers)
+                retained.put(peer, connections.containsKey(peer) ? connections.get(peer) : new JRTConnection(peer, supervisor));
+            connections.forEach((peer, connection) -> {
+                if ( ! retained.containsKey(peer)) connection.getTarget().close();
+            });
+            connections.clear();
+            connections.putAll(retained);
+            addresses = Set.copyOf(resolved);
+        }
+    }
+
+    /** Returns whether the given target is connected to a host of one of the peers in this */
+    public boolean isPeerHost(Target target) {
+        return remoteAddress(target).map(remote -> addresses.stream().anyMatch(peer -> peer.getAddress().equals(remote.getAddress())))
+                                    .orElse(false);
+    }
+
+    /** Returns whether the given target is a connection this node opened to one of the peers in this */
+    public boolean isConnectionToPeer(Target target) {
+        return target.isClient() && remoteAddress(target).map(addresses::contains).orElse(false);
+    }
+
+    /** Returns a random peer, or null if there are none */
+    @Override
+    public synchronized Connection getCurrent() {
+        return pickRandomly(new ArrayList<>(connections.values()));
+    }
+
+    /** Returns a random peer other than the given one, if there are any others, or null if there are none */
+    @Override
+    public synchronized Connection switchConnection(Connection failingConnection) {
+        List<JRTConnection> candidates = new ArrayList<>(connections.values());
+        if (candidates.size() > 1) candidates.remove(failingConnection);
+        return pickRandomly(candidates);
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return connections.size();
+    }
+
+    /** Closes the connections to all peers, but not the supervisor, which is shared */
+    @Override
+    public void close() {
+        setPeers(List.of());
+    }
+
+    private static Connection pickRandomly(List<JRTConnection> candidates) {
+        return candidates.isEmpty() ? null : candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+    }
+
+    private static Set<InetSocketAddress> resolve(Spec peer) {
+        Set<InetSocketAddress> resolved = new HashSet<>();
+        try {
+            for (InetAddress address : InetAddress.getAllByName(peer.host()))
+                resolved.add(new InetSocketAddress(address, peer.port()));
+        }
+        catch (UnknownHostException e) {
+            log.log(Level.FINE, () -> "Could not resolve peer " + peer + ": " + e.getMessage());
+        }
+        return resolved;
+    }
+
+    /** Returns the address of the other end of the given target, which is an IP address, if it is connected */
+    private static Optional<InetSocketAddress> remoteAddress(Target target) {
+        try {
+            Spec spec = target.peerSpec();
+            return Optional.of(new InetSocketAddress(InetAddress.getByName(spec.host()), spec.port()));
+        }
+        catch (IllegalStateException | UnknownHostException e) { // Not connected
+            return Optional.empty();
+        }
+    }
+
+}
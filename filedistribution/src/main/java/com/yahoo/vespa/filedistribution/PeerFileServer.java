@@ -0,0 +1,158 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.ErrorCode;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.Method;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.RequireCapabilitiesFilter;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.security.tls.Capability;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.gzip;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.lz4;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.zstd;
+import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.compressed;
+
+/**
+ * Serves the file references which have been completely downloaded to this node to its peers, using the same
+ * RPC method as config servers. Unlike config servers, this never downloads file references it does not have,
+ * and it serves only a few peers at a time, and answers other requests right away, so they go to other sources.
+ * <p>
+ * Only peers may download files from this, as they belong to the same application as this node, and may
+ * therefore have any of its files. Others are denied permission, in addition to those without the capability.
+ */
+public class PeerFileServer implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(PeerFileServer.class.getName());
+    private static final List<CompressionType> compressionTypes = List.of(zstd, lz4, gzip); // In preferred order
+
+    static final int OK = 0;
+    static final int NOT_FOUND = 1;
+    static final int TRANSFER_FAILED = 3;
+    static final int BUSY = 4;
+
+    private final File downloadDirectory;
+    private final PeerConnectionPool peers;
+    private final Semaphore uploads;
+    private final ExecutorService executor;
+
+    public PeerFileServer(Supervisor supervisor, PeerConnectionPool peers, File downloadDirectory, int maxConcurrentUploads) {
+        this.downloadDirectory = downloadDirectory;
+        this.peers = peers;
+        this.uploads = new Semaphore(maxConcurrentUploads);
+        this.executor = Executors.newFixedThreadPool(maxConcurrentUploads, new DaemonThreadFactory("peer-file-server"));
+        RequireCapabilitiesFilter capabilities = new RequireCapabilitiesFilter(Capability.CONFIGPROXY__FILEDISTRIBUTION_API);
+        supervisor.addMethod(new Method("filedistribution.serveFile", "si*", "is", this::serveFile)
+                                     .requestAccessFilter(request -> peers.isPeerHost(request.target()) && capabilities.allow(request))
+                                     .methodDesc("serve a file reference this node has to a peer")
+                                     .paramDesc(0, "file reference", "file reference to serve")
+                                     .paramDesc(1, "downloadFromOtherSourceIfNotFound", "ignored, as peers never download from others")
+                                     .returnDesc(0, "code", "0 if served, 1 if not found, 3 if transfer failed, 4 if busy")
+                                     .returnDesc(1, "description", "description of the code"));
+    }
+
+    private void serveFile(Request request) {
+        String value = request.parameters().get(0).asString();
+        if ( ! isFileName(value)) {
+            request.setError(ErrorCode.BAD_REQUEST, "Illegal file reference '" + value + "'");
+            return;
+        }
+        FileReference reference = new FileReference(value);
+        if ( ! uploads.tryAcquire()) {
+            log.log(Level.FINE, () -> "Too many uploads in progress, not serving " + reference + " to " + request.target());
+            request.returnValues().add(new Int32Value(BUSY)).add(new StringValue("Too many transfers in progress"));
+            return;
+        }
+        request.detach();
+        try {
+            executor.execute(() -> {
+                try {
+                    int code = serve(reference, request);
+                    request.returnValues().add(new Int32Value(code))
+                           .add(new StringValue(code == OK ? "OK" : code == NOT_FOUND ? "File reference not found"
+                                                                                      : "Failed transferring file"));
+                    request.returnRequest();
+                }
+                finally {
+                    uploads.release();
+                }
+            });
+        }
+        catch (RuntimeException e) { // Rejected, as this is closed
+            uploads.release();
+            request.returnValues().add(new Int32Value(BUSY)).add(new StringValue("Shutting down"));
+            request.returnRequest();
+        }
+    }
+
+    /** Returns whether the given value is a single path segment, and thus names a file reference in the download directory */
+    static boolean isFileName(String value) {
+        return ! value.isEmpty() && ! value.equals(".") && ! value.equals("..") && value.indexOf('/') < 0 && value.indexOf('\\') < 0;
+    }
+
+    private int serve(FileReference reference, Request request) {
+        Optional<File> file = FileDownloader.getFileFromFileSystem(reference, downloadDirectory);
+        if (file.isEmpty()) return NOT_FOUND;
+
+        Set<CompressionType> acceptedCompressionTypes = request.parameters().size() > 2
+                ? Arrays.stream(request.parameters().get(2).asStringArray()).map(CompressionType::valueOf).collect(Collectors.toSet())
+                : Set.of(gzip);
+        try (FileReferenceData fileData = fileReferenceData(reference, file.get(), acceptedCompressionTypes)) {
+            log.log(Level.FINE, () -> "Serving " + reference + " to peer " + request.target());
+            new FileSender(request.target(), FileSender.receivedParts(request)).send(fileData, OK, "OK");
+            return OK;
+        }
+        catch (Exception e) {
+            log.log(Level.INFO, "Failed serving " + reference + " to peer " + request.target() + ": " + e.getMessage());
+            return TRANSFER_FAILED;
+        }
+    }
+
+    private static FileReferenceData fileReferenceData(FileReference reference, File file,
+                                                       Set<CompressionType> acceptedCompressionTypes) throws IOException {
+        if ( ! file.isDirectory())
+            return new LazyFileReferenceData(reference, file.getName(), FileReferenceData.Type.file, file, gzip);
+
+        CompressionType compressionType = compressionTypes.stream()
+                                                          .filter(acceptedCompressionTypes::contains)
+                                                          .findFirst()
+                                                          .orElseThrow(() -> new IllegalArgumentException("No accepted compression type in " +
+                                                                                                          acceptedCompressionTypes));
+        Path tempFile = Files.createTempFile("filereferencedata", reference.value());
+        File compressedFile = new FileReferenceCompressor(compressed, compressionType).compress(file.getParentFile(), tempFile.toFile());
+        return new LazyTemporaryStorageFileReferenceData(reference, file.getName(), compressed, compressedFile, compressionType);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,168 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.concurrent.DaemonThreadFactory;
+import net.jpountz.xxhash.StreamingXXHash64;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Decompresses and extracts a compressed file reference into a directory while its parts are received,
+ * so it is available as soon as the last part is, instead of after a separate decompression step.
+ *
+ * Parts are handed over in order to a separate thread, which hashes, decompresses and writes them. Parts which
+ * arrive out of order are held back until those before them arrive, up to a limit. If the limit is exceeded,
+ * or extraction fails, this gives up, and the caller must extract the complete file instead.
+ */
+class StreamingExtractor implements AutoCloseable {
+
+    private static final Logger log = Logger.getLogger(StreamingExtractor.class.getName());
+    private static final ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory("file-reference-extractor"));
+    private static final byte[] end = new byte[0];
+    private static final int maxBufferedParts = 16;
+
+    private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(maxBufferedParts);
+    private final Map<Integer, byte[]> outOfOrder = new TreeMap<>();
+    private final StreamingXXHash64 hasher = XXHashFactory.fastestInstance().newStreamingHash64(0);
+    private final Future<?> extraction;
+    private int nextPart = 0;
+    private volatile boolean failed = false;
+
+    StreamingExtractor(FileReferenceCompressor compressor, File outputDir) {
+        this.extraction = executor.submit(() -> {
+            try (InputStream parts = new PartsInputStream()) {
+                compressor.decompress(parts, outputDir);
+                parts.transferTo(OutputStream.nullOutputStream()); // Hash what remains after the archive, if anything
+                return null;
+            }
+            catch (IOException | RuntimeException e) {
+                failed = true;
+                queue.clear(); // Unblocks the receiver
+                throw e;
+            }
+        });
+    }
+
+    /** Adds the given part, which is extracted once all parts before it are added */
+    synchronized void add(int partId, byte[] data) {
+        if (failed || partId < nextPart) return;
+
+        outOfOrder.put(partId, data);
+        if (outOfOrder.size() > maxBufferedParts) {
+            log.log(Level.FINE, () -> "Too many parts out of order, waiting for part " + nextPart + "; giving up streaming extraction");
+            abort();
+            return;
+        }
+        for (byte[] next; (next = outOfOrder.remove(nextPart)) != null; nextPart++)
+            put(next);
+    }
+
+    /**
+     * Waits for all added parts to be extracted, and returns the xxhash64 of their content,
+     * or empty if extraction failed, or did not complete within the given timeout.
+     */
+    Optional<Long> finish(Duration timeout) {
+        synchronized (this) {
+            if ( ! outOfOrder.isEmpty()) abort(); // Some parts are missing
+            put(end);
+        }
+        try {
+            extraction.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return failed ? Optional.empty() : Optional.of(hasher.getValue());
+        }
+        catch (ExecutionException e) {
+            log.log(Level.FINE, () -> "Streaming extraction failed: " + e.getCause().getMessage());
+            return Optional.empty();
+        }
+        catch (InterruptedException | TimeoutException e) {
+            abort();
+            return Optional.empty();
+        }
+    }
+
+    /** Stops extraction, and waits for the extracting thread to stop writing to the output directory, which is then incomplete */
+    @Override
+    public void close() {
+        abort();
+        try {
+            extraction.get();
+        }
+        catch (ExecutionException e) {
+            // Expected, as extraction was aborted, or failed already
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void abort() {
+        failed = true;
+        outOfOrder.clear();
+        queue.clear();
+        queue.offer(end); // Wakes up the extracting thread, if waiting for parts, so it sees extraction failed
+    }
+
+    private void put(byte[] data) {
+        try {
+            while ( ! failed && ! queue.offer(data, 100, TimeUnit.MILLISECONDS)) { }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abort();
+        }
+    }
+
+    /** The content of the parts added so far, which blocks until more parts are added, or the end is */
+    private class PartsInputStream extends InputStream {
+
+        private byte[] current = new byte[0];
+        private int position = 0;
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) return 0;
+            while (position == current.length) {
+                if (current == end) return -1;
+                try {
+                    current = queue.take();
+                }
+                catch (InterruptedException e) {
+                    throw new IOException("Interrupted while waiting for more parts", e);
+                }
+                position = 0;
+                if (failed) throw new IOException("Streaming extraction was aborted");
+                hasher.update(current, 0, current.length);
+            }
+            int read = Math.min(length, current.length - position);
+            System.arraycopy(current, position, buffer, offset, read);
+            position += read;
+            return read;
+        }
+
+    }
+
+}
@@ -15,6 +15,8 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.BitSet;
 
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType.gzip;
@@ -23,6 +25,9 @@ import static com.yahoo.vespa.filedistribution.FileReferenceData.CompressionType
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.compressed;
 import static com.yahoo.vespa.filedistribution.FileReferenceData.Type.file;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 
 public class FileReceiverTest {
     private File root;
@@ -67,6 +72,72 @@ public class FileReceiverTest {
         testWithCompression(dirWithFiles, zstd);
     }
 
+    @Test
+    public void receivePartsOutOfOrderAndResumeInterruptedTransfer() throws IOException {
+        FileReference ref = new FileReference("ref-b");
+        String all = "first part\nsecond part\nthird part\n";
+        byte [] content = Utf8.toBytes(all);
+        int partSize = 12;
+
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, ref, file, gzip, "myfile", content.length, partSize, true);
+        session.addPart(2, part(content, 2, partSize));
+        session.addPart(0, part(content, 0, partSize));
+        session.abandon();
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(2);
+        assertEquals(expected, PartialFile.receivedParts(root.toPath(), ref));
+
+        FileReceiver.Session resumed = new FileReceiver.Session(root, 2, ref, file, gzip, "myfile", content.length, partSize, true);
+        assertEquals(2.0 / 3, resumed.percentageReceived(), 1e-9);
+        session.addPart(1, part(content, 1, partSize)); // Dropped, as the abandoned session no longer owns the file
+        assertEquals(2.0 / 3, resumed.percentageReceived(), 1e-9);
+        assertEquals(expected, PartialFile.receivedParts(root.toPath(), ref));
+        byte [] part = part(content, 1, partSize);
+        assertThrows(IllegalArgumentException.class, () -> resumed.addPart(1, part, PartialFile.hash(part) + 1));
+        resumed.addPart(1, part, PartialFile.hash(part));
+        File received = resumed.close(hasher.hash(ByteBuffer.wrap(content), 0));
+
+        assertEquals(all, Utf8.toString(Files.readAllBytes(received.toPath())));
+        assertTrue(PartialFile.receivedParts(root.toPath(), ref).isEmpty());
+    }
+
+    @Test
+    public void receiveCompressedPartsOutOfOrder() throws IOException {
+        File dirWithFiles = temporaryFolder.newFolder("files");
+        Files.writeString(dirWithFiles.toPath().resolve("a"), "1".repeat(100));
+        Files.writeString(dirWithFiles.toPath().resolve("b"), "2".repeat(100));
+        byte [] content = IOUtils.readFileBytes(new FileReferenceCompressor(compressed, zstd).compress(dirWithFiles, temporaryFolder.newFile()));
+        int partSize = content.length / 20 + 1; // More parts than may be held back while waiting for others
+        int numParts = (content.length + partSize - 1) / partSize;
+
+        // Pairs of parts swapped, which are extracted while received
+        FileReference swapped = new FileReference("swapped");
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, swapped, compressed, zstd, "a", content.length, partSize, false);
+        for (int i = 0; i < numParts; i++) {
+            int partId = (i % 2 == 0 && i + 1 < numParts) ? i + 1 : (i % 2 == 1 ? i - 1 : i);
+            session.addPart(partId, part(content, partId, partSize));
+        }
+        session.close(hasher.hash(ByteBuffer.wrap(content), 0));
+        assertTrue(session.extractedWhileReceiving());
+        assertEquals("1".repeat(100), IOUtils.readFile(new File(new File(root, "swapped"), "a")));
+        assertEquals("2".repeat(100), IOUtils.readFile(new File(new File(root, "swapped"), "b")));
+
+        // All parts in reverse order, which are too many to hold back, so the complete file is extracted at the end instead
+        FileReference reversed = new FileReference("reversed");
+        session = new FileReceiver.Session(root, 2, reversed, compressed, zstd, "a", content.length, partSize, false);
+        for (int partId = numParts - 1; partId >= 0; partId--)
+            session.addPart(partId, part(content, partId, partSize));
+        session.close(hasher.hash(ByteBuffer.wrap(content), 0));
+        assertFalse(session.extractedWhileReceiving());
+        assertEquals("1".repeat(100), IOUtils.readFile(new File(new File(root, "reversed"), "a")));
+        assertEquals("2".repeat(100), IOUtils.readFile(new File(new File(root, "reversed"), "b")));
+    }
+
+    private static byte [] part(byte [] content, int partId, int partSize) {
+        return Arrays.copyOfRange(content, partId * partSize, Math.min(content.length, (partId + 1) * partSize));
+    }
+
     private void testWithCompression(File dirWithFiles, CompressionType compressionType) throws IOException {
         File tempFile = temporaryFolder.newFile();
         File file = new FileReferenceCompressor(compressed, compressionType).compress(dirWithFiles, tempFile);
@@ -79,8 +150,8 @@ public class FileReceiverTest {
     private void transferPartsAndAssert(FileReference ref, String fileName, String all, int numParts) throws IOException {
         byte [] allContent = Utf8.toBytes(all);
 
-        FileReceiver.Session session = new FileReceiver.Session(root, 1, ref, file, gzip, fileName, allContent.length);
         int partSize = (allContent.length+(numParts-1))/numParts;
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, ref, file, gzip, fileName, allContent.length, partSize, false);
         ByteBuffer bb = ByteBuffer.wrap(allContent);
         for (int i = 0, pos = 0; i < numParts; i++) {
             byte [] buf = new byte[Math.min(partSize, allContent.length - pos)];
@@ -98,7 +169,8 @@ public class FileReceiverTest {
     }
 
     private void transferCompressedData(CompressionType compressionType, FileReference ref, String fileName, byte[] data) {
-        FileReceiver.Session session = new FileReceiver.Session(root, 1, ref, compressed, compressionType, fileName, data.length);
+        FileReceiver.Session session = new FileReceiver.Session(root, 1, ref, compressed, compressionType, fileName, data.length,
+                                                                FileReceiver.DEFAULT_PART_SIZE, false);
         session.addPart(0, data);
         session.close(hasher.hash(ByteBuffer.wrap(data), 0));
     }
@@ -0,0 +1,120 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.vespa.filedistribution;
+
+import com.yahoo.config.FileReference;
+import com.yahoo.jrt.ErrorCode;
+import com.yahoo.jrt.Int32Value;
+import com.yahoo.jrt.ListenFailedException;
+import com.yahoo.jrt.Request;
+import com.yahoo.jrt.Spec;
+import com.yahoo.jrt.StringValue;
+import com.yahoo.jrt.Supervisor;
+import com.yahoo.jrt.Target;
+import com.yahoo.jrt.Transport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PeerFileServerTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Supervisor peerSupervisor;
+    private Supervisor supervisor;
+    private PeerFileServer peerFileServer;
+    private File peerDir;
+    private String peerSpec;
+    private String spec;
+
+    @Before
+    public void setup() throws IOException, ListenFailedException {
+        peerDir = temporaryFolder.newFolder("peer");
+        peerSupervisor = new Supervisor(new Transport()).setDropEmptyBuffers(true);
+        peerSpec = "tcp/localhost:" + peerSupervisor.listen(new Spec(0)).port();
+        supervisor = new Supervisor(new Transport()).setDropEmptyBuffers(true);
+        spec = "tcp/localhost:" + supervisor.listen(new Spec(0)).port();
+        peerFileServer = new PeerFileServer(peerSupervisor, new PeerConnectionPool(peerSupervisor, List.of(spec)), peerDir, 2);
+    }
+
+    @After
+    public void teardown() {
+        peerFileServer.close();
+        peerSupervisor.transport().shutdown().join();
+        supervisor.transport().shutdown().join();
+    }
+
+    @Test
+    public void file_references_are_downloaded_from_peers_which_have_them() throws IOException {
+        FileReference reference = new FileReference("ref");
+        Files.createDirectories(peerDir.toPath().resolve("ref"));
+        Files.writeString(peerDir.toPath().resolve("ref").resolve("model.onnx"), "model content");
+
+        File downloadDir = temporaryFolder.newFolder("download");
+        PeerConnectionPool peers = new PeerConnectionPool(supervisor, List.of(peerSpec));
+        try (FileDownloader downloader = new FileDownloader(FileDownloader.emptyConnectionPool(), peers, supervisor,
+                                                            downloadDir, Duration.ofSeconds(30), Duration.ofMillis(10))) {
+            Optional<File> file = downloader.getFile(new FileReferenceDownload(reference, "test"));
+            assertTrue(file.isPresent());
+            assertEquals("model content", Files.readString(file.get().toPath()));
+        }
+    }
+
+    @Test
+    public void peers_do_not_serve_file_references_they_do_not_have() {
+        Request request = serveFile(peerSpec, "unknown");
+        assertEquals(PeerFileServer.NOT_FOUND, request.returnValues().get(0).asInt32());
+    }
+
+    @Test
+    public void peers_serve_only_file_references_in_their_download_directory() throws IOException {
+        Files.createDirectories(peerDir.toPath().resolve("ref"));
+        Files.writeString(peerDir.toPath().resolve("ref").resolve("secret"), "secret content");
+        Request request = serveFile(peerSpec, "x/../ref");
+        assertTrue(request.isError());
+        assertEquals(ErrorCode.BAD_REQUEST, request.errorCode());
+
+        assertTrue(PeerFileServer.isFileName("ref"));
+        assertFalse(PeerFileServer.isFileName(""));
+        assertFalse(PeerFileServer.isFileName(".."));
+        assertFalse(PeerFileServer.isFileName("a/b"));
+    }
+
+    @Test
+    public void peers_serve_only_their_peers() throws ListenFailedException {
+        Supervisor otherSupervisor = new Supervisor(new Transport()).setDropEmptyBuffers(true);
+        try (PeerFileServer other = new PeerFileServer(otherSupervisor, new PeerConnectionPool(otherSupervisor, List.of()), peerDir, 2)) {
+            String otherSpec = "tcp/localhost:" + otherSupervisor.listen(new Spec(0)).port();
+            Request request = serveFile(otherSpec, "unknown");
+            assertTrue(request.isError());
+            assertEquals(ErrorCode.PERMISSION_DENIED, request.errorCode());
+        }
+        finally {
+            otherSupervisor.transport().shutdown().join();
+        }
+    }
+
+    private Request serveFile(String spec, String reference) {
+        Target target = supervisor.connect(new Spec(spec));
+        Request request = new Request("filedistribution.serveFile");
+        request.parameters().add(new StringValue(reference));
+        request.parameters().add(new Int32Value(0));
+        target.invokeSync(request, Duration.ofSeconds(30));
+        target.close();
+        return request;
+    }
+
+}
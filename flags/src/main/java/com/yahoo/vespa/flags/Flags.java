@@ -456,6 +456,13 @@ public class Flags {
             "Takes effect at redeployment",
             INSTANCE_ID);
 
+    public static final UnboundBooleanFlag REUSE_DERIVED_RANK_PROFILES = defineFeatureFlag(
+            "reuse-derived-rank-profiles", false,
+            List.of("bratseth"), "2023-12-08", "2024-03-01",
+            "Whether to reuse the rank profiles derived for the previous model of an application, for schemas whose inputs are unchanged",
+            "Takes effect at redeployment",
+            INSTANCE_ID);
+
     /** WARNING: public for testing: All flags should be defined in {@link Flags}. */
     public static UnboundBooleanFlag defineFeatureFlag(String flagId, boolean defaultValue, List<String> owners,
                                                        String createdAt, String expiresAt, String description,
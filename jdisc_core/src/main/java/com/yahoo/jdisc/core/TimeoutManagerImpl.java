@@ -21,17 +21,21 @@ import java.util.Queue;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
+ * Manages the timeouts of requests, which are scheduled in a {@link TimerWheel} by request threads without
+ * taking any locks, and expired by a single manager thread.
+ *
  * @author Simon Thoresen Hult
  */
 public class TimeoutManagerImpl {
 
     private static final ContentChannel IGNORED_CONTENT = new IgnoredContent();
     private static final Logger log = Logger.getLogger(TimeoutManagerImpl.class.getName());
-    private final ScheduledQueue scheduler;
+    private final TimerWheel scheduler;
     private final Thread thread;
     private final Timer timer;
     private final AtomicBoolean done = new AtomicBoolean(false);
@@ -41,7 +45,7 @@ public class TimeoutManagerImpl {
         this.thread = factory.newThread(new ManagerTask());
         this.thread.setName(getClass().getName());
         this.timer = timer;
-        this.scheduler = new ScheduledQueue(timer.currentTimeMillis());
+        this.scheduler = new TimerWheel(timer.currentTimeMillis());
     }
 
     public void start() {
@@ -108,7 +112,7 @@ public class TimeoutManagerImpl {
 
         @Override
         public void run() {
-            Duration desiredTimeout = Duration.ofMillis(ScheduledQueue.MILLIS_PER_SLOT);
+            Duration desiredTimeout = Duration.ofMillis(TimerWheel.MILLIS_PER_TICK);
             Duration actualTimeout = SystemTimer.adjustTimeoutByDetectedHz(desiredTimeout);
             while (oneMoreCheck(actualTimeout.toMillis())) {
                 checkTasks(timer.currentTimeMillis());
@@ -179,8 +183,8 @@ public class TimeoutManagerImpl {
         final ResponseHandler responseHandler;
         final RequestHandler requestHandler;
         final Request request;
-        ScheduledQueue.Entry timeoutQueueEntry = null;
-        boolean responded = false;
+        final AtomicReference<TimerWheel.Timeout> timeout = new AtomicReference<>();
+        final AtomicBoolean responded = new AtomicBoolean(false);
 
         TimeoutHandler(Request request, RequestHandler requestHandler, ResponseHandler responseHandler) {
             this.request = request;
@@ -189,22 +193,25 @@ public class TimeoutManagerImpl {
         }
 
         @Override
-        public synchronized void scheduleTimeout(Request request) {
-            if (responded) {
+        public void scheduleTimeout(Request request) {
+            if (responded.get()) {
                 return;
             }
-            if (timeoutQueueEntry == null) {
-                timeoutQueueEntry = scheduler.newEntry(this);
+            TimerWheel.Timeout scheduled = scheduler.schedule(this, request.creationTime(TimeUnit.MILLISECONDS) +
+                                                                    request.getTimeout(TimeUnit.MILLISECONDS));
+            TimerWheel.Timeout previous = timeout.getAndSet(scheduled);
+            if (previous != null) {
+                previous.cancel();
+            }
+            if (responded.get()) { // Raced with a response, which may not have seen the new timeout.
+                unscheduleTimeout();
             }
-            timeoutQueueEntry.scheduleAt(request.creationTime(TimeUnit.MILLISECONDS) + request.getTimeout(TimeUnit.MILLISECONDS));
         }
 
-        synchronized void unscheduleTimeout() {
-            if (!responded && timeoutQueueEntry != null) {
-                timeoutQueueEntry.unschedule();
-                //guard against unscheduling from ManagedRequestHandler.handleRequest catch block
-                //followed by unscheduling in another thread from TimeoutHandler.handleResponse
-                timeoutQueueEntry = null;
+        void unscheduleTimeout() {
+            TimerWheel.Timeout previous = timeout.getAndSet(null);
+            if (previous != null) {
+                previous.cancel();
             }
         }
 
@@ -215,13 +222,10 @@ public class TimeoutManagerImpl {
 
         @Override
         public ContentChannel handleResponse(Response response) {
-            synchronized (this) {
-                unscheduleTimeout();
-                if (responded) {
-                    return IGNORED_CONTENT;
-                }
-                responded = true;
+            if ( ! responded.compareAndSet(false, true)) {
+                return IGNORED_CONTENT;
             }
+            unscheduleTimeout();
             return responseHandler.handleResponse(response);
         }
 
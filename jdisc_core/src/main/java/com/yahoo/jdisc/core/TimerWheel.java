@@ -0,0 +1,229 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.core;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A hierarchical timing wheel of timeouts, where scheduling and cancelling are lock-free, and O(1).
+ *
+ * Scheduled timeouts are pushed to one of several lock-free inboxes, chosen by the scheduling thread, so
+ * threads on different cores rarely contend. Cancelling a timeout only flips its state; it is removed from
+ * the wheel when its slot is expired, or when the wheel is purged because too many of its timeouts are cancelled.
+ *
+ * The wheel itself is only touched by the thread which calls {@link #drainTo}, typically a single timer thread.
+ * That thread moves timeouts from the inboxes to the wheel, and then advances the wheel to the current time.
+ * Each level of the wheel has {@link #SLOTS_PER_LEVEL} slots, where each slot of the lowest level spans
+ * {@link #MILLIS_PER_TICK} milliseconds, and each slot of a higher level spans all slots of the level below.
+ * Timeouts in a higher level slot are moved to lower levels when the wheel reaches the start of that slot.
+ *
+ * A timeout expires when the wheel has advanced to the tick which contains its expiry time.
+ */
+class TimerWheel {
+
+    public static final int MILLIS_PER_TICK = 2;
+    public static final int LEVEL_BITS = 8;
+    public static final int SLOTS_PER_LEVEL = 1 << LEVEL_BITS;
+    public static final int LEVELS = 4;
+    private static final int SLOT_MASK = SLOTS_PER_LEVEL - 1;
+    private static final long MAX_DELTA_TICKS = (1L << (LEVEL_BITS * LEVELS)) - 1; // About 99 days.
+
+    private static final int SCHEDULED = 0, CANCELLED = 1, EXPIRED = 2;
+    private static final AtomicIntegerFieldUpdater<Timeout> stateUpdater = AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    private final AtomicReferenceArray<Timeout> inboxes;
+    private final int inboxMask;
+    private final LongAdder scheduled = new LongAdder(); // Timeouts which are neither cancelled nor expired.
+    private final LongAdder cancelled = new LongAdder(); // Cancelled timeouts which are still held by this.
+
+    // The below are only accessed while holding the monitor of this, which only the draining thread(s) do.
+    private final Timeout[][] slots = new Timeout[LEVELS][SLOTS_PER_LEVEL];
+    private Timeout due = null; // Timeouts which expired before they were moved to the wheel.
+    private long currentTick;
+    private long held = 0; // All timeouts in the wheel, including cancelled ones.
+
+    public TimerWheel(long currentTimeMillis) {
+        this(currentTimeMillis, Runtime.getRuntime().availableProcessors());
+    }
+
+    TimerWheel(long currentTimeMillis, int concurrency) {
+        int inboxCount = Integer.highestOneBit(Math.max(1, concurrency) * 2 - 1); // Next power of two.
+        this.inboxes = new AtomicReferenceArray<>(inboxCount);
+        this.inboxMask = inboxCount - 1;
+        this.currentTick = tickOf(currentTimeMillis);
+    }
+
+    /** Schedules the given payload to expire at the given time, and returns the timeout which may be used to cancel this. */
+    public Timeout schedule(Object payload, long expireAtMillis) {
+        Objects.requireNonNull(payload, "payload");
+        Timeout timeout = new Timeout(payload, tickOf(expireAtMillis));
+        scheduled.increment();
+        int inbox = (int) Thread.currentThread().getId() & inboxMask;
+        Timeout head;
+        do {
+            head = inboxes.get(inbox);
+            timeout.next = head;
+        } while ( ! inboxes.compareAndSet(inbox, head, timeout));
+        return timeout;
+    }
+
+    /** Advances this to the given time, and adds the payloads of all timeouts which have expired to the given queue. */
+    public synchronized void drainTo(long currentTimeMillis, Queue<Object> out) {
+        for (int i = 0; i < inboxes.length(); i++)
+            for (Timeout timeout = inboxes.getAndSet(i, null), next; timeout != null; timeout = next) {
+                next = timeout.next;
+                place(timeout);
+            }
+        expireDue(out);
+
+        long targetTick = tickOf(currentTimeMillis);
+        while (currentTick < targetTick) {
+            if (targetTick - currentTick > SLOTS_PER_LEVEL) // Skip ticks with nothing to do, when far behind.
+                currentTick = Math.max(currentTick, Math.min(targetTick, nextTickWithWork()) - 1);
+            ++currentTick;
+            for (int level = 1; level < LEVELS && (currentTick & ((1L << (LEVEL_BITS * level)) - 1)) == 0; level++)
+                cascade(level, slotOf(currentTick, level));
+            expireDue(out);
+
+            int slot = slotOf(currentTick, 0);
+            for (Timeout timeout = slots[0][slot], next; timeout != null; timeout = next) {
+                next = timeout.next;
+                --held;
+                expire(timeout, out);
+            }
+            slots[0][slot] = null;
+        }
+
+        if (cancelled.sum() > held / 2 + SLOTS_PER_LEVEL)
+            purge();
+    }
+
+    /** Returns the number of timeouts which are scheduled, and not yet cancelled or expired. */
+    public int queueSize() {
+        return (int) scheduled.sum();
+    }
+
+    private void place(Timeout timeout) {
+        if (timeout.state != SCHEDULED) {
+            cancelled.decrement();
+            return;
+        }
+        long delta = timeout.tick - currentTick;
+        if (delta <= 0) {
+            timeout.next = due;
+            due = timeout;
+            return;
+        }
+        // The level is the one where the slots are small enough that the timeout is within one lap of the current tick.
+        int level = Math.min(LEVELS - 1, (63 - Long.numberOfLeadingZeros(delta)) / LEVEL_BITS);
+        long tick = currentTick + Math.min(delta, MAX_DELTA_TICKS); // Timeouts too far out are placed again when reached.
+        int slot = slotOf(tick, level);
+        timeout.next = slots[level][slot];
+        slots[level][slot] = timeout;
+        ++held;
+    }
+
+    /** Returns the first tick after the current one where timeouts are expired or cascaded, or Long.MAX_VALUE if there is none. */
+    private long nextTickWithWork() {
+        long next = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = LEVEL_BITS * level;
+            long bucket = (currentTick >>> shift) + 1;
+            for (int i = 0; i < SLOTS_PER_LEVEL; i++, bucket++) {
+                if (slots[level][(int) bucket & SLOT_MASK] != null) {
+                    next = Math.min(next, bucket << shift);
+                    break;
+                }
+            }
+        }
+        return next;
+    }
+
+    /** Moves all timeouts in the given slot to lower levels, as the wheel has reached the start of the slot. */
+    private void cascade(int level, int slot) {
+        Timeout timeout = slots[level][slot];
+        slots[level][slot] = null;
+        for (Timeout next; timeout != null; timeout = next) {
+            next = timeout.next;
+            --held;
+            place(timeout);
+        }
+    }
+
+    private void expireDue(Queue<Object> out) {
+        for (Timeout timeout = due, next; timeout != null; timeout = next) {
+            next = timeout.next;
+            expire(timeout, out);
+        }
+        due = null;
+    }
+
+    private void expire(Timeout timeout, Queue<Object> out) {
+        timeout.next = null;
+        if (stateUpdater.compareAndSet(timeout, SCHEDULED, EXPIRED)) {
+            scheduled.decrement();
+            out.add(timeout.payload);
+            timeout.payload = null;
+        }
+        else {
+            cancelled.decrement();
+        }
+    }
+
+    /** Removes all cancelled timeouts from the wheel, so they do not accumulate when most timeouts are cancelled. */
+    private void purge() {
+        for (Timeout[] level : slots)
+            for (int slot = 0; slot < SLOTS_PER_LEVEL; slot++) {
+                Timeout kept = null;
+                for (Timeout timeout = level[slot], next; timeout != null; timeout = next) {
+                    next = timeout.next;
+                    if (timeout.state == SCHEDULED) {
+                        timeout.next = kept;
+                        kept = timeout;
+                    }
+                    else {
+                        timeout.next = null;
+                        --held;
+                        cancelled.decrement();
+                    }
+                }
+                level[slot] = kept;
+            }
+    }
+
+    private static long tickOf(long millis) {
+        return Math.floorDiv(millis, MILLIS_PER_TICK);
+    }
+
+    private static int slotOf(long tick, int level) {
+        return (int) (tick >>> (LEVEL_BITS * level)) & SLOT_MASK;
+    }
+
+    /** A scheduled timeout, which may be cancelled until it has expired. */
+    public class Timeout {
+
+        private final long tick;
+        private volatile int state = SCHEDULED;
+        private Object payload; // Cleared when cancelled or expired, so it is not kept alive by the wheel.
+        private Timeout next;
+
+        private Timeout(Object payload, long tick) {
+            this.payload = payload;
+            this.tick = tick;
+        }
+
+        /** Cancels this, unless it has already expired or been cancelled, and returns whether this cancelled it. */
+        public boolean cancel() {
+            if ( ! stateUpdater.compareAndSet(this, SCHEDULED, CANCELLED)) return false;
+            payload = null;
+            scheduled.decrement();
+            cancelled.increment();
+            return true;
+        }
+
+    }
+
+}
@@ -12,14 +12,17 @@ import java.util.Objects;
  * {@link #connectTo(ContentChannel)} is called. Once connected, this class becomes a non-buffering proxy for the
  * connected ContentChannel.
  *
+ * <p>Once connected, writes are forwarded without taking any lock, so streaming through a connected channel costs no
+ * more than writing to the connected ContentChannel directly.</p>
+ *
  * @author Simon Thoresen Hult
  */
 public final class BufferedContentChannel implements ContentChannel {
 
     private final Object lock = new Object();
     private List<Entry> queue = new LinkedList<>();
-    private ContentChannel content = null;
-    private boolean closed = false;
+    private volatile ContentChannel content = null;
+    private volatile boolean closed = false;
     private CompletionHandler closeCompletion = null;
 
     /**
@@ -63,9 +66,7 @@ public final class BufferedContentChannel implements ContentChannel {
      * @return True if {@link #connectTo(ContentChannel)} has been called.
      */
     public boolean isConnected() {
-        synchronized (lock) {
-            return content != null;
-        }
+        return content != null;
     }
 
     /**
@@ -91,7 +92,14 @@ public final class BufferedContentChannel implements ContentChannel {
 
     @Override
     public void write(ByteBuffer buf, CompletionHandler handler) {
-        ContentChannel content;
+        ContentChannel content = this.content;
+        if (content != null) {
+            if (closed) {
+                throw new IllegalStateException();
+            }
+            content.write(buf, handler);
+            return;
+        }
         synchronized (lock) {
             if (closed) {
                 throw new IllegalStateException();
@@ -120,8 +120,8 @@ public class FastContentWriter extends CompletableFuture<Boolean> implements Aut
 
         @Override
         public void completed() {
-            numPendingCompletions.decrementAndGet();
-            if (closed.get() && numPendingCompletions.get() == 0) {
+            // The completion of close is pending until closed is set, so only the last completion sees zero after that.
+            if (numPendingCompletions.decrementAndGet() == 0 && closed.get()) {
                 complete(true);
             }
         }
@@ -2,11 +2,11 @@
 package com.yahoo.jdisc.handler;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
-import java.util.Queue;
 
 /**
  * <p>This class implements a {@link ContentChannel} that has a blocking <em>read</em> interface. Use this class if you
@@ -15,35 +15,68 @@ import java.util.Queue;
  * a {@link BufferedContentChannel} up front, and {@link BufferedContentChannel#connectTo(ContentChannel) connect} that
  * to a ReadableContentChannel at the point where you decide to consume the data.</p>
  *
+ * <p>Writes are appended to a linked queue under a lock held only by writers, and only to append, so writers do not
+ * contend with the reader. Readers only synchronize among themselves, and with writers only when they have to wait
+ * for content.</p>
+ *
  * @author Simon Thoresen Hult
  */
 public final class ReadableContentChannel implements ContentChannel, Iterable<ByteBuffer> {
 
-    private final Object lock = new Object();
-    private Queue<Entry> queue = new LinkedList<>();
-    private boolean closed = false;
+    private final Object lock = new Object(); // Held by readers, and by writers only to wake up waiting readers.
+    private final Object appendLock = new Object(); // Held by writers, so nothing is appended after the close entry.
+    private Entry tail; // Guarded by appendLock.
+    private boolean closed = false; // Guarded by appendLock.
+    private Entry head; // Guarded by lock; its successor is the next entry to read.
+    private volatile boolean drained = false; // Set when the close entry is read, or when this has failed.
+    private volatile Throwable failure = null;
+    private volatile int waiting = 0; // The number of readers waiting for content.
+
+    public ReadableContentChannel() {
+        head = new Entry(null, null);
+        tail = head;
+    }
 
     @Override
     public void write(ByteBuffer buf, CompletionHandler handler) {
         Objects.requireNonNull(buf, "buf");
-        synchronized (lock) {
-            if (closed || queue == null) {
+        Entry entry = new Entry(buf, handler);
+        synchronized (appendLock) {
+            if (closed || drained) {
                 throw new IllegalStateException(this + " is closed");
             }
-            queue.add(new Entry(buf, handler));
-            lock.notifyAll();
+            append(entry);
         }
+        signal();
     }
 
     @Override
     public void close(CompletionHandler handler) {
-        synchronized (lock) {
-            if (closed || queue == null) {
+        Entry entry = new Entry(null, handler);
+        synchronized (appendLock) {
+            if (closed || drained) {
                 throw new IllegalStateException(this + " is already closed");
             }
             closed = true;
-            queue.add(new Entry(null, handler));
-            lock.notifyAll();
+            append(entry);
+        }
+        signal();
+    }
+
+    /** Appends the given entry to the queue. Must be called while holding the append lock. */
+    private void append(Entry entry) {
+        tail.next = entry;
+        tail = entry;
+    }
+
+    /** Lets waiting readers know about an appended entry, or fails it if this has failed. */
+    private void signal() {
+        if (failure != null) {
+            failPending(); // Raced with failed(Throwable), which may not have seen this entry.
+        } else if (waiting > 0) {
+            synchronized (lock) {
+                lock.notifyAll();
+            }
         }
     }
 
@@ -59,17 +92,15 @@ public final class ReadableContentChannel implements ContentChannel, Iterable<By
      * @return The number of bytes available to be read without blocking.
      */
     public int available() {
-        Entry entry;
+        ByteBuffer buf;
         synchronized (lock) {
-            if (queue == null) {
+            if (drained) {
                 return 0;
             }
-            entry = queue.peek();
+            Entry entry = head.next;
+            buf = entry != null ? entry.buf : null; // Cleared by read() once polled, so read it here, and only once.
         }
-        if (entry == null || entry.buf == null) {
-            return 0;
-        }
-        return entry.buf.remaining();
+        return buf != null ? buf.remaining() : 0;
     }
 
     /**
@@ -85,25 +116,33 @@ public final class ReadableContentChannel implements ContentChannel, Iterable<By
     public ByteBuffer read() {
         Entry entry;
         synchronized (lock) {
-            try {
-                while (queue != null && queue.isEmpty()) {
-                    lock.wait();
+            if (head.next == null && ! drained) {
+                ++waiting; // Before checking again, so writers which append after the check also see this.
+                try {
+                    while (head.next == null && ! drained) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                } finally {
+                    --waiting;
                 }
-            } catch (InterruptedException e) {
-                throw new IllegalStateException(e);
             }
-            if (queue == null) {
+            if (drained) {
                 return null;
             }
-            entry = queue.poll();
+            entry = poll();
             if (entry.buf == null) {
-                queue = null;
+                drained = true;
             }
         }
-        if (entry.handler != null) {
-            entry.handler.completed();
+        ByteBuffer buf = entry.buf;
+        CompletionHandler handler = entry.handler;
+        entry.clear();
+        if (handler != null) {
+            handler.completed();
         }
-        return entry.buf;
+        return buf;
     }
 
     /**
@@ -117,17 +156,40 @@ public final class ReadableContentChannel implements ContentChannel, Iterable<By
      * @throws IllegalStateException If this method is called more than once.
      */
     public void failed(Throwable t) {
-        Queue<Entry> queue;
         synchronized (lock) {
-            if ((queue = this.queue) == null) {
+            if (drained) {
                 throw new IllegalStateException();
             }
-            this.queue = null;
+            drained = true;
+            failure = t;
             lock.notifyAll();
         }
-        for (Entry entry : queue) {
-            entry.handler.failed(t);
+        failPending();
+    }
+
+    /** Fails the handlers of all entries not yet read, each exactly once, as these are removed under the lock. */
+    private void failPending() {
+        List<CompletionHandler> handlers = new ArrayList<>();
+        synchronized (lock) {
+            for (Entry entry; (entry = poll()) != null; ) {
+                if (entry.handler != null) {
+                    handlers.add(entry.handler);
+                }
+                entry.clear();
+            }
+        }
+        for (CompletionHandler handler : handlers) {
+            handler.failed(failure);
+        }
+    }
+
+    /** Removes and returns the next entry, or returns null if there is none. Must be called while holding the lock. */
+    private Entry poll() {
+        Entry next = head.next;
+        if (next != null) {
+            head = next; // The polled entry becomes the new sentinel.
         }
+        return next;
     }
 
     /**
@@ -170,12 +232,19 @@ public final class ReadableContentChannel implements ContentChannel, Iterable<By
 
     private static class Entry {
 
-        final ByteBuffer buf;
-        final CompletionHandler handler;
+        ByteBuffer buf;
+        CompletionHandler handler;
+        volatile Entry next;
 
         Entry(ByteBuffer buf, CompletionHandler handler) {
             this.handler = handler;
             this.buf = buf;
         }
+
+        /** Drops the content of this once taken, as this remains referenced as the sentinel until the next is read. */
+        void clear() {
+            buf = null;
+            handler = null;
+        }
     }
 }
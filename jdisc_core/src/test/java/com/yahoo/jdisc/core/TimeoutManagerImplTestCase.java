@@ -327,7 +327,7 @@ public class TimeoutManagerImplTestCase {
 
         void forwardToTime(long millis) {
             while (this.millis < millis) {
-                this.millis += ScheduledQueue.MILLIS_PER_SLOT;
+                this.millis += TimerWheel.MILLIS_PER_TICK;
                 timeoutManager.checkTasks(this.millis);
             }
         }
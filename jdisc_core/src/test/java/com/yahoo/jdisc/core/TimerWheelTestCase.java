@@ -0,0 +1,220 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.yahoo.jdisc.core.TimerWheel.MILLIS_PER_TICK;
+import static com.yahoo.jdisc.core.TimerWheel.SLOTS_PER_LEVEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class TimerWheelTestCase {
+
+    @Test
+    void requireThatScheduleDoesNotAcceptNull() {
+        TimerWheel wheel = new TimerWheel(0);
+        try {
+            wheel.schedule(null, 100);
+            fail();
+        } catch (NullPointerException e) {
+
+        }
+    }
+
+    @Test
+    void requireThatTimeoutsExpire() {
+        TimerWheel wheel = new TimerWheel(0);
+        Object foo = new Object();
+        wheel.schedule(foo, 200);
+        assertEquals(1, wheel.queueSize());
+
+        assertDrainTo(wheel, 150);
+        assertDrainTo(wheel, 250, foo);
+        assertEquals(0, wheel.queueSize());
+    }
+
+    @Test
+    void requireThatTimeoutsCanBeCancelled() {
+        TimerWheel wheel = new TimerWheel(0);
+        Object foo = new Object();
+        TimerWheel.Timeout timeout = wheel.schedule(foo, 100);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.queueSize());
+
+        assertDrainTo(wheel, 150);
+    }
+
+    @Test
+    void requireThatExpiredTimeoutsCanNotBeCancelled() {
+        TimerWheel wheel = new TimerWheel(0);
+        Object foo = new Object();
+        TimerWheel.Timeout timeout = wheel.schedule(foo, 100);
+        assertDrainTo(wheel, 150, foo);
+        assertFalse(timeout.cancel());
+        assertEquals(0, wheel.queueSize());
+    }
+
+    @Test
+    void requireThatDrainToOnlyDrainsExpiredTimeouts() {
+        TimerWheel wheel = new TimerWheel(0);
+        Object foo = schedule(wheel, 100);
+        Object bar = schedule(wheel, 300);
+        Object baz = schedule(wheel, 200);
+
+        assertDrainTo(wheel, 150, foo);
+        assertDrainTo(wheel, 250, baz);
+        assertDrainTo(wheel, 350, bar);
+        assertDrainTo(wheel, 450);
+    }
+
+    @Test
+    void requireThatPastTimeoutsExpireOnNextDrain() {
+        TimerWheel wheel = new TimerWheel(1000);
+        Object foo = schedule(wheel, -100);
+        Object bar = schedule(wheel, 500);
+
+        assertDrainTo(wheel, 1000, foo, bar);
+    }
+
+    @Test
+    void requireThatTimeoutsExpireOnceAtTheirTickOnAllLevels() {
+        TimerWheel wheel = new TimerWheel(0);
+        long[] ticks = { 1, SLOTS_PER_LEVEL - 1, SLOTS_PER_LEVEL, SLOTS_PER_LEVEL + 1, 3 * SLOTS_PER_LEVEL + 17,
+                         SLOTS_PER_LEVEL * SLOTS_PER_LEVEL - 1, SLOTS_PER_LEVEL * SLOTS_PER_LEVEL, SLOTS_PER_LEVEL * SLOTS_PER_LEVEL + 1 };
+        Object[] payloads = new Object[ticks.length];
+        for (int i = 0; i < ticks.length; i++)
+            payloads[i] = schedule(wheel, ticks[i] * MILLIS_PER_TICK + MILLIS_PER_TICK / 2);
+
+        for (long tick = 0; tick <= 2L * SLOTS_PER_LEVEL * SLOTS_PER_LEVEL; tick++) {
+            List<Object> expected = new ArrayList<>();
+            for (int i = 0; i < ticks.length; i++)
+                if (ticks[i] == tick) expected.add(payloads[i]);
+
+            assertDrainTo(wheel, tick * MILLIS_PER_TICK, expected.toArray());
+        }
+        assertEquals(0, wheel.queueSize());
+    }
+
+    @Test
+    void requireThatTimeoutsBeyondTheTopLevelExpire() {
+        TimerWheel wheel = new TimerWheel(0);
+        long expiry = 1L << 42;
+        Object foo = schedule(wheel, expiry);
+
+        assertDrainTo(wheel, expiry - MILLIS_PER_TICK);
+        assertDrainTo(wheel, expiry, foo);
+    }
+
+    @Test
+    void requireThatRandomTimeoutsExpireAtTheirTickUnlessCancelled() {
+        Random random = new Random(42);
+        TimerWheel wheel = new TimerWheel(0);
+        List<long[]> scheduled = new ArrayList<>(); // { tick, index }
+        List<TimerWheel.Timeout> timeouts = new ArrayList<>();
+        List<Object> payloads = new ArrayList<>();
+        Set<Integer> cancelled = new HashSet<>();
+        long now = 0;
+        for (int round = 0; round < 2000; round++) {
+            for (int i = random.nextInt(20); i > 0; i--) {
+                long tick = now / MILLIS_PER_TICK + random.nextInt(random.nextBoolean() ? 300 : 100_000) - 5;
+                Object payload = new Object();
+                scheduled.add(new long[] { tick, payloads.size() });
+                timeouts.add(wheel.schedule(payload, tick * MILLIS_PER_TICK));
+                payloads.add(payload);
+            }
+            for (int i = random.nextInt(15); i > 0 && ! timeouts.isEmpty(); i--) {
+                int index = random.nextInt(timeouts.size());
+                if (timeouts.get(index).cancel()) cancelled.add(index);
+            }
+
+            now += MILLIS_PER_TICK * (1 + random.nextInt(random.nextInt(10) == 0 ? 200_000 : 100));
+            Queue<Object> expired = new LinkedList<>();
+            wheel.drainTo(now, expired);
+            long currentTick = now / MILLIS_PER_TICK;
+            Set<Object> expected = new HashSet<>();
+            for (long[] entry : scheduled)
+                if (entry[0] <= currentTick && ! cancelled.contains((int) entry[1]))
+                    expected.add(payloads.get((int) entry[1]));
+            scheduled.removeIf(entry -> entry[0] <= currentTick || cancelled.contains((int) entry[1]));
+
+            assertEquals(expected.size(), expired.size());
+            assertEquals(expected, new HashSet<>(expired));
+        }
+        assertEquals(scheduled.size(), wheel.queueSize());
+    }
+
+    @Test
+    void requireThatConcurrentSchedulingAndCancellingIsSafe() throws InterruptedException {
+        TimerWheel wheel = new TimerWheel(0, 4);
+        int threads = 8, perThread = 50_000;
+        Set<Object> expired = ConcurrentHashMap.newKeySet();
+        Set<Object> uncancelled = ConcurrentHashMap.newKeySet();
+        AtomicBoolean done = new AtomicBoolean(false);
+        AtomicBoolean duplicates = new AtomicBoolean(false);
+        Thread drainer = new Thread(() -> {
+            for (long now = 0; ! done.get(); now = Math.min(now + MILLIS_PER_TICK, 2000)) {
+                Queue<Object> out = new LinkedList<>();
+                wheel.drainTo(now, out);
+                for (Object payload : out)
+                    if ( ! expired.add(payload)) duplicates.set(true);
+            }
+        });
+        drainer.start();
+
+        CountDownLatch ready = new CountDownLatch(threads);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                ready.countDown();
+                Random random = new Random();
+                for (int i = 0; i < perThread; i++) {
+                    Object payload = new Object();
+                    TimerWheel.Timeout timeout = wheel.schedule(payload, random.nextInt(1000));
+                    if (random.nextBoolean() || ! timeout.cancel())
+                        uncancelled.add(payload);
+                }
+            });
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) worker.join();
+        done.set(true);
+        drainer.join();
+
+        Queue<Object> out = new LinkedList<>();
+        wheel.drainTo(4000, out);
+        for (Object payload : out)
+            if ( ! expired.add(payload)) duplicates.set(true);
+        assertFalse(duplicates.get());
+        assertEquals(uncancelled, expired);
+        assertEquals(0, wheel.queueSize());
+    }
+
+    private static Object schedule(TimerWheel wheel, long expireAtMillis) {
+        Object obj = new Object();
+        wheel.schedule(obj, expireAtMillis);
+        return obj;
+    }
+
+    private static void assertDrainTo(TimerWheel wheel, long currentTimeMillis, Object... expected) {
+        Queue<Object> expired = new LinkedList<>();
+        wheel.drainTo(currentTimeMillis, expired);
+        assertEquals(Arrays.asList(expected), expired);
+    }
+
+}
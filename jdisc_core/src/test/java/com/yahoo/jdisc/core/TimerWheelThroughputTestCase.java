@@ -0,0 +1,92 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jdisc.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures how many timeouts per second may be scheduled and then cancelled, as for requests which complete
+ * before they time out, while a manager thread drains the wheel as {@link TimeoutManagerImpl} does.
+ */
+public class TimerWheelThroughputTestCase {
+
+    private static final int NUM_REQUESTS = 200_000;
+    private static final int MIN_THREADS = 1;
+    private static final int MAX_THREADS = 32;
+    private static final ExecutorService executor = Executors.newFixedThreadPool(MAX_THREADS);
+
+    @Test
+    void runThroughputMeasurements() throws Exception {
+        System.err.format("%15s", "");
+        for (int numThreads = MIN_THREADS; numThreads <= MAX_THREADS; numThreads *= 2)
+            System.err.format("%15s", numThreads + " thread");
+        System.err.format("\n");
+
+        measureThroughput(MAX_THREADS); // warmup
+        System.err.format("%15s", "requests/s");
+        for (int numThreads = MIN_THREADS; numThreads <= MAX_THREADS; numThreads *= 2)
+            System.err.format("%15s", measureThroughput(numThreads));
+        System.err.format("\n");
+    }
+
+    private static long measureThroughput(int numThreads) throws Exception {
+        TimerWheel wheel = new TimerWheel(System.currentTimeMillis());
+        AtomicBoolean done = new AtomicBoolean(false);
+        Thread manager = new Thread(() -> {
+            Queue<Object> expired = new LinkedList<>();
+            while ( ! done.get()) {
+                wheel.drainTo(System.currentTimeMillis(), expired);
+                expired.clear();
+                try {
+                    Thread.sleep(TimerWheel.MILLIS_PER_TICK);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+        manager.start();
+
+        List<RequestTask> tasks = new ArrayList<>();
+        for (int i = 0; i < numThreads; ++i)
+            tasks.add(new RequestTask(wheel));
+
+        long nanos = 0;
+        for (Future<Long> result : executor.invokeAll(tasks))
+            nanos = Math.max(nanos, result.get());
+
+        done.set(true);
+        manager.join();
+        return (numThreads * NUM_REQUESTS * TimeUnit.SECONDS.toNanos(1)) / nanos;
+    }
+
+    private static class RequestTask implements Callable<Long> {
+
+        final TimerWheel wheel;
+
+        RequestTask(TimerWheel wheel) {
+            this.wheel = wheel;
+        }
+
+        @Override
+        public Long call() {
+            Object payload = new Object();
+            long time = System.nanoTime();
+            for (int i = 0; i < NUM_REQUESTS; ++i) {
+                long expireAt = System.currentTimeMillis() + 5000 + (i & 1023);
+                wheel.schedule(payload, expireAt).cancel();
+            }
+            return System.nanoTime() - time;
+        }
+    }
+
+}
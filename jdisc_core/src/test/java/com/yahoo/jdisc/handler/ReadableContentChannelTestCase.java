@@ -9,8 +9,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -272,6 +275,87 @@ public class ReadableContentChannelTestCase {
         }
     }
 
+    @Test
+    void requireThatEachCompletionIsCalledOnceWhenWritesRaceWithReadAndFailed() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int run = 0; run < 69; ++run) {
+            ReadableContentChannel content = new ReadableContentChannel();
+            AtomicInteger calls = new AtomicInteger();
+            AtomicInteger duplicates = new AtomicInteger();
+            List<Future<Integer>> writers = new LinkedList<>();
+            for (int writer = 0; writer < 4; ++writer) {
+                writers.add(executor.submit(() -> {
+                    int written = 0;
+                    try {
+                        for (int i = 0; i < 1000; ++i, ++written) {
+                            AtomicBoolean called = new AtomicBoolean();
+                            content.write(ByteBuffer.allocate(1), new CompletionHandler() {
+                                @Override public void completed() { count(); }
+                                @Override public void failed(Throwable t) { count(); }
+                                void count() {
+                                    calls.incrementAndGet();
+                                    if (called.getAndSet(true)) duplicates.incrementAndGet();
+                                }
+                            });
+                        }
+                    } catch (IllegalStateException e) {
+                        // Failed while writing.
+                    }
+                    return written;
+                }));
+            }
+            for (int i = 0; i < 500; ++i) {
+                assertNotNull(content.read());
+            }
+            content.failed(new RuntimeException());
+            int written = 0;
+            for (Future<Integer> writer : writers) {
+                written += writer.get(600, TimeUnit.SECONDS);
+            }
+            assertEquals(written, calls.get());
+            assertEquals(0, duplicates.get());
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    void requireThatWritesRacingWithCloseAreEitherRejectedOrCompleted() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int run = 0; run < 69; ++run) {
+            ReadableContentChannel content = new ReadableContentChannel();
+            AtomicInteger completed = new AtomicInteger();
+            List<Future<Integer>> writers = new LinkedList<>();
+            for (int writer = 0; writer < 4; ++writer) {
+                writers.add(executor.submit(() -> {
+                    int written = 0;
+                    try {
+                        for (int i = 0; i < 1000; ++i, ++written) {
+                            content.write(ByteBuffer.allocate(1), new CompletionHandler() {
+                                @Override public void completed() { completed.incrementAndGet(); }
+                                @Override public void failed(Throwable t) { }
+                            });
+                        }
+                    } catch (IllegalStateException e) {
+                        // Closed while writing.
+                    }
+                    return written;
+                }));
+            }
+            content.close(null);
+            int read = 0;
+            while (content.read() != null) {
+                ++read;
+            }
+            int written = 0;
+            for (Future<Integer> writer : writers) {
+                written += writer.get(600, TimeUnit.SECONDS);
+            }
+            assertEquals(written, read);
+            assertEquals(written, completed.get());
+        }
+        executor.shutdown();
+    }
+
     private static class MyCompletion implements CompletionHandler {
 
         boolean completed = false;
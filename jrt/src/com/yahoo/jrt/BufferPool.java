@@ -0,0 +1,123 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.jrt;
+
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * A pool of direct byte buffers in power of 2 size classes, used for
+ * connection input and output buffers. Socket I/O on direct buffers
+ * avoids the copy through a temporary direct buffer done by the JDK
+ * for heap buffers, and recycling them avoids paying for allocating
+ * direct memory whenever a buffer grows or shrinks.
+ *
+ * Buffers larger than the largest size class are plain heap buffers,
+ * which are not pooled. Every pooled buffer that is acquired must be
+ * released exactly once; {@link #outstanding()} tells how many are not.
+ **/
+class BufferPool {
+
+    static final int MIN_SIZE = 4 * 1024;
+    static final int MAX_SIZE = 1024 * 1024;
+    private static final long RETAINED_BYTES_PER_CLASS = 4 * 1024 * 1024;
+
+    private final SizeClass[] classes;
+    private final AtomicLong acquired = new AtomicLong(0);
+    private final AtomicLong released = new AtomicLong(0);
+
+    private static class SizeClass {
+        final int size;
+        final int maxFree;
+        final Queue<ByteBuffer> free = new ConcurrentLinkedQueue<>();
+        final AtomicInteger freeCount = new AtomicInteger(0);
+        SizeClass(int size) {
+            this.size = size;
+            this.maxFree = (int) Math.max(1, RETAINED_BYTES_PER_CLASS / size);
+        }
+    }
+
+    BufferPool() {
+        int n = Integer.numberOfTrailingZeros(MAX_SIZE) - Integer.numberOfTrailingZeros(MIN_SIZE) + 1;
+        classes = new SizeClass[n];
+        for (int i = 0; i < n; i++) {
+            classes[i] = new SizeClass(MIN_SIZE << i);
+        }
+    }
+
+    private static int classIndex(int size) {
+        if (size <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    /**
+     * Returns a cleared buffer with a capacity of at least the given size,
+     * which should be given back using {@link #release} when no longer used.
+     *
+     * @param minSize the minimum capacity of the buffer
+     * @return a buffer with capacity of at least minSize
+     **/
+    ByteBuffer acquire(int minSize) {
+        if (minSize <= 0 || minSize > MAX_SIZE) {
+            return ByteBuffer.allocate(Math.max(0, minSize));
+        }
+        SizeClass c = classes[classIndex(minSize)];
+        acquired.incrementAndGet();
+        ByteBuffer buf = c.free.poll();
+        if (buf == null) {
+            return ByteBuffer.allocateDirect(c.size);
+        }
+        c.freeCount.decrementAndGet();
+        return buf.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Returns the capacity of the buffer {@link #acquire} would return for the given size.
+     **/
+    int capacityFor(int minSize) {
+        if (minSize <= 0) {
+            return 0;
+        }
+        if (minSize > MAX_SIZE) {
+            return minSize;
+        }
+        return classes[classIndex(minSize)].size;
+    }
+
+    /**
+     * Gives back a buffer obtained from {@link #acquire}. Buffers which
+     * are not pooled are ignored. The buffer must not be used afterwards.
+     *
+     * @param buf the buffer to release
+     **/
+    void release(ByteBuffer buf) {
+        if ( ! buf.isDirect() || buf.capacity() < MIN_SIZE || buf.capacity() > MAX_SIZE) {
+            return;
+        }
+        released.incrementAndGet();
+        SizeClass c = classes[classIndex(buf.capacity())];
+        if (c.freeCount.incrementAndGet() > c.maxFree) {
+            c.freeCount.decrementAndGet();
+            return; // let the GC have it
+        }
+        buf.clear();
+        c.free.offer(buf);
+    }
+
+    /**
+     * Returns the number of pooled buffers which have been acquired, but
+     * not yet released. This should be zero when all users are done,
+     * and is used to detect leaks.
+     **/
+    long outstanding() {
+        return acquired.get() - released.get();
+    }
+
+}
@@ -34,8 +34,8 @@ class Connection extends Target {
     private int state = INITIAL;
     private final Queue  queue   = new Queue();
     private final Queue  myQueue = new Queue();
-    private final Buffer input   = new Buffer(0); // Start off with empty buffer.
-    private final Buffer output  = new Buffer(0); // Start off with empty buffer.
+    private final Buffer input;
+    private final Buffer output;
     private final int maxInputSize;
     private final int maxOutputSize;
     private final boolean dropEmptyBuffers;
@@ -49,6 +49,7 @@ class Connection extends Target {
     private final Spec spec;
     private CryptoSocket socket;
     private int readSize = READ_SIZE;
+    private int incompletePacketLength = 0;
     private final boolean server;
     private final AtomicLong requestId = new AtomicLong(0);
     private SelectionKey selectionKey;
@@ -90,6 +91,8 @@ class Connection extends Target {
         this.parent = parent;
         this.owner = owner;
         this.socket = parent.transport().createServerCryptoSocket(channel);
+        this.input = new Buffer(0, parent.transport().bufferPool()); // Start off with empty buffer.
+        this.output = new Buffer(0, parent.transport().bufferPool()); // Start off with empty buffer.
         this.spec = null;
         this.tcpNoDelay = tcpNoDelay;
         maxInputSize = owner.getMaxInputBufferSize();
@@ -102,6 +105,8 @@ class Connection extends Target {
         super(context);
         this.parent = parent;
         this.owner = owner;
+        this.input = new Buffer(0, parent.transport().bufferPool()); // Start off with empty buffer.
+        this.output = new Buffer(0, parent.transport().bufferPool()); // Start off with empty buffer.
         this.spec = spec;
         this.tcpNoDelay = tcpNoDelay;
         maxInputSize = owner.getMaxInputBufferSize();
@@ -262,6 +267,7 @@ class Connection extends Target {
         while (true) {
             PacketInfo info = PacketInfo.getPacketInfo(rb);
             if (info == null || info.packetLength() > rb.remaining()) {
+                incompletePacketLength = (info == null) ? 0 : info.packetLength();
                 break;
             }
             owner.readPacket(info);
@@ -287,7 +293,10 @@ class Connection extends Target {
     private void read() throws IOException {
         boolean doneRead = false;
         for (int i = 0; !doneRead && i < READ_REDO; i++) {
-            ByteBuffer wb = input.getWritable(readSize);
+            // Make room for more of a large incomplete packet at once, rather than growing the buffer repeatedly,
+            // but not beyond the largest pooled buffer, as the packet length is given by the peer, and may be bogus.
+            int missing = Math.min(incompletePacketLength - input.bytes(), BufferPool.MAX_SIZE);
+            ByteBuffer wb = input.getWritable(Math.max(readSize, missing));
             if (socket.read(wb) == -1) {
                 throw new IOException("jrt: Connection closed by peer");
             }
@@ -381,6 +390,8 @@ class Connection extends Target {
         if (selectionKey != null) {
             selectionKey.cancel();
         }
+        input.release();
+        output.release();
     }
 
     public boolean isClosed() {
@@ -10,24 +10,42 @@ import java.nio.ByteBuffer;
  **/
 public class DataValue extends Value
 {
-    private final byte[] value;
+    private volatile byte[] value;
+    private final ByteBuffer buffer;
 
     /**
      * Create from a Java-type value
      *
      * @param value the value
      **/
-    public DataValue(byte[] value) { this.value = value; }
+    public DataValue(byte[] value) {
+        this.value = value;
+        this.buffer = null;
+    }
+
+    /**
+     * Create from the remaining bytes of the given buffer, without
+     * copying them. The bytes are copied directly into the connection
+     * output buffer when the value is sent, so the buffer must not be
+     * modified until the request has completed.
+     *
+     * @param value the value
+     **/
+    public DataValue(ByteBuffer value) {
+        this.value = null;
+        this.buffer = value.slice().asReadOnlyBuffer();
+    }
 
     /**
      * Create by decoding the value from the given buffer
      *
      * @param src buffer where the value is stored
      **/
-    DataValue(ByteBuffer src) {
+    static DataValue decode(ByteBuffer src) {
         int size = src.getInt();
-        value = new byte[size];
+        byte[] value = new byte[size];
         src.get(value);
+        return new DataValue(value);
     }
 
     /**
@@ -36,17 +54,43 @@ public class DataValue extends Value
     public byte type() { return DATA; }
     public int count() { return 1; }
 
-    int bytes() { return 4 + value.length; }
+    int bytes() { return 4 + length(); }
     void encode(ByteBuffer dst) {
-        dst.putInt(value.length);
-        dst.put(value);
+        dst.putInt(length());
+        if (buffer != null) {
+            dst.put(buffer.duplicate());
+        } else {
+            dst.put(value);
+        }
+    }
+
+    private int length() {
+        return (buffer != null) ? buffer.remaining() : value.length;
+    }
+
+    /**
+     * Returns the value as a byte array, which is copied out of the
+     * buffer this was created from, if any.
+     **/
+    public byte[] asData() {
+        if (value == null) {
+            value = new byte[buffer.remaining()];
+            buffer.duplicate().get(value);
+        }
+        return value;
     }
 
-    public byte[] asData() { return value; }
+    /**
+     * Returns a read-only view of the bytes of this value, without
+     * copying them.
+     **/
+    public ByteBuffer asDataBuffer() {
+        return (buffer != null) ? buffer.duplicate() : ByteBuffer.wrap(value).asReadOnlyBuffer();
+    }
 
     @Override
     public String toString() {
-        return String.valueOf(value);
+        return String.valueOf(asData());
     }
 
 }
@@ -3,9 +3,9 @@ package com.yahoo.jrt;
 
 
 import java.nio.channels.SocketChannel;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -31,8 +31,29 @@ public class Transport {
     private final int eventsBeforeWakeup;
 
     private final TransportMetrics metrics = TransportMetrics.getInstance();
-    private final List<TransportThread> threads = new ArrayList<>();
+    private final BufferPool bufferPool = new BufferPool();
+    private final List<TransportThread> threads = new CopyOnWriteArrayList<>();
     private final Random rnd = new Random();
+    private final int maxThreads;
+    private boolean shutdown = false;
+
+    /** A thread count which makes the transport size itself, see {@link #defaultMaxThreads()}. */
+    public static final int AUTO_THREADS = 0;
+
+    /** The number of threads a transport starts with, when sized automatically. */
+    static final int MIN_AUTO_THREADS = 2;
+
+    /** The number of connections all threads should have before another is started, when sized automatically. */
+    static final int CONNECTIONS_PER_THREAD = 16;
+
+    /**
+     * Returns the maximum number of threads used by a transport created with {@link #AUTO_THREADS}.
+     * Such a transport starts with {@value #MIN_AUTO_THREADS} threads, and starts another whenever
+     * all its threads have {@value #CONNECTIONS_PER_THREAD} connections, until this number is reached.
+     */
+    public static int defaultMaxThreads() {
+        return Math.max(MIN_AUTO_THREADS, Math.min(16, Runtime.getRuntime().availableProcessors() / 4));
+    }
 
     /**
      * Creates a new Transport object with the given fatal error
@@ -43,7 +64,7 @@ public class Transport {
      * @param name used for identifying threads
      * @param fatalHandler fatal error handler
      * @param cryptoEngine crypto engine to use
-     * @param numThreads number of {@link TransportThread}s.
+     * @param numThreads number of {@link TransportThread}s, or {@link #AUTO_THREADS}
      * @param eventsBeforeWakeup number write events in Q before waking thread up
      */
     public Transport(String name, FatalErrorHandler fatalHandler, CryptoEngine cryptoEngine, int numThreads, boolean tcpNoDelay, int eventsBeforeWakeup) {
@@ -52,11 +73,13 @@ public class Transport {
         this.cryptoEngine = cryptoEngine;
         this.tcpNoDelay = tcpNoDelay;
         this.eventsBeforeWakeup = Math.max(1, eventsBeforeWakeup);
+        this.maxThreads = (numThreads == AUTO_THREADS) ? defaultMaxThreads() : numThreads;
         connector = new Connector();
         worker = new Worker(this);
-        runCnt = new AtomicInteger(numThreads);
-        for (int i = 0; i < numThreads; ++i) {
-            threads.add(new TransportThread(this, i));
+        runCnt = new AtomicInteger(0);
+        int initialThreads = (numThreads == AUTO_THREADS) ? MIN_AUTO_THREADS : numThreads;
+        for (int i = 0; i < initialThreads; ++i) {
+            addThread();
         }
     }
     public Transport(String name, CryptoEngine cryptoEngine, int numThreads, int eventsBeforeWakeup) {
@@ -74,17 +97,55 @@ public class Transport {
         this(name, null, CryptoEngine.createDefault(), numThreads, true, 1);
     }
     public Transport(String name) {
-        this(name, null, CryptoEngine.createDefault(), 1, true, 1);
+        this(name, null, CryptoEngine.createDefault(), AUTO_THREADS, true, 1);
     }
     // Only for testing
     public Transport() { this("default"); }
 
+    private TransportThread addThread() {
+        TransportThread thread = new TransportThread(this, threads.size());
+        runCnt.incrementAndGet();
+        threads.add(thread);
+        return thread;
+    }
+
     /** Selects and returns a random transport thread. */
     public TransportThread selectThread() {
         return threads.get(rnd.nextInt(threads.size()));
     }
 
+    /**
+     * Selects the thread to handle a new connection: the one with the fewest connections,
+     * or the least busy one among those. Starts another thread first if all threads have
+     * plenty of connections, and more threads are allowed. The connection is counted on the
+     * selected thread right away, so concurrent selections see it before it is added there.
+     */
+    synchronized TransportThread selectThreadForConnection() {
+        TransportThread best = null;
+        for (TransportThread thread : threads) {
+            if (best == null
+                || thread.connectionCount() < best.connectionCount()
+                || (thread.connectionCount() == best.connectionCount() && thread.busyTimeNanos() < best.busyTimeNanos())) {
+                best = thread;
+            }
+        }
+        if (best.connectionCount() >= CONNECTIONS_PER_THREAD && threads.size() < maxThreads && ! shutdown) {
+            best = addThread();
+        }
+        best.countConnection();
+        return best;
+    }
+
+    /** Returns the currently running threads of this transport. */
+    List<TransportThread> threads() {
+        return List.copyOf(threads);
+    }
+
+    /** Returns the maximum number of threads used by this transport. */
+    int maxThreads() { return maxThreads; }
+
     boolean getTcpNoDelay() { return tcpNoDelay; }
+    BufferPool bufferPool() { return bufferPool; }
     int getEventsBeforeWakeup() { return eventsBeforeWakeup; }
 
     public String getName() { return name; }
@@ -153,7 +214,7 @@ public class Transport {
      * @param context application context for the new connection
      */
     Connection connect(Supervisor owner, Spec spec, Object context) {
-        Connection conn = new Connection(selectThread(), owner, spec, context, getTcpNoDelay());
+        Connection conn = new Connection(selectThreadForConnection(), owner, spec, context, getTcpNoDelay());
         connector.connectLater(conn);
         return conn;
     }
@@ -196,6 +257,9 @@ public class Transport {
      * @return this object, to enable chaining with join
      */
     public Transport shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
         connector.close();
         for (TransportThread thread: threads) {
             thread.shutdown();
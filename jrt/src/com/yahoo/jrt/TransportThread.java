@@ -5,6 +5,8 @@ import java.io.IOException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -74,6 +76,8 @@ public class TransportThread {
     private final Scheduler scheduler;
     private int             state;
     private final Selector  selector;
+    private final AtomicInteger connections = new AtomicInteger(0);
+    private final AtomicLong busyNanos = new AtomicLong(0);
 
     private void handleAddConnection(Connection conn) {
         if (conn.isClosed()) {
@@ -91,6 +95,7 @@ public class TransportThread {
         if (conn.isClosed()) {
             return;
         }
+        connections.decrementAndGet();
         conn.fini();
         if (conn.hasSocket()) {
             parent.closeLater(conn);
@@ -184,6 +189,29 @@ public class TransportThread {
         return parent;
     }
 
+    /** Returns the number of connections assigned to this thread, and not yet closed. */
+    int connectionCount() {
+        return connections.get();
+    }
+
+    /** Counts a connection assigned to this thread, until it is closed by this thread. */
+    void countConnection() {
+        connections.incrementAndGet();
+    }
+
+    /** Stops counting a connection assigned to this thread, which failed before it could be added to it. */
+    void uncountConnection() {
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Returns the total time this thread has spent handling events and I/O, as opposed to
+     * waiting for them, since it was started.
+     */
+    long busyTimeNanos() {
+        return busyNanos.get();
+    }
+
     /**
      * Proxy method used to dispatch fatal errors to the enclosing
      * Transport.
@@ -316,6 +344,7 @@ public class TransportThread {
             } catch (IOException e) {
                 log.log(Level.WARNING, "error during select", e);
             }
+            long busyStart = System.nanoTime();
 
             // handle internal events
             handleEvents();
@@ -333,6 +362,7 @@ public class TransportThread {
 
             // check scheduled tasks
             scheduler.checkTasks(System.currentTimeMillis());
+            busyNanos.addAndGet(System.nanoTime() - busyStart);
         }
         synchronized (this) {
             state = CLOSED;
@@ -125,7 +125,7 @@ public abstract class Value
         case DOUBLE_ARRAY: return new DoubleArray(src);
         case STRING:       return new StringValue(src);
         case STRING_ARRAY: return new StringArray(src);
-        case DATA:         return new DataValue(src);
+        case DATA:         return DataValue.decode(src);
         case DATA_ARRAY:   return new DataArray(src);
         }
         throw new IllegalArgumentException();
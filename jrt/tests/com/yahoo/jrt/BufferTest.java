@@ -222,4 +222,38 @@ public class BufferTest {
         }
     }
 
+
+    @org.junit.Test
+    public void testPooledBufferReturnsMemoryToPool() {
+        BufferPool pool = new BufferPool();
+        Buffer buf = new Buffer(0, pool);
+        assertEquals(0, pool.outstanding());
+
+        ByteBuffer b = buf.getWritable(100);
+        assertTrue(b.isDirect());
+        assertEquals(BufferPool.MIN_SIZE, b.capacity());
+        assertEquals(1, pool.outstanding());
+        b.put((byte) 42);
+
+        b = buf.getWritable(3 * BufferPool.MIN_SIZE);
+        assertEquals(4 * BufferPool.MIN_SIZE, b.capacity());
+        assertEquals(1, pool.outstanding());
+
+        b = buf.getReadable();
+        assertEquals(1, b.remaining());
+        assertEquals(42, b.get());
+
+        assertTrue(buf.shrink(0));
+        assertEquals(0, pool.outstanding());
+
+        b = buf.getWritable(2 * BufferPool.MAX_SIZE);
+        assertFalse("large buffers are not pooled", b.isDirect());
+        assertEquals(0, pool.outstanding());
+
+        buf.getWritable(1).put((byte) 1);
+        buf.release();
+        assertEquals(0, buf.bytes());
+        assertEquals(0, pool.outstanding());
+        assertTrue(pool.acquire(1).isDirect());
+    }
 }
@@ -1,6 +1,10 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.jrt;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class ConnectTest {
@@ -36,4 +40,69 @@ public class ConnectTest {
         server.transport().shutdown().join();
     }
 
+    @org.junit.Test
+    public void testAutomaticallySizedTransportStartsThreadsAsConnectionsGrow() throws ListenFailedException {
+        Transport serverTransport = new Transport("server", Transport.AUTO_THREADS);
+        Test.Orb server   = new Test.Orb(serverTransport);
+        Test.Orb client   = new Test.Orb(new Transport("client", 1));
+        Acceptor acceptor = server.listen(new Spec(0));
+        assertEquals(Transport.MIN_AUTO_THREADS, serverTransport.threads().size());
+        assertTrue(serverTransport.maxThreads() >= Transport.MIN_AUTO_THREADS);
+
+        List<Connection> targets = new ArrayList<>();
+        int connections = Transport.MIN_AUTO_THREADS * Transport.CONNECTIONS_PER_THREAD + 1;
+        for (int i = 0; i < connections; i++) {
+            Connection target = (Connection) client.connect(new Spec("localhost", acceptor.port()));
+            for (int j = 0; j < 100 && ! target.isConnected(); j++) {
+                try { Thread.sleep(100); } catch (InterruptedException e) {}
+            }
+            assertTrue(target.isConnected());
+            targets.add(target);
+            for (int j = 0; j < 100 && serverConnections(serverTransport) <= i; j++) {
+                try { Thread.sleep(100); } catch (InterruptedException e) {}
+            }
+            assertEquals(i + 1, serverConnections(serverTransport));
+        }
+        List<TransportThread> threads = serverTransport.threads();
+        if (serverTransport.maxThreads() > Transport.MIN_AUTO_THREADS) {
+            assertEquals(Transport.MIN_AUTO_THREADS + 1, threads.size());
+            for (int i = 0; i < Transport.MIN_AUTO_THREADS; i++) {
+                assertEquals(Transport.CONNECTIONS_PER_THREAD, threads.get(i).connectionCount());
+            }
+            assertEquals(1, threads.get(Transport.MIN_AUTO_THREADS).connectionCount());
+        } else {
+            assertEquals(Transport.MIN_AUTO_THREADS, threads.size());
+        }
+
+        for (Connection target : targets) {
+            target.close();
+        }
+        acceptor.shutdown().join();
+        client.transport().shutdown().join();
+        server.transport().shutdown().join();
+        for (TransportThread thread : threads) {
+            assertEquals(0, thread.connectionCount());
+        }
+    }
+
+    @org.junit.Test
+    public void testConnectionsAreCountedWhenTheirThreadIsSelected() {
+        Transport transport = new Transport("server", 4);
+        for (int i = 0; i < 8; i++) {
+            transport.selectThreadForConnection();
+        }
+        for (TransportThread thread : transport.threads()) {
+            assertEquals(2, thread.connectionCount());
+        }
+        transport.shutdown().join();
+    }
+
+    private static int serverConnections(Transport transport) {
+        int connections = 0;
+        for (TransportThread thread : transport.threads()) {
+            connections += thread.connectionCount();
+        }
+        return connections;
+    }
+
 }
@@ -10,11 +10,13 @@ import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 import org.junit.runners.Parameterized.Parameters;
 
+import java.nio.ByteBuffer;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.util.List;
 
 import static com.yahoo.jrt.CryptoUtils.createTestTlsContext;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
@@ -130,6 +132,8 @@ public class EchoTest {
         acceptor.shutdown().join();
         client.transport().shutdown().join();
         server.transport().shutdown().join();
+        assertEquals("leaked client buffers", 0, client.transport().bufferPool().outstanding());
+        assertEquals("leaked server buffers", 0, server.transport().bufferPool().outstanding());
     }
 
     private void rpc_echo(Request req) {
@@ -166,4 +170,20 @@ public class EchoTest {
             connAuthCtxAssertion.assertConnectionAuthContext(connAuthCtx);
         }
     }
+
+    @org.junit.Test
+    public void testEchoLargeData() {
+        server.addMethod(new Method("echoData", "x", "x", req -> req.returnValues().add(req.parameters().get(0))));
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(data.length + 2);
+        buffer.put((byte) 0).put(data).put((byte) 0).flip().position(1).limit(data.length + 1);
+        Request req = new Request("echoData");
+        req.parameters().add(new DataValue(buffer));
+        target.invokeSync(req, Duration.ofSeconds(60));
+        assertTrue(req.checkReturnTypes("x"));
+        assertArrayEquals(data, req.returnValues().get(0).asData());
+    }
 }
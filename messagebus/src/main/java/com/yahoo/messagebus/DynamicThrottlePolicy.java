@@ -317,4 +317,27 @@ public class DynamicThrottlePolicy extends StaticThrottlePolicy {
 
     double getWindowSize() { return windowSize; }
 
+    /**
+     * Returns a new policy with all the settings of this, for one of the given number of sessions which share the limits
+     * of this: the max window size, max pending count and size, and max throughput are divided by the number of slices.
+     *
+     * @param slices the number of sessions sharing the limits of this
+     * @return a new policy, without any of the state of this
+     */
+    @Override
+    public DynamicThrottlePolicy slice(int slices) {
+        DynamicThrottlePolicy slice = sliceLimitsInto(new DynamicThrottlePolicy(timer), slices);
+        slice.resizeRate = resizeRate;
+        slice.efficiencyThreshold = efficiencyThreshold;
+        slice.windowSizeIncrement = windowSizeIncrement;
+        slice.minWindowSize = minWindowSize;
+        slice.decrementFactor = decrementFactor;
+        slice.maxWindowSize = maxWindowSize < Integer.MAX_VALUE ? Math.max(1, Math.ceil(maxWindowSize / slices)) : maxWindowSize;
+        slice.windowSizeBackOff = windowSizeBackOff;
+        slice.weight = weight;
+        slice.maxThroughput = maxThroughput / slices;
+        slice.windowSize = Math.max(minWindowSize, windowSizeIncrement);
+        return slice;
+    }
+
 }
@@ -23,7 +23,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 
@@ -170,7 +172,7 @@ public class MessageBus implements ConfigHandler, NetworkOwner, MessageHandler,
         }
 
         // Start messenger.
-        msn = new Messenger();
+        msn = new Messenger(params.getNumMessengerThreads(), messengerThreadFactory(params.getNumMessengerThreads()));
 
         RetryPolicy retryPolicy = params.getRetryPolicy();
         if (retryPolicy != null) {
@@ -187,6 +189,29 @@ public class MessageBus implements ConfigHandler, NetworkOwner, MessageHandler,
 
     Messenger messenger() { return msn; }
 
+    private static ThreadFactory messengerThreadFactory(int numThreads) {
+        if (numThreads == 1) {
+            return runnable -> new Thread(runnable, "Messenger");
+        }
+        AtomicInteger threadId = new AtomicInteger(0);
+        return runnable -> new Thread(runnable, "Messenger-" + threadId.getAndIncrement());
+    }
+
+    /** Returns the number of tasks waiting to be run by the messenger threads of this. */
+    public int getMessengerQueueSize() {
+        return msn.getQueueSize();
+    }
+
+    /** Returns the number of tasks run by the messenger threads of this. */
+    public long getMessengerTaskCount() {
+        return msn.getTaskCount();
+    }
+
+    /** Returns the accumulated time, in nanoseconds, from tasks were enqueued in the messenger until they completed. */
+    public long getMessengerTaskLatencyNanos() {
+        return msn.getTaskLatencyNanos();
+    }
+
     /**
      * <p>Sets the destroyed flag to true. The very first time this method is
      * called, it cleans up all its dependencies. Even if you retain a reference
@@ -19,6 +19,7 @@ public class MessageBusParams {
     private RetryPolicy retryPolicy;
     private int maxPendingCount;
     private MessagebusConfig config;
+    private int numMessengerThreads;
 
     /**
      * Constructs a new instance of this parameter object with default values for all members.
@@ -27,6 +28,7 @@ public class MessageBusParams {
         retryPolicy = new RetryTransientErrorsPolicy();
         maxPendingCount = 1024;
         config = null;
+        numMessengerThreads = 1;
     }
 
     /**
@@ -39,6 +41,7 @@ public class MessageBusParams {
         retryPolicy = params.retryPolicy;
         maxPendingCount = params.maxPendingCount;
         config = params.config;
+        numMessengerThreads = params.numMessengerThreads;
     }
 
     /**
@@ -154,4 +157,25 @@ public class MessageBusParams {
         return this;
     }
 
+    /**
+     * Returns the number of threads used by the messenger of the message bus.
+     *
+     * @return The number of threads.
+     */
+    public int getNumMessengerThreads() {
+        return numMessengerThreads;
+    }
+
+    /**
+     * Sets the number of threads used by the messenger of the message bus. Tasks are partitioned over
+     * the threads by sequence id, so ordering of sequenced messages is kept.
+     *
+     * @param numThreads The number of threads to use.
+     * @return This, to allow chaining.
+     */
+    public MessageBusParams setNumMessengerThreads(int numThreads) {
+        this.numMessengerThreads = numThreads;
+        return this;
+    }
+
 }
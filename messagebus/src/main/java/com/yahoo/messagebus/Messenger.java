@@ -11,14 +11,21 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 /**
- * <p>This class implements a single thread that is able to process arbitrary
+ * <p>This class implements a set of threads that are able to process arbitrary
  * tasks. Tasks are enqueued using the synchronized {@link #enqueue(Task)}
  * method, and are run in the order they were enqueued.</p>
  *
+ * <p>By default there is a single thread. When there are more, each task is
+ * assigned to a thread by a partitioning key, see {@link #enqueue(Task, long)},
+ * so tasks with the same key are still run in the order they were enqueued.
+ * Tasks without a key, and all recurrent tasks, run on the first thread.</p>
+ *
  * @author Simon Thoresen Hult
  */
 public class Messenger implements Runnable {
@@ -26,12 +33,36 @@ public class Messenger implements Runnable {
     private static final Logger log = Logger.getLogger(Messenger.class.getName());
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final List<Task> children = new ArrayList<>();
-    private final Queue<Task> queue = new ArrayDeque<>();
-
-    private final Thread thread = new Thread(this, "Messenger");
+    private final Worker[] workers;
+    private final LongAdder tasksRun = new LongAdder();
+    private final LongAdder taskLatencyNanos = new LongAdder();
 
     public Messenger() {
-        thread.setDaemon(true);
+        this(1, runnable -> new Thread(runnable, "Messenger"));
+    }
+
+    /**
+     * Creates a messenger with the given number of threads, created by the given factory. This allows,
+     * e.g., running the messenger on virtual threads. Threads are made daemon threads if possible.
+     *
+     * @param numThreads    the number of threads to process tasks with
+     * @param threadFactory the factory used to create the threads
+     */
+    public Messenger(int numThreads, ThreadFactory threadFactory) {
+        if (numThreads < 1)
+            throw new IllegalArgumentException("Number of messenger threads must be positive, got " + numThreads);
+        workers = new Worker[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            workers[i] = new Worker(i == 0);
+            workers[i].thread = (i == 0) ? threadFactory.newThread(this) : threadFactory.newThread(workers[i]);
+            if ( ! workers[i].thread.isDaemon()) {
+                try {
+                    workers[i].thread.setDaemon(true);
+                } catch (IllegalArgumentException e) {
+                    // Virtual threads are always daemon threads, and refuse to be set otherwise.
+                }
+            }
+        }
     }
 
     /**
@@ -47,13 +78,15 @@ public class Messenger implements Runnable {
     }
 
     /**
-     * <p>Starts the internal thread. This must be done AFTER all recurrent
+     * <p>Starts the internal threads. This must be done AFTER all recurrent
      * tasks have been added.</p>
      *
      * @see #addRecurrentTask(Task)
      */
     public void start() {
-        thread.start();
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
     }
 
     /**
@@ -89,36 +122,57 @@ public class Messenger implements Runnable {
     }
 
     /**
-     * <p>Enqueues the given task in the list of tasks that this worker is to
-     * process. If this thread has been destroyed previously, this method
+     * <p>Enqueues the given task in the list of tasks that the first thread of
+     * this is to process. If this has been destroyed previously, this method
      * invokes {@link Messenger.Task#destroy()}.</p>
      *
      * @param task The task to enqueue.
      */
     public void enqueue(Task task) {
+        enqueue(task, workers[0]);
+    }
+
+    /**
+     * <p>Enqueues the given task in the list of tasks that the thread owning
+     * the given key is to process. Tasks with equal keys, e.g., the sequence id
+     * of a message, are run in the order they were enqueued. If this has been
+     * destroyed previously, this method invokes {@link Messenger.Task#destroy()}.</p>
+     *
+     * @param task The task to enqueue.
+     * @param key  The partitioning key of the task.
+     */
+    public void enqueue(Task task, long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        enqueue(task, workers[(int) Long.remainderUnsigned(hash >>> 32, workers.length)]);
+    }
+
+    private void enqueue(Task task, Worker worker) {
         if (destroyed.get()) {
             task.destroy();
             return;
         }
-        synchronized (this) {
-            queue.offer(task);
-            if (queue.size() == 1) {
-                notify();
-            }
-        }
+        worker.offer(task);
     }
 
     /**
-     * <p>Handshakes with the internal thread. If this method is called using
-     * the messenger thread, this will deadlock.</p>
+     * <p>Handshakes with the internal threads. If this method is called using
+     * a messenger thread, it returns immediately, as waiting would deadlock.</p>
      */
     public void sync() {
-        if (Thread.currentThread() == thread) {
-            return; // no need to wait for self
+        for (Worker worker : workers) {
+            if (Thread.currentThread() == worker.thread) {
+                return; // no need to wait for self
+            }
+        }
+        List<SyncTask> tasks = new ArrayList<>(workers.length);
+        for (Worker worker : workers) {
+            SyncTask task = new SyncTask();
+            enqueue(task, worker);
+            tasks.add(task);
+        }
+        for (SyncTask task : tasks) {
+            task.await();
         }
-        SyncTask task = new SyncTask();
-        enqueue(task);
-        task.await();
     }
 
     /**
@@ -131,15 +185,14 @@ public class Messenger implements Runnable {
      */
     public boolean destroy() {
         boolean done = false;
-        enqueue(TERMINATE);
+        for (Worker worker : workers) {
+            enqueue(TERMINATE, worker);
+        }
         if (!destroyed.getAndSet(true)) {
             try {
-                synchronized (this) {
-                    while (!queue.isEmpty()) {
-                        wait();
-                    }
+                for (Worker worker : workers) {
+                    worker.awaitTermination();
                 }
-                thread.join();
             } catch (InterruptedException e) {
                 // ignore
             }
@@ -148,57 +201,130 @@ public class Messenger implements Runnable {
         return done;
     }
 
+    /** Returns the number of tasks currently waiting to be run, over all threads. */
+    public int getQueueSize() {
+        int size = 0;
+        for (Worker worker : workers) {
+            size += worker.size();
+        }
+        return size;
+    }
+
+    /** Returns the number of tasks which have been run since this was created. */
+    public long getTaskCount() {
+        return tasksRun.sum();
+    }
+
+    /**
+     * Returns the accumulated time, in nanoseconds, tasks have spent from being enqueued until they were
+     * finished running. Divide by {@link #getTaskCount()} for the average task latency.
+     */
+    public long getTaskLatencyNanos() {
+        return taskLatencyNanos.sum();
+    }
+
+    /** Runs the main loop of the first thread of this, which also runs all recurrent tasks. */
     @Override
     public void run() {
-        long timeoutMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(100)).toMillis();
-        while (true) {
-            Task task = null;
+        workers[0].run();
+    }
+
+    /** A thread of this messenger, with its own queue of tasks. */
+    private class Worker implements Runnable {
+
+        private final Queue<Task> queue = new ArrayDeque<>();
+        private final Queue<Long> enqueuedNanos = new ArrayDeque<>();
+        private final boolean runsChildren;
+        private Thread thread;
+
+        Worker(boolean runsChildren) {
+            this.runsChildren = runsChildren;
+        }
+
+        synchronized void offer(Task task) {
+            queue.offer(task);
+            enqueuedNanos.offer(System.nanoTime());
+            if (queue.size() == 1) {
+                notify();
+            }
+        }
+
+        synchronized int size() {
+            return queue.size();
+        }
+
+        void awaitTermination() throws InterruptedException {
             synchronized (this) {
-                if (queue.isEmpty()) {
-                    try {
-                        if (children.isEmpty()) {
-                            wait();
-                        } else {
-                            wait(timeoutMS);
+                while (!queue.isEmpty()) {
+                    wait();
+                }
+            }
+            thread.join();
+        }
+
+        @Override
+        public void run() {
+            long timeoutMS = SystemTimer.adjustTimeoutByDetectedHz(Duration.ofMillis(100)).toMillis();
+            boolean hasChildren = runsChildren && ! children.isEmpty();
+            while (true) {
+                Task task = null;
+                long enqueued = 0;
+                synchronized (this) {
+                    if (queue.isEmpty()) {
+                        try {
+                            if ( ! hasChildren) {
+                                wait();
+                            } else {
+                                wait(timeoutMS);
+                            }
+                        } catch (InterruptedException e) {
+                            continue;
                         }
-                    } catch (InterruptedException e) {
-                        continue;
+                    }
+                    if (queue.size() > 0) {
+                        task = queue.poll();
+                        enqueued = enqueuedNanos.poll();
                     }
                 }
-                if (queue.size() > 0) {
-                    task = queue.poll();
+                if (task == TERMINATE) {
+                    break;
                 }
-            }
-            if (task == TERMINATE) {
-                break;
-            }
-            if (task != null) {
-                try {
-                    task.run();
-                } catch (Exception e) {
-                    log.log(Level.SEVERE, "An exception was thrown while running " + task.getClass().getName(), e);
+                if (task != null) {
+                    try {
+                        task.run();
+                    } catch (Exception e) {
+                        log.log(Level.SEVERE, "An exception was thrown while running " + task.getClass().getName(), e);
+                    }
+                    try {
+                        task.destroy();
+                    } catch (Exception e) {
+                        log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " + e);
+                        log.warning("Someone, somewhere might have to wait indefinitely for something.");
+                    }
+                    tasksRun.increment();
+                    taskLatencyNanos.add(System.nanoTime() - enqueued);
                 }
-                try {
-                    task.destroy();
-                } catch (Exception e) {
-                    log.warning("An exception was thrown while destroying " + task.getClass().getName() + ": " + e);
-                    log.warning("Someone, somewhere might have to wait indefinitely for something.");
+                if (hasChildren) {
+                    for (Task child : children) {
+                        child.run();
+                    }
                 }
             }
-            for (Task child : children) {
-                child.run();
+            if (runsChildren) {
+                for (Task child : children) {
+                    child.destroy();
+                }
             }
-        }
-        for (Task child : children) {
-            child.destroy();
-        }
-        synchronized (this) {
-            while (!queue.isEmpty()) {
-                Task task = queue.poll();
-                task.destroy();
+            synchronized (this) {
+                while (!queue.isEmpty()) {
+                    Task task = queue.poll();
+                    enqueuedNanos.poll();
+                    task.destroy();
+                }
+                notify();
             }
-            notify();
         }
+
     }
 
     /**
@@ -1,8 +1,8 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package com.yahoo.messagebus;
 
+import java.util.ArrayDeque;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -13,13 +13,18 @@ import java.util.concurrent.atomic.AtomicBoolean;
  * id, and messages are only sent when they are at the front of their list. When a reply arrives, the current front of
  * the list is removed and the next message, if any, is sent.
  *
+ * The sequencing state is split into stripes by sequence id, each with its own monitor, so that senders of messages
+ * with different sequence ids rarely contend with each other.
+ *
  * @author Simon Thoresen Hult
  */
 public class Sequencer implements MessageHandler, ReplyHandler {
 
+    private static final int DEFAULT_STRIPE_COUNT = 64;
+
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final MessageHandler sender;
-    private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    private final Stripe[] stripes;
     private final Messenger msn;
     private final static ThreadLocal<Boolean> isSending = ThreadLocal.withInitial(() -> Boolean.FALSE);
 
@@ -29,13 +34,39 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      * @param sender The underlying sender.
      */
     public Sequencer(MessageHandler sender, Messenger msn) {
-        this.sender = sender;
-        this.msn = msn;
+        this(sender, msn, DEFAULT_STRIPE_COUNT);
     }
     public Sequencer(MessageHandler sender) {
         this(sender, null);
     }
 
+    /**
+     * Constructs a new sequencer on top of the given async sender, with the given number of stripes.
+     *
+     * @param sender      the underlying sender
+     * @param msn         the messenger used to break long send recursions, or null
+     * @param stripeCount the number of independently locked stripes to split sequencing state into; must be a power of 2
+     */
+    Sequencer(MessageHandler sender, Messenger msn, int stripeCount) {
+        if (stripeCount <= 0 || Integer.bitCount(stripeCount) != 1)
+            throw new IllegalArgumentException("Stripe count must be a positive power of 2, got " + stripeCount);
+        this.sender = sender;
+        this.msn = msn;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++)
+            stripes[i] = new Stripe();
+    }
+
+    /** Sequencing state for the sequence ids hashing to one stripe, guarded by the monitor of the stripe. */
+    private static class Stripe {
+        private final Map<Long, Queue<Message>> seqMap = new HashMap<>();
+    }
+
+    private Stripe stripeOf(long seqId) {
+        long hash = seqId * 0x9E3779B97F4A7C15L; // Spread ids which only differ in their high bits.
+        return stripes[(int) (hash >>> 32) & (stripes.length - 1)];
+    }
+
     /**
      * Sets the destroyed flag to true. The very first time this method is called, it cleans up all its dependencies.
      * Even if you retain a reference to this object, all of its content is allowed to be garbage collected.
@@ -44,15 +75,17 @@ public class Sequencer implements MessageHandler, ReplyHandler {
      */
     public boolean destroy() {
         if (!destroyed.getAndSet(true)) {
-            synchronized (this) {
-                for (Queue<Message> queue : seqMap.values()) {
-                    if (queue != null) {
-                        for (Message msg : queue) {
-                            msg.discard();
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    for (Queue<Message> queue : stripe.seqMap.values()) {
+                        if (queue != null) {
+                            for (Message msg : queue) {
+                                msg.discard();
+                            }
                         }
                     }
+                    stripe.seqMap.clear();
                 }
-                seqMap.clear();
             }
             return true;
         }
@@ -71,9 +104,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
     private boolean filter(Message msg) {
         long seqId = msg.getSequenceId();
         msg.setContext(seqId);
-        synchronized (this) {
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            Map<Long, Queue<Message>> seqMap = stripe.seqMap;
             if (seqMap.containsKey(seqId)) {
-                Queue<Message> queue = seqMap.computeIfAbsent(seqId, k -> new LinkedList<>());
+                Queue<Message> queue = seqMap.computeIfAbsent(seqId, k -> new ArrayDeque<>());
                 if (msg.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
                     msg.getTrace().trace(TraceLevel.COMPONENT,
                                          "Sequencer queued message with sequence id '" + seqId + "'.");
@@ -153,10 +188,11 @@ public class Sequencer implements MessageHandler, ReplyHandler {
 
     private void sendNextInSequence(long seqId) {
         Message msg = null;
-        synchronized (this) {
-            Queue<Message> queue = seqMap.get(seqId);
+        Stripe stripe = stripeOf(seqId);
+        synchronized (stripe) {
+            Queue<Message> queue = stripe.seqMap.get(seqId);
             if (queue == null || queue.isEmpty()) {
-                seqMap.remove(seqId);
+                stripe.seqMap.remove(seqId);
             } else {
                 msg = queue.remove();
             }
@@ -165,7 +201,7 @@ public class Sequencer implements MessageHandler, ReplyHandler {
             Boolean alreadySending = isSending.get();
             if (alreadySending && (msn != null)) {
                 // Dispatch in another thread to break possibly very long recursion.
-                msn.enqueue(new SequencedSendTask(msg));
+                msn.enqueue(new SequencedSendTask(msg), seqId);
             } else {
                 isSending.set(Boolean.TRUE);
                 sequencedSend(msg);
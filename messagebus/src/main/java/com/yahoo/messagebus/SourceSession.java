@@ -5,13 +5,20 @@ import com.yahoo.messagebus.routing.Route;
 import com.yahoo.messagebus.routing.RoutingTable;
 
 import java.util.Deque;
-import java.util.LinkedList;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A session supporting sending new messages.
  *
+ * The pending count and the queue of messages blocked in {@link #sendBlocking(Message)} are lock-free, so senders
+ * only contend on a monitor when the session has a stateful {@link ThrottlePolicy}, which is not thread safe.
+ * Note that this includes both {@link StaticThrottlePolicy} and the default {@link DynamicThrottlePolicy}: only
+ * sessions without a throttle policy, or with an {@link AllPassThrottlePolicy}, send and handle replies without
+ * taking the session monitor.
+ *
  * @author Simon Thoresen Hult
  */
 public final class SourceSession implements ReplyHandler, MessageBus.SendBlockedMessages {
@@ -19,15 +26,17 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
     private final AtomicBoolean destroyed = new AtomicBoolean(false);
     private final CountDownLatch done = new CountDownLatch(1);
     private final AtomicBoolean sendingBlockedToken = new AtomicBoolean(false);
+    /** Guards the throttle policy, which is not thread safe, and ordering of close against throttled sends. */
     private final Object lock = new Object();
     private final MessageBus mbus;
     private final Sequencer sequencer;
     private final ReplyHandler replyHandler;
     private final ThrottlePolicy throttlePolicy;
+    private final boolean throttled;
     private volatile double timeout;  // volatile only for tests
-    private volatile int pendingCount = 0;
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
     private volatile boolean closed = false;
-    private final Deque<BlockedMessage> blockedQ = new LinkedList<>();
+    private final Deque<BlockedMessage> blockedQ = new ConcurrentLinkedDeque<>();
     private final static class Counter {
         private int count = 0;
         void inc() { count ++; }
@@ -54,6 +63,8 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         }
         replyHandler = params.getReplyHandler();
         throttlePolicy = params.getThrottlePolicy();
+        // An all-pass policy has no state, so there is nothing to serialize access to.
+        throttled = throttlePolicy != null && throttlePolicy.getClass() != AllPassThrottlePolicy.class;
         timeout = params.getTimeout();
         mbus.register(this);
     }
@@ -86,7 +97,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         synchronized (lock) {
             closed = true;
         }
-        if (pendingCount == 0) {
+        if (pendingCount.get() == 0) {
             done.countDown();
         }
         try {
@@ -135,26 +146,34 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
     }
 
     private Result sendInternal(Message message) {
-        synchronized (lock) {
-            if (closed) {
-                return new Result(ErrorCode.SEND_QUEUE_CLOSED, "Source session is closed.");
-            }
-            if (throttlePolicy != null) {
-                if (! throttlePolicy.canSend(message, pendingCount)) {
+        int pending;
+        if (throttled) {
+            synchronized (lock) {
+                if (closed) {
+                    return new Result(ErrorCode.SEND_QUEUE_CLOSED, "Source session is closed.");
+                }
+                if (! throttlePolicy.canSend(message, pendingCount.get())) {
                     return new Result(ErrorCode.SEND_QUEUE_FULL,
-                            "Too much pending data (" + pendingCount + " messages).");
+                            "Too much pending data (" + pendingCount.get() + " messages).");
                 }
                 message.pushHandler(replyHandler);
                 throttlePolicy.processMessage(message);
-            } else {
-                message.pushHandler(replyHandler);
+                pending = pendingCount.incrementAndGet();
+            }
+        } else {
+            // Count the message before checking the closed flag, so that close() either sees it as pending,
+            // or we see the session as closed and back out again.
+            pending = pendingCount.incrementAndGet();
+            if (closed) {
+                decrementPending();
+                return new Result(ErrorCode.SEND_QUEUE_CLOSED, "Source session is closed.");
             }
-            ++pendingCount;
+            message.pushHandler(replyHandler);
         }
         if (message.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
             message.getTrace().trace(TraceLevel.COMPONENT,
                                      "Source session accepted a " + message.getApproxSize() + " byte message. " +
-                                     pendingCount + " message(s) now pending.");
+                                     pending + " message(s) now pending.");
         }
         message.pushHandler(this);
         sequencer.handleMessage(message);
@@ -242,24 +261,23 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         Result res = send(msg);
         if (isSendQFull(res)) {
             BlockedMessage blockedMessage = new BlockedMessage(msg);
-            synchronized (blockedQ) {
-                blockedQ.add(blockedMessage);
-            }
+            blockedQ.add(blockedMessage);
             res = blockedMessage.waitComplete();
         }
         return res;
     }
 
     private void expireStalledBlockedMessages() {
-        synchronized (blockedQ) {
-            blockedQ.removeIf(BlockedMessage::notifyIfExpired);
+        for (BlockedMessage blocked : blockedQ) {
+            // Only the thread which manages to unlink the message may complete it.
+            if (blocked.msg.isExpired() && blockedQ.remove(blocked)) {
+                blocked.notifyIfExpired();
+            }
         }
     }
 
     private BlockedMessage getNextBlockedMessage() {
-        synchronized (blockedQ) {
-            return blockedQ.poll();
-        }
+        return blockedQ.poll();
     }
 
     private void sendBlockedMessages() {
@@ -274,9 +292,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
                 success = msg.sendOrExpire();
                 if (!success) {
                     // Failed sending, put it back at the head of the Q.
-                    synchronized (blockedQ) {
-                        blockedQ.addFirst(msg);
-                    }
+                    blockedQ.addFirst(msg);
                 } else {
                     msg = getNextBlockedMessage();
                 }
@@ -293,18 +309,20 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
             reply.discard();
             return;
         }
-        boolean done;
-        synchronized (lock) {
-            --pendingCount;
-            if (throttlePolicy != null) {
+        int pending;
+        if (throttled) {
+            synchronized (lock) {
+                pending = pendingCount.decrementAndGet();
                 throttlePolicy.processReply(reply);
             }
-            done = (closed && pendingCount == 0);
+        } else {
+            pending = pendingCount.decrementAndGet();
         }
+        boolean done = closed && pending == 0;
         sendBlockedMessages();
         if (reply.getTrace().shouldTrace(TraceLevel.COMPONENT)) {
             reply.getTrace().trace(TraceLevel.COMPONENT,
-                                   "Source session received reply. " + pendingCount + " message(s) now pending.");
+                                   "Source session received reply. " + pending + " message(s) now pending.");
         }
         ReplyHandler handler = reply.popHandler();
         handler.handleReply(reply);
@@ -313,6 +331,12 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
         }
     }
 
+    private void decrementPending() {
+        if (pendingCount.decrementAndGet() == 0 && closed) {
+            done.countDown();
+        }
+    }
+
     /**
      * This is a convenience function to assign a given route to the given
      * message, and then pass it to the other {@link #send(Message)} method of
@@ -381,7 +405,7 @@ public final class SourceSession implements ReplyHandler, MessageBus.SendBlocked
 
     /** Returns the number of messages sent that have not been replied to yet */
     public int getPendingCount() {
-        return pendingCount;
+        return pendingCount.get();
     }
 
     /**
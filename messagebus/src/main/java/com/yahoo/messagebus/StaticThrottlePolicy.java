@@ -91,4 +91,23 @@ public class StaticThrottlePolicy implements ThrottlePolicy {
         return pendingSize;
     }
 
+    /**
+     * Returns a new policy with the settings of this, for one of the given number of sessions which share the limits
+     * of this, i.e., with limits divided by the number of slices, rounded up. Limits of 0, i.e., no limit, are kept.
+     *
+     * @param slices the number of sessions sharing the limits of this
+     * @return a new policy, without any of the state of this
+     */
+    public StaticThrottlePolicy slice(int slices) {
+        return sliceLimitsInto(new StaticThrottlePolicy(), slices);
+    }
+
+    /** Sets the limits of the given policy to the limits of this divided by the given number of slices, and returns it */
+    <T extends StaticThrottlePolicy> T sliceLimitsInto(T slice, int slices) {
+        if (slices < 1) throw new IllegalArgumentException("Number of slices must be positive, but was " + slices);
+        ((StaticThrottlePolicy) slice).maxPendingCount = (maxPendingCount + slices - 1) / slices;
+        ((StaticThrottlePolicy) slice).maxPendingSize = (maxPendingSize + slices - 1) / slices;
+        return slice;
+    }
+
 }
@@ -3,6 +3,7 @@ package com.yahoo.messagebus.network.rpc;
 
 import com.yahoo.messagebus.network.Identity;
 import com.yahoo.cloud.config.SlobroksConfig;
+import com.yahoo.jrt.Transport;
 
 /**
  * To facilitate several configuration parameters to the {@link RPCNetwork} constructor, all parameters are held by this
@@ -20,7 +21,7 @@ public class RPCNetworkParams {
     private int maxOutputBufferSize = 256 * 1024;
     private double connectionExpireSecs = 30;
     private int numTargetsPerSpec = 1;
-    private int numNetworkThreads = 2;
+    private int numNetworkThreads = Transport.AUTO_THREADS;
 
     private int transportEventsBeforeWakeup = 1;
     public enum Optimization {LATENCY, THROUGHPUT}
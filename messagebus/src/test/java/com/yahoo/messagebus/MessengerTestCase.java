@@ -3,9 +3,13 @@ package com.yahoo.messagebus;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -95,6 +99,40 @@ public class MessengerTestCase {
         assertTrue(tryMessenger(msn));
     }
 
+    @Test
+    void requireThatTasksWithSameKeyRunInOrderOnMultipleThreads() throws InterruptedException {
+        Messenger msn = new Messenger(4, Thread::new);
+        msn.start();
+        int keys = 16, tasksPerKey = 1000;
+        List<List<Integer>> executed = new ArrayList<>();
+        for (int key = 0; key < keys; key++) {
+            executed.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+        CountDownLatch latch = new CountDownLatch(keys * tasksPerKey);
+        for (int i = 0; i < tasksPerKey; i++) {
+            for (int key = 0; key < keys; key++) {
+                int index = i;
+                List<Integer> list = executed.get(key);
+                msn.enqueue(new Messenger.Task() {
+                    @Override public void run() { list.add(index); }
+                    @Override public void destroy() { latch.countDown(); }
+                }, key);
+            }
+        }
+        assertTrue(latch.await(60, TimeUnit.SECONDS));
+        for (List<Integer> list : executed) {
+            assertEquals(tasksPerKey, list.size());
+            for (int i = 0; i < tasksPerKey; i++) {
+                assertEquals(i, (int) list.get(i));
+            }
+        }
+        msn.sync();
+        assertEquals(0, msn.getQueueSize());
+        assertTrue(msn.getTaskCount() >= keys * tasksPerKey);
+        assertTrue(msn.getTaskLatencyNanos() > 0);
+        assertTrue(msn.destroy());
+    }
+
     private static boolean tryMessenger(Messenger msn) {
         MyTask task = new MyTask();
         msn.enqueue(task);
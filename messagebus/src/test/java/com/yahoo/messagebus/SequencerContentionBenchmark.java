@@ -0,0 +1,92 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.messagebus.test.SimpleMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A benchmark of sequencing throughput when many threads feed through the same sequencer, as when
+ * hundreds of feeding threads in one container share a source session. Compares a single stripe,
+ * which is equivalent to one global lock, to the default striping.
+ *
+ * Run the main method; prints messages per second per thread count.
+ */
+public class SequencerContentionBenchmark {
+
+    private static final int messagesPerThread = 200_000;
+    private static final int maxThreads = 128;
+
+    /** Replies immediately in the sending thread, so the sequencer is the only shared state. */
+    private static final MessageHandler immediateReplier = message -> {
+        Reply reply = new EmptyReply();
+        reply.swapState(message);
+        reply.setMessage(message);
+        reply.popHandler().handleReply(reply);
+    };
+
+    private static final ReplyHandler discarder = reply -> { };
+
+    private static long run(int stripes, int threads) throws InterruptedException {
+        Sequencer sequencer = new Sequencer(immediateReplier, null, stripes);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < messagesPerThread; j++) {
+                        Message message = new SequencedMessage(random.nextLong());
+                        message.pushHandler(discarder);
+                        sequencer.handleMessage(message);
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        sequencer.destroy();
+        return (long) ((double) messagesPerThread * threads * 1e9 / elapsedNanos);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        run(1, 4); // warmup
+        run(64, 4);
+        System.out.println(String.format("%8s %16s %16s %8s", "threads", "1 stripe msg/s", "64 stripes msg/s", "gain"));
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            long global = run(1, threads);
+            long striped = run(64, threads);
+            System.out.println(String.format("%8d %16d %16d %7.2fx", threads, global, striped, (double) striped / global));
+        }
+    }
+
+    private static class SequencedMessage extends SimpleMessage {
+
+        private final long seqId;
+
+        SequencedMessage(long seqId) {
+            super("foo");
+            this.seqId = seqId;
+        }
+
+        @Override
+        public boolean hasSequenceId() { return true; }
+
+        @Override
+        public long getSequenceId() { return seqId; }
+
+    }
+
+}
@@ -16,6 +16,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -156,6 +157,42 @@ public class SequencerTestCase {
         messenger.destroy();
     }
 
+    @Test
+    void testStripedSyncId() {
+        TestQueue src = new TestQueue();
+        TestQueue dst = new TestQueue();
+        QueueSender sender = new QueueSender(dst);
+        Sequencer seq = new Sequencer(sender, null, 2); // Ensure ids share stripes.
+
+        for (long id = 1; id <= 8; id++)
+            seq.handleMessage(src.createMessage(true, id));
+        for (long id = 1; id <= 8; id++)
+            seq.handleMessage(src.createMessage(true, id));
+        assertEquals(0, src.size());
+        assertEquals(8, dst.size());
+
+        for (int i = 0; i < 8; i++)
+            dst.replyNext();
+        assertEquals(8, src.size());
+        assertEquals(8, dst.size());
+
+        for (int i = 0; i < 8; i++)
+            dst.replyNext();
+        assertEquals(16, src.size());
+        assertEquals(0, dst.size());
+
+        for (long id = 1; id <= 8; id++)
+            src.checkReply(true, id);
+        for (long id = 1; id <= 8; id++)
+            src.checkReply(true, id);
+    }
+
+    @Test
+    void testIllegalStripeCount() {
+        assertThrows(IllegalArgumentException.class, () -> new Sequencer(new QueueSender(new TestQueue()), null, 0));
+        assertThrows(IllegalArgumentException.class, () -> new Sequencer(new QueueSender(new TestQueue()), null, 3));
+    }
+
     private static class TestQueue extends LinkedList<Routable> implements ReplyHandler {
 
         void checkReply(boolean hasSeqId, long seqId) {
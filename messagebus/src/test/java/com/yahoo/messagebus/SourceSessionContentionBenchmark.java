@@ -0,0 +1,110 @@
+// Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
+package com.yahoo.messagebus;
+
+import com.yahoo.jrt.slobrok.api.IMirror;
+import com.yahoo.messagebus.network.Network;
+import com.yahoo.messagebus.network.NetworkOwner;
+import com.yahoo.messagebus.network.ServiceAddress;
+import com.yahoo.messagebus.routing.Route;
+import com.yahoo.messagebus.routing.RoutingNode;
+import com.yahoo.messagebus.test.SimpleMessage;
+import com.yahoo.messagebus.test.SimpleProtocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * A benchmark of send throughput when many threads feed through the same source session. Compares a session
+ * without a throttle policy, which sends and receives replies without locking, to sessions with the stateful
+ * static and dynamic policies, which serialize access to the policy, and the pending count, on the session monitor.
+ * Replies are produced immediately in the sending thread, so the session and its sequencer are the only shared state.
+ *
+ * Run the main method; prints messages per second per thread count.
+ */
+public class SourceSessionContentionBenchmark {
+
+    private static final int messagesPerThread = 200_000;
+    private static final int maxThreads = 128;
+    private static final Route route = Route.parse("destination");
+
+    private static long run(Supplier<ThrottlePolicy> policy, int threads) throws InterruptedException {
+        MessageBus mbus = new MessageBus(new ReplyingNetwork(), new MessageBusParams().addProtocol(new SimpleProtocol())
+                                                                                      .setRetryPolicy(null));
+        SourceSession session = mbus.createSourceSession(new SourceSessionParams().setTimeout(600.0)
+                                                                                 .setThrottlePolicy(policy.get())
+                                                                                 .setReplyHandler(reply -> { }));
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < messagesPerThread; ) {
+                        if (session.send(new SimpleMessage("foo").setRoute(route)).isAccepted())
+                            j++;
+                    }
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers)
+            worker.join();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        session.destroy();
+        mbus.destroy();
+        return (long) ((double) messagesPerThread * threads * 1e9 / elapsedNanos);
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // No policy is lock-free; a max pending count of 0 means no limit, and a minimum window of twice
+        // the thread count never throttles, as each thread has at most one message pending.
+        Supplier<ThrottlePolicy> none = () -> null;
+        Supplier<ThrottlePolicy> fixed = () -> new StaticThrottlePolicy().setMaxPendingCount(0);
+        Supplier<ThrottlePolicy> dynamic = () -> new DynamicThrottlePolicy().setMinWindowSize(2 * maxThreads);
+        run(none, 4); // warmup
+        run(fixed, 4);
+        run(dynamic, 4);
+        System.out.println(String.format("%8s %16s %16s %16s", "threads", "none msg/s", "static msg/s", "dynamic msg/s"));
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            System.out.println(String.format("%8d %16d %16d %16d", threads, run(none, threads), run(fixed, threads), run(dynamic, threads)));
+        }
+    }
+
+    /** A network which replies to every message right away, in the sending thread. */
+    private static class ReplyingNetwork implements Network {
+
+        private static final ServiceAddress address = new ServiceAddress() { };
+
+        @Override public boolean waitUntilReady(double seconds) { return true; }
+        @Override public void attach(NetworkOwner owner) { }
+        @Override public void registerSession(String session) { }
+        @Override public void unregisterSession(String session) { }
+        @Override public void freeServiceAddress(RoutingNode recipient) { recipient.setServiceAddress(null); }
+        @Override public void sync() { }
+        @Override public void shutdown() { }
+        @Override public String getConnectionSpec() { return "local"; }
+        @Override public IMirror getMirror() { return null; }
+
+        @Override
+        public boolean allocServiceAddress(RoutingNode recipient) {
+            recipient.setServiceAddress(address);
+            return true;
+        }
+
+        @Override
+        public void send(Message msg, List<RoutingNode> recipients) {
+            for (RoutingNode recipient : recipients)
+                recipient.handleReply(new EmptyReply());
+        }
+
+    }
+
+}
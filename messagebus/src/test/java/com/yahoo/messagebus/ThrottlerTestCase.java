@@ -203,6 +203,39 @@ public class ThrottlerTestCase {
         assertTrue(windowSize >= 40 && windowSize <= 50);
     }
 
+    @Test
+    void testStaticSlice() {
+        StaticThrottlePolicy policy = new StaticThrottlePolicy().setMaxPendingCount(10).setMaxPendingSize(1000);
+        StaticThrottlePolicy slice = policy.slice(4);
+        assertNotSame(policy, slice);
+        assertEquals(3, slice.getMaxPendingCount());
+        assertEquals(250, slice.getMaxPendingSize());
+        assertEquals(10, policy.getMaxPendingCount());
+        assertEquals(1, new StaticThrottlePolicy().setMaxPendingCount(2).slice(4).getMaxPendingCount());
+        assertEquals(0, new StaticThrottlePolicy().slice(4).getMaxPendingCount());
+        assertThrows(IllegalArgumentException.class, () -> policy.slice(0));
+    }
+
+    @Test
+    void testDynamicSlice() {
+        ManualTimer timer = new ManualTimer();
+        DynamicThrottlePolicy policy = new DynamicThrottlePolicy(timer).setWindowSizeIncrement(5)
+                                                                       .setWindowSizeBackOff(0.5)
+                                                                       .setMinWindowSize(10)
+                                                                       .setMaxWindowSize(50);
+        policy.setMaxPendingSize(1000);
+        DynamicThrottlePolicy slice = policy.slice(4);
+        assertNotSame(policy, slice);
+        assertEquals(5, slice.getWindowSizeIncrement());
+        assertEquals(0.5, slice.getWindowSizeBackOff());
+        assertEquals(10, slice.getMinWindowSize());
+        assertEquals(13, slice.getMaxWindowSize());
+        assertEquals(250, slice.getMaxPendingSize());
+        assertEquals(10, slice.getMaxPendingCount());
+        assertEquals(50, policy.getMaxWindowSize());
+        assertEquals(Integer.MAX_VALUE, new DynamicThrottlePolicy(timer).slice(4).getMaxWindowSize());
+    }
+
     private int getWindowSize(DynamicThrottlePolicy policy, ManualTimer timer, int maxPending) {
         Message msg = new SimpleMessage("foo");
         Reply reply = new SimpleReply("bar");
@@ -44,12 +44,18 @@ public abstract class HttpMetricFetcher {
         log.log(Level.FINE, () -> "Fetching metrics from " + u + " with timeout " + CONNECTION_TIMEOUT);
     }
 
-    @SuppressWarnings("deprecation")
     CloseableHttpResponse getResponse() throws IOException {
+        return getResponse(new HttpGet(url));
+    }
+
+    @SuppressWarnings("deprecation")
+    CloseableHttpResponse getResponse(HttpGet request) throws IOException {
         log.log(Level.FINE, () -> "Connecting to url " + url + " for service '" + service + "'");
-        return httpClient.execute(new HttpGet(url));
+        return httpClient.execute(request);
     }
 
+    URI url() { return url; }
+
     public String toString() {
         return this.getClass().getSimpleName() + " using " + url;
     }
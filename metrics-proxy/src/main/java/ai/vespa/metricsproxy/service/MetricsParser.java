@@ -8,6 +8,9 @@ import ai.vespa.metricsproxy.metric.model.MetricId;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Inspector;
+import com.yahoo.slime.Type;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -46,6 +49,70 @@ public class MetricsParser {
         }
     }
 
+    /**
+     * Parses metrics in the binary Slime format of the container state API. This has the same structure as the JSON,
+     * except each distinct set of dimensions is listed once, in 'metrics:dimensions', and referred to by index.
+     */
+    static void parseSlime(byte[] data, Collector consumer) throws IOException {
+        Inspector root = BinaryFormat.decode(data).get();
+        if (root.type() != Type.OBJECT) {
+            throw new IOException("Expected object, got " + root.type());
+        }
+        Inspector metrics = root.field("metrics");
+        Instant timestamp = Instant.now();
+        Inspector to = metrics.field("snapshot").field("to");
+        if (to.valid()) {
+            timestamp = Instant.ofEpochSecond(Metric.adjustTime((long) to.asDouble(), Instant.now().getEpochSecond()));
+        }
+
+        Inspector dimensionSets = metrics.field("dimensions");
+        List<Map<DimensionId, String>> dimensions = new ArrayList<>(dimensionSets.entries());
+        for (int i = 0; i < dimensionSets.entries(); i++) {
+            Map<DimensionId, String> dimensionSet = new HashMap<>();
+            dimensionSets.entry(i).traverse((String name, Inspector value) -> {
+                if (value.type() == Type.STRING) {
+                    dimensionSet.put(toDimensionId(name), value.asString());
+                } else if (value.type() != Type.NIX) {
+                    throw new IllegalArgumentException("Dimension '" + name + "' must be a string");
+                }
+            });
+            dimensions.add(Map.copyOf(dimensionSet));
+        }
+
+        Inspector values = metrics.field("values");
+        for (int i = 0; i < values.entries(); i++) {
+            Inspector value = values.entry(i);
+            String name = value.field("name").asString();
+            if (name.isEmpty()) {
+                throw new IOException("missing name for entry in 'values' array");
+            }
+            String description = value.field("description").asString();
+            Map<DimensionId, String> dim = Map.of();
+            if (value.field("dimensions").valid()) {
+                long index = value.field("dimensions").asLong();
+                if (index < 0 || index >= dimensions.size()) {
+                    throw new IOException("Dimensions index " + index + " out of range for metric '" + name + "'");
+                }
+                dim = dimensions.get((int) index);
+            }
+            for (Map.Entry<String, Number> metricValue : parseValues(value.field("values"))) {
+                consumer.accept(new Metric(MetricId.toMetricId(name + "." + metricValue.getKey()), metricValue.getValue(), timestamp, dim, description));
+            }
+        }
+    }
+
+    private static List<Map.Entry<String, Number>> parseValues(Inspector values) {
+        List<Map.Entry<String, Number>> metrics = new ArrayList<>();
+        values.traverse((String name, Inspector value) -> {
+            switch (value.type()) {
+                case LONG -> metrics.add(Map.entry(name, value.asLong()));
+                case DOUBLE -> metrics.add(Map.entry(name, value.asDouble()));
+                default -> throw new IllegalArgumentException("Value for aggregator '" + name + "' is not a number");
+            }
+        });
+        return metrics;
+    }
+
     // Top level 'metrics' object, with e.g. 'time', 'status' and 'metrics'.
     private static void parse(JsonParser parser, Collector consumer) throws IOException {
         if (parser.nextToken() != JsonToken.START_OBJECT) {
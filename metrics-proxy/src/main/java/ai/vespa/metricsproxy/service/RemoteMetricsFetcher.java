@@ -1,34 +1,76 @@
 // Copyright Vespa.ai. Licensed under the terms of the Apache 2.0 license. See LICENSE in the project root.
 package ai.vespa.metricsproxy.service;
 
+import ai.vespa.metricsproxy.metric.Metric;
+import com.yahoo.container.jdisc.state.StateHandler;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 
 import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Fetch metrics for a given vespa service
  *
+ * Metrics are requested as binary Slime, and parsed as JSON if the service responds with that instead.
+ * The metrics of the last response with an ETag are kept, and replayed if the service responds that
+ * the metrics have not changed since then.
+ *
  * @author Jo Kristian Bergum
  */
 public class RemoteMetricsFetcher extends HttpMetricFetcher {
 
     final static String METRICS_PATH = STATE_PATH + "metrics";
+    final static String SLIME_QUERY = "format=slime";
+
+    private final URI slimeUrl;
+    private volatile Snapshot lastSnapshot = null;
 
     RemoteMetricsFetcher(VespaService service, int port) {
         super(service, port, METRICS_PATH);
+        this.slimeUrl = URI.create(url() + "?" + SLIME_QUERY);
     }
 
     /**
      * Connect to remote service over http and fetch metrics
      */
     public void getMetrics(MetricsParser.Collector consumer, int fetchCount) {
-        try (CloseableHttpResponse response = getResponse()) {
+        Snapshot last = lastSnapshot;
+        HttpGet request = new HttpGet(slimeUrl);
+        if (last != null)
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, last.etag());
+
+        try (CloseableHttpResponse response = getResponse(request)) {
+            if (response.getCode() == HttpStatus.SC_NOT_MODIFIED && last != null) {
+                last.metrics().forEach(consumer::accept);
+                return;
+            }
             HttpEntity entity = response.getEntity();
+            if (entity == null) return;
+
+            Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+            List<Metric> received = etag == null ? null : new ArrayList<>();
+            MetricsParser.Collector collector = received == null ? consumer : metric -> {
+                received.add(metric);
+                consumer.accept(metric);
+            };
+            lastSnapshot = null;
             try {
-                MetricsParser.parse(new BufferedInputStream(entity.getContent(), HttpMetricFetcher.BUFFER_SIZE), consumer);
+                if (isSlime(entity.getContentType()))
+                    MetricsParser.parseSlime(EntityUtils.toByteArray(entity), collector);
+                else
+                    MetricsParser.parse(new BufferedInputStream(entity.getContent(), HttpMetricFetcher.BUFFER_SIZE), collector);
+
+                if (received != null)
+                    lastSnapshot = new Snapshot(etag.getValue(), List.copyOf(received));
             } catch (Exception e) {
                 handleException(e, entity.getContentType(), fetchCount);
             } finally {
@@ -37,7 +79,15 @@ public class RemoteMetricsFetcher extends HttpMetricFetcher {
         } catch (IOException ignored) {}
     }
 
+    private static boolean isSlime(String contentType) {
+        return contentType != null && contentType.startsWith(StateHandler.SLIME_CONTENT_TYPE);
+    }
+
     void createMetrics(String data, MetricsParser.Collector consumer, int fetchCount) throws IOException {
         MetricsParser.parse(data, consumer);
     }
+
+    /** The metrics received in a response with the given ETag. */
+    private record Snapshot(String etag, List<Metric> metrics) { }
+
 }
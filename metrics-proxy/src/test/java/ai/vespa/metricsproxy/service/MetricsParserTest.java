@@ -2,13 +2,21 @@
 package ai.vespa.metricsproxy.service;
 
 import ai.vespa.metricsproxy.metric.Metric;
+import com.yahoo.slime.BinaryFormat;
+import com.yahoo.slime.Cursor;
+import com.yahoo.slime.Slime;
 import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
+import static ai.vespa.metricsproxy.metric.model.DimensionId.toDimensionId;
+import static ai.vespa.metricsproxy.metric.model.MetricId.toMetricId;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * @author gjoranv
@@ -44,6 +52,37 @@ public class MetricsParserTest {
                 collector.metrics.get(1).getDimensions());
     }
 
+    @Test
+    public void slime_metrics_with_shared_dimensions_are_parsed() throws Exception {
+        Slime slime = new Slime();
+        Cursor metrics = slime.setObject().setObject("metrics");
+        metrics.setObject("snapshot").setDouble("to", 1671035366.562);
+        metrics.setArray("dimensions").addObject().setString("cluster", "CLUSTER-1");
+        Cursor values = metrics.setArray("values");
+        Cursor first = values.addObject();
+        first.setString("name", "foo");
+        first.setObject("values").setLong("count", 3);
+        first.setLong("dimensions", 0);
+        Cursor second = values.addObject();
+        second.setString("name", "bar");
+        second.setObject("values").setDouble("last", 2.5);
+        second.setLong("dimensions", 0);
+        Cursor third = values.addObject();
+        third.setString("name", "baz");
+        third.setObject("values").setDouble("max", 1.0);
+
+        var collector = new MetricsCollector();
+        MetricsParser.parseSlime(BinaryFormat.encode(slime), collector);
+        assertEquals(3, collector.metrics.size());
+        assertEquals(toMetricId("foo.count"), collector.metrics.get(0).getName());
+        assertEquals(3L, collector.metrics.get(0).getValue());
+        assertEquals(Map.of(toDimensionId("cluster"), "CLUSTER-1"), collector.metrics.get(0).getDimensions());
+        assertEquals(toMetricId("bar.last"), collector.metrics.get(1).getName());
+        assertEquals(2.5, collector.metrics.get(1).getValue());
+        assertSame(collector.metrics.get(0).getDimensions(), collector.metrics.get(1).getDimensions());
+        assertTrue(collector.metrics.get(2).getDimensions().isEmpty());
+    }
+
     // The duplicate dimension values for 'cluster' and 'clusterid' exposed a bug in a previously used hashing algo for dimensions.
     private String metricsJsonDistinctButDuplicateDimensionDalues() {
         return """
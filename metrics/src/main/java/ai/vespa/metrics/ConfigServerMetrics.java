@@ -11,6 +11,10 @@ public enum ConfigServerMetrics implements VespaMetrics {
     LATENCY("configserver.latency", Unit.MILLISECOND, "Time to complete requests"),
     CACHE_CONFIG_ELEMS("configserver.cacheConfigElems", Unit.ITEM, "Time to complete requests"),
     CACHE_CHECKSUM_ELEMS("configserver.cacheChecksumElems", Unit.ITEM, "Number of checksum elements in the cache"),
+    CACHE_PRECOMPUTED_CONFIGS("configserver.cachePrecomputedConfigs", Unit.ITEM, "Number of configs built into the cache when the application was activated"),
+    CACHE_PRECOMPUTE_REMAINING_CONFIGS("configserver.cachePrecomputeRemainingConfigs", Unit.ITEM, "Number of configs not yet built into the cache when the application was activated"),
+    CACHE_PRECOMPUTE_DURATION("configserver.cachePrecomputeDuration", Unit.MILLISECOND, "Time spent building configs into the cache when the application was activated"),
+    MODEL_BUILD_DURATION("configserver.modelBuildDuration", Unit.MILLISECOND, "Time spent in each phase of building the model of the application last prepared, by phase"),
     HOSTS("configserver.hosts", Unit.NODE, "The number of nodes being served configuration from the config server cluster"),
     TENANTS("configserver.tenants", Unit.INSTANCE, "The number of tenants being served configuration from the config server cluster"),
     APPLICATIONS("configserver.applications", Unit.INSTANCE, "The number of applications being served configuration from the config server cluster"),
@@ -35,6 +35,11 @@ public enum ContainerMetrics implements VespaMetrics {
     JDISC_APPLICATION_FAILED_COMPONENT_GRAPHS("jdisc.application.failed_component_graphs", Unit.ITEM, "JDISC Application failed component graphs"),
     JDISC_APPLICATION_COMPONENT_GRAPH_CREATION_TIME_MILLIS("jdisc.application.component_graph.creation_time_millis", Unit.MILLISECOND, "JDISC Application component graph creation time"),
     JDISC_APPLICATION_COMPONENT_GRAPH_RECONFIGURATIONS("jdisc.application.component_graph.reconfigurations", Unit.ITEM, "JDISC Application component graph reconfigurations"),
+    JDISC_WARMUP_REQUESTS("jdisc.warmup.requests", Unit.REQUEST, "Number of recorded requests replayed to warm up the container before it was put in rotation"),
+    JDISC_WARMUP_FAILED_REQUESTS("jdisc.warmup.failed_requests", Unit.REQUEST, "Number of replayed warmup requests which failed or timed out"),
+    JDISC_WARMUP_DURATION_MILLIS("jdisc.warmup.duration_millis", Unit.MILLISECOND, "Time spent replaying recorded requests to warm up the container"),
+    MBUS_MESSENGER_QUEUE_SIZE("mbus.messenger.queue_size", Unit.TASK, "Number of tasks waiting for a message bus messenger thread"),
+    MBUS_MESSENGER_TASK_LATENCY("mbus.messenger.task_latency", Unit.MILLISECOND, "Average time from a task is enqueued until a message bus messenger thread has run it"),
 
     JDISC_SINGLETON_IS_ACTIVE("jdisc.singleton.is_active", Unit.ITEM, "JDISC Singleton is active"),
     JDISC_SINGLETON_ACTIVATION_COUNT("jdisc.singleton.activation.count", Unit.OPERATION, "JDISC Singleton activations"),
@@ -66,6 +71,11 @@ public enum ContainerMetrics implements VespaMetrics {
     JDISC_HTTP_FILTERING_RESPONSE_HANDLED("jdisc.http.filtering.response.handled", Unit.REQUEST, "Number of filtering responses handled"),
     JDISC_HTTP_FILTERING_RESPONSE_UNHANDLED("jdisc.http.filtering.response.unhandled", Unit.REQUEST, "Number of filtering responses unhandled"),
     JDISC_HTTP_HANDLER_UNHANDLED_EXCEPTIONS("jdisc.http.handler.unhandled_exceptions", Unit.REQUEST, "Number of unhandled exceptions in handler"),
+    JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT("jdisc.http.handler.concurrency_limit", Unit.REQUEST, "The adaptive limit on concurrent requests to a handler binding"),
+    JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT_REJECTED("jdisc.http.handler.concurrency_limit.rejected", Unit.REQUEST, "Number of requests rejected because the concurrency limit of their handler binding was reached"),
+    JDISC_HTTP_ACCESS_LOG_DROPPED("jdisc.http.access_log.dropped", Unit.RECORD, "Number of access log entries dropped because the queue of the access log was full"),
+    JDISC_HTTP_COMPRESSION_RAW_BYTES("jdisc.http.compression.raw_bytes", Unit.BYTE, "Number of response bytes compressed with zstd, before compression"),
+    JDISC_HTTP_COMPRESSION_COMPRESSED_BYTES("jdisc.http.compression.compressed_bytes", Unit.BYTE, "Number of response bytes compressed with zstd, after compression"),
 
     JDISC_TLS_CAPABILITY_CHECKS_SUCCEEDED("jdisc.tls.capability_checks.succeeded", Unit.OPERATION, "Number of TLS capability checks succeeded"),
     JDISC_TLS_CAPABILITY_CHECKS_FAILED("jdisc.tls.capability_checks.failed", Unit.OPERATION, "Number of TLS capability checks failed"),
@@ -48,6 +48,10 @@ public class InfrastructureMetricSet {
         addMetric(metrics, ConfigServerMetrics.LATENCY, EnumSet.of(max, sum, count));
         addMetric(metrics, ConfigServerMetrics.CACHE_CONFIG_ELEMS.last());
         addMetric(metrics, ConfigServerMetrics.CACHE_CHECKSUM_ELEMS.last());
+        addMetric(metrics, ConfigServerMetrics.CACHE_PRECOMPUTED_CONFIGS.last());
+        addMetric(metrics, ConfigServerMetrics.CACHE_PRECOMPUTE_REMAINING_CONFIGS.last());
+        addMetric(metrics, ConfigServerMetrics.CACHE_PRECOMPUTE_DURATION.last());
+        addMetric(metrics, ConfigServerMetrics.MODEL_BUILD_DURATION.last());
         addMetric(metrics, ConfigServerMetrics.HOSTS.last());
         addMetric(metrics, ConfigServerMetrics.DELAYED_RESPONSES.count());
         addMetric(metrics, ConfigServerMetrics.SESSION_CHANGE_ERRORS.count());
@@ -201,9 +201,19 @@ public class Vespa9VespaMetricSet {
         addMetric(metrics, ContainerMetrics.JDISC_HTTP_FILTER_RULE_ALLOWED_REQUESTS.rate());
 
         addMetric(metrics, ContainerMetrics.JDISC_HTTP_HANDLER_UNHANDLED_EXCEPTIONS.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT, EnumSet.of(min, max));
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT_REJECTED.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_ACCESS_LOG_DROPPED.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_COMPRESSION_RAW_BYTES.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_COMPRESSION_COMPRESSED_BYTES.rate());
 
         addMetric(metrics, ContainerMetrics.JDISC_APPLICATION_FAILED_COMPONENT_GRAPHS.rate());
         addMetric(metrics, ContainerMetrics.JDISC_APPLICATION_COMPONENT_GRAPH_RECONFIGURATIONS.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_WARMUP_REQUESTS.count());
+        addMetric(metrics, ContainerMetrics.JDISC_WARMUP_FAILED_REQUESTS.count());
+        addMetric(metrics, ContainerMetrics.JDISC_WARMUP_DURATION_MILLIS.max());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_QUEUE_SIZE.max());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_TASK_LATENCY.average());
 
         addMetric(metrics, ContainerMetrics.FEED_LATENCY, EnumSet.of(sum, count, max));
         addMetric(metrics, ContainerMetrics.FEED_HTTP_REQUESTS, EnumSet.of(count, rate));
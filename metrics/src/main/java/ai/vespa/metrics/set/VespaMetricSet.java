@@ -227,10 +227,20 @@ public class VespaMetricSet {
         addMetric(metrics, ContainerMetrics.JDISC_HTTP_FILTERING_RESPONSE_UNHANDLED.rate());
 
         addMetric(metrics, ContainerMetrics.JDISC_HTTP_HANDLER_UNHANDLED_EXCEPTIONS.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT, EnumSet.of(min, max, last));
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_HANDLER_CONCURRENCY_LIMIT_REJECTED.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_ACCESS_LOG_DROPPED.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_COMPRESSION_RAW_BYTES.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_HTTP_COMPRESSION_COMPRESSED_BYTES.rate());
 
         addMetric(metrics, ContainerMetrics.JDISC_APPLICATION_FAILED_COMPONENT_GRAPHS.rate());
         addMetric(metrics, ContainerMetrics.JDISC_APPLICATION_COMPONENT_GRAPH_CREATION_TIME_MILLIS.last());
         addMetric(metrics, ContainerMetrics.JDISC_APPLICATION_COMPONENT_GRAPH_RECONFIGURATIONS.rate());
+        addMetric(metrics, ContainerMetrics.JDISC_WARMUP_REQUESTS.count());
+        addMetric(metrics, ContainerMetrics.JDISC_WARMUP_FAILED_REQUESTS.count());
+        addMetric(metrics, ContainerMetrics.JDISC_WARMUP_DURATION_MILLIS.max());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_QUEUE_SIZE.max());
+        addMetric(metrics, ContainerMetrics.MBUS_MESSENGER_TASK_LATENCY.average());
 
         addMetric(metrics, ContainerMetrics.JDISC_JVM.last());
 
@@ -12,6 +12,7 @@ public enum Capability implements ToCapabilitySet {
     HTTP_UNCLASSIFIED("vespa.http.unclassified"),
     RESTAPI_UNCLASSIFIED("vespa.restapi.unclassified"),
     RPC_UNCLASSIFIED("vespa.rpc.unclassified"),
+    CLIENT__CONFIG_API("vespa.client.config_api"),
     CLIENT__FILERECEIVER_API("vespa.client.filereceiver_api"),
     CLIENT__SLOBROK_API("vespa.client.slobrok_api"),
     CLUSTER_CONTROLLER__REINDEXING("vespa.cluster_controller.reindexing"),
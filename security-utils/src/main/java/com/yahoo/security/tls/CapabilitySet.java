@@ -54,7 +54,7 @@ public class CapabilitySet implements ToCapabilitySet {
             "vespa.logserver_node", SHARED_CAPABILITIES_APP_NODE);
     public static final CapabilitySet CONFIGSERVER_NODE = predefined(
             "vespa.config_server_node",
-            Capability.CLIENT__FILERECEIVER_API, Capability.CONTAINER__MANAGEMENT_API, Capability.SLOBROK__API,
+            Capability.CLIENT__CONFIG_API, Capability.CLIENT__FILERECEIVER_API, Capability.CONTAINER__MANAGEMENT_API, Capability.SLOBROK__API,
             Capability.CLUSTER_CONTROLLER__REINDEXING, Capability.CLUSTER_CONTROLLER__STATE, Capability.LOGSERVER_API,
             TELEMETRY);
 
@@ -39,6 +39,7 @@ import com.yahoo.documentapi.DocumentResponse;
 import com.yahoo.documentapi.ProgressToken;
 import com.yahoo.documentapi.Response.Outcome;
 import com.yahoo.documentapi.Result;
+import com.yahoo.documentapi.SlicedVisitorSession;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorControlSession;
 import com.yahoo.documentapi.VisitorDataHandler;
@@ -187,6 +188,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
     private final DocumentApiMetrics metrics;
     private final DocumentOperationParser parser;
     private final long maxThrottled;
+    private final int maxConcurrentSlices;
     private final DocumentAccess access;
     private final AsyncSession asyncSession;
     private final Map<String, StorageCluster> clusters;
@@ -220,6 +222,7 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         this.metric = metric;
         this.metrics = new DocumentApiMetrics(metricReceiver, "documentV1");
         this.maxThrottled = executorConfig.maxThrottled();
+        this.maxConcurrentSlices = Math.max(1, executorConfig.maxConcurrentSlices());
         this.access = access;
         this.asyncSession = access.createAsyncSession(new AsyncParameters());
         this.clusters = parseClusters(clusterListConfig, bucketSpacesConfig);
@@ -1220,6 +1223,14 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         return parameters;
     }
 
+    /** Returns the number of slices to visit concurrently, which is given by 'slices' when 'sliceId' is not set. */
+    private int concurrentSlices(HttpRequest request) {
+        if (getProperty(request, SLICE_ID).isPresent())
+            return 1;
+
+        return getProperty(request, SLICES, integerParser).map(slices -> Math.min(slices, maxConcurrentSlices)).orElse(1);
+    }
+
     private long visitTimeout(HttpRequest request) {
         return Math.max(1,
                         Math.max(doomMillis(request) - clock.millis() - visitTimeout.toMillis(),
@@ -1261,8 +1272,10 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
         Optional<Integer> sliceId = getProperty(request, SLICE_ID, integerParser);
         if (slices.isPresent() && sliceId.isPresent())
             parameters.slice(slices.get(), sliceId.get());
-        else if (slices.isPresent() != sliceId.isPresent())
-            throw new IllegalArgumentException("None or both of '" + SLICES + "' and '" + SLICE_ID + "' must be set");
+        else if (sliceId.isPresent())
+            throw new IllegalArgumentException("'" + SLICES + "' must be set when '" + SLICE_ID + "' is set");
+        else if (slices.isPresent() && slices.get() <= 0)
+            throw new IllegalArgumentException("'" + SLICES + "' must be positive");
 
         return parameters;
     }
@@ -1455,7 +1468,12 @@ public class DocumentV1ApiHandler extends AbstractRequestHandler {
                 });
             }
             parameters.setControlHandler(controller);
-            visits.put(controller, access.createVisitorSession(parameters));
+            int slices = concurrentSlices(request);
+            visits.put(controller, SlicedVisitorSession.create(parameters, slices, slice -> {
+                if (slice != parameters && slice.getThrottlePolicy() instanceof StaticThrottlePolicy policy)
+                    slice.setThrottlePolicy(policy.slice(slices));
+                return access.createVisitorSession(slice);
+            }));
             phaser.arriveAndDeregister();
         }
         catch (ParseException e) {
@@ -45,6 +45,7 @@ import com.yahoo.documentapi.VisitorSession;
 import com.yahoo.documentapi.messagebus.protocol.PutDocumentMessage;
 import com.yahoo.documentapi.messagebus.protocol.RemoveDocumentMessage;
 import com.yahoo.jdisc.test.MockMetric;
+import com.yahoo.messagebus.DynamicThrottlePolicy;
 import com.yahoo.messagebus.StaticThrottlePolicy;
 import com.yahoo.messagebus.Trace;
 import com.yahoo.messagebus.TraceNode;
@@ -72,6 +73,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -982,6 +984,61 @@ public class DocumentV1ApiTest {
         }
     }
 
+    @Test
+    public void testConcurrentSlices() {
+        RequestHandlerTestDriver driver = new RequestHandlerTestDriver(handler);
+        List<AckToken> tokens = List.of(new AckToken(null), new AckToken(null));
+        List<VisitorParameters> slices = new CopyOnWriteArrayList<>();
+        access.expect(tokens);
+        access.expect(parameters -> {
+            int slice = slices.size();
+            slices.add(parameters);
+            assertEquals(2, parameters.getSlices());
+            assertEquals(slice, parameters.getSliceId());
+            assertEquals(60, ((DynamicThrottlePolicy) parameters.getThrottlePolicy()).getMaxWindowSize(), 0);
+            parameters.getLocalDataHandler().onMessage(new PutDocumentMessage(new DocumentPut(slice == 0 ? doc1 : doc2)), tokens.get(slice));
+            VisitorStatistics statistics = new VisitorStatistics();
+            statistics.setBucketsVisited(1);
+            statistics.setDocumentsVisited(1);
+            parameters.getControlHandler().onVisitorStatistics(statistics);
+            parameters.getControlHandler().onDone(VisitorControlHandler.CompletionCode.SUCCESS, "done");
+        });
+        var response = driver.sendRequest("http://localhost/document/v1?cluster=content&stream=true&concurrency=120&slices=2");
+        assertSameJson("""
+                       {
+                         "pathId": "/document/v1",
+                         "documents": [
+                           {
+                             "id": "id:space:music::one",
+                             "fields": {
+                               "artist": "Tom Waits",
+                               "embedding": { "type": "tensor(x[3])", "values": [1.0,2.0,3.0] }
+                             }
+                           },
+                           {
+                             "id": "id:space:music:n=1:two",
+                             "fields": {
+                               "artist": "Asa-Chan & Jun-Ray",
+                               "embedding": { "type": "tensor(x[3])", "values": [4.0,5.0,6.0] }
+                             }
+                           }
+                         ],
+                         "documentCount": 2
+                       }""", response.readAll());
+        assertEquals(200, response.getStatus());
+        assertEquals(2, slices.size());
+
+        // 'sliceId' requires 'slices'.
+        response = driver.sendRequest("http://localhost/document/v1?cluster=content&sliceId=1");
+        assertSameJson("""
+                       {
+                         "pathId": "/document/v1",
+                         "message": "'slices' must be set when 'sliceId' is set"
+                       }""", response.readAll());
+        assertEquals(400, response.getStatus());
+        driver.close();
+    }
+
     @Test
     public void visit_timestamp_ranges_can_be_open_in_both_ends() {
         // Only specifying fromTimestamp; visit up to current time
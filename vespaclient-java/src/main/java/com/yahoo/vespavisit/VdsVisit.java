@@ -6,6 +6,7 @@ import com.yahoo.document.fieldset.DocIdOnly;
 import com.yahoo.document.fieldset.DocumentOnly;
 import com.yahoo.document.select.parser.ParseException;
 import com.yahoo.documentapi.ProgressToken;
+import com.yahoo.documentapi.SlicedVisitorSession;
 import com.yahoo.documentapi.VisitorControlHandler;
 import com.yahoo.documentapi.VisitorParameters;
 import com.yahoo.documentapi.VisitorSession;
@@ -368,7 +369,8 @@ public class VdsVisit {
                 .longOpt("slices")
                 .desc("Split the document corpus into this number of independent slices. " +
                       "This lets multiple, concurrent series of visitors advance the same logical " +
-                      "visit independently, by specifying a different --sliceid for each.")
+                      "visit independently, by specifying a different --sliceid for each. " +
+                      "Without --sliceid, all slices are visited concurrently by this visitor.")
                 .hasArg(true)
                 .type(Number.class)
                 .build());
@@ -409,6 +411,7 @@ public class VdsVisit {
         private boolean nullRender = false;
         private int slices = 1;
         private int sliceId = 0;
+        private int concurrentSlices = 1;
 
         public VisitorParameters getVisitorParameters() {
             return visitorParameters;
@@ -540,6 +543,15 @@ public class VdsVisit {
             this.sliceId = sliceId;
         }
 
+        /** Returns the number of slices this visitor should visit concurrently, covering the whole corpus. */
+        public int concurrentSlices() {
+            return concurrentSlices;
+        }
+
+        public void setConcurrentSlices(int concurrentSlices) {
+            this.concurrentSlices = concurrentSlices;
+        }
+
     }
 
     private static int optionAsInt(CommandLine cmdLine, String optName) throws org.apache.commons.cli.ParseException {
@@ -679,13 +691,19 @@ public class VdsVisit {
             if (line.hasOption("nullrender")) {
                 allParams.setNullRender(true);
             }
-            if (line.hasOption("slices") != line.hasOption("sliceid")) {
-                throw new IllegalArgumentException("Both --slices and --sliceid must be specified when visiting with slicing");
+            if (line.hasOption("sliceid") && ! line.hasOption("slices")) {
+                throw new IllegalArgumentException("--slices must be specified when visiting a single slice with --sliceid");
             }
-            if (line.hasOption("slices")) {
+            if (line.hasOption("sliceid")) {
                 allParams.setSlices(optionAsInt(line, "slices"));
                 allParams.setSliceId(optionAsInt(line, "sliceid"));
             }
+            else if (line.hasOption("slices")) {
+                allParams.setConcurrentSlices(optionAsInt(line, "slices"));
+                if (allParams.concurrentSlices() < 1) {
+                    throw new IllegalArgumentException("--slices must be greater than 0");
+                }
+            }
 
             boolean jsonOutput = line.hasOption("jsonoutput");
             boolean jsonl      = line.hasOption("jsonl");
@@ -810,6 +828,9 @@ public class VdsVisit {
         if (params.getSlices() > 1) {
             out.format("Visiting slice %d out of %s slices\n", params.getSliceId(), params.getSlices());
         }
+        if (vdsParams.concurrentSlices() > 1) {
+            out.format("Visiting all %d slices concurrently\n", vdsParams.concurrentSlices());
+        }
     }
 
     private void onDocumentSelectionException(Exception e) {
@@ -887,7 +908,11 @@ public class VdsVisit {
         }
 
         try {
-            session = sessionAccessor.createVisitorSession(visitorParameters);
+            session = SlicedVisitorSession.create(visitorParameters, params.concurrentSlices(), slice -> {
+                if (slice != visitorParameters && slice.getThrottlePolicy() instanceof StaticThrottlePolicy policy)
+                    slice.setThrottlePolicy(policy.slice(slice.getSlices()));
+                return sessionAccessor.createVisitorSession(slice);
+            });
             while (true) {
                 try {
                     if (session.waitUntilDone(params.getFullTimeout())) break;
@@ -224,6 +224,30 @@ public class VdsVisitTestCase {
         assertEquals(0, allParams.sliceId());
     }
 
+    @Test
+    void all_slices_are_visited_concurrently_when_no_slice_id_is_given() throws Exception {
+        var allParams = createMockArgumentParser().parse(new String[]{ "--slices", "4" });
+        assertEquals(4, allParams.concurrentSlices());
+        assertEquals(1, allParams.getVisitorParameters().getSlices());
+        assertEquals(0, allParams.getVisitorParameters().getSliceId());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(outputStream);
+        VdsVisit.verbosePrintParameters(allParams, printStream);
+        printStream.flush();
+        assertTrue(outputStream.toString(StandardCharsets.UTF_8).contains("Visiting all 4 slices concurrently"));
+    }
+
+    @Test
+    void slice_id_requires_slices() throws Exception {
+        try {
+            createMockArgumentParser().parse(new String[]{ "--sliceid", "1" });
+            fail("no exception thrown");
+        } catch (IllegalArgumentException e) {
+            assertEquals("--slices must be specified when visiting a single slice with --sliceid", e.getMessage());
+        }
+    }
+
     // TODO Vespa 9: change default from long to short
     @Test
     void tensor_output_format_is_long_by_default() throws Exception {